@@ -15,13 +15,12 @@
  */
 package com.qwazr.cluster;
 
-import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.UUID;
 
-class AddressContent implements Externalizable {
+class AddressContent {
 
     /**
      * The address of the node
@@ -48,15 +47,37 @@ class AddressContent implements Externalizable {
         return nodeLiveId;
     }
 
-    @Override
-    public void writeExternal(final ObjectOutput out) throws IOException {
+    final void writeAddress(final ClusterCodec.Output out) {
+        out.writeString(address);
+        out.writeUuid(nodeLiveId);
+    }
+
+    final void readAddress(final ClusterCodec.Input in) throws IOException {
+        this.address = in.readString();
+        this.nodeLiveId = in.readUuid();
+    }
+
+    void write(final ClusterCodec.Output out) {
+        writeAddress(out);
+    }
+
+    void read(final ClusterCodec.Input in) throws IOException {
+        readAddress(in);
+    }
+
+    /**
+     * Write the legacy format, see {@link LegacyCodec}
+     */
+    void writeExternal(final ObjectOutput out) throws IOException {
         out.writeUTF(address);
         out.writeLong(nodeLiveId.getMostSignificantBits());
         out.writeLong(nodeLiveId.getLeastSignificantBits());
     }
 
-    @Override
-    public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    /**
+     * Read the legacy format, see {@link LegacyCodec}
+     */
+    void readExternal(final ObjectInput in) throws IOException {
         this.address = in.readUTF();
         this.nodeLiveId = new UUID(in.readLong(), in.readLong());
     }
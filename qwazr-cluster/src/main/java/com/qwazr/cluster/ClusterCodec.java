@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * The binary wire format of the cluster messages.
+ * <p>
+ * A packet starts with a four bytes header: the magic bytes 'Q' 'Z', the version of the format and the command.
+ * The integers are encoded as variable length integers, the strings as a length followed by the UTF-8 bytes.
+ */
+final class ClusterCodec {
+
+    final static byte MAGIC_1 = 'Q';
+    final static byte MAGIC_2 = 'Z';
+    final static byte VERSION = 1;
+
+    final static int HEADER_SIZE = 4;
+
+    /**
+     * The largest payload of an UDP packet
+     */
+    final static int MAX_PACKET_SIZE = 65507;
+
+    private ClusterCodec() {
+    }
+
+    static byte[] encode(final MessageContent message) throws IOException {
+        final Output output = new Output(256);
+        output.writeByte(MAGIC_1);
+        output.writeByte(MAGIC_2);
+        output.writeByte(VERSION);
+        output.writeByte((byte) message.getCommand().cmd);
+        message.getContent().write(output);
+        if (output.size() > MAX_PACKET_SIZE)
+            throw new IOException("The message is too large: " + output.size() + " bytes");
+        return output.toByteArray();
+    }
+
+    /**
+     * @return true if the packet starts with the magic bytes of the header
+     */
+    static boolean hasMagic(final byte[] data, final int offset, final int length) {
+        return length >= 2 && data[offset] == MAGIC_1 && data[offset + 1] == MAGIC_2;
+    }
+
+    static MessageContent decode(final byte[] data, final int offset, final int length) throws IOException {
+        final Input input = new Input(data, offset, length);
+        if (input.readByte() != MAGIC_1 || input.readByte() != MAGIC_2)
+            throw new IOException("Unknown UDP message (wrong header)");
+        final byte version = input.readByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported version of the cluster protocol: " + version);
+        final ClusterProtocol command = ClusterProtocol.findCommand((char) input.readByte());
+        final AddressContent content = command.contentSupplier.get();
+        content.read(input);
+        return new MessageContent(command, content);
+    }
+
+    static final class Output {
+
+        private byte[] bytes;
+        private int size;
+
+        Output(final int initialCapacity) {
+            bytes = new byte[initialCapacity];
+            size = 0;
+        }
+
+        private void ensureCapacity(final int extra) {
+            if (size + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        void writeByte(final byte value) {
+            ensureCapacity(1);
+            bytes[size++] = value;
+        }
+
+        void writeBytes(final byte[] values) {
+            ensureCapacity(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(final long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                bytes[size++] = (byte) (value >>> shift);
+        }
+
+        void writeUuid(final UUID uuid) {
+            writeLong(uuid.getMostSignificantBits());
+            writeLong(uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * The length is shifted by one, zero means null
+         *
+         * @param value the string to write, may be null
+         */
+        void writeString(final String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1);
+            writeBytes(utf8);
+        }
+
+        void writeStrings(final Collection<String> values) {
+            if (values == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(values.size());
+            for (final String value : values)
+                writeString(value);
+        }
+    }
+
+    static final class Input {
+
+        private final byte[] bytes;
+        private final int end;
+        private int pos;
+
+        Input(final byte[] bytes, final int offset, final int length) {
+            this.bytes = bytes;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        private void require(final int length) throws IOException {
+            if (length < 0 || pos + length > end)
+                throw new IOException("Truncated UDP message");
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return bytes[pos++];
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed variable length integer");
+        }
+
+        int readVarInt() throws IOException {
+            final long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE)
+                throw new IOException("Malformed length: " + value);
+            return (int) value;
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++)
+                value = (value << 8) | (bytes[pos++] & 0xFF);
+            return value;
+        }
+
+        UUID readUuid() throws IOException {
+            return new UUID(readLong(), readLong());
+        }
+
+        String readString() throws IOException {
+            final int length = readVarInt() - 1;
+            if (length < 0)
+                return null;
+            require(length);
+            final String value = new String(bytes, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        void readStrings(final Collection<String> values) throws IOException {
+            int count = readVarInt();
+            while (count-- > 0)
+                values.add(readString());
+        }
+    }
+}
@@ -17,16 +17,15 @@ package com.qwazr.cluster;
 
 import com.qwazr.server.GenericServerBuilder;
 import com.qwazr.server.ServerException;
+import com.qwazr.server.configuration.ConfigurationProperties;
 import com.qwazr.server.configuration.ServerConfiguration;
 import com.qwazr.utils.ArrayUtils;
 import com.qwazr.utils.HashUtils;
 import com.qwazr.utils.LoggerUtils;
-import com.qwazr.utils.StringUtils;
 import org.apache.commons.lang3.RandomUtils;
 
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -40,6 +39,18 @@ public class ClusterManager {
 
     private static final Logger LOGGER = LoggerUtils.getLogger(ClusterManager.class);
 
+    public final static String GOSSIP_PROTOCOL = "gossip";
+
+    /**
+     * The name of the executor of the cluster work: the protocol listener, which holds one thread, and the requests
+     * sent to the other nodes
+     */
+    public final static String EXECUTOR = "cluster";
+
+    public final static ServerConfiguration.ExecutorSettings EXECUTOR_DEFAULTS =
+            new ServerConfiguration.ExecutorSettings(Math.max(8, Runtime.getRuntime().availableProcessors() * 2), 1000,
+                    ServerConfiguration.ExecutorSettings.Rejection.caller_runs);
+
     final ClusterNodeMap clusterNodeMap;
 
     final ClusterNodeAddress me;
@@ -84,6 +95,11 @@ public class ClusterManager {
         if (configuration.multicastConnector.address != null && configuration.multicastConnector.port != -1)
             protocolListener = new MulticastListener(this, configuration.multicastConnector.address,
                     configuration.multicastConnector.port);
+        else if (GOSSIP_PROTOCOL.equalsIgnoreCase(
+                configuration.getStringProperty(ConfigurationProperties.CLUSTER_PROTOCOL, null)))
+            protocolListener = new GossipListener(this,
+                    configuration.getIntegerProperty(ConfigurationProperties.CLUSTER_GOSSIP_PERIOD_MS, null),
+                    configuration.getIntegerProperty(ConfigurationProperties.CLUSTER_GOSSIP_ACK_TIMEOUT_MS, null));
         else
             protocolListener = new DatagramListener(this);
 
@@ -103,6 +119,10 @@ public class ClusterManager {
         return this;
     }
 
+    final ProtocolListener getProtocolListener() {
+        return protocolListener;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(nodeLiveId);
@@ -172,33 +192,17 @@ public class ClusterManager {
     }
 
     final SortedSet<String> getNodesByGroupByService(final String group, final String service) {
-        if (StringUtils.isEmpty(group))
-            return clusterNodeMap.getByService(service);
-        else if (StringUtils.isEmpty(service))
-            return clusterNodeMap.getByGroup(group);
-        else
-            return clusterNodeMap.getGroupService(group, service);
+        return clusterNodeMap.getNodeList(group, service).nodes;
     }
 
     final String getLeaderNode(final String group, final String service) {
-        final SortedSet<String> nodes = getNodesByGroupByService(group, service);
-        if (nodes == null || nodes.isEmpty())
-            return null;
-        return nodes.first();
+        final String[] nodes = clusterNodeMap.getNodeList(group, service).array;
+        return nodes.length == 0 ? null : nodes[0];
     }
 
     final String getRandomNode(final String group, final String service) {
-        final SortedSet<String> nodes = getNodesByGroupByService(group, service);
-        if (nodes == null || nodes.isEmpty())
-            return null;
-        int rand = RandomUtils.nextInt(0, nodes.size());
-        Iterator<String> it = nodes.iterator();
-        for (; ; ) {
-            final String node = it.next();
-            if (rand == 0)
-                return node;
-            rand--;
-        }
+        final String[] nodes = clusterNodeMap.getNodeList(group, service).array;
+        return nodes.length == 0 ? null : nodes[RandomUtils.nextInt(0, nodes.length)];
     }
 
     final boolean isMe(final AddressContent message) {
@@ -74,6 +74,25 @@ final class ClusterNode {
 		servicesCache = new ArrayList<>(services);
 	}
 
+	/**
+	 * @param newGroups   the groups, null if unchanged
+	 * @param newServices the services, null if unchanged
+	 * @return true if the node already belongs to exactly these groups and services
+	 */
+	final boolean isSameMembership(final Collection<String> newGroups, final Collection<String> newServices) {
+		if (groupsCache == null || servicesCache == null)
+			return false;
+		return isSame(groups, newGroups) && isSame(services, newServices);
+	}
+
+	private static boolean isSame(final Set<String> current, final Collection<String> values) {
+		if (values == null)
+			return true;
+		if (values instanceof Set)
+			return current.equals(values);
+		return current.size() == values.size() && current.containsAll(values);
+	}
+
 	final Collection<String> getGroups() {
 		return groupsCache;
 	}
@@ -28,13 +28,23 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
+/**
+ * The nodes of the cluster, by group and by service.
+ * <p>
+ * The readers never lock: they use an immutable snapshot. A change creates a new snapshot which only copies the maps
+ * and the sets it modifies, the others are shared with the previous snapshot. An alive message from a known node only
+ * updates the expiration time of the node: the snapshot is unchanged.
+ */
 class ClusterNodeMap {
 
     private static final Logger LOGGER = LoggerUtils.getLogger(ClusterNodeMap.class);
@@ -44,72 +54,254 @@ class ClusterNodeMap {
 
     private final ReadWriteLock readWriteLock = ReadWriteLock.stamped();
 
-    private final HashMap<String, ClusterNode> nodesMap;
-    private final HashMap<String, HashSet<String>> groupsMap;
-    private final HashMap<String, HashSet<String>> servicesMap;
+    private volatile Snapshot snapshot;
+
+    final static NodeList EMPTY = new NodeList(Collections.emptySortedSet());
 
-    private volatile Cache cache;
+    /**
+     * A sorted set of nodes and its array, for a constant time access to the leader or to a random node
+     */
+    static final class NodeList {
 
-    private class Cache {
+        final SortedSet<String> nodes;
+        final String[] array;
 
-        private final HashMap<String, ClusterNode> cacheNodesMap;
+        private NodeList(final SortedSet<String> nodes) {
+            this.nodes = Collections.unmodifiableSortedSet(nodes);
+            this.array = nodes.toArray(new String[0]);
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, ClusterNode> nodesMap;
         private final Set<SocketAddress> fullNodesAddresses;
         private final Set<SocketAddress> externalNodesAddresses;
-        private final TreeMap<String, TreeSet<String>> cacheGroupsMap;
-        private final TreeMap<String, TreeSet<String>> cacheServicesMap;
-
-        private Cache() {
-            externalNodesAddresses = new HashSet<>();
-            fullNodesAddresses = new HashSet<>();
-            cacheNodesMap = new HashMap<>();
-            nodesMap.forEach((address, clusterNode) -> {
-                if (!myAddress.equals(clusterNode.address.address))
-                    externalNodesAddresses.add(clusterNode.address.address);
-                fullNodesAddresses.add(clusterNode.address.address);
-                cacheNodesMap.put(address, clusterNode);
+        private final TreeMap<String, TreeSet<String>> groupsMap;
+        private final TreeMap<String, TreeSet<String>> servicesMap;
+
+        /**
+         * The results of the lookups, computed once per snapshot
+         */
+        private final ConcurrentHashMap<LookupKey, NodeList> lookups;
+
+        private Snapshot(final Map<String, ClusterNode> nodesMap,
+                         final Set<SocketAddress> fullNodesAddresses,
+                         final Set<SocketAddress> externalNodesAddresses,
+                         final TreeMap<String, TreeSet<String>> groupsMap,
+                         final TreeMap<String, TreeSet<String>> servicesMap) {
+            this.nodesMap = nodesMap;
+            this.fullNodesAddresses = fullNodesAddresses;
+            this.externalNodesAddresses = externalNodesAddresses;
+            this.groupsMap = groupsMap;
+            this.servicesMap = servicesMap;
+            this.lookups = new ConcurrentHashMap<>();
+        }
+
+        private NodeList lookup(final LookupKey key, final Function<Snapshot, SortedSet<String>> compute) {
+            final NodeList nodeList = lookups.get(key);
+            if (nodeList != null)
+                return nodeList;
+            return lookups.computeIfAbsent(key, k -> {
+                final SortedSet<String> nodes = compute.apply(this);
+                return nodes == null || nodes.isEmpty() ? EMPTY : new NodeList(nodes);
             });
-            cacheGroupsMap = new TreeMap<>();
-            groupsMap.forEach((key, nodes) -> cacheGroupsMap.put(key, new TreeSet<>(nodes)));
-            cacheServicesMap = new TreeMap<>();
-            servicesMap.forEach((key, nodes) -> cacheServicesMap.put(key, new TreeSet<>(nodes)));
         }
     }
 
-    ClusterNodeMap(final ClusterManager clusterManager, final InetSocketAddress myAddress) {
-        this.clusterManager = clusterManager;
-        this.myAddress = myAddress;
-        nodesMap = new HashMap<>();
-        groupsMap = new HashMap<>();
-        servicesMap = new HashMap<>();
-        cache = new Cache();
+    private enum LookupType {
+        GROUP_SERVICE, GROUP_OR_SERVICE
     }
 
-    private final SortedSet<String> EMPTY = Collections.unmodifiableSortedSet(new TreeSet<>());
+    private static final class LookupKey {
+
+        private final LookupType type;
+        private final String group;
+        private final String service;
+        private final int hashCode;
+
+        private LookupKey(final LookupType type, final String group, final String service) {
+            this.type = type;
+            this.group = group;
+            this.service = service;
+            this.hashCode = Objects.hash(type, group, service);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof LookupKey))
+                return false;
+            final LookupKey key = (LookupKey) o;
+            return type == key.type && Objects.equals(group, key.group) && Objects.equals(service, key.service);
+        }
+    }
 
     /**
-     * @param group   the name of the group
-     * @param service the name of the service
-     * @return a set of nodes for the given group and service
+     * The changes applied to a snapshot. The maps and the sets are copied on the first write.
      */
-    final SortedSet<String> getGroupService(final String group, final String service) {
-        final Cache cc = cache;
-        final TreeSet<String> groupSet = group == null ? null : cc.cacheGroupsMap.get(group);
-        final TreeSet<String> serviceSet = service == null ? null : cc.cacheServicesMap.get(service);
+    private final class Patch {
+
+        private final Snapshot from;
+        private HashMap<String, ClusterNode> nodesMap;
+        private TreeMap<String, TreeSet<String>> groupsMap;
+        private TreeMap<String, TreeSet<String>> servicesMap;
+        private final Set<String> copiedGroups = new HashSet<>();
+        private final Set<String> copiedServices = new HashSet<>();
+
+        private Patch(final Snapshot from) {
+            this.from = from;
+        }
+
+        private ClusterNode getNode(final String address) {
+            return (nodesMap != null ? nodesMap : from.nodesMap).get(address);
+        }
+
+        private void putNode(final ClusterNode node) {
+            if (nodesMap == null)
+                nodesMap = new HashMap<>(from.nodesMap);
+            nodesMap.put(node.address.httpAddressKey, node);
+        }
+
+        private void removeNode(final String address) {
+            if (nodesMap == null)
+                nodesMap = new HashMap<>(from.nodesMap);
+            nodesMap.remove(address);
+        }
+
+        private TreeMap<String, TreeSet<String>> groups() {
+            if (groupsMap == null)
+                groupsMap = new TreeMap<>(from.groupsMap);
+            return groupsMap;
+        }
+
+        private TreeMap<String, TreeSet<String>> services() {
+            if (servicesMap == null)
+                servicesMap = new TreeMap<>(from.servicesMap);
+            return servicesMap;
+        }
+
+        private void add(final Collection<String> keys, final String address,
+                         final TreeMap<String, TreeSet<String>> map, final Set<String> copied) {
+            for (final String key : keys) {
+                TreeSet<String> nodes = map.get(key);
+                if (nodes != null && nodes.contains(address))
+                    continue;
+                if (nodes == null) {
+                    nodes = new TreeSet<>();
+                    copied.add(key);
+                } else if (copied.add(key))
+                    nodes = new TreeSet<>(nodes);
+                nodes.add(address);
+                map.put(key, nodes);
+            }
+        }
+
+        private void remove(final Collection<String> keys, final String address,
+                            final TreeMap<String, TreeSet<String>> map, final Set<String> copied) {
+            for (final String key : keys) {
+                final TreeSet<String> nodes = map.get(key);
+                if (nodes == null || !nodes.contains(address))
+                    continue;
+                if (nodes.size() == 1) {
+                    map.remove(key);
+                    copied.remove(key);
+                    continue;
+                }
+                final TreeSet<String> newNodes = copied.add(key) ? new TreeSet<>(nodes) : nodes;
+                newNodes.remove(address);
+                map.put(key, newNodes);
+            }
+        }
+
+        private void update(final Collection<String> oldKeys, final Collection<String> newKeys,
+                            final String address, final boolean isGroup) {
+            if (newKeys == null)
+                return;
+            final List<String> removed = new ArrayList<>();
+            if (oldKeys != null)
+                for (final String key : oldKeys)
+                    if (!newKeys.contains(key))
+                        removed.add(key);
+            final List<String> added = new ArrayList<>();
+            for (final String key : newKeys)
+                if (oldKeys == null || !oldKeys.contains(key))
+                    added.add(key);
+            if (removed.isEmpty() && added.isEmpty())
+                return;
+            final TreeMap<String, TreeSet<String>> map = isGroup ? groups() : services();
+            final Set<String> copied = isGroup ? copiedGroups : copiedServices;
+            remove(removed, address, map, copied);
+            add(added, address, map, copied);
+        }
+
+        /**
+         * Update the groups and the services of a node. Only the sets of the added or removed keys are copied.
+         */
+        private void setMembership(final ClusterNode node, final Collection<String> groups,
+                                   final Collection<String> services) {
+            final String address = node.address.httpAddressKey;
+            update(node.getGroups(), groups, address, true);
+            update(node.getServices(), services, address, false);
+            node.registerGroups(groups);
+            node.registerServices(services);
+        }
+
+        private void apply() {
+            if (nodesMap == null && groupsMap == null && servicesMap == null)
+                return;
+            final Map<String, ClusterNode> newNodesMap;
+            final Set<SocketAddress> fullNodesAddresses;
+            final Set<SocketAddress> externalNodesAddresses;
+            if (nodesMap != null) {
+                newNodesMap = Collections.unmodifiableMap(nodesMap);
+                final Set<SocketAddress> full = new HashSet<>();
+                final Set<SocketAddress> external = new HashSet<>();
+                nodesMap.values().forEach(clusterNode -> {
+                    if (!myAddress.equals(clusterNode.address.address))
+                        external.add(clusterNode.address.address);
+                    full.add(clusterNode.address.address);
+                });
+                fullNodesAddresses = Collections.unmodifiableSet(full);
+                externalNodesAddresses = Collections.unmodifiableSet(external);
+            } else {
+                newNodesMap = from.nodesMap;
+                fullNodesAddresses = from.fullNodesAddresses;
+                externalNodesAddresses = from.externalNodesAddresses;
+            }
+            snapshot = new Snapshot(newNodesMap, fullNodesAddresses, externalNodesAddresses,
+                    groupsMap != null ? groupsMap : from.groupsMap,
+                    servicesMap != null ? servicesMap : from.servicesMap);
+        }
+    }
+
+    ClusterNodeMap(final ClusterManager clusterManager, final InetSocketAddress myAddress) {
+        this.clusterManager = clusterManager;
+        this.myAddress = myAddress;
+        snapshot = new Snapshot(Collections.emptyMap(), Collections.emptySet(), Collections.emptySet(),
+                new TreeMap<>(), new TreeMap<>());
+    }
+
+    private static SortedSet<String> computeGroupService(final Snapshot snapshot,
+                                                         final String group,
+                                                         final String service) {
+        final TreeSet<String> groupSet = group == null ? null : snapshot.groupsMap.get(group);
+        final TreeSet<String> serviceSet = service == null ? null : snapshot.servicesMap.get(service);
         if (!StringUtils.isEmpty(group) && (groupSet == null || groupSet.isEmpty()))
-            return EMPTY;
+            return null;
         if (!StringUtils.isEmpty(service) && (serviceSet == null || serviceSet.isEmpty()))
-            return EMPTY;
+            return null;
         if (groupSet == null && serviceSet == null)
-            return EMPTY;
+            return null;
+        if (groupSet == null)
+            return serviceSet;
+        if (serviceSet == null)
+            return groupSet;
         final TreeSet<String> nodes = new TreeSet<>();
-        if (groupSet == null) {
-            nodes.addAll(serviceSet);
-            return nodes;
-        }
-        if (serviceSet == null) {
-            nodes.addAll(groupSet);
-            return nodes;
-        }
         groupSet.forEach(node -> {
             if (serviceSet.contains(node))
                 nodes.add(node);
@@ -117,84 +309,80 @@ class ClusterNodeMap {
         return nodes;
     }
 
-    private static TreeSet<String> getNodes(final String key, final TreeMap<String, TreeSet<String>> nodesMap) {
-        final TreeSet<String> nodeSet = nodesMap.get(key);
-        final TreeSet<String> nodes = new TreeSet<>();
-        if (nodeSet != null)
-            nodes.addAll(nodeSet);
-        return nodes;
-    }
-
-    final TreeSet<String> getByGroup(final String group) {
-        return getNodes(group, cache.cacheGroupsMap);
+    /**
+     * @param group   the name of the group
+     * @param service the name of the service
+     * @return a set of nodes for the given group and service
+     */
+    final SortedSet<String> getGroupService(final String group, final String service) {
+        return snapshot.lookup(new LookupKey(LookupType.GROUP_SERVICE, group, service),
+                s -> computeGroupService(s, group, service)).nodes;
     }
 
-    final TreeSet<String> getByService(final String service) {
-        return getNodes(service, cache.cacheServicesMap);
+    /**
+     * @param group   the name of the group, or null for any group
+     * @param service the name of the service, or null for any service
+     * @return the nodes of the service in the group, of the service if the group is empty, or of the group if the
+     * service is empty
+     */
+    final NodeList getNodeList(final String group, final String service) {
+        return snapshot.lookup(new LookupKey(LookupType.GROUP_OR_SERVICE, group, service), s -> {
+            if (StringUtils.isEmpty(group))
+                return service == null ? null : s.servicesMap.get(service);
+            else if (StringUtils.isEmpty(service))
+                return s.groupsMap.get(group);
+            else
+                return computeGroupService(s, group, service);
+        });
     }
 
     final TreeMap<String, TreeSet<String>> getGroups() {
-        return cache.cacheGroupsMap;
+        return snapshot.groupsMap;
     }
 
     final TreeMap<String, TreeSet<String>> getServices() {
-        return cache.cacheServicesMap;
+        return snapshot.servicesMap;
     }
 
     /**
      * @return a map which contains the nodes
      */
     final Map<String, ClusterNode> getNodesMap() {
-        return cache.cacheNodesMap;
+        return snapshot.nodesMap;
     }
 
     final Set<SocketAddress> getExternalNodeAddresses() {
-        return cache.externalNodesAddresses;
+        return snapshot.externalNodesAddresses;
     }
 
     final Set<SocketAddress> getFullNodeAddresses() {
-        return cache.fullNodesAddresses;
-    }
-
-    private static void registerSet(final Collection<String> keys,
-                                    final HashMap<String, HashSet<String>> nodesMap,
-                                    final String address) {
-        for (final String key : keys) {
-            final HashSet<String> nodeSet = nodesMap.computeIfAbsent(key, k -> new HashSet<>());
-            nodeSet.add(address);
-        }
-    }
-
-    private static void unregisterSet(final HashMap<String, HashSet<String>> nodesMap, final String address) {
-        final List<String> toRemove = new ArrayList<>();
-        nodesMap.forEach((key, nodeSet) -> {
-            nodeSet.remove(address);
-            if (nodeSet.isEmpty())
-                toRemove.add(key);
-
-        });
-        nodesMap.remove(address);
-        toRemove.forEach(nodesMap::remove);
+        return snapshot.fullNodesAddresses;
     }
 
-    private ClusterNode put(final String httpAddress, final UUID nodeLiveId, final Long expirationTimeNs) {
+    private ClusterNode put(final Patch patch, final String httpAddress, final UUID nodeLiveId,
+                            final Long expirationTimeMs) {
         final ClusterNodeAddress clusterNodeAddress = new ClusterNodeAddress(httpAddress, 9091);
-        final ClusterNode node = new ClusterNode(clusterNodeAddress, nodeLiveId, expirationTimeNs);
-        nodesMap.put(clusterNodeAddress.httpAddressKey, node);
+        final ClusterNode oldNode = patch.getNode(clusterNodeAddress.httpAddressKey);
+        // A restarted node announces again its groups and its services
+        if (oldNode != null)
+            patch.setMembership(oldNode, Collections.emptyList(), Collections.emptyList());
+        final ClusterNode node = new ClusterNode(clusterNodeAddress, nodeLiveId, expirationTimeMs);
+        patch.putNode(node);
         return node;
     }
 
-    private ClusterNode registerNode(final String httpAddress, final UUID nodeLiveId, final Long expirationTimeMs) {
-        final ClusterNode node = nodesMap.get(httpAddress);
+    private ClusterNode registerNode(final Patch patch, final String httpAddress, final UUID nodeLiveId,
+                                     final Long expirationTimeMs) {
+        final ClusterNode node = patch.getNode(httpAddress);
         if (node == null)
-            return put(httpAddress, nodeLiveId, expirationTimeMs);
+            return put(patch, httpAddress, nodeLiveId, expirationTimeMs);
         if (nodeLiveId == null)
             return node;
         if (nodeLiveId.equals(node.nodeLiveId)) {
             node.setExpirationTime(expirationTimeMs);
             return node;
         }
-        return put(httpAddress, nodeLiveId, expirationTimeMs);
+        return put(patch, httpAddress, nodeLiveId, expirationTimeMs);
     }
 
     /**
@@ -206,8 +394,9 @@ class ClusterNodeMap {
         if (httpAddress == null)
             return null;
         return readWriteLock.write(() -> {
-            final ClusterNode clusterNode = registerNode(httpAddress, null, null);
-            cache = new Cache();
+            final Patch patch = new Patch(snapshot);
+            final ClusterNode clusterNode = registerNode(patch, httpAddress, null, null);
+            patch.apply();
             return clusterNode;
         });
     }
@@ -225,8 +414,9 @@ class ClusterNodeMap {
         if (address == null)
             return null;
         return readWriteLock.writeEx(() -> {
-            final ClusterNode clusterNode = registerNode(address, message.getNodeLiveId(), expirationTimeMs);
-            cache = new Cache();
+            final Patch patch = new Patch(snapshot);
+            final ClusterNode clusterNode = registerNode(patch, address, message.getNodeLiveId(), expirationTimeMs);
+            patch.apply();
             return clusterNode;
         });
     }
@@ -238,14 +428,11 @@ class ClusterNodeMap {
         if (address == null)
             return null;
         return readWriteLock.writeEx(() -> {
-            final ClusterNode clusterNode = registerNode(address, message.getNodeLiveId(), expirationTimeMs);
-            unregisterSet(groupsMap, clusterNode.address.httpAddressKey);
-            unregisterSet(servicesMap, clusterNode.address.httpAddressKey);
-            clusterNode.registerGroups(message.groups);
-            clusterNode.registerServices(message.services);
-            registerSet(message.groups, groupsMap, address);
-            registerSet(message.services, servicesMap, address);
-            cache = new Cache();
+            final Patch patch = new Patch(snapshot);
+            final ClusterNode clusterNode = registerNode(patch, address, message.getNodeLiveId(), expirationTimeMs);
+            if (!clusterNode.isSameMembership(message.groups, message.services))
+                patch.setMembership(clusterNode, message.groups, message.services);
+            patch.apply();
             return clusterNode;
         });
     }
@@ -253,21 +440,19 @@ class ClusterNodeMap {
     /**
      * Unregister the node
      *
+     * @param patch   the changes
      * @param address the node to unregister
      */
-    private void unregisterAll(final String address) {
+    private void unregisterAll(final Patch patch, final String address) {
         LOGGER.info(() -> "Unregister " + address + " from " + myAddress);
-        final ClusterNode clusterNode = nodesMap.get(address);
-        final ClusterNodeAddress nodeAddress =
-                clusterNode != null ? clusterNode.address : new ClusterNodeAddress(address, 9091);
-        if (clusterNode != null) {
-            clusterNode.registerGroups(Collections.emptyList());
-            clusterNode.registerServices(Collections.emptyList());
-        }
-        unregisterSet(groupsMap, nodeAddress.httpAddressKey);
-        unregisterSet(servicesMap, nodeAddress.httpAddressKey);
-        if (!clusterManager.isMaster(nodeAddress))
-            nodesMap.remove(nodeAddress.httpAddressKey);
+        ClusterNode clusterNode = patch.getNode(address);
+        if (clusterNode == null)
+            clusterNode = patch.getNode(new ClusterNodeAddress(address, 9091).httpAddressKey);
+        if (clusterNode == null)
+            return;
+        patch.setMembership(clusterNode, Collections.emptyList(), Collections.emptyList());
+        if (!clusterManager.isMaster(clusterNode.address))
+            patch.removeNode(clusterNode.address.httpAddressKey);
     }
 
     /**
@@ -279,8 +464,9 @@ class ClusterNodeMap {
         if (message == null)
             return;
         readWriteLock.writeEx(() -> {
-            unregisterAll(message.getAddress());
-            cache = new Cache();
+            final Patch patch = new Patch(snapshot);
+            unregisterAll(patch, message.getAddress());
+            patch.apply();
         });
     }
 
@@ -288,14 +474,15 @@ class ClusterNodeMap {
         final List<String> deleteAdresses = new ArrayList<>();
         final long currentMs = System.currentTimeMillis();
         readWriteLock.writeEx(() -> {
-            nodesMap.forEach((address, node) -> {
+            final Patch patch = new Patch(snapshot);
+            patch.from.nodesMap.forEach((address, node) -> {
                 if (node.isExpired(currentMs))
                     deleteAdresses.add(address);
             });
             if (deleteAdresses.isEmpty())
                 return;
-            deleteAdresses.forEach(this::unregisterAll);
-            cache = new Cache();
+            deleteAdresses.forEach(address -> unregisterAll(patch, address));
+            patch.apply();
         });
     }
 }
@@ -15,42 +15,47 @@
  */
 package com.qwazr.cluster;
 
-import javax.ws.rs.InternalServerErrorException;
-import java.io.Externalizable;
-import java.lang.reflect.Constructor;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 enum ClusterProtocol {
 
-    join('J', FullContent.class),
-    notify('N', AddressContent.class),
-    forward('F', FullContent.class),
-    reply('R', FullContent.class),
-    alive('A', AddressContent.class),
-    leave('L', AddressContent.class);
+    join('J', FullContent::new),
+    notify('N', AddressContent::new),
+    forward('F', FullContent::new),
+    reply('R', FullContent::new),
+    alive('A', AddressContent::new),
+    leave('L', AddressContent::new),
+    ping('P', GossipContent::new),
+    ping_req('Q', GossipContent::new),
+    ack('K', GossipContent::new),
+    sync('S', GossipContent::new),
+    sync_reply('Y', GossipContent::new);
 
     final static String CHAR_HEADER = "QWAZR";
 
-    final char cmd;
-    final Constructor<? extends Externalizable> messageClassConstructor;
+    /**
+     * The commands of the datagram and multicast protocols, which can use the legacy format
+     */
+    final static Set<ClusterProtocol> LEGACY_COMMANDS = EnumSet.range(join, leave);
 
+    final char cmd;
+    final Supplier<? extends AddressContent> contentSupplier;
 
-    ClusterProtocol(final char cmd, final Class<? extends Externalizable> messageClass) {
+    ClusterProtocol(final char cmd, final Supplier<? extends AddressContent> contentSupplier) {
         this.cmd = cmd;
-        try {
-            this.messageClassConstructor = messageClass.getDeclaredConstructor();
-        }
-        catch (NoSuchMethodException e) {
-            throw new InternalServerErrorException("No constructor for the class " + messageClass, e);
-        }
+        this.contentSupplier = contentSupplier;
     }
 
-    static ClusterProtocol findCommand(final char cmd) {
+    static ClusterProtocol findCommand(final char cmd) throws IOException {
         for (ClusterProtocol command : values())
             if (command.cmd == cmd)
                 return command;
-        throw new IllegalArgumentException("Command not found: " + cmd);
+        throw new IOException("Command not found: " + cmd);
     }
 
     static MessageContent newJoin(final String address, final UUID nodeLiveId, final Set<String> groups,
@@ -80,4 +85,10 @@ enum ClusterProtocol {
         return new MessageContent(leave, new AddressContent(address, nodeLiveId));
     }
 
+    static MessageContent newGossip(final ClusterProtocol command, final String address, final UUID nodeLiveId,
+                                    final long sequence, final String target,
+                                    final List<GossipContent.MemberUpdate> updates) {
+        return new MessageContent(command, new GossipContent(address, nodeLiveId, sequence, target, updates));
+    }
+
 }
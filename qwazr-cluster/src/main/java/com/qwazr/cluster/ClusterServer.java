@@ -20,6 +20,7 @@ import com.qwazr.server.BaseServer;
 import com.qwazr.server.GenericServer;
 import com.qwazr.server.GenericServerBuilder;
 import com.qwazr.server.RestApplication;
+import com.qwazr.server.ServerExecutor;
 import com.qwazr.server.WelcomeShutdownService;
 import com.qwazr.server.configuration.ServerConfiguration;
 
@@ -29,8 +30,6 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class ClusterServer implements BaseServer {
 
@@ -40,9 +39,11 @@ public class ClusterServer implements BaseServer {
 
     public ClusterServer(final ServerConfiguration serverConfiguration) throws IOException {
 
-        final ExecutorService executorService = Executors.newCachedThreadPool();
+        final ServerExecutor executorService =
+                ServerExecutor.of(serverConfiguration, ClusterManager.EXECUTOR, ClusterManager.EXECUTOR_DEFAULTS);
 
-        final GenericServerBuilder builder = GenericServer.of(serverConfiguration, executorService);
+        final GenericServerBuilder builder = GenericServer.of(serverConfiguration, executorService)
+                .executor(executorService);
 
         final ApplicationBuilder webServices = ApplicationBuilder.of("/*")
                 .classes(RestApplication.JSON_CLASSES)
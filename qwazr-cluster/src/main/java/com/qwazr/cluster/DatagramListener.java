@@ -16,7 +16,6 @@
 package com.qwazr.cluster;
 
 import com.qwazr.utils.LoggerUtils;
-import com.qwazr.utils.SerializationUtils;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -33,31 +32,44 @@ class DatagramListener extends ProtocolListener {
         LOGGER.info(() -> "Start Datagram listener " + manager.me.httpAddressKey);
     }
 
+    /**
+     * The legacy format is kept, for the nodes running a previous release
+     */
+    @Override
+    protected byte[] encode(final MessageContent message) throws IOException {
+        return LegacyCodec.encode(message);
+    }
+
+    @Override
+    protected MessageContent decode(final byte[] data, final int offset, final int length) throws IOException {
+        return LegacyCodec.decode(data, offset, length);
+    }
+
     final void acceptJoin(final FullContent message) throws IOException {
         // Registering the node
         final ClusterNode node = registerNode(message);
         // Send immediately a reply
-        ClusterProtocol.newReply(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups, manager.myServices)
-                .send(node.address.address);
+        send(ClusterProtocol.newReply(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                manager.myServices), node.address.address);
         // Notify the others
-        ClusterProtocol.newNotify(message).send(manager.clusterNodeMap.getExternalNodeAddresses());
+        send(ClusterProtocol.newNotify(message), manager.clusterNodeMap.getExternalNodeAddresses());
     }
 
     final void acceptNotify(final AddressContent message) throws IOException {
         final ClusterNode clusterNode = registerNode(message);
-        ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups, manager.myServices)
-                .send(clusterNode.address.address);
+        send(ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                manager.myServices), clusterNode.address.address);
     }
 
     final void acceptAlive(final AddressContent message) throws IOException {
-        ClusterProtocol.newNotify(message).send(manager.clusterNodeMap.getFullNodeAddresses());
+        send(ClusterProtocol.newNotify(message), manager.clusterNodeMap.getFullNodeAddresses());
     }
 
     final void acceptForward(final FullContent message) throws IOException {
         final ClusterNode node = registerNode(message);
         // Send back myself
-        ClusterProtocol.newReply(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups, manager.myServices)
-                .send(node.address.address);
+        send(ClusterProtocol.newReply(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                manager.myServices), node.address.address);
     }
 
     final void acceptReply(final FullContent message) {
@@ -67,7 +79,7 @@ class DatagramListener extends ProtocolListener {
     @Override
     final public void acceptPacket(final DatagramPacket datagramPacket) {
         try {
-            final MessageContent message = SerializationUtils.fromDefaultCompressedBytes(datagramPacket.getData());
+            final MessageContent message = receive(datagramPacket);
             LOGGER.finest(() -> manager.me.httpAddressKey + " DATAGRAMPACKET FROM: " + datagramPacket.getAddress() + " " +
                     message.getCommand() + " " + message.getContent());
             switch (message.getCommand()) {
@@ -91,7 +103,7 @@ class DatagramListener extends ProtocolListener {
                     break;
             }
         }
-        catch (IOException | ClassNotFoundException e) {
+        catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, () -> "Unable to de-serialize the message");
         }
     }
@@ -99,8 +111,8 @@ class DatagramListener extends ProtocolListener {
     protected synchronized void joinCluster(final Collection<String> services) {
         super.joinCluster(services);
         try {
-            ClusterProtocol.newJoin(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups, manager.myServices)
-                    .send(manager.clusterNodeMap.getFullNodeAddresses());
+            send(ClusterProtocol.newJoin(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                    manager.myServices), manager.clusterNodeMap.getFullNodeAddresses());
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, e::getMessage);
@@ -109,8 +121,8 @@ class DatagramListener extends ProtocolListener {
 
     protected synchronized void leaveCluster() {
         try {
-            ClusterProtocol.newLeave(manager.me.httpAddressKey, manager.nodeLiveId)
-                    .send(manager.clusterNodeMap.getExternalNodeAddresses());
+            send(ClusterProtocol.newLeave(manager.me.httpAddressKey, manager.nodeLiveId),
+                    manager.clusterNodeMap.getExternalNodeAddresses());
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, e::getMessage);
@@ -120,8 +132,8 @@ class DatagramListener extends ProtocolListener {
     @Override
     protected void runner() {
         try {
-            ClusterProtocol.newAlive(manager.me.httpAddressKey, manager.nodeLiveId)
-                    .send(manager.clusterNodeMap.getExternalNodeAddresses());
+            send(ClusterProtocol.newAlive(manager.me.httpAddressKey, manager.nodeLiveId),
+                    manager.clusterNodeMap.getExternalNodeAddresses());
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, e::getMessage);
@@ -39,6 +39,28 @@ class FullContent extends AddressContent {
         this.services = services;
     }
 
+    final void writeSets(final ClusterCodec.Output out) {
+        out.writeStrings(groups);
+        out.writeStrings(services);
+    }
+
+    final void readSets(final ClusterCodec.Input in) throws IOException {
+        in.readStrings(groups);
+        in.readStrings(services);
+    }
+
+    @Override
+    void write(final ClusterCodec.Output out) {
+        writeAddress(out);
+        writeSets(out);
+    }
+
+    @Override
+    void read(final ClusterCodec.Input in) throws IOException {
+        readAddress(in);
+        readSets(in);
+    }
+
     private static void writeCollection(final Collection<String> collection, final ObjectOutput out)
             throws IOException {
         if (collection != null) {
@@ -50,14 +72,14 @@ class FullContent extends AddressContent {
     }
 
     @Override
-    final public void writeExternal(final ObjectOutput out) throws IOException {
+    void writeExternal(final ObjectOutput out) throws IOException {
         super.writeExternal(out);
         writeCollection(groups, out);
         writeCollection(services, out);
     }
 
     @Override
-    final public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    void readExternal(final ObjectInput in) throws IOException {
         super.readExternal(in);
         int size = in.readInt();
         while (size-- > 0)
@@ -68,7 +90,7 @@ class FullContent extends AddressContent {
     }
 
     @Override
-    final public String toString() {
+    public String toString() {
         return super.toString() + " " + groups.size() + "/" + services.size();
     }
 
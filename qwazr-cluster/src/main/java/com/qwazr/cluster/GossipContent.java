@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The content of the messages of the gossip protocol: the sender, a sequence number which links an ack to its probe,
+ * the target of an indirect probe, and the membership updates piggy-backed on the message.
+ */
+class GossipContent extends AddressContent {
+
+    private long sequence;
+    private String target;
+    final List<MemberUpdate> updates;
+
+    public GossipContent() {
+        updates = new ArrayList<>();
+    }
+
+    GossipContent(final String address, final UUID nodeLiveId, final long sequence, final String target,
+                  final List<MemberUpdate> updates) {
+        super(address, nodeLiveId);
+        this.sequence = sequence;
+        this.target = target;
+        this.updates = updates;
+    }
+
+    final long getSequence() {
+        return sequence;
+    }
+
+    final String getTarget() {
+        return target;
+    }
+
+    @Override
+    void write(final ClusterCodec.Output out) {
+        writeAddress(out);
+        out.writeVarLong(sequence);
+        out.writeString(target);
+        out.writeVarLong(updates.size());
+        for (final MemberUpdate update : updates)
+            update.write(out);
+    }
+
+    @Override
+    void read(final ClusterCodec.Input in) throws IOException {
+        readAddress(in);
+        sequence = in.readVarLong();
+        target = in.readString();
+        int count = in.readVarInt();
+        while (count-- > 0) {
+            final MemberUpdate update = new MemberUpdate();
+            update.read(in);
+            updates.add(update);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " #" + sequence + (target == null ? "" : " -> " + target) + " " + updates.size();
+    }
+
+    enum State {
+        ALIVE, SUSPECT, DEAD, LEFT
+    }
+
+    /**
+     * The state of a member at a given incarnation. Only the alive updates carry the groups and the services.
+     */
+    static final class MemberUpdate extends FullContent {
+
+        private long incarnation;
+        private State state;
+
+        public MemberUpdate() {
+        }
+
+        MemberUpdate(final String address, final UUID nodeLiveId, final long incarnation, final State state,
+                     final Set<String> groups, final Set<String> services) {
+            super(address, nodeLiveId, groups, services);
+            this.incarnation = incarnation;
+            this.state = state;
+        }
+
+        long getIncarnation() {
+            return incarnation;
+        }
+
+        State getState() {
+            return state;
+        }
+
+        @Override
+        void write(final ClusterCodec.Output out) {
+            writeAddress(out);
+            out.writeVarLong(incarnation);
+            out.writeByte((byte) state.ordinal());
+            if (state == State.ALIVE)
+                writeSets(out);
+        }
+
+        @Override
+        void read(final ClusterCodec.Input in) throws IOException {
+            readAddress(in);
+            incarnation = in.readVarLong();
+            final int ordinal = in.readByte();
+            if (ordinal < 0 || ordinal >= State.values().length)
+                throw new IOException("Unknown member state: " + ordinal);
+            state = State.values()[ordinal];
+            if (state == State.ALIVE)
+                readSets(in);
+        }
+
+        @Override
+        public String toString() {
+            return getAddress() + " " + state + "@" + incarnation;
+        }
+    }
+}
@@ -0,0 +1,645 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.utils.LoggerUtils;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SWIM style membership protocol.
+ * <p>
+ * Each period, the node probes one member (round-robin over a shuffled list). If the member does not acknowledge in
+ * time, k other members are asked to probe it (indirect probes). A member which does not answer at all is suspected,
+ * then declared dead when the suspicion timeout expires, unless it refutes the suspicion with a higher incarnation.
+ * The membership updates are piggy-backed on the probes and the acks, each update is retransmitted
+ * λ·log(n) times. A periodic push-pull synchronisation with a random member repairs the missed updates.
+ * <p>
+ * The number of packets per period is constant per node, whatever the size of the cluster.
+ */
+class GossipListener extends ProtocolListener {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger(GossipListener.class);
+
+    final static int DEFAULT_PERIOD_MS = 1000;
+    final static int DEFAULT_ACK_TIMEOUT_MS = 300;
+
+    /**
+     * The number of members asked for an indirect probe
+     */
+    final static int INDIRECT_PROBES = 3;
+
+    /**
+     * The suspicion timeout is SUSPICION_MULTIPLIER * log(n) periods
+     */
+    final static int SUSPICION_MULTIPLIER = 4;
+
+    /**
+     * An update is piggy-backed RETRANSMIT_MULTIPLIER * log(n) times
+     */
+    final static int RETRANSMIT_MULTIPLIER = 3;
+
+    /**
+     * The number of periods between two push-pull synchronisations
+     */
+    final static int SYNC_PERIODS = 30;
+
+    /**
+     * The number of periods a dead member is remembered, to ignore the late updates
+     */
+    final static int DEAD_PERIODS = 60;
+
+    /**
+     * The max size of a probe or an ack: it fits in one Ethernet frame
+     */
+    final static int MAX_GOSSIP_PACKET_SIZE = 1400;
+
+    private final int periodMs;
+    private final int ackTimeoutMs;
+
+    private final Object membersLock = new Object();
+    private final Map<String, Member> members = new HashMap<>();
+    private final Map<String, Broadcast> broadcasts = new LinkedHashMap<>();
+    private final List<Member> probeList = new ArrayList<>();
+    private int probeIndex;
+    private long incarnation;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, CompletableFuture<Void>> pendingAcks = new ConcurrentHashMap<>();
+    private final Map<Long, Relay> relays = new ConcurrentHashMap<>();
+
+    private final int headerSize;
+
+    private volatile Collection<SocketAddress> seeds = Collections.emptyList();
+    private volatile boolean joined;
+    private long periodCount;
+
+    GossipListener(final ClusterManager manager, final Integer periodMs, final Integer ackTimeoutMs) {
+        super(manager, periodMs == null ? DEFAULT_PERIOD_MS : periodMs);
+        this.periodMs = periodMs == null ? DEFAULT_PERIOD_MS : periodMs;
+        this.ackTimeoutMs = Math.min(ackTimeoutMs == null ? DEFAULT_ACK_TIMEOUT_MS : ackTimeoutMs, this.periodMs / 2);
+        // The sender and the target addresses, the UUID, the sequence and the counters
+        this.headerSize = ClusterCodec.HEADER_SIZE +
+                manager.me.httpAddressKey.getBytes(StandardCharsets.UTF_8).length * 2 + 64;
+        LOGGER.info(() -> "Start Gossip listener " + manager.me.httpAddressKey + " - Period: " + this.periodMs + "ms");
+    }
+
+    /**
+     * @param n the number of members
+     * @return log10(n), at least 1
+     */
+    private static double scale(final int n) {
+        return Math.max(1.0, Math.log10(n));
+    }
+
+    private static boolean isAliveOrSuspect(final GossipContent.State state) {
+        return state == GossipContent.State.ALIVE || state == GossipContent.State.SUSPECT;
+    }
+
+    /**
+     * The node live IDs are time based UUIDs: a restarted node has a newer one.
+     */
+    private static boolean isOlder(final UUID nodeLiveId, final UUID otherNodeLiveId) {
+        return nodeLiveId.version() == 1 && otherNodeLiveId.version() == 1 &&
+                nodeLiveId.timestamp() < otherNodeLiveId.timestamp();
+    }
+
+    private GossipContent.MemberUpdate myUpdate() {
+        return new GossipContent.MemberUpdate(manager.me.httpAddressKey, manager.nodeLiveId, incarnation,
+                GossipContent.State.ALIVE, manager.myGroups == null ? Collections.emptySet() : manager.myGroups,
+                manager.myServices);
+    }
+
+    private MessageContent newGossip(final ClusterProtocol command, final long sequence, final String target,
+                                     final List<GossipContent.MemberUpdate> updates) {
+        return ClusterProtocol.newGossip(command, manager.me.httpAddressKey, manager.nodeLiveId, sequence, target,
+                updates);
+    }
+
+    private SocketAddress socketAddress(final String address) {
+        synchronized (membersLock) {
+            final Member member = members.get(address);
+            if (member != null)
+                return member.socketAddress;
+        }
+        return new ClusterNodeAddress(address, 9091).address;
+    }
+
+    /**
+     * Must be called with the members lock
+     */
+    private void queue(final GossipContent.MemberUpdate update) {
+        broadcasts.put(update.getAddress(), new Broadcast(update));
+    }
+
+    /**
+     * Select the updates to piggy-back, the less transmitted first.
+     *
+     * @param maxPacketSize the max size of the packet
+     * @return the updates which fit in the packet
+     */
+    private List<GossipContent.MemberUpdate> piggyback(final int maxPacketSize) {
+        synchronized (membersLock) {
+            if (broadcasts.isEmpty())
+                return Collections.emptyList();
+            final int retransmitLimit = (int) Math.ceil(RETRANSMIT_MULTIPLIER * scale(members.size() + 1));
+            final List<Broadcast> candidates = new ArrayList<>(broadcasts.values());
+            candidates.sort(Comparator.comparingInt(broadcast -> broadcast.transmits));
+            final List<GossipContent.MemberUpdate> updates = new ArrayList<>();
+            int budget = maxPacketSize - headerSize;
+            for (final Broadcast broadcast : candidates) {
+                if (broadcast.size > budget)
+                    continue;
+                budget -= broadcast.size;
+                updates.add(broadcast.update);
+                if (++broadcast.transmits >= retransmitLimit)
+                    broadcasts.remove(broadcast.update.getAddress());
+            }
+            return updates;
+        }
+    }
+
+    /**
+     * @return myself and every alive or suspect member, as much as a packet can contain
+     */
+    private List<GossipContent.MemberUpdate> fullState() {
+        synchronized (membersLock) {
+            final List<GossipContent.MemberUpdate> updates = new ArrayList<>();
+            updates.add(myUpdate());
+            int budget = ClusterCodec.MAX_PACKET_SIZE - headerSize;
+            for (final Member member : members.values()) {
+                if (!isAliveOrSuspect(member.state))
+                    continue;
+                final GossipContent.MemberUpdate update = member.toUpdate();
+                final int size = Broadcast.sizeOf(update);
+                if (size > budget)
+                    break;
+                budget -= size;
+                updates.add(update);
+            }
+            return updates;
+        }
+    }
+
+    /**
+     * Apply the SWIM override rules: a higher incarnation wins, at the same incarnation suspect overrides alive, and
+     * dead overrides everything.
+     */
+    private void apply(final GossipContent.MemberUpdate update) {
+        if (manager.isMe(update)) {
+            refute(update);
+            return;
+        }
+        final GossipContent.State state = update.getState();
+        final long now = System.currentTimeMillis();
+        synchronized (membersLock) {
+            final Member member = members.get(update.getAddress());
+            if (member == null || !member.nodeLiveId.equals(update.getNodeLiveId())) {
+                // A new member, or a restarted one
+                if (!isAliveOrSuspect(state))
+                    return;
+                if (member != null && isOlder(update.getNodeLiveId(), member.nodeLiveId))
+                    return;
+                final Member newMember = new Member(update, now);
+                members.put(newMember.address, newMember);
+                register(newMember);
+                queue(update);
+                return;
+            }
+            switch (state) {
+                case ALIVE:
+                    if (update.getIncarnation() > member.incarnation) {
+                        member.incarnation = update.getIncarnation();
+                        member.setState(GossipContent.State.ALIVE, now);
+                        member.setSets(update);
+                        register(member);
+                        queue(update);
+                    } else if (member.groups == null && update.getIncarnation() == member.incarnation &&
+                            isAliveOrSuspect(member.state)) {
+                        member.setSets(update);
+                        register(member);
+                    }
+                    break;
+                case SUSPECT:
+                    if ((member.state == GossipContent.State.ALIVE && update.getIncarnation() >= member.incarnation) ||
+                            (member.state == GossipContent.State.SUSPECT &&
+                                    update.getIncarnation() > member.incarnation)) {
+                        member.incarnation = update.getIncarnation();
+                        member.setState(GossipContent.State.SUSPECT, now);
+                        queue(update);
+                    }
+                    break;
+                case DEAD:
+                case LEFT:
+                    if (isAliveOrSuspect(member.state) && update.getIncarnation() >= member.incarnation) {
+                        member.incarnation = update.getIncarnation();
+                        markDead(member, state, now);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Someone suspects me: I increment my incarnation and gossip that I am alive.
+     */
+    private void refute(final GossipContent.MemberUpdate update) {
+        if (update.getState() == GossipContent.State.ALIVE || !manager.nodeLiveId.equals(update.getNodeLiveId()))
+            return;
+        synchronized (membersLock) {
+            if (update.getIncarnation() < incarnation)
+                return;
+            incarnation = update.getIncarnation() + 1;
+            LOGGER.info(() -> manager.me.httpAddressKey + " refutes " + update);
+            queue(myUpdate());
+        }
+    }
+
+    /**
+     * Must be called with the members lock
+     */
+    private void register(final Member member) {
+        if (member.groups != null)
+            manager.clusterNodeMap.registerFull(member.toUpdate(), null);
+        else
+            manager.clusterNodeMap.registerAddress(member.toUpdate(), null);
+    }
+
+    /**
+     * Must be called with the members lock
+     */
+    private void markDead(final Member member, final GossipContent.State state, final long now) {
+        LOGGER.info(() -> manager.me.httpAddressKey + " - Member " + state + ": " + member.address);
+        member.setState(state, now);
+        manager.clusterNodeMap.unregister(member.toUpdate());
+        queue(member.toUpdate());
+    }
+
+    private void suspect(final Member target) {
+        synchronized (membersLock) {
+            if (members.get(target.address) != target || target.state != GossipContent.State.ALIVE)
+                return;
+            LOGGER.fine(() -> manager.me.httpAddressKey + " suspects " + target.address);
+            target.setState(GossipContent.State.SUSPECT, System.currentTimeMillis());
+            queue(target.toUpdate());
+        }
+    }
+
+    /**
+     * Declare dead the suspects whose timeout is expired and forget the old dead members.
+     *
+     * @return true if there is no alive member
+     */
+    private boolean checkMembers() {
+        final long now = System.currentTimeMillis();
+        synchronized (membersLock) {
+            final long suspicionTimeoutMs = (long) (SUSPICION_MULTIPLIER * scale(members.size() + 1) * periodMs);
+            final long deadTimeoutMs = (long) DEAD_PERIODS * periodMs;
+            boolean alone = true;
+            for (final Member member : new ArrayList<>(members.values())) {
+                switch (member.state) {
+                    case ALIVE:
+                        alone = false;
+                        break;
+                    case SUSPECT:
+                        if (now - member.stateTimeMs > suspicionTimeoutMs)
+                            markDead(member, GossipContent.State.DEAD, now);
+                        else
+                            alone = false;
+                        break;
+                    default:
+                        if (now - member.stateTimeMs > deadTimeoutMs)
+                            members.remove(member.address);
+                        break;
+                }
+            }
+            return alone;
+        }
+    }
+
+    private Member nextProbeTarget() {
+        synchronized (membersLock) {
+            for (int i = 0; i < 2; i++) {
+                while (probeIndex < probeList.size()) {
+                    final Member member = probeList.get(probeIndex++);
+                    if (members.get(member.address) == member && isAliveOrSuspect(member.state))
+                        return member;
+                }
+                probeList.clear();
+                probeIndex = 0;
+                members.values().forEach(member -> {
+                    if (isAliveOrSuspect(member.state))
+                        probeList.add(member);
+                });
+                Collections.shuffle(probeList);
+            }
+            return null;
+        }
+    }
+
+    private List<SocketAddress> randomMembers(final int count, final Member excluded) {
+        final List<SocketAddress> addresses = new ArrayList<>();
+        synchronized (membersLock) {
+            final List<Member> candidates = new ArrayList<>();
+            members.values().forEach(member -> {
+                if (member != excluded && member.state == GossipContent.State.ALIVE)
+                    candidates.add(member);
+            });
+            Collections.shuffle(candidates);
+            for (int i = 0; i < count && i < candidates.size(); i++)
+                addresses.add(candidates.get(i).socketAddress);
+        }
+        return addresses;
+    }
+
+    private static boolean await(final CompletableFuture<Void> ack, final long timeoutMs) {
+        if (timeoutMs <= 0)
+            return ack.isDone();
+        try {
+            ack.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (TimeoutException | ExecutionException e) {
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void probe() throws IOException {
+        final Member target = nextProbeTarget();
+        if (target == null)
+            return;
+        final long start = System.currentTimeMillis();
+        final long seq = sequence.incrementAndGet();
+        final CompletableFuture<Void> ack = new CompletableFuture<>();
+        pendingAcks.put(seq, ack);
+        try {
+            send(newGossip(ClusterProtocol.ping, seq, null, piggyback(MAX_GOSSIP_PACKET_SIZE)), target.socketAddress);
+            if (await(ack, ackTimeoutMs))
+                return;
+            final List<SocketAddress> helpers = randomMembers(INDIRECT_PROBES, target);
+            if (!helpers.isEmpty())
+                send(newGossip(ClusterProtocol.ping_req, seq, target.address, piggyback(MAX_GOSSIP_PACKET_SIZE)),
+                        helpers);
+            if (await(ack, periodMs - (System.currentTimeMillis() - start)))
+                return;
+            suspect(target);
+        }
+        finally {
+            pendingAcks.remove(seq);
+        }
+    }
+
+    private void sync(final boolean alone) throws IOException {
+        final Collection<SocketAddress> recipients;
+        if (alone)
+            recipients = seeds;
+        else
+            recipients = randomMembers(1, null);
+        if (!recipients.isEmpty())
+            send(newGossip(ClusterProtocol.sync, 0, null, fullState()), recipients);
+    }
+
+    private void purgeRelays() {
+        final long expired = System.currentTimeMillis() - periodMs;
+        relays.values().removeIf(relay -> relay.timeMs < expired);
+    }
+
+    private void acceptGossip(final ClusterProtocol command, final GossipContent content) throws IOException {
+        content.updates.forEach(this::apply);
+        final SocketAddress sender = socketAddress(content.getAddress());
+        switch (command) {
+            case ping:
+                send(newGossip(ClusterProtocol.ack, content.getSequence(), null, piggyback(MAX_GOSSIP_PACKET_SIZE)),
+                        sender);
+                // The sender knows me, but I do not know it yet
+                final boolean unknown;
+                synchronized (membersLock) {
+                    unknown = !members.containsKey(content.getAddress());
+                }
+                if (unknown)
+                    send(newGossip(ClusterProtocol.sync, 0, null, fullState()), sender);
+                break;
+            case ping_req:
+                final long relaySequence = sequence.incrementAndGet();
+                relays.put(relaySequence, new Relay(sender, content.getSequence()));
+                send(newGossip(ClusterProtocol.ping, relaySequence, null, piggyback(MAX_GOSSIP_PACKET_SIZE)),
+                        socketAddress(content.getTarget()));
+                break;
+            case ack:
+                final CompletableFuture<Void> ack = pendingAcks.get(content.getSequence());
+                if (ack != null) {
+                    ack.complete(null);
+                    break;
+                }
+                final Relay relay = relays.remove(content.getSequence());
+                if (relay != null)
+                    send(newGossip(ClusterProtocol.ack, relay.sequence, null, piggyback(MAX_GOSSIP_PACKET_SIZE)),
+                            relay.origin);
+                break;
+            case sync:
+                send(newGossip(ClusterProtocol.sync_reply, 0, null, fullState()), sender);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void acceptLeave(final AddressContent content) {
+        final Long memberIncarnation;
+        synchronized (membersLock) {
+            final Member member = members.get(content.getAddress());
+            memberIncarnation = member == null ? null : member.incarnation;
+        }
+        if (memberIncarnation != null)
+            apply(new GossipContent.MemberUpdate(content.getAddress(), content.getNodeLiveId(), memberIncarnation,
+                    GossipContent.State.LEFT, null, null));
+    }
+
+    @Override
+    final public void acceptPacket(final DatagramPacket datagramPacket) {
+        if (!joined)
+            return;
+        try {
+            final MessageContent message = receive(datagramPacket);
+            LOGGER.finest(() -> manager.me.httpAddressKey + " GOSSIPPACKET FROM: " + datagramPacket.getAddress() + " " +
+                    message.getCommand() + " " + message.getContent());
+            switch (message.getCommand()) {
+                case ping:
+                case ping_req:
+                case ack:
+                case sync:
+                case sync_reply:
+                    acceptGossip(message.getCommand(), message.getContent());
+                    break;
+                case leave:
+                    acceptLeave(message.getContent());
+                    break;
+                default:
+                    LOGGER.warning(() -> "Unexpected message: " + message.getCommand() + " " + message.getContent());
+                    break;
+            }
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e, () -> "Unable to de-serialize the message");
+        }
+    }
+
+    protected synchronized void joinCluster(final Collection<String> services) {
+        super.joinCluster(services);
+        synchronized (membersLock) {
+            final GossipContent.MemberUpdate myself = myUpdate();
+            manager.clusterNodeMap.registerFull(myself, null);
+            queue(myself);
+        }
+        seeds = new ArrayList<>(manager.clusterNodeMap.getExternalNodeAddresses());
+        joined = true;
+        try {
+            sync(true);
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e, e::getMessage);
+        }
+    }
+
+    protected synchronized void leaveCluster() {
+        if (!joined)
+            return;
+        joined = false;
+        try {
+            final List<SocketAddress> recipients = randomMembers(Integer.MAX_VALUE, null);
+            if (!recipients.isEmpty())
+                send(ClusterProtocol.newLeave(manager.me.httpAddressKey, manager.nodeLiveId), recipients);
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e, e::getMessage);
+        }
+    }
+
+    @Override
+    protected void runner() {
+        try {
+            if (!joined)
+                return;
+            probe();
+            final boolean alone = checkMembers();
+            if (alone || ++periodCount % SYNC_PERIODS == 0)
+                sync(alone);
+            purgeRelays();
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, e::getMessage);
+        }
+        finally {
+            super.runner();
+        }
+    }
+
+    private static final class Member {
+
+        private final String address;
+        private final SocketAddress socketAddress;
+        private final UUID nodeLiveId;
+        private long incarnation;
+        private GossipContent.State state;
+        private long stateTimeMs;
+        private Set<String> groups;
+        private Set<String> services;
+
+        private Member(final GossipContent.MemberUpdate update, final long now) {
+            this.address = update.getAddress();
+            this.socketAddress = new ClusterNodeAddress(address, 9091).address;
+            this.nodeLiveId = update.getNodeLiveId();
+            this.incarnation = update.getIncarnation();
+            this.state = update.getState();
+            this.stateTimeMs = now;
+            setSets(update);
+        }
+
+        private void setState(final GossipContent.State state, final long now) {
+            this.state = state;
+            this.stateTimeMs = now;
+        }
+
+        private void setSets(final GossipContent.MemberUpdate update) {
+            if (update.getState() != GossipContent.State.ALIVE)
+                return;
+            groups = update.groups;
+            services = update.services;
+        }
+
+        private GossipContent.MemberUpdate toUpdate() {
+            return new GossipContent.MemberUpdate(address, nodeLiveId, incarnation, state,
+                    groups == null ? Collections.emptySet() : groups,
+                    services == null ? Collections.emptySet() : services);
+        }
+    }
+
+    private static final class Broadcast {
+
+        private final GossipContent.MemberUpdate update;
+        private final int size;
+        private int transmits;
+
+        private Broadcast(final GossipContent.MemberUpdate update) {
+            this.update = update;
+            this.size = sizeOf(update);
+        }
+
+        private static int sizeOf(final GossipContent.MemberUpdate update) {
+            final ClusterCodec.Output output = new ClusterCodec.Output(64);
+            update.write(output);
+            return output.size();
+        }
+    }
+
+    private static final class Relay {
+
+        private final SocketAddress origin;
+        private final long sequence;
+        private final long timeMs;
+
+        private Relay(final SocketAddress origin, final long sequence) {
+            this.origin = origin;
+            this.sequence = sequence;
+            this.timeMs = System.currentTimeMillis();
+        }
+    }
+}
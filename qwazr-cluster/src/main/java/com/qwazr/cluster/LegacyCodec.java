@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.utils.SerializationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The wire format of the previous releases: the GZIP compressed Java serialization of a {@link MessageContent}.
+ * <p>
+ * The datagram and multicast protocols still send this format, and read both formats,
+ * so the nodes of a cluster can be upgraded one at a time.
+ * A packet starting with the magic bytes of the {@link ClusterCodec} header is decoded with the binary format.
+ */
+final class LegacyCodec {
+
+    /**
+     * Only a MessageContent is accepted, its content is written with writeExternal, not as an object
+     */
+    private final static ObjectInputFilter FILTER = info -> info.serialClass() == null ||
+            info.serialClass() == MessageContent.class ? ObjectInputFilter.Status.ALLOWED :
+            ObjectInputFilter.Status.REJECTED;
+
+    private LegacyCodec() {
+    }
+
+    static byte[] encode(final MessageContent message) throws IOException {
+        final byte[] bytes = SerializationUtils.toDefaultCompressedBytes(message);
+        if (bytes.length > ClusterCodec.MAX_PACKET_SIZE)
+            throw new IOException("The message is too large: " + bytes.length + " bytes");
+        return bytes;
+    }
+
+    static MessageContent decode(final byte[] data, final int offset, final int length) throws IOException {
+        if (ClusterCodec.hasMagic(data, offset, length))
+            return ClusterCodec.decode(data, offset, length);
+        try (final ObjectInputStream input = new ObjectInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(data, offset, length)))) {
+            input.setObjectInputFilter(FILTER);
+            final Object message = input.readObject();
+            if (!(message instanceof MessageContent))
+                throw new IOException("Unknown UDP message");
+            return (MessageContent) message;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown UDP message", e);
+        }
+    }
+}
@@ -15,31 +15,26 @@
  */
 package com.qwazr.cluster;
 
-import com.qwazr.utils.DatagramUtils;
-import com.qwazr.utils.LoggerUtils;
-import com.qwazr.utils.StringUtils;
-
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.lang.reflect.InvocationTargetException;
-import java.net.SocketAddress;
-import java.util.Collection;
-import java.util.logging.Logger;
 
 class MessageContent implements Externalizable {
 
-    private static final Logger LOGGER = LoggerUtils.getLogger(MessageContent.class);
+    /**
+     * The implicit serialVersionUID of the previous releases, required to read their packets
+     */
+    private static final long serialVersionUID = 5093166913207241346L;
 
     private ClusterProtocol command;
-    private Externalizable content;
+    private AddressContent content;
 
     public MessageContent() {
         this(null, null);
     }
 
-    MessageContent(final ClusterProtocol command, final Externalizable content) {
+    MessageContent(final ClusterProtocol command, final AddressContent content) {
         this.command = command;
         this.content = content;
     }
@@ -48,54 +43,31 @@ class MessageContent implements Externalizable {
         return command;
     }
 
-    final <T extends Externalizable> T getContent() {
+    final <T extends AddressContent> T getContent() {
         return (T) content;
     }
 
+    /**
+     * The legacy format, see {@link LegacyCodec}
+     */
     @Override
     final public void writeExternal(final ObjectOutput out) throws IOException {
+        if (!ClusterProtocol.LEGACY_COMMANDS.contains(command))
+            throw new IOException("The command is not supported by the legacy format: " + command);
         out.writeUTF(ClusterProtocol.CHAR_HEADER);
         out.writeChar(command.cmd);
         content.writeExternal(out);
     }
 
     @Override
-    final public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    final public void readExternal(final ObjectInput in) throws IOException {
         if (!ClusterProtocol.CHAR_HEADER.equals(in.readUTF()))
             throw new IOException("Unknown UDP message (wrong header)");
         command = ClusterProtocol.findCommand(in.readChar());
-        try {
-            content = command.messageClassConstructor.newInstance();
-        }
-        catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            throw new IOException(e);
-        }
+        if (!ClusterProtocol.LEGACY_COMMANDS.contains(command))
+            throw new IOException("The command is not supported by the legacy format: " + command);
+        content = command.contentSupplier.get();
         content.readExternal(in);
     }
 
-    /**
-     * Send a message using UDP (Datagram) to a collection of recipients
-     *
-     * @param recipients
-     * @throws IOException
-     */
-    final MessageContent send(final Collection<SocketAddress> recipients) throws IOException {
-        LOGGER.finest(() -> "Send " + command.name() + " to " + StringUtils.join(recipients, ","));
-        DatagramUtils.send(this, recipients);
-        return this;
-    }
-
-    /**
-     * Send the message using UDP (Datagram)
-     *
-     * @param socketAddress
-     * @return
-     * @throws IOException
-     */
-    final MessageContent send(final SocketAddress socketAddress) throws IOException {
-        LOGGER.finest(() -> "Send " + command.name() + " to " + socketAddress);
-        DatagramUtils.send(this, socketAddress);
-        return this;
-    }
-
 }
@@ -16,7 +16,6 @@
 package com.qwazr.cluster;
 
 import com.qwazr.utils.LoggerUtils;
-import com.qwazr.utils.SerializationUtils;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -38,18 +37,31 @@ class MulticastListener extends ProtocolListener {
         LOGGER.info(() -> "Start multicast listener: " + multicastSocketAddress);
     }
 
+    /**
+     * The legacy format is kept, for the nodes running a previous release
+     */
+    @Override
+    protected byte[] encode(final MessageContent message) throws IOException {
+        return LegacyCodec.encode(message);
+    }
+
+    @Override
+    protected MessageContent decode(final byte[] data, final int offset, final int length) throws IOException {
+        return LegacyCodec.decode(data, offset, length);
+    }
+
     @Override
     final public void acceptPacket(final DatagramPacket datagramPacket) {
         try {
-            final MessageContent message = SerializationUtils.fromDefaultCompressedBytes(datagramPacket.getData());
+            final MessageContent message = receive(datagramPacket);
 
             LOGGER.finest(() -> manager.me.httpAddressKey + " MULTICASTPACKET FROM: " + datagramPacket.getAddress() + " " +
                     message.getCommand() + " " + message.getContent());
             switch (message.getCommand()) {
                 case join:
                     registerNode(message.getContent());
-                    ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
-                            manager.myServices).send(multicastSocketAddress);
+                    send(ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                            manager.myServices), multicastSocketAddress);
                     break;
                 case forward:
                     registerNode(message.getContent());
@@ -61,7 +73,7 @@ class MulticastListener extends ProtocolListener {
                     break;
             }
         }
-        catch (IOException | ClassNotFoundException e) {
+        catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, () -> "Unable to de-serialize the message");
         }
     }
@@ -69,8 +81,8 @@ class MulticastListener extends ProtocolListener {
     protected synchronized void joinCluster(final Collection<String> services) {
         super.joinCluster(services);
         try {
-            ClusterProtocol.newJoin(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups, manager.myServices)
-                    .send(multicastSocketAddress);
+            send(ClusterProtocol.newJoin(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                    manager.myServices), multicastSocketAddress);
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, () -> "Unable to reach " + multicastSocketAddress);
@@ -79,7 +91,7 @@ class MulticastListener extends ProtocolListener {
 
     protected synchronized void leaveCluster() {
         try {
-            ClusterProtocol.newLeave(manager.me.httpAddressKey, manager.nodeLiveId).send(multicastSocketAddress);
+            send(ClusterProtocol.newLeave(manager.me.httpAddressKey, manager.nodeLiveId), multicastSocketAddress);
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, () -> "Unable to reach " + multicastSocketAddress);
@@ -89,8 +101,8 @@ class MulticastListener extends ProtocolListener {
     @Override
     protected void runner() {
         try {
-            ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
-                    manager.myServices).send(multicastSocketAddress);
+            send(ClusterProtocol.newForward(manager.me.httpAddressKey, manager.nodeLiveId, manager.myGroups,
+                    manager.myServices), multicastSocketAddress);
         }
         catch (IOException e) {
             LOGGER.log(Level.SEVERE, e, () -> "Error while running the multicast listener. The thread is stopped.");
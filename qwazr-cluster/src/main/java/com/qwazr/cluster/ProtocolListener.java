@@ -16,22 +16,112 @@
 package com.qwazr.cluster;
 
 import com.qwazr.server.UdpServerThread;
+import com.qwazr.utils.DatagramUtils;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.StringUtils;
 import com.qwazr.utils.concurrent.PeriodicThread;
 
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
 
 abstract class ProtocolListener extends PeriodicThread implements UdpServerThread.PacketListener {
 
+    private static final Logger LOGGER = LoggerUtils.getLogger(ProtocolListener.class);
+
     protected final ClusterManager manager;
 
     final private static int DEFAULT_PERIOD_SEC = 120;
     final private static int TWICE_DEFAULT_PERIOD_MS = DEFAULT_PERIOD_SEC * 1000 * 2;
 
+    private final LongAdder sentPackets = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder receivedPackets = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+
     protected ProtocolListener(final ClusterManager manager) {
         super(DEFAULT_PERIOD_SEC);
         this.manager = manager;
     }
 
+    protected ProtocolListener(final ClusterManager manager, final long periodMs) {
+        super(periodMs, TimeUnit.MILLISECONDS);
+        this.manager = manager;
+    }
+
+    /**
+     * @param message the message to send
+     * @return the bytes of the packet, by default using the binary format of {@link ClusterCodec}
+     * @throws IOException if the message can't be encoded
+     */
+    protected byte[] encode(final MessageContent message) throws IOException {
+        return ClusterCodec.encode(message);
+    }
+
+    /**
+     * @return the decoded packet, by default using the binary format of {@link ClusterCodec}
+     * @throws IOException if the packet can't be decoded
+     */
+    protected MessageContent decode(final byte[] data, final int offset, final int length) throws IOException {
+        return ClusterCodec.decode(data, offset, length);
+    }
+
+    /**
+     * Send a message using UDP (Datagram) to a collection of recipients
+     *
+     * @param message    the message to send
+     * @param recipients the recipients
+     * @throws IOException if any I/O error occurs
+     */
+    final void send(final MessageContent message, final Collection<SocketAddress> recipients) throws IOException {
+        LOGGER.finest(() -> "Send " + message.getCommand() + " to " + StringUtils.join(recipients, ","));
+        final byte[] bytes = encode(message);
+        DatagramUtils.send(bytes, recipients);
+        sentPackets.add(recipients.size());
+        sentBytes.add((long) bytes.length * recipients.size());
+    }
+
+    /**
+     * Send a message using UDP (Datagram)
+     *
+     * @param message       the message to send
+     * @param socketAddress the recipient
+     * @throws IOException if any I/O error occurs
+     */
+    final void send(final MessageContent message, final SocketAddress socketAddress) throws IOException {
+        LOGGER.finest(() -> "Send " + message.getCommand() + " to " + socketAddress);
+        final byte[] bytes = encode(message);
+        DatagramUtils.send(bytes, socketAddress);
+        sentPackets.increment();
+        sentBytes.add(bytes.length);
+    }
+
+    final MessageContent receive(final DatagramPacket datagramPacket) throws IOException {
+        receivedPackets.increment();
+        receivedBytes.add(datagramPacket.getLength());
+        return decode(datagramPacket.getData(), datagramPacket.getOffset(), datagramPacket.getLength());
+    }
+
+    final long getSentPackets() {
+        return sentPackets.sum();
+    }
+
+    final long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    final long getReceivedPackets() {
+        return receivedPackets.sum();
+    }
+
+    final long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
     protected synchronized void joinCluster(final Collection<String> services) {
         if (services != null) {
             manager.myServices.clear();
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.utils.HashUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class ClusterCodecTest {
+
+    private static MessageContent roundTrip(final MessageContent message) throws IOException {
+        final byte[] bytes = ClusterCodec.encode(message);
+        final MessageContent decoded = ClusterCodec.decode(bytes, 0, bytes.length);
+        Assert.assertEquals(message.getCommand(), decoded.getCommand());
+        return decoded;
+    }
+
+    @Test
+    public void join() throws IOException {
+        final UUID uuid = HashUtils.newTimeBasedUUID();
+        final FullContent content = roundTrip(
+                ClusterProtocol.newJoin("http://localhost:9091", uuid, Set.of("group"), Set.of("cluster", "search")))
+                .getContent();
+        Assert.assertEquals("http://localhost:9091", content.getAddress());
+        Assert.assertEquals(uuid, content.getNodeLiveId());
+        Assert.assertEquals(Set.of("group"), content.groups);
+        Assert.assertEquals(Set.of("cluster", "search"), content.services);
+    }
+
+    @Test
+    public void nullGroups() throws IOException {
+        final FullContent content = roundTrip(
+                ClusterProtocol.newReply("http://localhost:9091", UUID.randomUUID(), null, Set.of("cluster")))
+                .getContent();
+        Assert.assertTrue(content.groups.isEmpty());
+        Assert.assertEquals(Set.of("cluster"), content.services);
+    }
+
+    @Test
+    public void alive() throws IOException {
+        final UUID uuid = UUID.randomUUID();
+        final AddressContent content =
+                roundTrip(ClusterProtocol.newAlive("http://été.example.com:9091", uuid)).getContent();
+        Assert.assertEquals("http://été.example.com:9091", content.getAddress());
+        Assert.assertEquals(uuid, content.getNodeLiveId());
+    }
+
+    @Test
+    public void gossip() throws IOException {
+        final UUID uuid = UUID.randomUUID();
+        final List<GossipContent.MemberUpdate> updates = List.of(
+                new GossipContent.MemberUpdate("http://localhost:9092", uuid, 300, GossipContent.State.ALIVE,
+                        Set.of("g1", "g2"), Set.of("s1")),
+                new GossipContent.MemberUpdate("http://localhost:9093", uuid, 0, GossipContent.State.SUSPECT, null,
+                        null),
+                new GossipContent.MemberUpdate("http://localhost:9094", uuid, 1L << 40, GossipContent.State.DEAD,
+                        null, null));
+        final GossipContent content = roundTrip(
+                ClusterProtocol.newGossip(ClusterProtocol.ping_req, "http://localhost:9091", uuid, Long.MAX_VALUE,
+                        "http://localhost:9093", updates)).getContent();
+        Assert.assertEquals(Long.MAX_VALUE, content.getSequence());
+        Assert.assertEquals("http://localhost:9093", content.getTarget());
+        Assert.assertEquals(3, content.updates.size());
+        final GossipContent.MemberUpdate alive = content.updates.get(0);
+        Assert.assertEquals(GossipContent.State.ALIVE, alive.getState());
+        Assert.assertEquals(300, alive.getIncarnation());
+        Assert.assertEquals(Set.of("g1", "g2"), alive.groups);
+        Assert.assertEquals(Set.of("s1"), alive.services);
+        Assert.assertEquals(GossipContent.State.SUSPECT, content.updates.get(1).getState());
+        Assert.assertEquals(1L << 40, content.updates.get(2).getIncarnation());
+        Assert.assertEquals(GossipContent.State.DEAD, content.updates.get(2).getState());
+    }
+
+    @Test
+    public void compact() throws IOException {
+        final byte[] bytes = ClusterCodec.encode(
+                ClusterProtocol.newGossip(ClusterProtocol.ack, "http://localhost:9091", UUID.randomUUID(), 1, null,
+                        List.of()));
+        // Header + address + UUID + sequence + target + count
+        Assert.assertEquals(4 + 22 + 16 + 1 + 1 + 1, bytes.length);
+    }
+
+    @Test
+    public void rejectUnknownVersion() throws IOException {
+        final byte[] bytes = ClusterCodec.encode(ClusterProtocol.newAlive("http://localhost:9091", UUID.randomUUID()));
+        bytes[2] = ClusterCodec.VERSION + 1;
+        try {
+            ClusterCodec.decode(bytes, 0, bytes.length);
+            Assert.fail("IOException not thrown");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("version"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectTruncatedMessage() throws IOException {
+        final byte[] bytes = ClusterCodec.encode(
+                ClusterProtocol.newJoin("http://localhost:9091", UUID.randomUUID(), Set.of("group"), Set.of("s")));
+        ClusterCodec.decode(Arrays.copyOf(bytes, bytes.length - 3), 0, bytes.length - 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectUnknownCommand() throws IOException {
+        final byte[] bytes = ClusterCodec.encode(ClusterProtocol.newAlive("http://localhost:9091", UUID.randomUUID()));
+        bytes[3] = '?';
+        ClusterCodec.decode(bytes, 0, bytes.length);
+    }
+}
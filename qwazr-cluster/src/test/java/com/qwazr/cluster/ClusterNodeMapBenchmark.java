@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import com.qwazr.utils.HashUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of the nodes of a service (getRandom, getLeader, getActive) while another thread registers the nodes.
+ * <p>
+ * The "heartbeats" group replays the alive messages of known nodes, which change nothing.
+ * The "membership" group alternates the services of one node, which changes the lookups.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=ClusterNodeMapBenchmark
+ * </pre>
+ */
+@State(Scope.Group)
+public class ClusterNodeMapBenchmark {
+
+    private final static int NODES = 200;
+    private final static String[] GROUPS = {"g0", "g1", "g2", "g3"};
+    private final static String[] SERVICES = {"cluster", "search", "webapps", "store", "extractor"};
+
+    private ClusterManager manager;
+    private FullContent[] nodes;
+    private FullContent[] changes;
+    private int heartbeat;
+    private int change;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        manager = new ClusterManager(null, ServerConfiguration.of()
+                .data(Files.createTempDirectory("cluster"))
+                .publicAddress("localhost")
+                .listenAddress("localhost")
+                .build());
+        nodes = new FullContent[NODES];
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = new FullContent("http://10.0." + (i / 250) + '.' + (i % 250) + ":9091",
+                    HashUtils.newTimeBasedUUID(), Set.of(GROUPS[i % GROUPS.length]),
+                    Set.of(SERVICES[i % SERVICES.length], SERVICES[(i + 1) % SERVICES.length]));
+            manager.clusterNodeMap.registerFull(nodes[i], System.currentTimeMillis() + 240_000);
+        }
+        final UUID uuid = nodes[0].getNodeLiveId();
+        changes = new FullContent[] {
+                new FullContent(nodes[0].getAddress(), uuid, nodes[0].groups, Set.of(SERVICES[0])),
+                nodes[0]};
+    }
+
+    private String lookup() {
+        final int i = ThreadLocalRandom.current().nextInt(GROUPS.length * SERVICES.length);
+        return manager.getRandomNode(GROUPS[i % GROUPS.length], SERVICES[i % SERVICES.length]);
+    }
+
+    @Benchmark
+    @Group("heartbeats")
+    @GroupThreads(3)
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public String lookupWithHeartbeats() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Group("heartbeats")
+    @GroupThreads(1)
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public ClusterNode heartbeat() {
+        return manager.clusterNodeMap.registerAddress(nodes[heartbeat++ % NODES],
+                System.currentTimeMillis() + 240_000);
+    }
+
+    @Benchmark
+    @Group("membership")
+    @GroupThreads(3)
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public String lookupWithMembershipChanges() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Group("membership")
+    @GroupThreads(1)
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public ClusterNode membershipChange() {
+        return manager.clusterNodeMap.registerFull(changes[change++ % changes.length],
+                System.currentTimeMillis() + 240_000);
+    }
+}
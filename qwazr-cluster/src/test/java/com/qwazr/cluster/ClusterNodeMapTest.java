@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import com.qwazr.utils.HashUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+public class ClusterNodeMapTest {
+
+    private final static String NODE_A = "http://10.0.0.1:9091";
+    private final static String NODE_B = "http://10.0.0.2:9091";
+    private final static String MASTER = "http://10.0.0.3:9091";
+
+    private ClusterManager manager;
+    private ClusterNodeMap map;
+
+    @Before
+    public void setup() throws IOException {
+        manager = new ClusterManager(null, ServerConfiguration.of()
+                .data(Files.createTempDirectory("cluster"))
+                .publicAddress("localhost")
+                .listenAddress("localhost")
+                .master("10.0.0.3")
+                .build());
+        map = manager.clusterNodeMap;
+    }
+
+    private static long expiration() {
+        return System.currentTimeMillis() + 60_000;
+    }
+
+    @Test
+    public void heartbeatsChangeNothing() {
+        final UUID uuid = HashUtils.newTimeBasedUUID();
+        map.registerFull(new FullContent(NODE_A, uuid, Set.of("g1"), Set.of("s1")), expiration());
+        final SortedSet<String> nodes = manager.getNodesByGroupByService("g1", "s1");
+        final Map<String, ClusterNode> nodesMap = map.getNodesMap();
+        final TreeMap<String, TreeSet<String>> groups = map.getGroups();
+        final TreeMap<String, TreeSet<String>> services = map.getServices();
+
+        final long expiration = expiration() + 1000;
+        map.registerAddress(new AddressContent(NODE_A, uuid), expiration);
+        map.registerFull(new FullContent(NODE_A, uuid, Set.of("g1"), Set.of("s1")), expiration);
+
+        Assert.assertSame(nodesMap, map.getNodesMap());
+        Assert.assertSame(groups, map.getGroups());
+        Assert.assertSame(services, map.getServices());
+        // The result of the lookup is still cached
+        Assert.assertSame(nodes, manager.getNodesByGroupByService("g1", "s1"));
+        Assert.assertEquals(expiration, (long) map.getNodesMap().get(NODE_A).getExpirationTimeMs());
+    }
+
+    @Test
+    public void onlyTheChangedSetsAreCopied() {
+        map.registerFull(new FullContent(NODE_A, HashUtils.newTimeBasedUUID(), Set.of("g1"), Set.of("s1")),
+                expiration());
+        final UUID uuidB = HashUtils.newTimeBasedUUID();
+        map.registerFull(new FullContent(NODE_B, uuidB, Set.of("g1"), Set.of("s2")), expiration());
+        Assert.assertEquals(Set.of(NODE_A), manager.getNodesByGroupByService("g1", "s1"));
+
+        final Map<String, ClusterNode> nodesMap = map.getNodesMap();
+        final TreeMap<String, TreeSet<String>> groups = map.getGroups();
+        final TreeSet<String> s2 = map.getServices().get("s2");
+
+        map.registerFull(new FullContent(NODE_B, uuidB, Set.of("g1"), Set.of("s1", "s2")), expiration());
+
+        Assert.assertSame(nodesMap, map.getNodesMap());
+        Assert.assertSame(groups, map.getGroups());
+        Assert.assertSame(s2, map.getServices().get("s2"));
+        Assert.assertEquals(List.of(NODE_A, NODE_B), List.copyOf(manager.getNodesByGroupByService("g1", "s1")));
+        Assert.assertEquals(NODE_A, manager.getLeaderNode("g1", "s1"));
+        Assert.assertEquals(Set.of(NODE_A, NODE_B), manager.getNodesByGroupByService(null, "s1"));
+        Assert.assertEquals(Set.of(NODE_A, NODE_B), manager.getNodesByGroupByService("g1", null));
+
+        map.registerFull(new FullContent(NODE_B, uuidB, Set.of("g2"), Set.of("s2")), expiration());
+        Assert.assertEquals(Set.of(NODE_A), manager.getNodesByGroupByService("g1", "s1"));
+        Assert.assertEquals(Set.of(NODE_B), manager.getNodesByGroupByService("g2", null));
+        Assert.assertSame(s2, map.getServices().get("s2"));
+    }
+
+    @Test
+    public void restartedNode() {
+        map.registerFull(new FullContent(NODE_A, HashUtils.newTimeBasedUUID(), Set.of("g1"), Set.of("s1")),
+                expiration());
+        final UUID uuid = HashUtils.newTimeBasedUUID();
+        map.registerAddress(new AddressContent(NODE_A, uuid), expiration());
+        Assert.assertEquals(uuid, map.getNodesMap().get(NODE_A).nodeLiveId);
+        Assert.assertTrue(manager.getNodesByGroupByService(null, "s1").isEmpty());
+        Assert.assertNull(map.getServices().get("s1"));
+        map.registerFull(new FullContent(NODE_A, uuid, Set.of("g1"), Set.of("s1")), expiration());
+        Assert.assertEquals(NODE_A, manager.getRandomNode(null, "s1"));
+    }
+
+    @Test
+    public void unregisterAndExpire() {
+        final UUID uuidA = HashUtils.newTimeBasedUUID();
+        map.registerFull(new FullContent(NODE_A, uuidA, Set.of("g1"), Set.of("s1")), expiration());
+        map.registerFull(new FullContent(NODE_B, HashUtils.newTimeBasedUUID(), Set.of("g1"), Set.of("s1")),
+                System.currentTimeMillis() - 1);
+        map.registerFull(new FullContent(MASTER, HashUtils.newTimeBasedUUID(), Set.of("g1"), Set.of("s1")),
+                System.currentTimeMillis() - 1);
+        Assert.assertEquals(3, manager.getNodesByGroupByService("g1", "s1").size());
+
+        map.removeExpired();
+        // The master is not removed, but its services are
+        Assert.assertEquals(Set.of(NODE_A), manager.getNodesByGroupByService("g1", "s1"));
+        Assert.assertTrue(map.getNodesMap().containsKey(MASTER));
+        Assert.assertFalse(map.getNodesMap().containsKey(NODE_B));
+
+        map.unregister(new AddressContent(NODE_A, uuidA));
+        Assert.assertTrue(manager.getNodesByGroupByService("g1", "s1").isEmpty());
+        Assert.assertNull(manager.getRandomNode("g1", "s1"));
+        Assert.assertNull(manager.getLeaderNode("g1", "s1"));
+        Assert.assertTrue(map.getGroups().isEmpty());
+        Assert.assertTrue(map.getServices().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void lookupsAreImmutable() {
+        map.registerFull(new FullContent(NODE_A, HashUtils.newTimeBasedUUID(), Set.of("g1"), Set.of("s1")),
+                expiration());
+        manager.getNodesByGroupByService("g1", "s1").clear();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import java.io.IOException;
+
+/**
+ * Compares the datagram protocol with the gossip protocol on a local cluster: the time to converge, the packet rate
+ * in steady state, and the time to detect a crashed node.
+ * <p>
+ * The datagram protocol sends its heartbeats every 120 seconds and expires a node after 240 seconds: the window and the
+ * detection timeout must be long enough to observe it.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.qwazr.cluster.ClusterProtocolBenchmark \
+ *     -Dbenchmark.nodes=10 -Dbenchmark.window=130 -Dbenchmark.timeout=400
+ * </pre>
+ */
+public class ClusterProtocolBenchmark {
+
+    private final static int NODES = Integer.getInteger("benchmark.nodes", 10);
+    private final static int GOSSIP_PERIOD_MS = Integer.getInteger("benchmark.gossipPeriodMs", 1000);
+    private final static int WINDOW_SEC = Integer.getInteger("benchmark.window", 130);
+    private final static int TIMEOUT_SEC = Integer.getInteger("benchmark.timeout", 400);
+
+    private static void run(final String protocol, final int firstPort) throws IOException, InterruptedException {
+        try (final LocalCluster cluster = new LocalCluster(protocol, GOSSIP_PERIOD_MS, firstPort, NODES)) {
+            final long convergenceMs =
+                    cluster.waitFor(node -> node.getNodes().size() == NODES, TIMEOUT_SEC * 1000L);
+
+            final long packets = cluster.getSentPackets();
+            final long bytes = cluster.getSentBytes();
+            Thread.sleep(WINDOW_SEC * 1000L);
+            final double packetsPerSec = (cluster.getSentPackets() - packets) / (double) WINDOW_SEC;
+            final double bytesPerSec = (cluster.getSentBytes() - bytes) / (double) WINDOW_SEC;
+
+            final LocalCluster.Node crashed = cluster.get(NODES - 1);
+            crashed.crash();
+            final long detectionMs =
+                    cluster.waitFor(node -> !node.getNodes().contains(crashed.address), TIMEOUT_SEC * 1000L);
+
+            System.out.printf("%-10s nodes: %d - convergence: %s - packets/s: %.2f (%.2f per node) - bytes/s: %.0f - " +
+                            "detection: %s%n", protocol == null ? "datagram" : protocol, NODES, format(convergenceMs),
+                    packetsPerSec, packetsPerSec / NODES, bytesPerSec, format(detectionMs));
+        }
+    }
+
+    private static String format(final long ms) {
+        return ms < 0 ? "> " + TIMEOUT_SEC + "s" : ms + "ms";
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        run(ClusterManager.GOSSIP_PROTOCOL, 9401);
+        run(null, 9501);
+    }
+}
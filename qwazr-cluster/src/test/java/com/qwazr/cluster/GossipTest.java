@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.util.SortedSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class GossipTest {
+
+    private final static int NODES = 5;
+    private final static int PERIOD_MS = 100;
+    private final static long TIMEOUT_MS = 20_000;
+
+    private static LocalCluster cluster;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        cluster = new LocalCluster(ClusterManager.GOSSIP_PROTOCOL, PERIOD_MS, 9301, NODES);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        if (cluster != null)
+            cluster.close();
+    }
+
+    @Test
+    public void test100convergence() throws InterruptedException {
+        assertThat(cluster.waitFor(node -> node.getNodes().size() == NODES, TIMEOUT_MS), greaterThan(-1L));
+        assertThat(cluster.waitFor(node -> {
+            final SortedSet<String> nodes = node.manager.getNodesByGroupByService(null, "test");
+            return nodes != null && nodes.size() == NODES;
+        }, TIMEOUT_MS), greaterThan(-1L));
+    }
+
+    @Test
+    public void test200packetRate() throws InterruptedException {
+        final long packets = cluster.getSentPackets();
+        Thread.sleep(PERIOD_MS * 20);
+        // A probe, its ack, and sometimes a push-pull synchronisation
+        final double packetsPerNodePerPeriod = (cluster.getSentPackets() - packets) / (double) (NODES * 20);
+        assertThat(packetsPerNodePerPeriod, lessThan(4.0));
+        assertThat(packetsPerNodePerPeriod, greaterThan(1.0));
+    }
+
+    @Test
+    public void test300failureDetection() throws InterruptedException {
+        final LocalCluster.Node crashed = cluster.get(NODES - 1);
+        crashed.crash();
+        assertThat(cluster.waitFor(node -> !node.getNodes().contains(crashed.address), TIMEOUT_MS),
+                greaterThan(-1L));
+        for (final LocalCluster.Node node : cluster.nodes)
+            if (node.isRunning())
+                Assert.assertEquals(NODES - 1, node.getNodes().size());
+    }
+
+    @Test
+    public void test400gracefulLeave() throws InterruptedException {
+        final LocalCluster.Node leaving = cluster.get(NODES - 2);
+        leaving.close();
+        // No suspicion timeout: the leave is gossiped right away
+        final long latency = cluster.waitFor(node -> !node.getNodes().contains(leaving.address), TIMEOUT_MS);
+        assertThat(latency, greaterThan(-1L));
+        assertThat(latency, lessThan((long) PERIOD_MS * 10));
+    }
+}
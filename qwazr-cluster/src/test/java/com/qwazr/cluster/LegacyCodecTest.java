@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.utils.HashUtils;
+import com.qwazr.utils.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class LegacyCodecTest {
+
+    private final static UUID LEGACY_UUID = UUID.fromString("6f1e2d3c-4b5a-4978-8a69-5b4c3d2e1f00");
+
+    /**
+     * A join packet sent by the previous release: "http://10.0.0.1:9091", groups: group1, services: search, cluster
+     */
+    private final static String LEGACY_JOIN =
+            "H4sIAAAAAAAA/1vzloG1uIhBITk/V6+wPLGqSC85p7S4JLVIzze1uDgxPdU5P68kNa/Ebd2EoMW1XU08DAwVBeUBDKyB4Y5RQQxeDCIZ" +
+                    "JSUFVvr6hgZ6IGhoZWlgaZgvp2vjHeVZ0ZUZ7WOrJ88ABIwMbOlF+aUFhkA2EwM71BYGtuLUxKLkjAoAncazwYgAAAA=";
+
+    /**
+     * A leave packet sent by the previous release
+     */
+    private final static String LEGACY_LEAVE =
+            "H4sIAAAAAAAA/1vzloG1uIhBITk/V6+wPLGqSC85p7S4JLVIzze1uDgxPdU5P68kNa/Ebd2EoMW1XU08DAwVBeX6DKyB4Y5RQQw+DCIZ" +
+                    "JSUFVvr6hgZ6IGhoZWlgaZgvp2vjHeVZ0ZUZ7WOrJ89QAQDKI3QUZwAAAA==";
+
+    private static MessageContent decode(final byte[] bytes) throws IOException {
+        return LegacyCodec.decode(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void decodePreviousReleaseJoin() throws IOException {
+        final MessageContent message = decode(Base64.getDecoder().decode(LEGACY_JOIN));
+        Assert.assertEquals(ClusterProtocol.join, message.getCommand());
+        final FullContent content = message.getContent();
+        Assert.assertEquals("http://10.0.0.1:9091", content.getAddress());
+        Assert.assertEquals(LEGACY_UUID, content.getNodeLiveId());
+        Assert.assertEquals(Set.of("group1"), content.groups);
+        Assert.assertEquals(Set.of("search", "cluster"), content.services);
+    }
+
+    @Test
+    public void decodePreviousReleaseLeave() throws IOException {
+        final MessageContent message = decode(Base64.getDecoder().decode(LEGACY_LEAVE));
+        Assert.assertEquals(ClusterProtocol.leave, message.getCommand());
+        final AddressContent content = message.getContent();
+        Assert.assertEquals("http://10.0.0.1:9091", content.getAddress());
+        Assert.assertEquals(LEGACY_UUID, content.getNodeLiveId());
+    }
+
+    @Test
+    public void encodeLikePreviousRelease() throws IOException, ClassNotFoundException {
+        final byte[] bytes = LegacyCodec.encode(ClusterProtocol.newJoin("http://10.0.0.1:9091", LEGACY_UUID,
+                Set.of("group1"), Set.of("search", "cluster")));
+        // The previous release reads it with SerializationUtils
+        final MessageContent message = SerializationUtils.fromDefaultCompressedBytes(bytes);
+        Assert.assertEquals(ClusterProtocol.join, message.getCommand());
+        Assert.assertEquals(Set.of("group1"), message.<FullContent>getContent().groups);
+    }
+
+    @Test
+    public void decodeBinaryFormat() throws IOException {
+        final UUID uuid = HashUtils.newTimeBasedUUID();
+        final MessageContent message =
+                decode(ClusterCodec.encode(ClusterProtocol.newAlive("http://localhost:9091", uuid)));
+        Assert.assertEquals(ClusterProtocol.alive, message.getCommand());
+        Assert.assertEquals(uuid, message.getContent().getNodeLiveId());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectGossipCommand() throws IOException {
+        LegacyCodec.encode(ClusterProtocol.newGossip(ClusterProtocol.ping, "http://localhost:9091", UUID.randomUUID(),
+                1, null, List.of()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOtherClasses() throws IOException {
+        decode(SerializationUtils.toDefaultCompressedBytes("not a message"));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.cluster;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import com.qwazr.utils.LoggerUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs several cluster nodes in the same JVM: each node has its own UDP socket on localhost, without any HTTP server.
+ */
+class LocalCluster implements Closeable {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger(LocalCluster.class);
+
+    private final ExecutorService executorService;
+    private final String protocol;
+    private final Integer gossipPeriodMs;
+    private final List<String> masters;
+    final List<Node> nodes;
+
+    /**
+     * @param protocol       the cluster protocol, or null for the datagram protocol
+     * @param gossipPeriodMs the period of the gossip protocol
+     * @param firstPort      the port of the first node, which is also the master
+     * @param size           the number of nodes
+     */
+    LocalCluster(final String protocol, final Integer gossipPeriodMs, final int firstPort, final int size)
+            throws IOException {
+        this.executorService = Executors.newCachedThreadPool();
+        this.protocol = protocol;
+        this.gossipPeriodMs = gossipPeriodMs;
+        this.masters = List.of("localhost:" + firstPort);
+        this.nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            nodes.add(new Node(firstPort + i));
+    }
+
+    Node get(final int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * @param predicate the condition to check on every running node
+     * @param timeoutMs the max time to wait
+     * @return the time in milliseconds the condition took to be true, or -1 if the timeout expired
+     */
+    long waitFor(final Predicate<Node> predicate, final long timeoutMs) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        for (; ; ) {
+            final long elapsed = System.currentTimeMillis() - start;
+            if (nodes.stream().filter(node -> node.running).allMatch(predicate))
+                return elapsed;
+            if (elapsed > timeoutMs)
+                return -1;
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * @return the number of packets sent by the running nodes
+     */
+    long getSentPackets() {
+        return nodes.stream().filter(node -> node.running).mapToLong(node -> node.listener.getSentPackets()).sum();
+    }
+
+    /**
+     * @return the number of bytes sent by the running nodes
+     */
+    long getSentBytes() {
+        return nodes.stream().filter(node -> node.running).mapToLong(node -> node.listener.getSentBytes()).sum();
+    }
+
+    @Override
+    public void close() {
+        nodes.forEach(Node::close);
+        executorService.shutdownNow();
+    }
+
+    class Node implements Closeable {
+
+        final ClusterManager manager;
+        final ProtocolListener listener;
+        final String address;
+        private final DatagramSocket socket;
+        private volatile boolean running;
+
+        private Node(final int port) throws IOException {
+            manager = new ClusterManager(executorService, ServerConfiguration.of()
+                    .data(Files.createTempDirectory("cluster"))
+                    .publicAddress("localhost")
+                    .listenAddress("localhost")
+                    .webServicePort(port)
+                    .master(masters)
+                    .clusterProtocol(protocol)
+                    .clusterGossipPeriodMs(gossipPeriodMs)
+                    .build());
+            listener = manager.getProtocolListener();
+            address = manager.me.httpAddressKey;
+            socket = new DatagramSocket(new InetSocketAddress("localhost", port));
+            running = true;
+            executorService.submit(this::receive);
+            executorService.submit(listener);
+            listener.joinCluster(Set.of("test"));
+        }
+
+        private void receive() {
+            final byte[] buffer = new byte[65536];
+            while (running) {
+                try {
+                    final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    listener.acceptPacket(packet);
+                }
+                catch (IOException e) {
+                    if (running)
+                        LOGGER.log(Level.WARNING, e, e::getMessage);
+                }
+            }
+        }
+
+        boolean isRunning() {
+            return running;
+        }
+
+        Set<String> getNodes() {
+            return manager.getNodes();
+        }
+
+        /**
+         * Stop the node without leaving the cluster
+         */
+        void crash() {
+            if (!running)
+                return;
+            running = false;
+            listener.shutdown();
+            socket.close();
+        }
+
+        @Override
+        public void close() {
+            if (running)
+                listener.leaveCluster();
+            crash();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.qwazr.utils.ObjectMappers;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with "-rf json": the baseline (usually the main branch) and the current run.
+ * <p>
+ * A benchmark is reported as a regression or an improvement when the difference of the scores is larger than the
+ * threshold and than the sum of the errors of both scores. The process exits with the status 1 if there is a regression.
+ * <pre>
+ * java -cp qwazr-search-benchmarks-app.jar com.qwazr.search.benchmarks.BaselineReport baseline.json current.json [5]
+ * </pre>
+ */
+public class BaselineReport {
+
+    public final static double DEFAULT_THRESHOLD_PERCENT = 5;
+
+    public enum Verdict {
+        unchanged, improvement, regression, added, removed
+    }
+
+    public static class Score {
+
+        public final double value;
+        public final double error;
+        public final String unit;
+        final boolean higherIsBetter;
+
+        Score(final JsonNode result) {
+            final JsonNode metric = result.get("primaryMetric");
+            value = metric.get("score").asDouble();
+            // JMH writes NaN when there is only one iteration
+            final double scoreError = metric.path("scoreError").asDouble(0);
+            error = Double.isNaN(scoreError) ? 0 : scoreError;
+            unit = metric.get("scoreUnit").asText();
+            higherIsBetter = "thrpt".equals(result.get("mode").asText());
+        }
+    }
+
+    public static class Row {
+
+        public final String benchmark;
+        public final Score baseline;
+        public final Score current;
+        /**
+         * The relative change of the score, in percent, positive when the current run is better
+         */
+        public final double changePercent;
+        public final Verdict verdict;
+
+        Row(final String benchmark, final Score baseline, final Score current, final double thresholdPercent) {
+            this.benchmark = benchmark;
+            this.baseline = baseline;
+            this.current = current;
+            if (baseline == null || current == null) {
+                changePercent = Double.NaN;
+                verdict = baseline == null ? Verdict.added : Verdict.removed;
+                return;
+            }
+            final double difference = current.value - baseline.value;
+            changePercent = (current.higherIsBetter ? difference : -difference) * 100 / baseline.value;
+            if (Math.abs(changePercent) < thresholdPercent
+                || Math.abs(difference) <= baseline.error + current.error)
+                verdict = Verdict.unchanged;
+            else
+                verdict = changePercent > 0 ? Verdict.improvement : Verdict.regression;
+        }
+    }
+
+    /**
+     * @param result one entry of a JMH result file
+     * @return the name of the benchmark method, with its class and its parameters
+     */
+    static String getKey(final JsonNode result) {
+        final String benchmark = result.get("benchmark").asText();
+        final int methodPos = benchmark.lastIndexOf('.');
+        final StringBuilder sb =
+            new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', methodPos - 1) + 1));
+        final JsonNode params = result.get("params");
+        if (params != null && params.size() > 0) {
+            final Map<String, String> sortedParams = new TreeMap<>();
+            params.fields().forEachRemaining(entry -> sortedParams.put(entry.getKey(), entry.getValue().asText()));
+            sb.append(sortedParams.toString().replace('{', '(').replace('}', ')'));
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, Score> getScores(final JsonNode results) {
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        final Iterator<JsonNode> iterator = results.elements();
+        while (iterator.hasNext()) {
+            final JsonNode result = iterator.next();
+            scores.put(getKey(result), new Score(result));
+        }
+        return scores;
+    }
+
+    public static List<Row> compare(final JsonNode baseline, final JsonNode current, final double thresholdPercent) {
+        final Map<String, Score> baselineScores = getScores(baseline);
+        final Map<String, Score> currentScores = getScores(current);
+        final List<Row> rows = new ArrayList<>();
+        currentScores.forEach((benchmark, score) ->
+            rows.add(new Row(benchmark, baselineScores.get(benchmark), score, thresholdPercent)));
+        baselineScores.forEach((benchmark, score) -> {
+            if (!currentScores.containsKey(benchmark))
+                rows.add(new Row(benchmark, score, null, thresholdPercent));
+        });
+        return rows;
+    }
+
+    private static String format(final Score score) {
+        return score == null ? "-" : String.format(Locale.ROOT, "%.3f ± %.3f %s", score.value, score.error, score.unit);
+    }
+
+    public static void print(final List<Row> rows, final PrintStream out) {
+        int width = "Benchmark".length();
+        for (final Row row : rows)
+            width = Math.max(width, row.benchmark.length());
+        final String format = "%-" + width + "s  %28s  %28s  %8s  %s%n";
+        out.printf(Locale.ROOT, format, "Benchmark", "Baseline", "Current", "Change", "");
+        for (final Row row : rows)
+            out.printf(Locale.ROOT, format, row.benchmark, format(row.baseline), format(row.current),
+                Double.isNaN(row.changePercent) ? "" : String.format(Locale.ROOT, "%+.1f%%", row.changePercent),
+                row.verdict == Verdict.unchanged ? "" : row.verdict.name().toUpperCase(Locale.ROOT));
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineReport baseline.json current.json [threshold_percent]");
+            System.exit(2);
+        }
+        final JsonNode baseline = ObjectMappers.JSON.readTree(Path.of(args[0]).toFile());
+        final JsonNode current = ObjectMappers.JSON.readTree(Path.of(args[1]).toFile());
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        final List<Row> rows = compare(baseline, current, threshold);
+        print(rows, System.out);
+        if (rows.stream().anyMatch(row -> row.verdict == Verdict.regression))
+            System.exit(1);
+    }
+}
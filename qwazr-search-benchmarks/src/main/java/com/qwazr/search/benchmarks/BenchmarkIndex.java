@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.index.IndexExecutors;
+import com.qwazr.search.index.IndexManager;
+import com.qwazr.search.index.IndexServiceInterface;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.PostDefinition;
+import com.qwazr.server.ServerExecutor;
+import com.qwazr.utils.FileUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index of the synthetic corpus in a temporary directory,
+ * served by the same executors as the search server, with their default settings.
+ */
+public final class BenchmarkIndex implements Closeable {
+
+    public final static String NAME = "benchmark";
+
+    private final Path rootDirectory;
+    private final List<ExecutorService> executors;
+    public final IndexManager indexManager;
+    public final IndexServiceInterface service;
+
+    public BenchmarkIndex(final IndexSettingsDefinition settings,
+                          final Map<String, FieldDefinition> fields) throws IOException {
+        rootDirectory = Files.createTempDirectory("qwazr_benchmark");
+        final ServerExecutor searchSlice =
+            new ServerExecutor(IndexExecutors.SEARCH_SLICE, IndexExecutors.SEARCH_SLICE_DEFAULTS);
+        final ServerExecutor fetch = new ServerExecutor(IndexExecutors.FETCH, IndexExecutors.FETCH_DEFAULTS);
+        final ServerExecutor ingest = new ServerExecutor(IndexExecutors.INGEST, IndexExecutors.INGEST_DEFAULTS);
+        final ServerExecutor replication =
+            new ServerExecutor(IndexExecutors.REPLICATION, IndexExecutors.REPLICATION_DEFAULTS);
+        executors = List.of(searchSlice, fetch, ingest, replication);
+        indexManager = new IndexManager(rootDirectory, new IndexExecutors(searchSlice, fetch, ingest, replication),
+            null, null);
+        service = indexManager.getService();
+        service.createUpdateIndex(NAME, settings);
+        service.setFields(NAME, fields);
+    }
+
+    /**
+     * An index having the fields of the synthetic corpus
+     */
+    public BenchmarkIndex(final IndexSettingsDefinition settings) throws IOException {
+        this(settings, SyntheticCorpus.fields());
+    }
+
+    /**
+     * Index the documents having an ID from 0 to count - 1
+     */
+    BenchmarkIndex load(final SyntheticCorpus corpus, final int count, final int batchSize) {
+        for (int id = 0; id < count; id += batchSize)
+            service.postMappedDocuments(NAME,
+                PostDefinition.Documents.of(corpus.documents(id, Math.min(batchSize, count - id)), null));
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        indexManager.close();
+        for (final ExecutorService executor : executors) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        FileUtils.deleteDirectory(rootDirectory);
+    }
+}
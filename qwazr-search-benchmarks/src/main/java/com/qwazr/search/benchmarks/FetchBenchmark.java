@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.qwazr.search.index.HighlighterDefinition;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.HasTerm;
+import com.qwazr.search.query.QueryParser;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latency of a result page, with its documents: the stored fields and the DocValues
+ * (StoredFieldsFetcher, ReturnedFieldStrategy), and the highlighted passages (Highlighters).
+ * <p>
+ * The query matches the most frequent words, so that every page is full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class FetchBenchmark {
+
+    private final static int QUERIES = 16;
+
+    @Param({"50000"})
+    public int docs;
+
+    @Param({"10", "100"})
+    public int rows;
+
+    private BenchmarkIndex index;
+    private QueryDefinition[] allFieldsQueries;
+    private QueryDefinition[] someFieldsQueries;
+    private QueryDefinition[] highlightQueries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final SyntheticCorpus corpus = new SyntheticCorpus();
+        index = new BenchmarkIndex(SyntheticCorpus.settings()
+            .queryCachePolicy(IndexSettingsDefinition.QueryCachePolicy.NONE)
+            .build()).load(corpus, docs, 1000);
+
+        allFieldsQueries = new QueryDefinition[QUERIES];
+        someFieldsQueries = new QueryDefinition[QUERIES];
+        highlightQueries = new QueryDefinition[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            final String word = corpus.word(i);
+            allFieldsQueries[i] = QueryDefinition.of(new HasTerm(SyntheticCorpus.TAGS, word))
+                .rows(rows)
+                .returnedField("*")
+                .build();
+            someFieldsQueries[i] = QueryDefinition.of(new HasTerm(SyntheticCorpus.TAGS, word))
+                .rows(rows)
+                .returnedField(SyntheticCorpus.TITLE, SyntheticCorpus.PRICE, SyntheticCorpus.QUANTITY)
+                .build();
+            highlightQueries[i] = QueryDefinition.of(QueryParser.of(SyntheticCorpus.CONTENT)
+                .setQueryString(word + ' ' + corpus.word(QUERIES + i))
+                .build())
+                .rows(rows)
+                .returnedField(SyntheticCorpus.TITLE)
+                .highlighter(SyntheticCorpus.CONTENT, HighlighterDefinition.of(SyntheticCorpus.CONTENT)
+                    .withMaxPassages(3)
+                    .build())
+                .build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    private ResultDefinition.WithMap search(final QueryDefinition[] queries) {
+        final QueryDefinition query = queries[next];
+        next = (next + 1) % QUERIES;
+        return index.service.searchQuery(BenchmarkIndex.NAME, query, false);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap fetchAllFields() {
+        return search(allFieldsQueries);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap fetchSomeFields() {
+        return search(someFieldsQueries);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap highlight() {
+        return search(highlightQueries);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.qwazr.search.index.IndexJsonResult;
+import com.qwazr.search.index.PostDefinition;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The indexing throughput, in documents per second, of the two main ingestion paths:
+ * the mapped documents (DocumentBuilder through RecordsPoster.MapDocument)
+ * and the JSON documents (through RecordsPoster.JsonNode).
+ * <p>
+ * The batches are prepared before the measurement, and cycle over a fixed set of IDs:
+ * after the first cycle, every document replaces a previous version, and the size of the index stays stable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class IndexingBenchmark {
+
+    private final static int BATCH_SIZE = 1000;
+    private final static int BATCHES = 20;
+
+    private BenchmarkIndex index;
+    private PostDefinition.Documents[] mappedBatches;
+    private ArrayNode[] jsonBatches;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        index = new BenchmarkIndex(SyntheticCorpus.settings().build());
+        final SyntheticCorpus corpus = new SyntheticCorpus();
+        mappedBatches = new PostDefinition.Documents[BATCHES];
+        jsonBatches = new ArrayNode[BATCHES];
+        for (int i = 0; i < BATCHES; i++) {
+            mappedBatches[i] = PostDefinition.Documents.of(corpus.documents(i * BATCH_SIZE, BATCH_SIZE), null);
+            jsonBatches[i] = corpus.jsonDocuments(i * BATCH_SIZE, BATCH_SIZE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    private int nextBatch() {
+        final int batch = next;
+        next = (batch + 1) % BATCHES;
+        return batch;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Integer postMappedDocuments() {
+        return index.service.postMappedDocuments(BenchmarkIndex.NAME, mappedBatches[nextBatch()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public IndexJsonResult postJsonNodes() {
+        return index.service.postJson(BenchmarkIndex.NAME, false, jsonBatches[nextBatch()]);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SmartFieldDefinition;
+import com.qwazr.search.index.IndexJsonResult;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.utils.ObjectMappers;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Posts batches of JSON documents to an index having 200 wildcard fields.
+ * <p>
+ * Each document has 50 properties matching the last wildcard patterns,
+ * and 20 dynamic properties typed from their values.
+ */
+@State(Scope.Benchmark)
+public class PostJsonNodesBenchmark {
+
+    private final static int WILDCARD_FIELDS = 200;
+    private final static int DOCS = 100;
+
+    private BenchmarkIndex index;
+    private ArrayNode documents;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Map<String, FieldDefinition> fields = new LinkedHashMap<>();
+        for (int i = 0; i < WILDCARD_FIELDS; i++)
+            fields.put("w" + i + "_*", SmartFieldDefinition.of()
+                .type(SmartFieldDefinition.Type.TEXT).index(true).stored(true).build());
+        index = new BenchmarkIndex(IndexSettingsDefinition.of().primaryKey("id").build(), fields);
+
+        final Random random = new Random(0);
+        documents = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < DOCS; i++) {
+            final ObjectNode document = documents.addObject();
+            document.put("id", Integer.toString(i));
+            for (int j = 0; j < 50; j++)
+                document.put("w" + (WILDCARD_FIELDS - 1 - j % 10) + "_" + j, "value" + random.nextInt(1000));
+            for (int j = 0; j < 10; j++) {
+                document.put("text" + j, "dynamic text " + random.nextInt(1000));
+                document.put("number" + j, random.nextInt(1000));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    public IndexJsonResult postJsonNodes() {
+        return index.service.postJson(BenchmarkIndex.NAME, false, documents);
+    }
+}
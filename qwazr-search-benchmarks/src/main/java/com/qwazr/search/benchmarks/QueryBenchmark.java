@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.qwazr.search.collector.CollapseCollector;
+import com.qwazr.search.index.FacetDefinition;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.Bool;
+import com.qwazr.search.query.HasTerm;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latency of the query execution (QueryExecution, FacetsBuilder, CollapseCollector) on the synthetic corpus.
+ * The result page only contains the scores, the fetch of the documents is measured by {@link FetchBenchmark}.
+ * <p>
+ * Each benchmark cycles over a set of queries using words of different frequencies.
+ * The query cache of the index is disabled: the same queries are repeated, and would be served from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class QueryBenchmark {
+
+    private final static int QUERIES = 64;
+    private final static int ROWS = 10;
+
+    @Param({"50000"})
+    public int docs;
+
+    private BenchmarkIndex index;
+    private QueryDefinition[] termQueries;
+    private QueryDefinition[] booleanQueries;
+    private QueryDefinition[] facetQueries;
+    private QueryDefinition[] collapseQueries;
+    private int next;
+
+    private static QueryDefinition[] build(final IntFunction<QueryDefinition> builder) {
+        final QueryDefinition[] queries = new QueryDefinition[QUERIES];
+        for (int i = 0; i < QUERIES; i++)
+            queries[i] = builder.apply(i);
+        return queries;
+    }
+
+    /**
+     * From the most frequent words to the words found in about one hundred documents
+     */
+    private static String tag(final SyntheticCorpus corpus, final int i) {
+        return corpus.word(i * i);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final SyntheticCorpus corpus = new SyntheticCorpus();
+        index = new BenchmarkIndex(SyntheticCorpus.settings()
+            .queryCachePolicy(IndexSettingsDefinition.QueryCachePolicy.NONE)
+            .build()).load(corpus, docs, 1000);
+
+        termQueries = build(i -> QueryDefinition.of(new HasTerm(SyntheticCorpus.TAGS, tag(corpus, i)))
+            .rows(ROWS)
+            .build());
+        booleanQueries = build(i -> QueryDefinition.of(Bool.of()
+            .addClause(Bool.Occur.must, new HasTerm(SyntheticCorpus.TAGS, tag(corpus, i % 8)))
+            .addClause(Bool.Occur.should, new HasTerm(SyntheticCorpus.TAGS, tag(corpus, i)))
+            .addClause(Bool.Occur.should, new HasTerm(SyntheticCorpus.TAGS, tag(corpus, QUERIES - 1 - i)))
+            .addClause(Bool.Occur.must_not, new HasTerm(SyntheticCorpus.CATEGORY, "category" + i % 8))
+            .build())
+            .rows(ROWS)
+            .build());
+        facetQueries = build(i -> QueryDefinition.of(new HasTerm(SyntheticCorpus.TAGS, tag(corpus, i)))
+            .rows(ROWS)
+            .facet(SyntheticCorpus.CATEGORY, FacetDefinition.of(10).build())
+            .build());
+        collapseQueries = build(i -> QueryDefinition.of(new HasTerm(SyntheticCorpus.TAGS, tag(corpus, i)))
+            .rows(ROWS)
+            .collector("collapse", CollapseCollector.class, SyntheticCorpus.GROUP, ROWS)
+            .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    private ResultDefinition.WithMap search(final QueryDefinition[] queries) {
+        final QueryDefinition query = queries[next];
+        next = (next + 1) % QUERIES;
+        return index.service.searchQuery(BenchmarkIndex.NAME, query, false);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap termQuery() {
+        return search(termQueries);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap booleanQuery() {
+        return search(booleanQueries);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap facetQuery() {
+        return search(facetQueries);
+    }
+
+    @Benchmark
+    public ResultDefinition.WithMap collapseQuery() {
+        return search(collapseQueries);
+    }
+}
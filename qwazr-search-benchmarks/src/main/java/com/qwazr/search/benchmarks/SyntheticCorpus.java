@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.analysis.SmartAnalyzerSet;
+import com.qwazr.search.field.CustomFieldDefinition;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SmartFieldDefinition;
+import com.qwazr.search.index.IndexSettingsDefinition;
+import com.qwazr.utils.ObjectMappers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * A reproducible corpus of synthetic documents.
+ * <p>
+ * The words of the vocabulary are drawn from a Zipf distribution, as in natural language: a few words are found in
+ * most documents, most words in a few documents. Each document only depends on the seed and on its ID, so the same
+ * document is generated whatever the order, the batch size or the number of threads.
+ * <ul>
+ * <li>id: the primary key</li>
+ * <li>title and content: full text, stored, for the query parser and the highlighters</li>
+ * <li>tags: multivalued keywords, for the term and boolean queries</li>
+ * <li>category: a keyword facet</li>
+ * <li>group: a SortedDocValues field, for the collapse collector</li>
+ * <li>price and quantity: sortable and stored numbers</li>
+ * </ul>
+ */
+public class SyntheticCorpus {
+
+    public final static String ID = "id";
+    public final static String TITLE = "title";
+    public final static String CONTENT = "content";
+    public final static String TAGS = "tags";
+    public final static String CATEGORY = "category";
+    public final static String GROUP = "group";
+    public final static String PRICE = "price";
+    public final static String QUANTITY = "quantity";
+
+    public final static long DEFAULT_SEED = 20200101L;
+    public final static int DEFAULT_VOCABULARY = 20_000;
+    public final static int CATEGORIES = 50;
+    public final static int GROUPS = 1_000;
+
+    private final static String[] SYLLABLES = {
+        "ba", "be", "bi", "bo", "ca", "ce", "co", "da", "de", "di", "do", "fa", "fe", "fi", "ga", "go", "ha", "he",
+        "ka", "ki", "la", "le", "li", "lo", "ma", "me", "mi", "mo", "na", "ne", "ni", "no", "pa", "pe", "pi", "po",
+        "ra", "re", "ri", "ro", "sa", "se", "si", "so", "ta", "te", "ti", "to", "va", "ve", "vi", "za", "zo"};
+
+    private final long seed;
+    private final String[] vocabulary;
+    private final double[] cumulative;
+
+    public SyntheticCorpus(final long seed, final int vocabularySize) {
+        this.seed = seed;
+        final Random random = new Random(seed);
+        final Set<String> words = new LinkedHashSet<>();
+        final StringBuilder sb = new StringBuilder();
+        while (words.size() < vocabularySize) {
+            sb.setLength(0);
+            final int syllables = 2 + random.nextInt(4);
+            for (int i = 0; i < syllables; i++)
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            words.add(sb.toString());
+        }
+        vocabulary = words.toArray(new String[0]);
+        // Zipf distribution with an exponent of 1: the frequency of a word is inversely proportional to its rank
+        cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int i = 0; i < vocabularySize; i++)
+            cumulative[i] = sum += 1.0d / (i + 1);
+        for (int i = 0; i < vocabularySize; i++)
+            cumulative[i] /= sum;
+    }
+
+    public SyntheticCorpus() {
+        this(DEFAULT_SEED, DEFAULT_VOCABULARY);
+    }
+
+    /**
+     * @param rank the rank of the word in the Zipf distribution, 0 being the most frequent
+     * @return the word
+     */
+    public String word(final int rank) {
+        return vocabulary[rank];
+    }
+
+    public int getVocabularySize() {
+        return vocabulary.length;
+    }
+
+    private String nextWord(final SplittableRandom random) {
+        final int pos = Arrays.binarySearch(cumulative, random.nextDouble());
+        return vocabulary[Math.min(pos < 0 ? -pos - 1 : pos, vocabulary.length - 1)];
+    }
+
+    private String nextText(final SplittableRandom random, final int minWords, final int maxWords) {
+        final int count = random.nextInt(minWords, maxWords + 1);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                sb.append(i % 12 == 0 ? ". " : " ");
+            sb.append(nextWord(random));
+        }
+        return sb.append('.').toString();
+    }
+
+    /**
+     * @param id the ID of the document
+     * @return the document, always the same for a given seed and ID
+     */
+    public Map<String, Object> document(final int id) {
+        final SplittableRandom random = new SplittableRandom(seed * 31 + id);
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put(ID, Integer.toString(id));
+        document.put(TITLE, nextText(random, 4, 10));
+        document.put(CONTENT, nextText(random, 50, 200));
+        final int tagCount = random.nextInt(1, 6);
+        final List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++)
+            tags.add(nextWord(random));
+        document.put(TAGS, tags);
+        document.put(CATEGORY, "category" + (int) Math.floor(CATEGORIES * Math.pow(random.nextDouble(), 2)));
+        document.put(GROUP, "group" + random.nextInt(GROUPS));
+        document.put(PRICE, Math.round(random.nextDouble() * 100_000) / 100d);
+        document.put(QUANTITY, (long) random.nextInt(1000));
+        return document;
+    }
+
+    /**
+     * @param firstId the ID of the first document
+     * @param count   the number of documents
+     * @return the documents having consecutive IDs
+     */
+    public List<Map<String, Object>> documents(final int firstId, final int count) {
+        final List<Map<String, Object>> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            documents.add(document(firstId + i));
+        return documents;
+    }
+
+    /**
+     * @param firstId the ID of the first document
+     * @param count   the number of documents
+     * @return the same documents as {@link #documents(int, int)}, as JSON objects
+     */
+    public ArrayNode jsonDocuments(final int firstId, final int count) {
+        final ArrayNode documents = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < count; i++)
+            documents.add(ObjectMappers.JSON.<ObjectNode>valueToTree(document(firstId + i)));
+        return documents;
+    }
+
+    public static IndexSettingsDefinition.Builder settings() {
+        return IndexSettingsDefinition.of().primaryKey(ID);
+    }
+
+    public static Map<String, FieldDefinition> fields() {
+        final Map<String, FieldDefinition> fields = new LinkedHashMap<>();
+        fields.put(ID, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT)
+            .index(true).stored(true).build());
+        fields.put(TITLE, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT)
+            .index(true).analyzer(SmartAnalyzerSet.english.name()).stored(true).build());
+        fields.put(CONTENT, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT)
+            .index(true).analyzer(SmartAnalyzerSet.english.name()).stored(true).build());
+        fields.put(TAGS, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT)
+            .index(true).multivalued(true).stored(true).build());
+        fields.put(CATEGORY, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT)
+            .index(true).facet(true).stored(true).build());
+        fields.put(GROUP, CustomFieldDefinition.of().template(FieldDefinition.Template.SortedDocValuesField).build());
+        fields.put(PRICE, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.DOUBLE)
+            .index(true).sort(true).stored(true).build());
+        fields.put(QUANTITY, SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG)
+            .index(true).sort(true).stored(true).build());
+        return fields;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.field.converters;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads a 1000 rows page with 10 numeric DocValues fields.
+ * <p>
+ * The "perDocLookup" benchmark is the former MultiReader algorithm
+ * (linear scan of the doc bases, one iterator per document and per field, synchronized advance).
+ * The "columnar" benchmark is the current MultiReader,
+ * fed in doc ID order as done by the fetch phase of a result page.
+ * <p>
+ * The index is a plain Lucene index, only the reader is measured.
+ * The benchmark uses the package-private methods of MultiReader, it belongs to the same package.
+ */
+@State(Scope.Benchmark)
+public class MultiReaderBenchmark {
+
+    private final static int DOCS = 200_000;
+    private final static int SEGMENT_DOCS = 20_000;
+    private final static int ROWS = 1000;
+    private final static String[] FIELDS = new String[10];
+
+    static {
+        for (int i = 0; i < FIELDS.length; i++)
+            FIELDS[i] = "dv" + i;
+    }
+
+    private Directory directory;
+    private IndexReader indexReader;
+    private int[] page;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        final Random random = new Random(0);
+        try (final IndexWriter indexWriter = new IndexWriter(directory,
+            new IndexWriterConfig(new KeywordAnalyzer()).setMaxBufferedDocs(SEGMENT_DOCS))) {
+            for (int i = 0; i < DOCS; i++) {
+                final Document document = new Document();
+                for (final String field : FIELDS)
+                    document.add(new NumericDocValuesField(field, random.nextLong()));
+                indexWriter.addDocument(document);
+            }
+        }
+        indexReader = DirectoryReader.open(directory);
+        page = random.ints(ROWS, 0, DOCS).sorted().toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public void perDocLookup(final Blackhole blackhole) throws IOException {
+        final int[] docBases = new int[indexReader.leaves().size()];
+        final LeafReader[] leafReaders = new LeafReader[docBases.length];
+        int i = 0;
+        for (final LeafReaderContext context : indexReader.leaves()) {
+            docBases[i] = context.docBase;
+            leafReaders[i++] = context.reader();
+        }
+        for (final int docId : page) {
+            int pos = -1;
+            for (final int docBase : docBases) {
+                if (docBase > docId)
+                    break;
+                pos++;
+            }
+            for (final String field : FIELDS) {
+                final NumericDocValues docValues = leafReaders[pos].getNumericDocValues(field);
+                synchronized (docValues) {
+                    final int target = docId - docBases[pos];
+                    blackhole.consume(docValues.advance(target) == target ? docValues.longValue() : 0);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    public void columnar(final Blackhole blackhole) throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        for (final int docId : page)
+            for (final String field : FIELDS)
+                blackhole.consume(multiReader.getNumericDocValues(docId, field));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.analysis.AnalyzerContext;
+import com.qwazr.search.analysis.UpdatableAnalyzers;
+import com.qwazr.search.benchmarks.BenchmarkIndex;
+import com.qwazr.search.benchmarks.SyntheticCorpus;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Indexes batches of documents of the synthetic corpus through RecordsPoster.MapDocument,
+ * without the index service: no commit, no merge, no refresh.
+ * <p>
+ * The benchmark uses package-private classes of the index package, it belongs to the same package.
+ * Run it with the GC profiler to follow the allocation rate per document:
+ * <pre>java -jar qwazr-search-benchmarks-app.jar MapDocumentBenchmark -prof gc</pre>
+ */
+@State(Scope.Benchmark)
+public class MapDocumentBenchmark {
+
+    private final static int DOCS = 1000;
+    private final static int RAM_BUFFER_MB = 1024;
+
+    private BenchmarkIndex index;
+    private Supplier<IndexWriterConfig> indexWriterConfig;
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private FieldMap fieldMap;
+    private AnalyzerContext analyzerContext;
+    private List<Map<String, Object>> documents;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // The index manager provides the smart analyzers
+        index = new BenchmarkIndex(SyntheticCorpus.settings().build());
+        final IndexManager indexManager = index.indexManager;
+        fieldMap = new FieldMap(new FieldsContext(SyntheticCorpus.settings().build(), SyntheticCorpus.fields()));
+        final UpdatableAnalyzers updatableAnalyzers = new UpdatableAnalyzers();
+        analyzerContext = new AnalyzerContext(ConcurrentHashMap.newKeySet(), indexManager,
+            indexManager.getSmartAnalyzers(), null, updatableAnalyzers, fieldMap, Map.of(), Map.of(),
+            new ArrayList<>());
+        indexWriterConfig = () -> new IndexWriterConfig(updatableAnalyzers)
+            .setRAMBufferSizeMB(RAM_BUFFER_MB)
+            .setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+        documents = new SyntheticCorpus().documents(0, DOCS);
+    }
+
+    /**
+     * A new in-memory writer for each iteration, large enough to never flush a segment:
+     * the allocations of a flush would hide the ones of the documents.
+     */
+    @Setup(Level.Iteration)
+    public void openWriter() throws IOException {
+        directory = new ByteBuffersDirectory();
+        indexWriter = new IndexWriter(directory, indexWriterConfig.get());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWriter() throws IOException {
+        indexWriter.rollback();
+        directory.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        analyzerContext.close();
+        index.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1, jvmArgsAppend = "-Xmx3g")
+    @Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    public int postMapDocuments() throws IOException {
+        final RecordsPoster.MapDocument poster =
+            RecordsPoster.MapDocument.of(fieldMap, analyzerContext, indexWriter, null);
+        for (final Map<String, ?> document : documents)
+            poster.accept(document);
+        return poster.getCount();
+    }
+}
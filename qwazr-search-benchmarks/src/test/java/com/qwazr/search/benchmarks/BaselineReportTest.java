@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.utils.ObjectMappers;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BaselineReportTest {
+
+    private static ObjectNode result(final String benchmark, final String mode, final Map<String, String> params,
+                                     final double score, final Object error) {
+        final ObjectNode result = ObjectMappers.JSON.createObjectNode();
+        result.put("benchmark", "com.qwazr.search.benchmarks." + benchmark);
+        result.put("mode", mode);
+        if (params != null)
+            params.forEach(result.putObject("params")::put);
+        final ObjectNode metric = result.putObject("primaryMetric");
+        metric.put("score", score);
+        if (error instanceof Number)
+            metric.put("scoreError", ((Number) error).doubleValue());
+        else
+            metric.put("scoreError", error.toString());
+        metric.put("scoreUnit", "thrpt".equals(mode) ? "ops/s" : "us/op");
+        return result;
+    }
+
+    private static ArrayNode results(final ObjectNode... results) {
+        return ObjectMappers.JSON.createArrayNode().addAll(List.of(results));
+    }
+
+    private static BaselineReport.Row find(final List<BaselineReport.Row> rows, final String benchmark) {
+        return rows.stream().filter(row -> row.benchmark.equals(benchmark)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void compare() {
+        final JsonNode baseline = results(
+            result("QueryBenchmark.termQuery", "avgt", Map.of("docs", "50000"), 100, 2.0),
+            result("QueryBenchmark.facetQuery", "avgt", Map.of("docs", "50000"), 100, 2.0),
+            result("QueryBenchmark.collapseQuery", "avgt", Map.of("docs", "50000"), 100, 2.0),
+            result("IndexingBenchmark.postJsonNodes", "thrpt", null, 1000, 10.0),
+            result("FetchBenchmark.highlight", "avgt", Map.of("rows", "10", "docs", "50000"), 100, 30.0),
+            result("FetchBenchmark.fetchAllFields", "avgt", null, 100, 1.0));
+        final JsonNode current = results(
+            result("QueryBenchmark.termQuery", "avgt", Map.of("docs", "50000"), 80, 2.0),
+            result("QueryBenchmark.facetQuery", "avgt", Map.of("docs", "50000"), 120, 2.0),
+            result("QueryBenchmark.collapseQuery", "avgt", Map.of("docs", "50000"), 102, 2.0),
+            result("IndexingBenchmark.postJsonNodes", "thrpt", null, 900, "NaN"),
+            result("FetchBenchmark.highlight", "avgt", Map.of("docs", "50000", "rows", "10"), 130, 5.0),
+            result("FetchBenchmark.fetchSomeFields", "avgt", null, 100, 1.0));
+
+        final List<BaselineReport.Row> rows = BaselineReport.compare(baseline, current, 5);
+        Assert.assertEquals(7, rows.size());
+
+        final BaselineReport.Row term = find(rows, "QueryBenchmark.termQuery(docs=50000)");
+        Assert.assertEquals(BaselineReport.Verdict.improvement, term.verdict);
+        Assert.assertEquals(20, term.changePercent, 0.001);
+        Assert.assertEquals(BaselineReport.Verdict.regression,
+            find(rows, "QueryBenchmark.facetQuery(docs=50000)").verdict);
+        // Below the threshold
+        Assert.assertEquals(BaselineReport.Verdict.unchanged,
+            find(rows, "QueryBenchmark.collapseQuery(docs=50000)").verdict);
+        // Higher is better
+        final BaselineReport.Row indexing = find(rows, "IndexingBenchmark.postJsonNodes");
+        Assert.assertEquals(BaselineReport.Verdict.regression, indexing.verdict);
+        Assert.assertEquals(-10, indexing.changePercent, 0.001);
+        Assert.assertEquals(0, indexing.current.error, 0);
+        // Within the errors, whatever the order of the parameters
+        Assert.assertEquals(BaselineReport.Verdict.unchanged,
+            find(rows, "FetchBenchmark.highlight(docs=50000, rows=10)").verdict);
+        Assert.assertEquals(BaselineReport.Verdict.added, find(rows, "FetchBenchmark.fetchSomeFields").verdict);
+        Assert.assertEquals(BaselineReport.Verdict.removed, find(rows, "FetchBenchmark.fetchAllFields").verdict);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BaselineReport.print(rows, new PrintStream(output, true, StandardCharsets.UTF_8));
+        final String report = output.toString(StandardCharsets.UTF_8);
+        Assert.assertTrue(report, report.contains("+20.0%"));
+        Assert.assertTrue(report, report.contains("REGRESSION"));
+        Assert.assertTrue(report, report.contains("REMOVED"));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.benchmarks;
+
+import com.qwazr.search.collector.CollapseCollector;
+import com.qwazr.search.index.MapDocumentBenchmark;
+import com.qwazr.search.index.ResultDefinition;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs each benchmark once on a small corpus, to check that they still measure what they are supposed to.
+ */
+public class BenchmarksTest {
+
+    private final static int DOCS = 2000;
+
+    @Test
+    public void corpusIsReproducible() {
+        final SyntheticCorpus corpus = new SyntheticCorpus();
+        final Map<String, Object> document = corpus.document(123);
+        Assert.assertEquals(document, new SyntheticCorpus().documents(100, 50).get(23));
+        Assert.assertEquals(document.get(SyntheticCorpus.CONTENT),
+            new SyntheticCorpus().jsonDocuments(123, 1).get(0).get(SyntheticCorpus.CONTENT).asText());
+        Assert.assertNotEquals(document, new SyntheticCorpus(1, SyntheticCorpus.DEFAULT_VOCABULARY).document(123));
+        Assert.assertEquals(SyntheticCorpus.DEFAULT_VOCABULARY, corpus.getVocabularySize());
+    }
+
+    @Test
+    public void indexing() throws IOException {
+        final IndexingBenchmark benchmark = new IndexingBenchmark();
+        benchmark.setup();
+        try {
+            Assert.assertEquals(1000, (int) benchmark.postMappedDocuments());
+            Assert.assertEquals(1000, (int) benchmark.postJsonNodes().count);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    @Test
+    public void postJsonNodes() throws IOException {
+        final PostJsonNodesBenchmark benchmark = new PostJsonNodesBenchmark();
+        benchmark.setup();
+        try {
+            Assert.assertEquals(100, (int) benchmark.postJsonNodes().count);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    @Test
+    public void mapDocuments() throws IOException {
+        final MapDocumentBenchmark benchmark = new MapDocumentBenchmark();
+        benchmark.setup();
+        try {
+            benchmark.openWriter();
+            Assert.assertEquals(1000, benchmark.postMapDocuments());
+            benchmark.closeWriter();
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    @Test
+    public void queries() throws IOException {
+        final QueryBenchmark benchmark = new QueryBenchmark();
+        benchmark.docs = DOCS;
+        benchmark.setup();
+        try {
+            final ResultDefinition.WithMap term = benchmark.termQuery();
+            Assert.assertTrue(term.getTotalHits() > DOCS / 10);
+            Assert.assertEquals(10, term.getDocuments().size());
+
+            final ResultDefinition.WithMap bool = benchmark.booleanQuery();
+            Assert.assertTrue(bool.getTotalHits() > 0 && bool.getTotalHits() < DOCS);
+
+            final ResultDefinition.WithMap facet = benchmark.facetQuery();
+            Assert.assertFalse(facet.getFacets().get(SyntheticCorpus.CATEGORY).isEmpty());
+
+            final ResultDefinition.WithMap collapse = benchmark.collapseQuery();
+            Assert.assertTrue(collapse.getCollector("collapse", CollapseCollector.Query.class).getCollapsed() > 0);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    @Test
+    public void fetch() throws IOException {
+        final FetchBenchmark benchmark = new FetchBenchmark();
+        benchmark.docs = DOCS;
+        benchmark.rows = 10;
+        benchmark.setup();
+        try {
+            final Map<String, Object> allFields = benchmark.fetchAllFields().getDocuments().get(0).getFields();
+            Assert.assertNotNull(allFields.get(SyntheticCorpus.CONTENT));
+            Assert.assertNotNull(allFields.get(SyntheticCorpus.PRICE));
+
+            final Map<String, Object> someFields = benchmark.fetchSomeFields().getDocuments().get(0).getFields();
+            Assert.assertNotNull(someFields.get(SyntheticCorpus.TITLE));
+            Assert.assertNull(someFields.get(SyntheticCorpus.CONTENT));
+
+            final ResultDefinition.WithMap highlight = benchmark.highlight();
+            Assert.assertEquals(10, highlight.getDocuments().size());
+            Assert.assertTrue(highlight.getDocuments().get(0).getHighlights().get(SyntheticCorpus.CONTENT)
+                .contains("<b>"));
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.qwazr.search;
 
 import com.qwazr.cluster.ClusterManager;
 import com.qwazr.cluster.ClusterServiceInterface;
+import com.qwazr.search.index.IndexExecutors;
 import com.qwazr.search.index.IndexManager;
 import com.qwazr.search.index.IndexServiceBuilder;
 import com.qwazr.search.index.IndexServiceInterface;
@@ -26,14 +27,13 @@ import com.qwazr.server.CorsFilter;
 import com.qwazr.server.GenericServer;
 import com.qwazr.server.GenericServerBuilder;
 import com.qwazr.server.RestApplication;
+import com.qwazr.server.ServerExecutor;
 import com.qwazr.server.WelcomeShutdownService;
 import com.qwazr.server.configuration.ServerConfiguration;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.management.JMException;
 import javax.servlet.ServletException;
 
@@ -46,8 +46,23 @@ public class SearchServer implements BaseServer {
 
     private SearchServer(final ServerConfiguration configuration) throws IOException {
 
-        final ExecutorService executorService = Executors.newCachedThreadPool();
-        final GenericServerBuilder builder = GenericServer.of(configuration, executorService);
+        final ServerExecutor clusterExecutor =
+            ServerExecutor.of(configuration, ClusterManager.EXECUTOR, ClusterManager.EXECUTOR_DEFAULTS);
+        final ServerExecutor searchSliceExecutor =
+            ServerExecutor.of(configuration, IndexExecutors.SEARCH_SLICE, IndexExecutors.SEARCH_SLICE_DEFAULTS);
+        final ServerExecutor fetchExecutor =
+            ServerExecutor.of(configuration, IndexExecutors.FETCH, IndexExecutors.FETCH_DEFAULTS);
+        final ServerExecutor ingestExecutor =
+            ServerExecutor.of(configuration, IndexExecutors.INGEST, IndexExecutors.INGEST_DEFAULTS);
+        final ServerExecutor replicationExecutor =
+            ServerExecutor.of(configuration, IndexExecutors.REPLICATION, IndexExecutors.REPLICATION_DEFAULTS);
+
+        final GenericServerBuilder builder = GenericServer.of(configuration, clusterExecutor)
+            .executor(clusterExecutor)
+            .executor(searchSliceExecutor)
+            .executor(fetchExecutor)
+            .executor(ingestExecutor)
+            .executor(replicationExecutor);
 
         final Set<String> services = new HashSet<>();
         services.add(ClusterServiceInterface.SERVICE_NAME);
@@ -57,17 +72,19 @@ public class SearchServer implements BaseServer {
             .classes(RestApplication.JSON_CLASSES)
             .singletons(new WelcomeShutdownService(), new CorsFilter());
 
-        clusterManager = new ClusterManager(executorService, configuration).registerProtocolListener(builder, services);
+        clusterManager = new ClusterManager(clusterExecutor, configuration).registerProtocolListener(builder, services);
         webServices.singletons(clusterManager.getService());
 
         final Path indexesDirectory = IndexManager.checkSubDirectory(configuration.dataDirectory, IndexManager.INDEXES_DIRECTORY);
         final Path backupsDirectory = IndexManager.checkSubDirectory(configuration.dataDirectory, IndexManager.BACKUPS_DIRECTORY);
-        indexManager = new IndexManager(indexesDirectory, executorService, backupsDirectory);
+        indexManager = new IndexManager(indexesDirectory,
+            new IndexExecutors(searchSliceExecutor, fetchExecutor, ingestExecutor, replicationExecutor), null,
+            backupsDirectory);
         builder.shutdownListener(server -> indexManager.close());
         webServices.singletons(indexManager.getService());
 
         builder.getWebServiceContext().jaxrs(webServices);
-        serviceBuilder = new IndexServiceBuilder(clusterManager, indexManager);
+        serviceBuilder = new IndexServiceBuilder(clusterManager, indexManager, clusterExecutor);
         server = builder.build();
     }
 
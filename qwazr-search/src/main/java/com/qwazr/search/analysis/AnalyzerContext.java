@@ -35,7 +35,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.validation.constraints.NotNull;
@@ -52,6 +54,7 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
     private final static Logger LOGGER = LoggerUtils.getLogger(AnalyzerContext.class);
 
     private final ConstructorParametersImpl instanceFactory;
+    private final SmartAnalyzers smartAnalyzers;
     private final ReferenceCounter refCounter;
 
     private final Set<Analyzer> disposableAnalyzers;
@@ -62,6 +65,7 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
     private final Map<Class<? extends Analyzer>, Analyzer> perClassAnalyzers;
     private final Map<String, Analyzer> smartSetIndexAnalyzer;
     private final Map<String, Analyzer> smartSetQueryAnalyzer;
+    private final Collection<Class<? extends Analyzer>> acquiredSmartAnalyzers;
     private final Map<String, Analyzer> perFieldIndexAnalyzers;
     private final Analyzer perFieldQueryAnalyzers;
     private final UpdatableAnalyzers updatableIndexAnalyzers;
@@ -69,6 +73,7 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
 
     public AnalyzerContext(final Set<AnalyzerContext> activeAnalyzerContext,
                            final ConstructorParametersImpl instanceFactory,
+                           final SmartAnalyzers smartAnalyzers,
                            final ResourceLoader resourceLoader,
                            final UpdatableAnalyzers updatableIndexAnalyzers,
                            @NotNull final FieldMap fieldMap,
@@ -77,6 +82,7 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
                            @NotNull final Collection<String> errors) throws ServerException {
         super(AnalyzerContext.class);
         this.instanceFactory = instanceFactory;
+        this.smartAnalyzers = smartAnalyzers;
         refCounter = new ReferenceCounter.Impl().acquire();
 
         disposableAnalyzers = new HashSet<>();
@@ -99,15 +105,10 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
         this.activeAnalyzerContext = activeAnalyzerContext;
         activeAnalyzerContext.add(this);
 
-        // Build smart sets
-        smartSetIndexAnalyzer = new HashMap<>();
-        smartSetQueryAnalyzer = new HashMap<>();
-        for (final SmartAnalyzerSet smartAnalyzer : SmartAnalyzerSet.values()) {
-            createFromClass(smartAnalyzer.forIndex(), errors,
-                analyzer -> smartSetIndexAnalyzer.put(smartAnalyzer.name(), analyzer));
-            createFromClass(smartAnalyzer.forQuery(), errors,
-                analyzer -> smartSetQueryAnalyzer.put(smartAnalyzer.name(), analyzer));
-        }
+        // The smart sets are acquired from the shared instances on first use
+        smartSetIndexAnalyzer = new ConcurrentHashMap<>();
+        smartSetQueryAnalyzer = new ConcurrentHashMap<>();
+        acquiredSmartAnalyzers = new ConcurrentLinkedQueue<>();
         final Map<String, Analyzer> perFieldIndexAnalyzers = new HashMap<>();
         final Map<String, Analyzer> perFieldQueryAnalyzers = new HashMap<>();
 
@@ -123,13 +124,13 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
             // Load the index analyzer if any specific
             final String indexAnalyzer = fieldDefinition == null ? null : fieldDefinition.resolvedIndexAnalyzer();
             if (indexAnalyzer != null)
-                resolveAnalyzer(indexAnalyzer, List.of(perNameAnalyzers, smartSetIndexAnalyzer), errors,
+                resolveAnalyzer(indexAnalyzer, List.of(perNameAnalyzers::get, this::getSmartSetIndexAnalyzer), errors,
                     analyzer -> perFieldIndexAnalyzers.put(resolvedFieldName, analyzer));
 
             // Load the query analyzer if any specific
             final String queryAnalyzer = fieldDefinition == null ? null : fieldDefinition.resolvedQueryAnalyzer();
             if (queryAnalyzer != null)
-                resolveAnalyzer(queryAnalyzer, List.of(perNameAnalyzers, smartSetQueryAnalyzer), errors,
+                resolveAnalyzer(queryAnalyzer, List.of(perNameAnalyzers::get, this::getSmartSetQueryAnalyzer), errors,
                     analyzer -> perFieldQueryAnalyzers.put(resolvedFieldName, analyzer));
         });
 
@@ -151,7 +152,7 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
         Analyzer analyzer = perNameAnalyzers.get(analyzerName);
         if (analyzer != null)
             return analyzer;
-        analyzer = smartSetQueryAnalyzer.get(analyzerName);
+        analyzer = getSmartSetQueryAnalyzer(analyzerName);
         if (analyzer != null)
             return analyzer;
         synchronized (onTheFlyLock) {
@@ -169,28 +170,54 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
             Analyzer analyzer = perNameAnalyzers.get(analyzerName);
             if (analyzer != null)
                 return analyzer;
-            analyzer = smartSetQueryAnalyzer.get(analyzerName);
+            analyzer = getSmartSetQueryAnalyzer(analyzerName);
             if (analyzer != null)
                 return analyzer;
             synchronized (onTheFlyLock) {
                 return fromClassName(analyzerName);
             }
         });
-        updatableIndexAnalyzers.update(Map.copyOf(indexAnalyzers));
+        // Serialized so that a concurrent writer can't publish an older copy
+        synchronized (indexAnalyzers) {
+            updatableIndexAnalyzers.update(Map.copyOf(indexAnalyzers));
+        }
+    }
+
+    private Analyzer getSmartSetAnalyzer(final Map<String, Analyzer> smartSetAnalyzers,
+                                         final String analyzerName,
+                                         final Function<SmartAnalyzerSet, Class<? extends Analyzer>> analyzerClass) {
+        final Analyzer analyzer = smartSetAnalyzers.get(analyzerName);
+        if (analyzer != null)
+            return analyzer;
+        final SmartAnalyzerSet smartAnalyzerSet = SmartAnalyzerSet.of(analyzerName);
+        if (smartAnalyzerSet == null)
+            return null;
+        return smartSetAnalyzers.computeIfAbsent(analyzerName, name -> {
+            final Class<? extends Analyzer> smartAnalyzerClass = analyzerClass.apply(smartAnalyzerSet);
+            final Analyzer smartAnalyzer = smartAnalyzers.acquire(smartAnalyzerClass);
+            acquiredSmartAnalyzers.add(smartAnalyzerClass);
+            return smartAnalyzer;
+        });
+    }
+
+    private Analyzer getSmartSetIndexAnalyzer(final String analyzerName) {
+        return getSmartSetAnalyzer(smartSetIndexAnalyzer, analyzerName, SmartAnalyzerSet::forIndex);
+    }
+
+    private Analyzer getSmartSetQueryAnalyzer(final String analyzerName) {
+        return getSmartSetAnalyzer(smartSetQueryAnalyzer, analyzerName, SmartAnalyzerSet::forQuery);
     }
 
     @Override
     protected int computeHashCode() {
-        return Objects.hash(perFieldIndexAnalyzers, perFieldQueryAnalyzers, perNameAnalyzers, smartSetIndexAnalyzer, smartSetQueryAnalyzer);
+        return Objects.hash(perFieldIndexAnalyzers, perFieldQueryAnalyzers, perNameAnalyzers);
     }
 
     @Override
     protected boolean isEqual(final AnalyzerContext o) {
         return Objects.equals(perFieldIndexAnalyzers, o.perFieldIndexAnalyzers)
             && Objects.equals(perFieldQueryAnalyzers, o.perFieldQueryAnalyzers)
-            && Objects.equals(perNameAnalyzers, o.perNameAnalyzers)
-            && Objects.equals(smartSetIndexAnalyzer, o.smartSetIndexAnalyzer)
-            && Objects.equals(smartSetQueryAnalyzer, o.smartSetQueryAnalyzer);
+            && Objects.equals(perNameAnalyzers, o.perNameAnalyzers);
     }
 
     private final static String[] analyzerClassPrefixes = {StringUtils.EMPTY, "org.apache.lucene.analysis."};
@@ -221,23 +248,12 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
         return fromClass(analyzerClass);
     }
 
-    private void createFromClass(final Class<? extends Analyzer> analyzerClass,
-                                 final Collection<String> errors,
-                                 final Consumer<Analyzer> consumer) {
-        try {
-            consumer.accept(fromClass(analyzerClass));
-        } catch (final Exception e) {
-            LOGGER.log(Level.WARNING, e.getMessage(), e);
-            errors.add(e.getMessage());
-        }
-    }
-
     private void resolveAnalyzer(final String analyzerName,
-                                 final List<Map<String, Analyzer>> analyzerMaps,
+                                 final List<Function<String, Analyzer>> analyzerResolvers,
                                  final Collection<String> errors,
                                  final Consumer<Analyzer> consumer) {
-        for (final Map<String, Analyzer> analyzerMap : analyzerMaps) {
-            final Analyzer analyzer = analyzerMap.get(analyzerName);
+        for (final Function<String, Analyzer> analyzerResolver : analyzerResolvers) {
+            final Analyzer analyzer = analyzerResolver.apply(analyzerName);
             if (analyzer != null) {
                 consumer.accept(analyzer);
                 return;
@@ -277,6 +293,8 @@ final public class AnalyzerContext extends Equalizer.Immutable<AnalyzerContext>
         perFieldQueryAnalyzers.close();
         smartSetIndexAnalyzer.clear();
         smartSetQueryAnalyzer.clear();
+        acquiredSmartAnalyzers.forEach(smartAnalyzers::release);
+        acquiredSmartAnalyzers.clear();
         perNameAnalyzers.clear();
         activeAnalyzerContext.remove(this);
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.analysis;
+
+import com.qwazr.utils.reflection.ConstructorParametersImpl;
+import java.util.HashMap;
+import java.util.Map;
+import javax.ws.rs.NotAcceptableException;
+import org.apache.lucene.analysis.Analyzer;
+
+/**
+ * The analyzers of the SmartAnalyzerSet, shared by all the AnalyzerContexts of an IndexManager.
+ * <p>
+ * An analyzer is created on its first use, and closed when the last AnalyzerContext using it is closed.
+ */
+final public class SmartAnalyzers {
+
+    private final ConstructorParametersImpl instanceFactory;
+    private final Map<Class<? extends Analyzer>, Shared> analyzers;
+
+    public SmartAnalyzers(final ConstructorParametersImpl instanceFactory) {
+        this.instanceFactory = instanceFactory;
+        this.analyzers = new HashMap<>();
+    }
+
+    /**
+     * @param analyzerClass the class of the analyzer
+     * @return the shared instance, which must be released by calling {@link #release(Class)}
+     */
+    synchronized Analyzer acquire(final Class<? extends Analyzer> analyzerClass) {
+        Shared shared = analyzers.get(analyzerClass);
+        if (shared == null) {
+            final Analyzer analyzer;
+            try {
+                analyzer = instanceFactory.findBestMatchingConstructor(analyzerClass).newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new NotAcceptableException(
+                    "Cannot create an analyzer instance for : " + analyzerClass + " : " + e.getMessage(), e);
+            }
+            shared = new Shared(analyzer);
+            analyzers.put(analyzerClass, shared);
+        }
+        shared.references++;
+        return shared.analyzer;
+    }
+
+    synchronized void release(final Class<? extends Analyzer> analyzerClass) {
+        final Shared shared = analyzers.get(analyzerClass);
+        if (shared == null || --shared.references > 0)
+            return;
+        analyzers.remove(analyzerClass);
+        shared.analyzer.close();
+    }
+
+    /**
+     * @return the number of analyzer instances currently in use
+     */
+    public synchronized int size() {
+        return analyzers.size();
+    }
+
+    private static final class Shared {
+
+        private final Analyzer analyzer;
+        private int references;
+
+        private Shared(final Analyzer analyzer) {
+            this.analyzer = analyzer;
+        }
+    }
+}
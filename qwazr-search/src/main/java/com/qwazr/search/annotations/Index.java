@@ -76,4 +76,32 @@ public @interface Index {
     int maxConcurrentWrite() default -1; // Infinite
 
     int maxConcurrentRead() default -1; // Infinite
+
+    long groupCommitMaxLatencyMs() default 0; // Disabled
+
+    int groupCommitMaxDocs() default 0; // Disabled
+
+    long refreshMinStalenessMs() default 0;
+
+    long refreshMaxStalenessMs() default 0; // Disabled
+
+    int resultCacheMaxEntries() default 0; // Disabled
+
+    double queryCacheMaxRamMb() default 0; // Shared JVM-wide cache
+
+    int queryCacheMaxEntries() default 0; // Shared JVM-wide cache
+
+    int queryCacheMinSegmentDocs() default 0; // Shared JVM-wide cache
+
+    IndexSettingsDefinition.QueryCachePolicy queryCachePolicy() default IndexSettingsDefinition.QueryCachePolicy.DEFAULT;
+
+    int replicationParallelism() default IndexSettingsDefinition.DEFAULT_REPLICATION_PARALLELISM;
+
+    long replicationLongPollMs() default 0; // When set the slave waits for the changes of the master and replicates immediately
+
+    int maxQueuedWrite() default -1; // Infinite
+
+    int maxQueuedRead() default -1; // Infinite
+
+    boolean adaptiveConcurrency() default false; // The concurrency limits adapt to the observed latency
 }
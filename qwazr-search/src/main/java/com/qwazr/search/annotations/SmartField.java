@@ -57,4 +57,9 @@ public @interface SmartField {
 
     boolean multivalued() default false;
 
+    /**
+     * @return true to index the offsets of a full-text field, the highlighters will not analyze the text again
+     */
+    boolean offsets() default false;
+
 }
@@ -20,15 +20,15 @@ import com.qwazr.search.query.lucene.FilteredQuery;
 import com.qwazr.utils.Equalizer;
 import it.unimi.dsi.fastutil.floats.Float2ReferenceRBTreeMap;
 import it.unimi.dsi.fastutil.floats.Float2ReferenceSortedMap;
-import it.unimi.dsi.fastutil.ints.Int2FloatMap;
-import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2IntLinkedOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2IntMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
-import it.unimi.dsi.fastutil.objects.Object2BooleanLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,13 +37,16 @@ import java.util.function.IntConsumer;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
-import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.RoaringDocIdSet;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.Query, CollapseCollector.Leaf, CollapseCollector> {
 
@@ -61,21 +64,32 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
         return new Leaf(fieldName, context);
     }
 
-    private synchronized void reduce(final GroupQueue groupQueue,
-                                     final Map<Integer, RoaringDocIdSet> docIdMaps,
-                                     final Int2IntLinkedOpenHashMap collapsedMap) {
-
-        // Fill the priority queue which the results of each segments
-        getLeaves().forEach(leaf -> leaf.reduce(groupQueue));
+    private static void reduce(final List<Leaf> leaves,
+                               final GroupQueue groupQueue,
+                               final Map<Integer, RoaringDocIdSet> docIdMaps,
+                               final Int2IntLinkedOpenHashMap collapsedMap) throws IOException {
+
+        // The groups of the segments are merged using the global ordinals
+        final List<Leaf> leavesWithValues = new ArrayList<>(leaves.size());
+        for (final Leaf leaf : leaves)
+            if (leaf.sdv != null)
+                leavesWithValues.add(leaf);
+        if (!leavesWithValues.isEmpty()) {
+            final SortedDocValues[] values = new SortedDocValues[leavesWithValues.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = leavesWithValues.get(i).getSortedDocValues();
+            final OrdinalMap ordinalMap = OrdinalMap.build(null, values, PackedInts.DEFAULT);
+            for (int i = 0; i < values.length; i++)
+                leavesWithValues.get(i).reduce(groupQueue, ordinalMap.getGlobalOrds(i));
+        }
 
         // The DocID must be sorted and grouped by segment
         final Map<Integer, Pair<Integer, IntSortedSet>> sortedInts = new HashMap<>();
-        synchronized (groupQueue) {
-            for (final GroupLeader groupLeader : groupQueue.groupLeaders.values()) {
-                sortedInts.computeIfAbsent(groupLeader.docBase,
-                    leaf -> Pair.of(groupLeader.maxDoc, new IntAVLTreeSet())).getValue().add(groupLeader.doc);
-                collapsedMap.addTo(groupLeader.docBase + groupLeader.doc, groupLeader.collapsedCount);
-            }
+        for (final GroupLeader groupLeader : groupQueue.groupLeaders.values()) {
+            sortedInts.computeIfAbsent(groupLeader.docBase,
+                leaf -> Pair.of(groupLeader.maxDoc, new IntAVLTreeSet()))
+                .getValue().add(groupLeader.doc - groupLeader.docBase);
+            collapsedMap.addTo(groupLeader.doc, groupLeader.collapsedCount);
         }
 
         // Now we can build the bitsets
@@ -86,50 +100,63 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
         });
 
         // Add empty bitset for unassigned leaf
-        getLeaves().forEach(leaf -> docIdMaps.computeIfAbsent(leaf.docBase,
+        leaves.forEach(leaf -> docIdMaps.computeIfAbsent(leaf.docBase,
             ctx -> new RoaringDocIdSet.Builder(leaf.maxDoc).build()));
 
     }
 
     @Override
     final public synchronized Query reduce(final List<CollapseCollector> leafCollectors) {
+        final List<Leaf> leaves = new ArrayList<>();
+        leafCollectors.forEach(collector -> leaves.addAll(collector.getLeaves()));
         final Map<Integer, RoaringDocIdSet> docIdMaps = new HashMap<>();
         final GroupQueue groupQueue = new GroupQueue(maxRows);
         // Stores for each doc the number of collapsed documents
-        final Int2IntLinkedOpenHashMap collapsedMap = new Int2IntLinkedOpenHashMap(groupQueue.groupLeaders.size());
-
-        leafCollectors.forEach(collector -> collector.reduce(groupQueue, docIdMaps, collapsedMap));
+        final Int2IntLinkedOpenHashMap collapsedMap = new Int2IntLinkedOpenHashMap();
+        try {
+            reduce(leaves, groupQueue, docIdMaps, collapsedMap);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
         long collapsedCount = 0;
         for (final GroupLeader groupLeader : groupQueue.groupLeaders.values())
             collapsedCount += groupLeader.collapsedCount;
 
-        synchronized (docIdMaps) {
-            return new Query(new FilteredQuery(docIdMaps), collapsedMap, collapsedCount);
-        }
+        return new Query(new FilteredQuery(docIdMaps), collapsedMap, collapsedCount);
     }
 
+    /**
+     * Collects the best document of each group of a segment.
+     * <p>
+     * The groups are stored in primitive arrays indexed by the ordinal of their value. The arrays grow with the
+     * highest ordinal collected, and never beyond the number of distinct values of the segment.
+     */
     final static class Leaf extends Equalizer.Immutable<Leaf> implements LeafCollector {
 
+        private final String fieldName;
+        private final LeafReader reader;
         private final SortedDocValues sdv;
-        private final Int2IntMap docIds;
-        private final Int2FloatMap scores;
-        private final Int2IntMap count;
+        private final int valueCount;
         private final int docBase;
         private final int maxDoc;
 
+        // The number of collected documents, zero when the group has not been seen
+        private int[] counts;
+        private int[] docIds;
+        private float[] scores;
+
         private Scorable scorer;
 
         private Leaf(final String fieldName, final LeafReaderContext context) throws IOException {
             super(Leaf.class);
-            final LeafReader reader = context.reader();
+            this.fieldName = fieldName;
+            reader = context.reader();
             sdv = reader.getSortedDocValues(fieldName);
-            final int numDocs = reader.numDocs();
-            docIds = new Int2IntOpenHashMap(numDocs);
-            scores = new Int2FloatOpenHashMap(numDocs);
-            scores.defaultReturnValue(-1);
-            count = new Int2IntOpenHashMap(numDocs);
-            count.defaultReturnValue(0);
+            valueCount = sdv == null ? 0 : sdv.getValueCount();
+            counts = new int[0];
+            docIds = new int[0];
+            scores = new float[0];
             docBase = context.docBase;
             maxDoc = reader.maxDoc();
         }
@@ -149,22 +176,37 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
             this.scorer = scorer;
         }
 
-        synchronized void reduce(final GroupQueue groupQueue) {
-            synchronized (docIds) {
-                docIds.keySet().forEach((IntConsumer) ord -> {
-                    try {
-                        groupQueue.offer(sdv.lookupOrd(ord), scores.get(ord), count.get(ord),
-                            (bytesRef, score, collapsedCount) -> new GroupLeader(docBase, maxDoc, bytesRef, docIds.get(ord) + docBase,
-                                score, collapsedCount));
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+        /**
+         * @return a new instance, the one used by the collection is already positioned
+         * @throws IOException if the doc values cannot be read
+         */
+        private SortedDocValues getSortedDocValues() throws IOException {
+            return reader.getSortedDocValues(fieldName);
+        }
+
+        synchronized void reduce(final GroupQueue groupQueue, final LongValues globalOrds) {
+            for (int ord = 0; ord < counts.length; ord++) {
+                final int count = counts[ord];
+                if (count == 0)
+                    continue;
+                final int doc = docIds[ord] + docBase;
+                groupQueue.offer(globalOrds.get(ord), scores[ord], count,
+                    (globalOrd, score, collapsedCount) -> new GroupLeader(docBase, maxDoc, globalOrd, doc, score,
+                        collapsedCount));
             }
         }
 
+        private void grow(final int ord) {
+            final int size = Math.min(ArrayUtil.oversize(ord + 1, Integer.BYTES), valueCount);
+            counts = ArrayUtil.growExact(counts, size);
+            docIds = ArrayUtil.growExact(docIds, size);
+            scores = ArrayUtil.growExact(scores, size);
+        }
+
         @Override
         final public void collect(final int doc) throws IOException {
+            if (sdv == null)
+                return;
             if (doc < sdv.docID())
                 return;
             if (sdv.advance(doc) != doc)
@@ -172,13 +214,13 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
             final int ord = sdv.ordValue();
             if (ord == -1)
                 return;
+            if (ord >= counts.length)
+                grow(ord);
             final float score = scorer.score();
-            final float oldScore = scores.get(ord);
-            if (score > oldScore) {
-                scores.put(ord, score);
-                docIds.put(ord, doc);
+            if (counts[ord]++ == 0 || score > scores[ord]) {
+                scores[ord] = score;
+                docIds[ord] = doc;
             }
-            count.put(ord, count.get(ord) + 1);
         }
     }
 
@@ -186,37 +228,40 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
 
         final int docBase;
         final int maxDoc;
-        final BytesRef bytesRef;
+        final long globalOrd;
         int collapsedCount;
 
         GroupLeader(final int docBase,
                     final int maxDoc,
-                    final BytesRef bytesRef,
+                    final long globalOrd,
                     final int doc,
                     final float score,
                     final int collapsedCount) {
             super(doc, score);
             this.maxDoc = maxDoc;
             this.docBase = docBase;
-            this.bytesRef = bytesRef;
+            this.globalOrd = globalOrd;
             this.collapsedCount = collapsedCount;
         }
     }
 
     @FunctionalInterface
     interface GroupLeaderProvider {
-        GroupLeader get(BytesRef bytesRef, float score, int collapsedCount);
+        GroupLeader get(long globalOrd, float score, int collapsedCount);
     }
 
+    /**
+     * The best groups of all the segments, identified by the global ordinal of their value.
+     */
     final static class GroupQueue {
 
         private final int maxSize;
-        private final Map<BytesRef, GroupLeader> groupLeaders;
-        private final Float2ReferenceSortedMap<Object2BooleanLinkedOpenHashMap<BytesRef>> scoreGroups;
+        private final Long2ObjectMap<GroupLeader> groupLeaders;
+        private final Float2ReferenceSortedMap<LongLinkedOpenHashSet> scoreGroups;
 
         GroupQueue(final int maxSize) {
             this.maxSize = maxSize;
-            groupLeaders = new HashMap<>();
+            groupLeaders = new Long2ObjectOpenHashMap<>();
             scoreGroups = new Float2ReferenceRBTreeMap<>();
         }
 
@@ -225,48 +270,44 @@ public class CollapseCollector extends BaseCollector.Parallel<CollapseCollector.
          *
          * @return
          */
-        Map<BytesRef, GroupLeader> getGroupLeaders() {
+        Long2ObjectMap<GroupLeader> getGroupLeaders() {
             return groupLeaders;
         }
 
-        synchronized void offer(final BytesRef bytesRef,
+        synchronized void offer(final long globalOrd,
                                 final float score,
                                 final int count,
                                 final GroupLeaderProvider groupLeaderProvider) {
 
             // Do we already have a leader ? If the score is greater we can ignore the offered one
-            final GroupLeader previousGroupLeader = groupLeaders.get(bytesRef);
+            final GroupLeader previousGroupLeader = groupLeaders.get(globalOrd);
             if (previousGroupLeader != null && score <= previousGroupLeader.score) {
                 previousGroupLeader.collapsedCount += count;
                 return;
             }
 
-            final BytesRef newBytesRef =
-                previousGroupLeader == null ? BytesRef.deepCopyOf(bytesRef) : previousGroupLeader.bytesRef;
-            groupLeaders.put(newBytesRef, groupLeaderProvider.get(newBytesRef, score,
+            groupLeaders.put(globalOrd, groupLeaderProvider.get(globalOrd, score,
                 previousGroupLeader == null ? count - 1 : previousGroupLeader.collapsedCount + count));
 
-            Object2BooleanLinkedOpenHashMap<BytesRef> bytesRefs = scoreGroups.get(score);
-            if (bytesRefs == null) {
-                bytesRefs = new Object2BooleanLinkedOpenHashMap<>();
-                scoreGroups.put(score, bytesRefs);
+            LongLinkedOpenHashSet globalOrds = scoreGroups.get(score);
+            if (globalOrds == null) {
+                globalOrds = new LongLinkedOpenHashSet();
+                scoreGroups.put(score, globalOrds);
             }
-            bytesRefs.put(newBytesRef, true);
+            globalOrds.add(globalOrd);
 
             if (previousGroupLeader != null) {
-                bytesRefs = scoreGroups.get(previousGroupLeader.score);
-                bytesRefs.remove(newBytesRef, true);
-                if (bytesRefs.isEmpty())
+                globalOrds = scoreGroups.get(previousGroupLeader.score);
+                globalOrds.remove(globalOrd);
+                if (globalOrds.isEmpty())
                     scoreGroups.remove(previousGroupLeader.score);
             }
 
             if (groupLeaders.size() > maxSize) {
                 final float firstScoreKey = scoreGroups.firstFloatKey();
-                bytesRefs = scoreGroups.get(firstScoreKey);
-                final BytesRef lastKey = bytesRefs.lastKey();
-                bytesRefs.removeLastBoolean();
-                groupLeaders.remove(lastKey);
-                if (bytesRefs.size() == 0)
+                globalOrds = scoreGroups.get(firstScoreKey);
+                groupLeaders.remove(globalOrds.removeLastLong());
+                if (globalOrds.isEmpty())
                     scoreGroups.remove(firstScoreKey);
             }
         }
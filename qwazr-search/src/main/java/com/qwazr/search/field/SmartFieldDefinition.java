@@ -45,6 +45,8 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
     final public Boolean multivalued;
     @JsonProperty("maxKeywordLength")
     final public Integer maxKeywordLength;
+    @JsonProperty("offsets")
+    final public Boolean offsets;
 
     public enum Type {
         TEXT, LONG, INTEGER, DOUBLE, FLOAT
@@ -61,6 +63,7 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
                          @JsonProperty("sort") final Boolean sort,
                          @JsonProperty("stored") final Boolean stored,
                          @JsonProperty("multivalued") final Boolean multivalued,
+                         @JsonProperty("offsets") final Boolean offsets,
                          @JsonProperty("copy_from") final String[] copyFrom) {
         super(SmartFieldDefinition.class,
             type,
@@ -74,6 +77,7 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
         this.stored = stored;
         this.multivalued = multivalued;
         this.maxKeywordLength = maxKeywordLength;
+        this.offsets = offsets;
     }
 
     private SmartFieldDefinition(final SmartBuilder builder) {
@@ -84,6 +88,7 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
         stored = builder.stored;
         multivalued = builder.multivalued;
         maxKeywordLength = builder.maxKeywordLength;
+        offsets = builder.offsets;
     }
 
     public SmartFieldDefinition(final String fieldName,
@@ -101,6 +106,7 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
         this.stored = smartField.stored();
         this.multivalued = smartField.multivalued();
         this.maxKeywordLength = smartField.maxKeywordLength();
+        this.offsets = smartField.offsets() ? Boolean.TRUE : null;
     }
 
     @Override
@@ -111,7 +117,8 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
             && Objects.equals(sort, f.sort)
             && Objects.equals(stored, f.stored)
             && Objects.equals(multivalued, f.multivalued)
-            && Objects.equals(maxKeywordLength, f.maxKeywordLength);
+            && Objects.equals(maxKeywordLength, f.maxKeywordLength)
+            && Objects.equals(offsets, f.offsets);
     }
 
     @Override
@@ -134,6 +141,7 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
         public Boolean stored;
         public Boolean multivalued;
         public Integer maxKeywordLength;
+        public Boolean offsets;
 
         public SmartBuilder facet(Boolean facet) {
             this.facet = facet;
@@ -165,6 +173,15 @@ public class SmartFieldDefinition extends BaseFieldDefinition<SmartFieldDefiniti
             return this;
         }
 
+        /**
+         * @param offsets true to index the offsets of the full-text field, used by the highlighters
+         * @return the current builder
+         */
+        public SmartBuilder offsets(Boolean offsets) {
+            this.offsets = offsets;
+            return this;
+        }
+
         public SmartFieldDefinition build() {
             return new SmartFieldDefinition(this);
         }
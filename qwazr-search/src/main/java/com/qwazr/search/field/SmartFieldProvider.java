@@ -16,9 +16,11 @@
 package com.qwazr.search.field;
 
 import com.qwazr.search.index.BytesRefUtils;
+import com.qwazr.search.index.DocumentBuilder;
 import com.qwazr.utils.WildcardMatcher;
 import org.apache.lucene.document.*;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -27,6 +29,27 @@ import static com.qwazr.search.field.FieldTypeInterface.ValueType;
 
 interface SmartFieldProvider {
 
+    /**
+     * The factories of the fields reused from one document to the next one, the values are set afterward
+     */
+    DocumentBuilder.FieldFactory<StoredField> STORED_TEXT = name -> new StoredField(name, "");
+    DocumentBuilder.FieldFactory<StoredField> STORED_LONG = name -> new StoredField(name, 0L);
+    DocumentBuilder.FieldFactory<StoredField> STORED_DOUBLE = name -> new StoredField(name, 0d);
+    DocumentBuilder.FieldFactory<StoredField> STORED_INTEGER = name -> new StoredField(name, 0);
+    DocumentBuilder.FieldFactory<StoredField> STORED_FLOAT = name -> new StoredField(name, 0f);
+    DocumentBuilder.FieldFactory<StringField> STRING_TEXT = name -> new StringField(name, "", Field.Store.NO);
+    DocumentBuilder.FieldFactory<StringField> STRING_BYTES =
+        name -> new StringField(name, new BytesRef(), Field.Store.NO);
+    DocumentBuilder.FieldFactory<SortedDocValuesField> SORTED_DOC_VALUES =
+        name -> new SortedDocValuesField(name, new BytesRef());
+    DocumentBuilder.FieldFactory<SortedNumericDocValuesField> SORTED_NUMERIC_DOC_VALUES =
+        name -> new SortedNumericDocValuesField(name, 0L);
+    DocumentBuilder.FieldFactory<LongPoint> LONG_POINT = name -> new LongPoint(name, 0L);
+    DocumentBuilder.FieldFactory<DoublePoint> DOUBLE_POINT = name -> new DoublePoint(name, 0d);
+    DocumentBuilder.FieldFactory<IntPoint> INT_POINT = name -> new IntPoint(name, 0);
+    DocumentBuilder.FieldFactory<FloatPoint> FLOAT_POINT = name -> new FloatPoint(name, 0f);
+    DocumentBuilder.FieldFactory<TextField> FULL_TEXT = name -> new TextField(name, "", Field.Store.NO);
+
     @FunctionalInterface
     interface SmartFieldNameResolver {
         String resolve(String fieldName);
@@ -60,8 +83,11 @@ interface SmartFieldProvider {
                                                             final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldStoredTextResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StoredField(fieldNameSupplier.resolve(fieldName), value.toString()));
+        return (fieldName, value, builder) -> {
+            final StoredField field = builder.getField(STORED_TEXT, fieldNameSupplier.resolve(fieldName));
+            field.setStringValue(value.toString());
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldStoredLongResolver(final String fieldNamePattern,
@@ -74,8 +100,11 @@ interface SmartFieldProvider {
                                                             final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldStoredLongResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StoredField(fieldNameSupplier.resolve(fieldName), FieldUtils.getLongValue(value)));
+        return (fieldName, value, builder) -> {
+            final StoredField field = builder.getField(STORED_LONG, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(FieldUtils.getLongValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldStoredDoubleResolver(final String fieldNamePattern,
@@ -88,8 +117,11 @@ interface SmartFieldProvider {
                                                               final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldStoredDoubleResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StoredField(fieldNameSupplier.resolve(fieldName), FieldUtils.getDoubleValue(value)));
+        return (fieldName, value, builder) -> {
+            final StoredField field = builder.getField(STORED_DOUBLE, fieldNameSupplier.resolve(fieldName));
+            field.setDoubleValue(FieldUtils.getDoubleValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldStoredIntegerResolver(final String fieldNamePattern,
@@ -102,8 +134,11 @@ interface SmartFieldProvider {
                                                                final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldStoredIntegerResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StoredField(fieldNameSupplier.resolve(fieldName), FieldUtils.getIntValue(value)));
+        return (fieldName, value, builder) -> {
+            final StoredField field = builder.getField(STORED_INTEGER, fieldNameSupplier.resolve(fieldName));
+            field.setIntValue(FieldUtils.getIntValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldStoredFloatResolver(final String fieldNamePattern,
@@ -116,8 +151,11 @@ interface SmartFieldProvider {
                                                              final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldStoredFloatResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StoredField(fieldNameSupplier.resolve(fieldName), FieldUtils.getFloatValue(value)));
+        return (fieldName, value, builder) -> {
+            final StoredField field = builder.getField(STORED_FLOAT, fieldNameSupplier.resolve(fieldName));
+            field.setFloatValue(FieldUtils.getFloatValue(value));
+            builder.acceptField(field);
+        };
     }
 
 
@@ -133,9 +171,11 @@ interface SmartFieldProvider {
         final SmartFieldNameResolver fieldResolver = fieldStringTextResolver(fieldNamePattern, wildcardMatcher);
         return (fieldName, value, builder) -> {
             final String stringValue = value.toString();
-            if (stringValue.length() <= maxStringLength)
-                builder.acceptField(
-                    new StringField(fieldResolver.resolve(fieldName), stringValue, Field.Store.NO));
+            if (stringValue.length() <= maxStringLength) {
+                final StringField field = builder.getField(STRING_TEXT, fieldResolver.resolve(fieldName));
+                field.setStringValue(stringValue);
+                builder.acceptField(field);
+            }
         };
     }
 
@@ -151,6 +191,16 @@ interface SmartFieldProvider {
         };
     }
 
+    /**
+     * Lucene does not allow to change the BytesRef of an indexed field, its content is replaced in place
+     */
+    private static void setIndexedBytes(final Field field, final BytesRef value) {
+        final BytesRef bytesRef = field.binaryValue();
+        bytesRef.bytes = value.bytes;
+        bytesRef.offset = value.offset;
+        bytesRef.length = value.length;
+    }
+
     private static BytesRef getLongValue(Object value) {
         return BytesRefUtils.fromLong(FieldUtils.getLongValue(value));
     }
@@ -164,8 +214,11 @@ interface SmartFieldProvider {
     static FieldTypeInterface.FieldSupplier fieldStringLong(final String fieldNamePattern,
                                                             final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameResolver = fieldStringLongResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StringField(fieldNameResolver.resolve(fieldName), getLongValue(value), Field.Store.NO));
+        return (fieldName, value, builder) -> {
+            final StringField field = builder.getField(STRING_BYTES, fieldNameResolver.resolve(fieldName));
+            setIndexedBytes(field, getLongValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.TermSupplier stringTermLong(final String fieldNamePattern,
@@ -187,8 +240,11 @@ interface SmartFieldProvider {
     static FieldTypeInterface.FieldSupplier fieldStringDouble(final String fieldNamePattern,
                                                               final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameResolver = fieldStringDoubleResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StringField(fieldNameResolver.resolve(fieldName), getDoubleValue(value), Field.Store.NO));
+        return (fieldName, value, builder) -> {
+            final StringField field = builder.getField(STRING_BYTES, fieldNameResolver.resolve(fieldName));
+            setIndexedBytes(field, getDoubleValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.TermSupplier stringTermDouble(final String fieldNamePattern,
@@ -210,8 +266,11 @@ interface SmartFieldProvider {
     static FieldTypeInterface.FieldSupplier fieldStringInteger(final String fieldNamePattern,
                                                                final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameResolver = fieldStringIntegerResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StringField(fieldNameResolver.resolve(fieldName), getIntegerValue(value), Field.Store.NO));
+        return (fieldName, value, builder) -> {
+            final StringField field = builder.getField(STRING_BYTES, fieldNameResolver.resolve(fieldName));
+            setIndexedBytes(field, getIntegerValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.TermSupplier stringTermInteger(final String fieldNamePattern,
@@ -233,8 +292,11 @@ interface SmartFieldProvider {
     static FieldTypeInterface.FieldSupplier fieldStringFloat(final String fieldNamePattern,
                                                              final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameResolver = fieldStringFloatResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new StringField(fieldNameResolver.resolve(fieldName), getFloatValue(value), Field.Store.NO));
+        return (fieldName, value, builder) -> {
+            final StringField field = builder.getField(STRING_BYTES, fieldNameResolver.resolve(fieldName));
+            setIndexedBytes(field, getFloatValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.TermSupplier stringTermFloat(final String fieldNamePattern,
@@ -250,9 +312,12 @@ interface SmartFieldProvider {
             fieldNamePattern, wildcardMatcher, FieldType.docValues, ValueType.textType);
         return (fieldName, value, builder) -> {
             final String stringValue = value.toString();
-            if (stringValue.length() <= maxStringLength)
-                builder.acceptField(
-                    new SortedDocValuesField(fieldNameSupplier.resolve(fieldName), new BytesRef(value.toString())));
+            if (stringValue.length() <= maxStringLength) {
+                final SortedDocValuesField field =
+                    builder.getField(SORTED_DOC_VALUES, fieldNameSupplier.resolve(fieldName));
+                field.setBytesValue(new BytesRef(stringValue));
+                builder.acceptField(field);
+            }
         };
     }
 
@@ -267,8 +332,12 @@ interface SmartFieldProvider {
                                                                      final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier = buildNameProvider(
             fieldNamePattern, wildcardMatcher, FieldType.docValues, ValueType.longType);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new SortedNumericDocValuesField(fieldNameSupplier.resolve(fieldName), FieldUtils.getLongValue(value)));
+        return (fieldName, value, builder) -> {
+            final SortedNumericDocValuesField field =
+                builder.getField(SORTED_NUMERIC_DOC_VALUES, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(FieldUtils.getLongValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.SortFieldSupplier fieldSortedFieldLong(final String fieldNamePattern,
@@ -282,8 +351,12 @@ interface SmartFieldProvider {
                                                                         final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier = buildNameProvider(
             fieldNamePattern, wildcardMatcher, FieldType.docValues, ValueType.integerType);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new SortedNumericDocValuesField(fieldNameSupplier.resolve(fieldName), FieldUtils.getIntValue(value)));
+        return (fieldName, value, builder) -> {
+            final SortedNumericDocValuesField field =
+                builder.getField(SORTED_NUMERIC_DOC_VALUES, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(FieldUtils.getIntValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.SortFieldSupplier fieldSortedFieldInteger(final String fieldNamePattern,
@@ -297,9 +370,12 @@ interface SmartFieldProvider {
                                                                       final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier = buildNameProvider(
             fieldNamePattern, wildcardMatcher, FieldType.docValues, ValueType.floatType);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new SortedNumericDocValuesField(fieldNameSupplier.resolve(fieldName),
-                NumericUtils.floatToSortableInt(FieldUtils.getFloatValue(value))));
+        return (fieldName, value, builder) -> {
+            final SortedNumericDocValuesField field =
+                builder.getField(SORTED_NUMERIC_DOC_VALUES, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(NumericUtils.floatToSortableInt(FieldUtils.getFloatValue(value)));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.SortFieldSupplier fieldSortedFieldFloat(final String fieldNamePattern,
@@ -313,9 +389,12 @@ interface SmartFieldProvider {
                                                                        final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier = buildNameProvider(
             fieldNamePattern, wildcardMatcher, FieldType.docValues, ValueType.doubleType);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new SortedNumericDocValuesField(fieldNameSupplier.resolve(fieldName),
-                NumericUtils.doubleToSortableLong(FieldUtils.getDoubleValue(value))));
+        return (fieldName, value, builder) -> {
+            final SortedNumericDocValuesField field =
+                builder.getField(SORTED_NUMERIC_DOC_VALUES, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(NumericUtils.doubleToSortableLong(FieldUtils.getDoubleValue(value)));
+            builder.acceptField(field);
+        };
     }
 
     static FieldTypeInterface.SortFieldSupplier fieldSortedFieldDouble(final String fieldNamePattern,
@@ -335,8 +414,11 @@ interface SmartFieldProvider {
                                                            final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldPointLongResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new LongPoint(fieldNameSupplier.resolve(fieldName), FieldUtils.getLongValue(value)));
+        return (fieldName, value, builder) -> {
+            final LongPoint field = builder.getField(LONG_POINT, fieldNameSupplier.resolve(fieldName));
+            field.setLongValue(FieldUtils.getLongValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldPointDoubleResolver(final String fieldNamePattern,
@@ -349,8 +431,11 @@ interface SmartFieldProvider {
                                                              final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldPointDoubleResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new DoublePoint(fieldNameSupplier.resolve(fieldName), FieldUtils.getDoubleValue(value)));
+        return (fieldName, value, builder) -> {
+            final DoublePoint field = builder.getField(DOUBLE_POINT, fieldNameSupplier.resolve(fieldName));
+            field.setDoubleValue(FieldUtils.getDoubleValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldPointIntegerResolver(final String fieldNamePattern,
@@ -363,8 +448,11 @@ interface SmartFieldProvider {
                                                               final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldPointIntegerResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new IntPoint(fieldNameSupplier.resolve(fieldName), FieldUtils.getIntValue(value)));
+        return (fieldName, value, builder) -> {
+            final IntPoint field = builder.getField(INT_POINT, fieldNameSupplier.resolve(fieldName));
+            field.setIntValue(FieldUtils.getIntValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver fieldPointFloatResolver(final String fieldNamePattern,
@@ -378,8 +466,11 @@ interface SmartFieldProvider {
                                                             final WildcardMatcher wildcardMatcher) {
         final SmartFieldNameResolver fieldNameSupplier =
             fieldPointFloatResolver(fieldNamePattern, wildcardMatcher);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new FloatPoint(fieldNameSupplier.resolve(fieldName), FieldUtils.getFloatValue(value)));
+        return (fieldName, value, builder) -> {
+            final FloatPoint field = builder.getField(FLOAT_POINT, fieldNameSupplier.resolve(fieldName));
+            field.setFloatValue(FieldUtils.getFloatValue(value));
+            builder.acceptField(field);
+        };
     }
 
     static SmartFieldNameResolver facetFieldNameSupplier(final String fieldNamePattern,
@@ -403,12 +494,32 @@ interface SmartFieldProvider {
         };
     }
 
+    /**
+     * A full-text field which also indexes the offsets in the postings
+     */
+    org.apache.lucene.document.FieldType TEXT_WITH_OFFSETS = textWithOffsets();
+
+    private static org.apache.lucene.document.FieldType textWithOffsets() {
+        final org.apache.lucene.document.FieldType fieldType =
+            new org.apache.lucene.document.FieldType(TextField.TYPE_NOT_STORED);
+        fieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        fieldType.freeze();
+        return fieldType;
+    }
+
+    DocumentBuilder.FieldFactory<Field> FULL_TEXT_WITH_OFFSETS = name -> new Field(name, "", TEXT_WITH_OFFSETS);
+
     static FieldTypeInterface.FieldSupplier fullTextField(final String fieldNamePattern,
-                                                          final WildcardMatcher wildcardMatcher) {
+                                                          final WildcardMatcher wildcardMatcher,
+                                                          final boolean offsets) {
         final SmartFieldNameResolver fieldNameSupplier = buildNameProvider(
             fieldNamePattern, wildcardMatcher, FieldType.textField, ValueType.textType);
-        return (fieldName, value, builder) -> builder.acceptField(
-            new TextField(fieldNameSupplier.resolve(fieldName), value.toString(), Field.Store.NO));
+        final DocumentBuilder.FieldFactory<? extends Field> fieldFactory = offsets ? FULL_TEXT_WITH_OFFSETS : FULL_TEXT;
+        return (fieldName, value, builder) -> {
+            final Field field = builder.getField(fieldFactory, fieldNameSupplier.resolve(fieldName));
+            field.setStringValue(value.toString());
+            builder.acceptField(field);
+        };
     }
 
 }
@@ -43,6 +43,7 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
         private final boolean isSort;
         private final boolean isMultivalued;
         private final boolean isFullText;
+        private final boolean isOffsets;
 
         private SmartBuilder(final String genericFieldName,
                              final WildcardMatcher wildcardMatcher,
@@ -59,6 +60,7 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
             isSort = definition.sort != null && definition.sort;
             isMultivalued = definition.multivalued != null && definition.multivalued;
             isFullText = isFullTextIndexAnalyzer(definition);
+            isOffsets = definition.offsets != null && definition.offsets;
             valueType(getValueType());
             fieldSupplier(buildFieldSupplier());
             facetsConfigSupplier(buildFacetsConfigSupplier());
@@ -210,7 +212,7 @@ final class SmartFieldType extends FieldTypeAbstract<SmartFieldDefinition> {
             if (isIndex) {
                 addIfNotNull(getIndexFieldSupplier(), fieldSupplierList);
                 if (isFullText) {
-                    fieldSupplierList.add(SmartFieldProvider.fullTextField(genericFieldName, wildcardMatcher));
+                    fieldSupplierList.add(SmartFieldProvider.fullTextField(genericFieldName, wildcardMatcher, isOffsets));
                     fieldType(FieldType.textField);
                 }
             }
@@ -189,6 +189,31 @@ public class SortUtils {
         return sortField;
     }
 
+    /**
+     * Build the sort field used to merge the sorted results of several indexes.
+     * The type of the field is given by the sort values returned by the indexes.
+     *
+     * @param fieldName the name of the field
+     * @param sortEnum  the sort direction
+     * @param valueType the type of the sort values
+     * @return a sort field which compares the sort values
+     */
+    public static SortField buildMergeSortField(final String fieldName,
+                                                final QueryDefinition.SortEnum sortEnum,
+                                                final SortField.Type valueType) {
+        if (FieldDefinition.SCORE_FIELD.equals(fieldName))
+            return new SortField(null, SortField.Type.SCORE, !sortReverse(sortEnum));
+        if (FieldDefinition.DOC_FIELD.equals(fieldName))
+            return new SortField(null, SortField.Type.DOC, sortReverse(sortEnum));
+        if (valueType == SortField.Type.STRING || valueType == SortField.Type.STRING_VAL) {
+            final SortField sortField = new SortField(fieldName, valueType, sortReverse(sortEnum));
+            sortStringMissingValue(sortEnum, sortField);
+            return sortField;
+        }
+        // The missing numeric values have already been replaced by the indexes
+        return new SortField(fieldName, valueType, sortReverse(sortEnum));
+    }
+
     public static Sort buildSort(final FieldMap fieldMap, final LinkedHashMap<String, QueryDefinition.SortEnum> sorts) {
         if (sorts.isEmpty())
             return null;
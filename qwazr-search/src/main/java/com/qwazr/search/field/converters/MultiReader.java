@@ -1,12 +1,12 @@
 /*
  * Copyright 2015-2020 Emmanuel Keller / QWAZR
- *
+ * <p>
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- *
+ * <p>
  * http://www.apache.org/licenses/LICENSE-2.0
- *
+ * <p>
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -22,26 +22,42 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Per request DocValues fetcher.
+ * <p>
+ * The segment of a document is found by a binary search over the doc bases.
+ * The iterator of a field is opened once per segment and reused while the documents
+ * are read in ascending doc ID order, it is only reopened when the order goes backward.
+ * There is no lock: a segment must not be read by two threads at the same time,
+ * which is the case when the documents of a page are fetched segment by segment.
+ */
 public class MultiReader {
 
     final int[] docBases;
     final LeafReader[] leafReaders;
+    private final LeafColumns[] leafColumns;
 
     public MultiReader(final IndexReader reader) {
-        docBases = new int[reader.leaves().size()];
+        final List<LeafReaderContext> leaves = reader.leaves();
+        docBases = new int[leaves.size()];
         leafReaders = new LeafReader[docBases.length];
+        leafColumns = new LeafColumns[docBases.length];
         int i = 0;
-        for (LeafReaderContext leafReaderContext : reader.leaves()) {
+        for (LeafReaderContext leafReaderContext : leaves) {
             docBases[i] = leafReaderContext.docBase;
             leafReaders[i++] = leafReaderContext.reader();
         }
@@ -50,58 +66,47 @@ public class MultiReader {
     final static int NOT_FOUND = -1;
 
     int getLeafReader(final int docId) {
-        int i = NOT_FOUND;
-        for (final int docBase : docBases) {
-            if (docBase > docId)
-                break;
-            i++;
-        }
-        return i <= docBases.length ? i : NOT_FOUND;
+        if (docBases.length == 0 || docId < 0)
+            return NOT_FOUND;
+        final int i = ReaderUtil.subIndex(docId, docBases);
+        return docId - docBases[i] < leafReaders[i].maxDoc() ? i : NOT_FOUND;
+    }
+
+    private LeafColumns getLeafColumns(final int pos) {
+        LeafColumns columns = leafColumns[pos];
+        if (columns == null)
+            leafColumns[pos] = columns = new LeafColumns();
+        return columns;
     }
 
     long getNumericDocValues(final int docId, final String field) throws IOException {
         final int pos = getLeafReader(docId);
         if (pos == NOT_FOUND)
             return 0;
-        final NumericDocValues docValues = leafReaders[pos].getNumericDocValues(field);
-        if (docValues == null)
-            return 0;
-        synchronized (docValues) {
-            final int target = docId - docBases[pos];
-            if (docValues.advance(target) != target)
-                return 0;
-            return docValues.longValue();
-        }
+        final Column<NumericDocValues> column = getLeafColumns(pos).numerics.computeIfAbsent(field,
+            f -> new Column<>(LeafReader::getNumericDocValues, NumericDocValues::advanceExact, f));
+        final NumericDocValues docValues = column.advanceExact(leafReaders[pos], docId - docBases[pos]);
+        return docValues == null ? 0 : docValues.longValue();
     }
 
     BytesRef getSortedDocValues(final int docId, final String field) throws IOException {
         final int pos = getLeafReader(docId);
         if (pos == NOT_FOUND)
             return BytesRefUtils.EMPTY;
-        final SortedDocValues docValues = leafReaders[pos].getSortedDocValues(field);
-        if (docValues == null)
-            return BytesRefUtils.EMPTY;
-        synchronized (docValues) {
-            final int target = docId - docBases[pos];
-            if (docValues.advance(target) != target)
-                return BytesRefUtils.EMPTY;
-            return BytesRef.deepCopyOf(docValues.binaryValue());
-        }
+        final Column<SortedDocValues> column = getLeafColumns(pos).sorted.computeIfAbsent(field,
+            f -> new Column<>(LeafReader::getSortedDocValues, SortedDocValues::advanceExact, f));
+        final SortedDocValues docValues = column.advanceExact(leafReaders[pos], docId - docBases[pos]);
+        return docValues == null ? BytesRefUtils.EMPTY : BytesRef.deepCopyOf(docValues.binaryValue());
     }
 
     BytesRef getBinaryDocValues(final int docId, final String field) throws IOException {
         final int pos = getLeafReader(docId);
         if (pos == NOT_FOUND)
             return BytesRefUtils.EMPTY;
-        final BinaryDocValues docValues = leafReaders[pos].getBinaryDocValues(field);
-        if (docValues == null)
-            return BytesRefUtils.EMPTY;
-        synchronized (docValues) {
-            final int target = docId - docBases[pos];
-            if (docValues.advance(target) != target)
-                return BytesRefUtils.EMPTY;
-            return docValues.binaryValue();
-        }
+        final Column<BinaryDocValues> column = getLeafColumns(pos).binaries.computeIfAbsent(field,
+            f -> new Column<>(LeafReader::getBinaryDocValues, BinaryDocValues::advanceExact, f));
+        final BinaryDocValues docValues = column.advanceExact(leafReaders[pos], docId - docBases[pos]);
+        return docValues == null ? BytesRefUtils.EMPTY : BytesRef.deepCopyOf(docValues.binaryValue());
     }
 
     final static long[] empty = new long[0];
@@ -110,40 +115,102 @@ public class MultiReader {
         final int pos = getLeafReader(docId);
         if (pos == NOT_FOUND)
             return empty;
-        final SortedNumericDocValues docValues = leafReaders[pos].getSortedNumericDocValues(field);
+        final Column<SortedNumericDocValues> column = getLeafColumns(pos).sortedNumerics.computeIfAbsent(field,
+            f -> new Column<>(LeafReader::getSortedNumericDocValues, SortedNumericDocValues::advanceExact, f));
+        final SortedNumericDocValues docValues = column.advanceExact(leafReaders[pos], docId - docBases[pos]);
         if (docValues == null)
             return empty;
-        synchronized (docValues) {
-            final int target = docId - docBases[pos];
-            if (docValues.advance(target) != target)
-                return empty;
-            final int count = docValues.docValueCount();
-            if (count == 0)
-                return empty;
-            final long[] values = new long[count];
-            for (int i = 0; i < count; i++)
-                values[i] = docValues.nextValue();
-            return values;
-        }
+        final int count = docValues.docValueCount();
+        if (count == 0)
+            return empty;
+        final long[] values = new long[count];
+        for (int i = 0; i < count; i++)
+            values[i] = docValues.nextValue();
+        return values;
     }
 
     List<String> getSortedSetDocValues(final int docId, final String field) throws IOException {
         final int pos = getLeafReader(docId);
         if (pos == NOT_FOUND)
             return Collections.emptyList();
-        final SortedSetDocValues docValues = leafReaders[pos].getSortedSetDocValues(field);
+        final Column<SortedSetDocValues> column = getLeafColumns(pos).sortedSets.computeIfAbsent(field,
+            f -> new Column<>(LeafReader::getSortedSetDocValues, SortedSetDocValues::advanceExact, f));
+        final SortedSetDocValues docValues = column.advanceExact(leafReaders[pos], docId - docBases[pos]);
         if (docValues == null)
             return Collections.emptyList();
-        synchronized (docValues) {
-            final int target = docId - docBases[pos];
-            if (docValues.advance(target) != target)
-                return Collections.emptyList();
-            final List<String> values = new ArrayList<>();
-            long ord;
-            while ((ord = docValues.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
-                values.add(docValues.lookupOrd(ord).utf8ToString());
+        final List<String> values = new ArrayList<>();
+        long ord;
+        while ((ord = docValues.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+            values.add(docValues.lookupOrd(ord).utf8ToString());
+        }
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface Opener<T extends DocIdSetIterator> {
+        T open(LeafReader leafReader, String field) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Advancer<T extends DocIdSetIterator> {
+        boolean advanceExact(T docValues, int target) throws IOException;
+    }
+
+    /**
+     * The iterators of one segment
+     */
+    private static final class LeafColumns {
+
+        private final Map<String, Column<NumericDocValues>> numerics;
+        private final Map<String, Column<SortedDocValues>> sorted;
+        private final Map<String, Column<BinaryDocValues>> binaries;
+        private final Map<String, Column<SortedNumericDocValues>> sortedNumerics;
+        private final Map<String, Column<SortedSetDocValues>> sortedSets;
+
+        private LeafColumns() {
+            numerics = new HashMap<>();
+            sorted = new HashMap<>();
+            binaries = new HashMap<>();
+            sortedNumerics = new HashMap<>();
+            sortedSets = new HashMap<>();
+        }
+    }
+
+    /**
+     * The iterator of one field in one segment
+     */
+    private static final class Column<T extends DocIdSetIterator> {
+
+        private final Opener<T> opener;
+        private final Advancer<T> advancer;
+        private final String field;
+        private T docValues;
+        private int lastTarget;
+        private boolean absent;
+
+        private Column(final Opener<T> opener, final Advancer<T> advancer, final String field) {
+            this.opener = opener;
+            this.advancer = advancer;
+            this.field = field;
+            this.lastTarget = Integer.MAX_VALUE;
+        }
+
+        /**
+         * @return the iterator positioned on the target, or null if the document has no value
+         */
+        private T advanceExact(final LeafReader leafReader, final int target) throws IOException {
+            if (absent)
+                return null;
+            if (docValues == null || target <= lastTarget) {
+                // First access, or backward access: the iterator is forward only
+                docValues = opener.open(leafReader, field);
+                if (docValues == null) {
+                    absent = true;
+                    return null;
+                }
             }
-            return values;
+            lastTarget = target;
+            return advancer.advanceExact(docValues, target) ? docValues : null;
         }
     }
 
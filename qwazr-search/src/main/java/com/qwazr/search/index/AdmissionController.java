@@ -0,0 +1,341 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.concurrent.AutoLockSemaphore;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.ws.rs.core.Response;
+
+/**
+ * Limits the number of concurrent reads or writes of an index.
+ * <p>
+ * The requests which cannot be admitted wait in a bounded queue, one per lane. The interactive lane is always served
+ * before the batch lane. When a queue is full, the request is rejected right away (HTTP 429).
+ * <p>
+ * When the adaptive mode is enabled, the concurrency limit follows the gradient between the long term and the short
+ * term latency: it decreases when the latency grows, and grows back up to the max limit when the latency recovers.
+ */
+final class AdmissionController implements AutoLockSemaphore, AdmissionControllerMXBean, Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(AdmissionController.class);
+
+    enum Lane {
+        INTERACTIVE, BATCH
+    }
+
+    private final static double SHORT_LATENCY_WEIGHT = 0.2;
+    private final static double LONG_LATENCY_WEIGHT = 0.01;
+    private final static double MIN_GRADIENT = 0.5;
+    private final static double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final boolean adaptive;
+
+    private final ReentrantLock lock;
+    private final Condition interactiveCondition;
+    private final Condition batchCondition;
+    private final LongAdder admittedCount;
+    private final LongAdder rejectedCount;
+    private final ObjectName objectName;
+
+    private double estimatedLimit;
+    private double shortLatencyNanos;
+    private double longLatencyNanos;
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile int interactiveWaiting;
+    private volatile int batchWaiting;
+
+    private AdmissionController(final String indexName,
+                                final UUID indexUuid,
+                                final String operation,
+                                final int maxLimit,
+                                final int maxQueued,
+                                final boolean adaptive) {
+        this.name = operation + " - Index: " + indexName;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.adaptive = adaptive;
+        this.lock = new ReentrantLock();
+        this.interactiveCondition = lock.newCondition();
+        this.batchCondition = lock.newCondition();
+        this.admittedCount = new LongAdder();
+        this.rejectedCount = new LongAdder();
+        this.estimatedLimit = maxLimit;
+        this.limit = maxLimit;
+        this.objectName = register(indexName, indexUuid, operation);
+    }
+
+    /**
+     * @param indexName the name of the index
+     * @param indexUuid the UUID of the index, which makes the JMX name unique
+     * @param operation "read" or "write"
+     * @param maxLimit  the max number of concurrent requests, negative for no limit, zero to reject every request
+     * @param maxQueued the max number of waiting requests per lane, negative for no limit
+     * @param adaptive  true if the limit adapts to the latency
+     * @return a new admission controller, or a semaphore without any limit
+     */
+    static AutoLockSemaphore of(final String indexName,
+                                final UUID indexUuid,
+                                final String operation,
+                                final Integer maxLimit,
+                                final Integer maxQueued,
+                                final Boolean adaptive) {
+        if (maxLimit == null || maxLimit < 0)
+            return AutoLockSemaphore.UNLIMITED;
+        if (maxLimit == 0)
+            return AutoLockSemaphore.REJECTED;
+        return new AdmissionController(indexName, indexUuid, operation, maxLimit,
+            maxQueued == null ? -1 : maxQueued, Boolean.TRUE.equals(adaptive));
+    }
+
+    /**
+     * Use the batch lane when the semaphore is an admission controller.
+     *
+     * @param semaphore the semaphore of the index
+     * @param lane      the lane of the request
+     * @return the lock which must be closed when the request is done
+     */
+    static Lock acquire(final AutoLockSemaphore semaphore, final Lane lane) {
+        return semaphore instanceof AdmissionController ?
+            ((AdmissionController) semaphore).acquire(lane) : semaphore.acquire();
+    }
+
+    /**
+     * @param queryDefinition the definition of the query
+     * @return the batch lane if the query is flagged as batch, the interactive lane otherwise
+     */
+    static Lane laneOf(final QueryDefinition queryDefinition) {
+        return queryDefinition != null && Boolean.TRUE.equals(queryDefinition.getBatch()) ?
+            Lane.BATCH : Lane.INTERACTIVE;
+    }
+
+    /**
+     * Unregisters the JMX bean when the semaphore is an admission controller.
+     *
+     * @param semaphore the semaphore of the index
+     */
+    static void close(final AutoLockSemaphore semaphore) {
+        if (semaphore instanceof AdmissionController)
+            ((AdmissionController) semaphore).close();
+    }
+
+    private ObjectName register(final String indexName, final UUID indexUuid, final String operation) {
+        try {
+            final Hashtable<String, String> props = new Hashtable<>();
+            props.put("type", "admission");
+            props.put("index", ObjectName.quote(indexName));
+            props.put("uuid", indexUuid.toString());
+            props.put("operation", operation);
+            final ObjectName objectName = new ObjectName("com.qwazr.search", props);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot register the admission controller: " + name);
+            return null;
+        }
+    }
+
+    @Override
+    public Lock acquire() {
+        return acquire(Lane.INTERACTIVE);
+    }
+
+    private boolean canAdmit(final Lane lane) {
+        return inFlight < limit && (lane == Lane.INTERACTIVE || interactiveWaiting == 0);
+    }
+
+    Lock acquire(final Lane lane) {
+        lock.lock();
+        try {
+            if (!canAdmit(lane) || (lane == Lane.INTERACTIVE ? interactiveWaiting : batchWaiting) > 0) {
+                if (maxQueued >= 0 && (lane == Lane.INTERACTIVE ? interactiveWaiting : batchWaiting) >= maxQueued) {
+                    rejectedCount.increment();
+                    throw new ServerException(Response.Status.TOO_MANY_REQUESTS, "Too many pending " + name);
+                }
+                await(lane);
+            }
+            final int admittedInFlight = ++inFlight;
+            admittedCount.increment();
+            // More permits may be available (the limit grew, or several permits were released)
+            dispatch();
+            return new Permit(admittedInFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(final Lane lane) {
+        final Condition condition = lane == Lane.INTERACTIVE ? interactiveCondition : batchCondition;
+        if (lane == Lane.INTERACTIVE)
+            interactiveWaiting++;
+        else
+            batchWaiting++;
+        try {
+            do {
+                condition.await();
+            } while (!canAdmit(lane));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dispatch();
+            throw ServerException.of(e);
+        } finally {
+            if (lane == Lane.INTERACTIVE)
+                interactiveWaiting--;
+            else
+                batchWaiting--;
+        }
+    }
+
+    /**
+     * Wakes up the next waiting request if a permit is available, the interactive lane first.
+     */
+    private void dispatch() {
+        if (inFlight >= limit)
+            return;
+        if (interactiveWaiting > 0)
+            interactiveCondition.signal();
+        else if (batchWaiting > 0)
+            batchCondition.signal();
+    }
+
+    private void release(final long latencyNanos, final int admittedInFlight) {
+        lock.lock();
+        try {
+            inFlight--;
+            updateLimit(latencyNanos, admittedInFlight);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(final long latencyNanos, final int admittedInFlight) {
+        if (longLatencyNanos == 0) {
+            shortLatencyNanos = latencyNanos;
+            longLatencyNanos = latencyNanos;
+        } else {
+            shortLatencyNanos += (latencyNanos - shortLatencyNanos) * SHORT_LATENCY_WEIGHT;
+            longLatencyNanos += (latencyNanos - longLatencyNanos) * LONG_LATENCY_WEIGHT;
+        }
+        if (!adaptive || shortLatencyNanos <= 0)
+            return;
+        // When the load is gone, the long term latency drifts down faster
+        if (longLatencyNanos > shortLatencyNanos * 2)
+            longLatencyNanos *= 0.95;
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longLatencyNanos / shortLatencyNanos));
+        // The limit does not grow if it is not used
+        if (gradient >= 1.0 && admittedInFlight * 2 < estimatedLimit)
+            return;
+        final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(1, Math.min(maxLimit,
+            estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public int getInteractiveQueueDepth() {
+        return interactiveWaiting;
+    }
+
+    @Override
+    public int getBatchQueueDepth() {
+        return batchWaiting;
+    }
+
+    @Override
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public double getLatencyMs() {
+        lock.lock();
+        try {
+            return shortLatencyNanos / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (objectName == null)
+            return;
+        try {
+            final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            if (mbs.isRegistered(objectName))
+                mbs.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot unregister the admission controller: " + name);
+        }
+    }
+
+    private final class Permit implements Lock {
+
+        private final long startTime;
+        private final int admittedInFlight;
+        private boolean released;
+
+        private Permit(final int admittedInFlight) {
+            this.startTime = System.nanoTime();
+            this.admittedInFlight = admittedInFlight;
+        }
+
+        @Override
+        public void close() {
+            if (released)
+                return;
+            released = true;
+            release(System.nanoTime() - startTime, admittedInFlight);
+        }
+    }
+}
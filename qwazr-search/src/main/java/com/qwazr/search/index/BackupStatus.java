@@ -55,6 +55,16 @@ public class BackupStatus {
     final public Long bytesSize;
     @JsonProperty("files_count")
     final public Integer filesCount;
+    /**
+     * The bytes transferred by the backup operation, only returned by the backup
+     */
+    @JsonProperty("bytes_copied")
+    final public Long bytesCopied;
+    /**
+     * The bytes of the files hard-linked by the backup operation, only returned by the backup
+     */
+    @JsonProperty("bytes_linked")
+    final public Long bytesLinked;
 
     private final int hashCode;
 
@@ -62,7 +72,8 @@ public class BackupStatus {
     BackupStatus(@JsonProperty("index_version") Long indexVersion,
                  @JsonProperty("taxonomy_version") Long taxonomyVersion, @JsonProperty("date") Long date,
                  @JsonProperty("human_date") String humanDate, @JsonProperty("bytes_size") Long bytesSize,
-                 @JsonProperty("files_count") Integer filesCount) {
+                 @JsonProperty("files_count") Integer filesCount, @JsonProperty("bytes_copied") Long bytesCopied,
+                 @JsonProperty("bytes_linked") Long bytesLinked) {
 
         this.indexVersion = indexVersion;
         this.taxonomyVersion = taxonomyVersion;
@@ -70,6 +81,8 @@ public class BackupStatus {
         this.date = date;
         this.bytesSize = bytesSize;
         this.filesCount = filesCount;
+        this.bytesCopied = bytesCopied;
+        this.bytesLinked = bytesLinked;
 
         this.hashCode = new HashCodeBuilder().append(date)
             .append(bytesSize)
@@ -79,6 +92,18 @@ public class BackupStatus {
     }
 
     static BackupStatus newBackupStatus(final Path backupDir, final boolean extractVersion) throws IOException {
+        return newBackupStatus(backupDir, extractVersion, null);
+    }
+
+    /**
+     * @param backupDir         the directory of the backup
+     * @param extractVersion    true to read the version of the indexes
+     * @param replicationStatus the status of the backup operation, if any
+     * @return the status of the backup
+     * @throws IOException if any I/O error occurred
+     */
+    static BackupStatus newBackupStatus(final Path backupDir, final boolean extractVersion,
+                                        final ReplicationStatus replicationStatus) throws IOException {
         if (backupDir == null)
             return null;
 
@@ -134,7 +159,9 @@ public class BackupStatus {
             date = null;
             humanDate = null;
         }
-        return new BackupStatus(indexVersion, taxonomyVersion, date, humanDate, size.get(), count.get());
+        return new BackupStatus(indexVersion, taxonomyVersion, date, humanDate, size.get(), count.get(),
+            replicationStatus == null ? null : replicationStatus.bytes,
+            replicationStatus == null ? null : replicationStatus.bytesLinked);
     }
 
     private static Long getIndexVersion(final Path indexPath) throws IOException {
@@ -161,6 +188,9 @@ public class BackupStatus {
         return hashCode;
     }
 
+    /**
+     * The bytes copied and linked describe the backup operation, not the backup itself: they are not compared.
+     */
     @Override
     public boolean equals(Object o) {
         if (o == null)
@@ -178,7 +208,8 @@ public class BackupStatus {
     @Override
     public String toString() {
         return "Index version: " + indexVersion + " - Taxo version: " + taxonomyVersion + " - Date: " + date +
-            " - Size: " + bytesSize + " - Count:" + filesCount + " - Hash: " + hashCode;
+            " - Size: " + bytesSize + " - Count:" + filesCount + " - Copied: " + bytesCopied + " - Linked: " +
+            bytesLinked + " - Hash: " + hashCode;
     }
 
 }
@@ -34,6 +34,7 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
 
     final public Integer start;
     final public Integer rows;
+    final public String searchAfter;
 
     final public LinkedHashSet<String> returnedFields;
 
@@ -45,11 +46,20 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
 
     final public Map<String, String> commitUserData;
 
+    final public Long minGeneration;
+
+    final public Long timeoutMs;
+
+    final public Boolean batch;
+
+    final public Boolean cursors;
+
     final public Query luceneQuery;
 
     @JsonCreator
     public BaseQueryDefinition(@JsonProperty("start") Integer start,
                                @JsonProperty("rows") Integer rows,
+                               @JsonProperty("search_after") String searchAfter,
                                @JsonProperty("returned_fields") LinkedHashSet<String> returnedFields,
                                @JsonProperty("query_debug") Boolean queryDebug,
                                @JsonProperty("sorts") LinkedHashMap<String, SortEnum> sorts,
@@ -57,10 +67,15 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
                                @JsonProperty("facets") LinkedHashMap<String, FacetDefinition> facets,
                                @JsonProperty("highlighters") LinkedHashMap<String, HighlighterDefinition> highlighters,
                                @JsonProperty("query") QueryInterface query,
-                               @JsonProperty("commit_user_data") Map<String, String> commitUserData) {
+                               @JsonProperty("commit_user_data") Map<String, String> commitUserData,
+                               @JsonProperty("min_generation") Long minGeneration,
+                               @JsonProperty("timeout_ms") Long timeoutMs,
+                               @JsonProperty("batch") Boolean batch,
+                               @JsonProperty("cursors") Boolean cursors) {
         super(BaseQueryDefinition.class);
         this.start = start;
         this.rows = rows;
+        this.searchAfter = searchAfter;
         this.returnedFields = returnedFields == null || returnedFields.isEmpty() ? null : returnedFields;
         this.queryDebug = queryDebug;
         this.sorts = sorts;
@@ -69,6 +84,10 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         this.highlighters = highlighters == null || highlighters.isEmpty() ? null : highlighters;
         this.query = query;
         this.commitUserData = commitUserData == null || commitUserData.isEmpty() ? null : commitUserData;
+        this.minGeneration = minGeneration;
+        this.timeoutMs = timeoutMs;
+        this.batch = batch;
+        this.cursors = cursors;
         this.luceneQuery = null;
     }
 
@@ -76,6 +95,7 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         super(BaseQueryDefinition.class);
         start = builder.start;
         rows = builder.rows;
+        searchAfter = builder.searchAfter;
         returnedFields = builder.returnedFields == null || builder.returnedFields.isEmpty() ? null : builder.returnedFields;
         queryDebug = builder.queryDebug;
         facets = builder.facets == null || builder.facets.isEmpty() ? null : builder.facets;
@@ -85,6 +105,10 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         query = builder.query;
         luceneQuery = builder.luceneQuery;
         commitUserData = builder.commitUserData == null || builder.commitUserData.isEmpty() ? null : builder.commitUserData;
+        minGeneration = builder.minGeneration;
+        timeoutMs = builder.timeoutMs;
+        batch = builder.batch;
+        cursors = builder.cursors;
     }
 
     @Override
@@ -115,11 +139,16 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
             && Objects.equals(collectors, q.collectors)
             && Objects.equals(start, q.start)
             && Objects.equals(rows, q.rows)
+            && Objects.equals(searchAfter, q.searchAfter)
             && Objects.equals(returnedFields, q.returnedFields)
             && Objects.equals(queryDebug, q.queryDebug)
             && Objects.equals(facets, q.facets)
             && Objects.equals(highlighters, q.highlighters)
             && Objects.equals(commitUserData, q.commitUserData)
+            && Objects.equals(minGeneration, q.minGeneration)
+            && Objects.equals(timeoutMs, q.timeoutMs)
+            && Objects.equals(batch, q.batch)
+            && Objects.equals(cursors, q.cursors)
             && Objects.equals(luceneQuery, q.luceneQuery);
     }
 
@@ -139,6 +168,11 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         return rows;
     }
 
+    @Override
+    public String getSearchAfter() {
+        return searchAfter;
+    }
+
     @Override
     public LinkedHashSet<String> getReturnedFields() {
         return returnedFields;
@@ -174,6 +208,26 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         return commitUserData;
     }
 
+    @Override
+    public Long getMinGeneration() {
+        return minGeneration;
+    }
+
+    @Override
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public Boolean getBatch() {
+        return batch;
+    }
+
+    @Override
+    public Boolean getCursors() {
+        return cursors;
+    }
+
     @Override
     public Query getLuceneQuery() {
         return luceneQuery;
@@ -184,6 +238,7 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
         return new QueryBuilder()
             .start(start)
             .rows(rows)
+            .searchAfter(searchAfter)
             .returnedField(returnedFields)
             .queryDebug(queryDebug)
             .sorts(sorts)
@@ -192,6 +247,10 @@ public class BaseQueryDefinition extends Equalizer.Immutable<BaseQueryDefinition
             .highlighters(highlighters)
             .query(query)
             .commitUserData(commitUserData)
+            .minGeneration(minGeneration)
+            .timeoutMs(timeoutMs)
+            .batch(batch)
+            .cursors(cursors)
             .query(luceneQuery);
     }
 }
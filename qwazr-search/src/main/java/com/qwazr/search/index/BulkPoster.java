@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.concurrent.ExecutorUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Splits a large batch of documents across the shared executor, with one RecordsPoster per worker.
+ * <p>
+ * Each worker owns one partition of the batch: the slices of documents are dealt in turn to the workers,
+ * but the documents having a primary key are partitioned by the hash of their key.
+ * Two versions of the same document are then indexed by the same worker, in the order of the batch,
+ * and the last one wins as if the batch was indexed sequentially.
+ * The calling thread is always one of the workers, and it runs the partitions of the workers still queued
+ * in a busy executor, so the batch progresses even if the executor is busy.
+ * <p>
+ * Small batches are indexed on the calling thread only, with the same error handling:
+ * an invalid document does not stop the batch, the errors are collected per document and reported at the end.
+ *
+ * @param <D> the type of the documents
+ */
+final class BulkPoster<D> {
+
+    /**
+     * The number of documents pulled by a worker at once
+     */
+    final static int SLICE_SIZE = 256;
+
+    /**
+     * Below this number of documents, the batch is indexed sequentially
+     */
+    final static int MIN_PARALLEL_DOCS = SLICE_SIZE * 4;
+
+    /**
+     * The maximum number of document errors reported
+     */
+    final static int MAX_ERRORS = 100;
+
+    private final List<? extends D> documents;
+    private final int[] partitions;
+    private final int parallelism;
+    private final Supplier<? extends RecordsPoster.Of<? super D>> posterSupplier;
+    private final LongAdder count;
+    private final TreeMap<Integer, Exception> errors;
+    private int errorCount;
+
+    private BulkPoster(final List<? extends D> documents,
+                       final Function<? super D, String> keyFunction,
+                       final int parallelism,
+                       final Supplier<? extends RecordsPoster.Of<? super D>> posterSupplier) {
+        this.documents = documents;
+        this.parallelism = parallelism;
+        this.posterSupplier = posterSupplier;
+        this.count = new LongAdder();
+        this.errors = new TreeMap<>();
+        if (keyFunction == null || parallelism <= 1)
+            partitions = null;
+        else {
+            partitions = new int[documents.size()];
+            for (int pos = 0; pos < partitions.length; pos++) {
+                final String key = keyFunction.apply(documents.get(pos));
+                partitions[pos] = key == null ? getSlicePartition(pos) : Math.floorMod(key.hashCode(), parallelism);
+            }
+        }
+    }
+
+    static int getParallelism(final ExecutorService executorService, final int size) {
+        if (executorService == null || size < MIN_PARALLEL_DOCS)
+            return 1;
+        // A bounded executor can't run more workers at once
+        final int threads = executorService instanceof ThreadPoolExecutor ?
+            ((ThreadPoolExecutor) executorService).getMaximumPoolSize() : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(threads, (size + SLICE_SIZE - 1) / SLICE_SIZE));
+    }
+
+    /**
+     * Index the documents, in parallel if the batch is large enough.
+     *
+     * @param executorService the shared executor, may be null
+     * @param documents       the documents to index
+     * @param keyFunction     returns the primary key of a document, or null. May be null if there is no primary key
+     * @param posterSupplier  creates one poster per worker
+     * @param <D>             the type of the documents
+     * @return the number of indexed documents
+     * @throws IOException if a document can't be indexed
+     */
+    static <D> int post(final ExecutorService executorService,
+                        final Collection<? extends D> documents,
+                        final Function<? super D, String> keyFunction,
+                        final Supplier<? extends RecordsPoster.Of<? super D>> posterSupplier) throws IOException {
+        final int parallelism = getParallelism(executorService, documents.size());
+        final List<? extends D> documentList = documents instanceof List && documents instanceof RandomAccess ?
+            (List<? extends D>) documents : new ArrayList<>(documents);
+        final BulkPoster<D> bulkPoster = new BulkPoster<>(documentList, keyFunction, parallelism, posterSupplier);
+        final List<Runnable> workers = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            final int partition = i;
+            workers.add(() -> bulkPoster.work(partition));
+        }
+        try {
+            ExecutorUtils.invokeWithCaller(executorService, workers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException(Response.Status.SERVICE_UNAVAILABLE, "Bulk indexing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ServerException(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage(), e.getCause());
+        }
+        return bulkPoster.getResult();
+    }
+
+    private int getSlicePartition(final int pos) {
+        return (pos / SLICE_SIZE) % parallelism;
+    }
+
+    private synchronized void addError(final int position, final Exception exception) {
+        errorCount++;
+        errors.put(position, exception);
+        // Only the first errors of the batch are reported
+        if (errors.size() > MAX_ERRORS)
+            errors.pollLastEntry();
+    }
+
+    /**
+     * Index the documents of one partition, in the order of the batch.
+     */
+    private void work(final int partition) {
+        RecordsPoster.Of<? super D> poster = posterSupplier.get();
+        try {
+            for (int pos = partitions == null ? partition * SLICE_SIZE : 0; pos < documents.size(); pos++) {
+                if (partitions == null ? getSlicePartition(pos) != partition : partitions[pos] != partition)
+                    continue;
+                try {
+                    poster.accept(documents.get(pos));
+                } catch (IOException | RuntimeException e) {
+                    addError(pos, e);
+                    // The poster may be left with a partially built document
+                    count.add(poster.getCount());
+                    poster = posterSupplier.get();
+                }
+            }
+        } finally {
+            count.add(poster.getCount());
+        }
+    }
+
+    private synchronized int getResult() throws IOException {
+        final int indexed = count.intValue();
+        if (errors.isEmpty())
+            return indexed;
+        final Map.Entry<Integer, Exception> first = errors.firstEntry();
+        final Exception firstError = first.getValue();
+        if (errorCount == 1) {
+            if (firstError instanceof IOException)
+                throw (IOException) firstError;
+            throw (RuntimeException) firstError;
+        }
+        final int status;
+        if (firstError instanceof ServerException)
+            status = ((ServerException) firstError).getStatusCode();
+        else if (firstError instanceof WebApplicationException)
+            status = ((WebApplicationException) firstError).getResponse().getStatus();
+        else
+            status = Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+        final Response.Status responseStatus = Response.Status.fromStatusCode(status);
+        final ServerException exception = new ServerException(
+            responseStatus == null ? Response.Status.INTERNAL_SERVER_ERROR : responseStatus,
+            errorCount + " documents failed, " + indexed +
+                " documents indexed. First error on document #" + first.getKey() + ": " + firstError.getMessage(),
+            firstError);
+        errors.forEach((pos, error) -> {
+            if (error != firstError)
+                exception.addSuppressed(error);
+        });
+        throw exception;
+    }
+}
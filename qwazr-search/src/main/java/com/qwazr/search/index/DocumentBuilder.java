@@ -18,6 +18,8 @@ package com.qwazr.search.index;
 import com.qwazr.search.field.FieldTypeInterface;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.ws.rs.NotAcceptableException;
@@ -38,29 +40,93 @@ public interface DocumentBuilder<RESULT> {
 
     RESULT build() throws IOException;
 
+    /**
+     * Creates the fields whose value is set after the creation
+     *
+     * @param <F> the type of the field
+     */
+    @FunctionalInterface
+    interface FieldFactory<F extends Field> {
+        F create(String fieldName);
+    }
+
+    /**
+     * Returns a field for the current document. The caller sets its value, then passes it to acceptField.
+     * The returned instance may be one already used by a previous document.
+     *
+     * @param fieldFactory the factory, which is also the key of the reused instances
+     * @param fieldName    the resolved name of the field
+     * @param <F>          the type of the field
+     * @return a field instance
+     */
+    default <F extends Field> F getField(final FieldFactory<F> fieldFactory, final String fieldName) {
+        return fieldFactory.create(fieldName);
+    }
+
     static DocumentBuilder.ForLuceneDocument of(final FieldMap fieldMap, final TaxonomyWriter taxonomyWriter) {
         return taxonomyWriter == null
             ? new DocumentBuilder.ForLuceneDocument(fieldMap.fieldsContext)
             : new DocumentBuilder.ForLuceneDocumentWithTaxonomy(fieldMap.fieldsContext, taxonomyWriter);
     }
 
+    /**
+     * Builds the documents one after the other, from one thread.
+     * <p>
+     * The field instances are reused: a document must have been indexed before the next one is built.
+     * A document without facet field is indexed as is, without the copy made by the FacetsConfig.
+     */
     class ForLuceneDocument implements DocumentBuilder<Document> {
 
+        /**
+         * Beyond this number of field names, the fields are no longer reused
+         */
+        final static int MAX_REUSED_FIELD_NAMES = 10_000;
+
         private final FieldsContext fieldsContext;
         protected final FacetsConfig facetsConfig;
         private final Map<String, FacetsConfig.DimConfig> dimConfigs;
         protected final Document document;
+        private final Map<FieldFactory<?>, Map<String, ReusedFields>> reusedFields;
+        private final List<ReusedFields> usedFields;
+        private int reusedFieldNames;
+        private boolean hasFacets;
 
         private ForLuceneDocument(final FieldsContext fieldsContext) {
             this.fieldsContext = fieldsContext;
             this.facetsConfig = new FacetsConfig();
             this.dimConfigs = facetsConfig.getDimConfigs();
             this.document = new Document();
+            this.reusedFields = new IdentityHashMap<>();
+            this.usedFields = new ArrayList<>();
         }
 
         @Override
         final public void reset() {
             document.clear();
+            for (final ReusedFields fields : usedFields)
+                fields.used = 0;
+            usedFields.clear();
+            hasFacets = false;
+        }
+
+        @Override
+        final public <F extends Field> F getField(final FieldFactory<F> fieldFactory, final String fieldName) {
+            final Map<String, ReusedFields> fieldsByName =
+                reusedFields.computeIfAbsent(fieldFactory, factory -> new HashMap<>());
+            ReusedFields fields = fieldsByName.get(fieldName);
+            if (fields == null) {
+                if (reusedFieldNames >= MAX_REUSED_FIELD_NAMES)
+                    return fieldFactory.create(fieldName);
+                fields = new ReusedFields();
+                fieldsByName.put(fieldName, fields);
+                reusedFieldNames++;
+            }
+            if (fields.used == 0)
+                usedFields.add(fields);
+            // A multivalued field needs one instance per value
+            if (fields.used == fields.instances.size())
+                fields.instances.add(fieldFactory.create(fieldName));
+            return (F) fields.instances.get(fields.used++);
         }
 
         @Override
@@ -73,13 +139,25 @@ public interface DocumentBuilder<RESULT> {
                                            final String dimensionName,
                                            final FieldTypeInterface.FacetsConfigSupplier facetsConfigSupplier) {
             document.add(field);
+            hasFacets = true;
             if (!dimConfigs.containsKey(dimensionName))
                 facetsConfigSupplier.setConfig(dimensionName, fieldsContext, facetsConfig);
         }
 
-        public Document build() throws IOException {
+        @Override
+        final public Document build() throws IOException {
+            return hasFacets ? buildFacets() : document;
+        }
+
+        protected Document buildFacets() throws IOException {
             return facetsConfig.build(document);
         }
+
+        private static final class ReusedFields {
+
+            private final List<Field> instances = new ArrayList<>(1);
+            private int used;
+        }
     }
 
     final class ForLuceneDocumentWithTaxonomy extends ForLuceneDocument {
@@ -92,7 +170,8 @@ public interface DocumentBuilder<RESULT> {
             this.taxonomyWriter = taxonomyWriter;
         }
 
-        final public Document build() throws IOException {
+        @Override
+        final protected Document buildFacets() throws IOException {
             return facetsConfig.build(taxonomyWriter, document);
         }
     }
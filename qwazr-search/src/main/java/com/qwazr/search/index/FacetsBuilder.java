@@ -25,6 +25,7 @@ import com.qwazr.utils.concurrent.ConcurrentUtils;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.lucene.facet.DrillSideways;
@@ -39,7 +40,13 @@ import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumFloatAssociations;
 import org.apache.lucene.facet.taxonomy.TaxonomyFacetSumIntAssociations;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
 
 abstract class FacetsBuilder {
 
@@ -48,14 +55,18 @@ abstract class FacetsBuilder {
     private final LinkedHashMap<String, FacetDefinition> facetsDef;
     protected final HashMap<String, String> resolvedDimensions;
     private final Query searchQuery;
+    private final FacetsCollector facetsCollector;
     private final TimeTracker timeTracker;
+    private final QueryDeadline deadline;
 
     final LinkedHashMap<String, Map<String, Number>> results = new LinkedHashMap<>();
 
     private FacetsBuilder(final QueryContextImpl queryContext,
                           final LinkedHashMap<String, FacetDefinition> facetsDef,
                           final Query searchQuery,
-                          final TimeTracker timeTracker) {
+                          final FacetsCollector facetsCollector,
+                          final TimeTracker timeTracker,
+                          final QueryDeadline deadline) {
         this.facetsDef = facetsDef;
         this.queryContext = queryContext;
         this.sortedSetFacetField = queryContext.fieldMap.fieldsContext.sortedSetFacetField;
@@ -64,11 +75,15 @@ abstract class FacetsBuilder {
             queryContext.fieldMap.getFieldType(generic, concrete)
                 .resolveFieldName(concrete, FieldTypeInterface.FieldType.facetField, FieldTypeInterface.ValueType.textType)));
         this.searchQuery = searchQuery;
+        this.facetsCollector = facetsCollector;
         this.timeTracker = timeTracker;
+        this.deadline = deadline;
     }
 
     final FacetsBuilder build() throws Exception {
         for (final Map.Entry<String, FacetDefinition> entry : facetsDef.entrySet()) {
+            if (deadline.isExpired())
+                break;
             final String dimension = entry.getKey();
             final String resolvedDimension = resolvedDimensions.get(dimension);
             final FacetDefinition facet = entry.getValue();
@@ -111,17 +126,55 @@ abstract class FacetsBuilder {
         }
     }
 
+    /**
+     * When the matching documents have been collected, each facet query is intersected with them.
+     * The main query is not executed again, whatever the number of facet queries.
+     */
     private void buildFacetQueries(final Map<String, QueryInterface> queries, final FacetBuilder facetBuilder)
         throws Exception {
-        final BiConsumerEx<String, QueryInterface, Exception> consumer = (name, facetQuery) -> {
-            final BooleanQuery.Builder builder = new BooleanQuery.Builder();
-            builder.add(searchQuery, BooleanClause.Occur.FILTER);
-            builder.add(facetQuery.getQuery(queryContext), BooleanClause.Occur.FILTER);
-            facetBuilder.put(new LabelAndValue(name, queryContext.indexSearcher.count(builder.build())));
-        };
+        final BiConsumerEx<String, QueryInterface, Exception> consumer;
+        if (facetsCollector != null) {
+            consumer = (name, facetQuery) -> {
+                if (deadline.isExpired())
+                    return;
+                facetBuilder.put(new LabelAndValue(name,
+                    countMatchingDocs(facetQuery.getQuery(queryContext), facetsCollector.getMatchingDocs())));
+            };
+        } else {
+            consumer = (name, facetQuery) -> {
+                if (deadline.isExpired())
+                    return;
+                final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+                builder.add(searchQuery, BooleanClause.Occur.FILTER);
+                builder.add(facetQuery.getQuery(queryContext), BooleanClause.Occur.FILTER);
+                facetBuilder.put(new LabelAndValue(name, queryContext.indexSearcher.count(builder.build())));
+            };
+        }
         ConcurrentUtils.forEachEx(queries, consumer);
     }
 
+    private int countMatchingDocs(final Query facetQuery, final List<FacetsCollector.MatchingDocs> matchingDocsList)
+        throws IOException {
+        final IndexSearcher indexSearcher = queryContext.indexSearcher;
+        final Weight weight =
+            indexSearcher.createWeight(indexSearcher.rewrite(facetQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        int count = 0;
+        for (final FacetsCollector.MatchingDocs matchingDocs : matchingDocsList) {
+            if (matchingDocs.totalHits == 0)
+                continue;
+            final DocIdSetIterator hits = matchingDocs.bits.iterator();
+            if (hits == null)
+                continue;
+            final Scorer scorer = weight.scorer(matchingDocs.context);
+            if (scorer == null)
+                continue;
+            final DocIdSetIterator iterator = ConjunctionDISI.intersectIterators(List.of(hits, scorer.iterator()));
+            while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                count++;
+        }
+        return count;
+    }
+
     static Map<String, String> getFields(LinkedHashMap<String, FacetDefinition> facets) {
         if (facets == null || facets.isEmpty())
             return null;
@@ -145,9 +198,9 @@ abstract class FacetsBuilder {
 
         WithCollectors(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
                        final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
-                       final TimeTracker timeTracker, final FacetsCollector facetsCollector)
-            throws IOException {
-            super(queryContext, facetsDef, searchQuery, timeTracker);
+                       final TimeTracker timeTracker, final QueryDeadline deadline,
+                       final FacetsCollector facetsCollector) throws IOException {
+            super(queryContext, facetsDef, searchQuery, facetsCollector, timeTracker, deadline);
             this.facetsConfig = facetsConfig;
             int facetFlag = checkFacetTypeFlags(facetsConfig, facetsDef);
             this.sortedSetCounts = queryContext.docValueReaderState == null ?
@@ -236,8 +289,9 @@ abstract class FacetsBuilder {
 
         WithSideways(final QueryContextImpl queryContext, final FacetsConfig facetsConfig,
                      final LinkedHashMap<String, FacetDefinition> facetsDef, final Query searchQuery,
-                     final TimeTracker timeTracker, final DrillSideways.DrillSidewaysResult results) {
-            super(queryContext, facetsDef, searchQuery, timeTracker);
+                     final TimeTracker timeTracker, final QueryDeadline deadline,
+                     final DrillSideways.DrillSidewaysResult results) {
+            super(queryContext, facetsDef, searchQuery, null, timeTracker, deadline);
             this.facetsConfig = facetsConfig;
             this.results = results;
         }
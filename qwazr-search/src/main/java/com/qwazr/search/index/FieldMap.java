@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import javax.validation.constraints.NotNull;
@@ -36,6 +37,11 @@ import org.apache.lucene.facet.FacetsConfig;
 
 public class FieldMap {
 
+    /**
+     * Beyond this number of entries, the names are resolved without being cached
+     */
+    final static int MAX_CACHED_RESOLUTIONS = 100_000;
+
     private final SmartDynamicTypes smartDynamicTypes;
     private final Map<String, FieldTypeInterface> nameDefMap;
     private final Collection<Pair<WildcardMatcher, FieldTypeInterface>> wildcardMap;
@@ -43,6 +49,7 @@ public class FieldMap {
     private final Object facetsConfigLock;
     private final FacetsConfig facetsConfig;
     private final Map<String, FacetsConfig.DimConfig> facetsDimConfig;
+    private final Map<ResolutionKey, Resolution> resolutionCache;
 
     public FieldMap(@NotNull final FieldsContext fieldsContext) {
 
@@ -81,6 +88,7 @@ public class FieldMap {
         facetsConfig = new FacetsConfig();
         facetsDimConfig = facetsConfig.getDimConfigs();
         facetsConfigLock = new Object();
+        resolutionCache = new ConcurrentHashMap<>();
     }
 
     public final boolean isEmpty() {
@@ -91,11 +99,28 @@ public class FieldMap {
         nameDefMap.forEach(consumer);
     }
 
+    /**
+     * The FieldMap is rebuilt when the schema changes, the cached resolutions never have to be invalidated.
+     */
+    private Resolution resolve(final ResolutionKey key, final Function<ResolutionKey, Resolution> resolver) {
+        final Resolution resolution = resolutionCache.get(key);
+        if (resolution != null)
+            return resolution;
+        if (resolutionCache.size() >= MAX_CACHED_RESOLUTIONS)
+            return resolver.apply(key);
+        return resolutionCache.computeIfAbsent(key, resolver);
+    }
+
     private FieldTypeInterface findFieldType(final String genericFieldName,
                                              final String concreteFieldName) {
-
         if (genericFieldName == null && concreteFieldName == null)
             throw new IllegalArgumentException("The field name is missing");
+        return resolve(new ResolutionKey(genericFieldName, concreteFieldName, ValueKind.NONE),
+            key -> new Resolution(lookupFieldType(genericFieldName, concreteFieldName), null)).fieldType;
+    }
+
+    private FieldTypeInterface lookupFieldType(final String genericFieldName,
+                                               final String concreteFieldName) {
         // Annotated can find wildcarded fields directly using genericFieldName
         if (genericFieldName != null) {
             final FieldTypeInterface fieldType = nameDefMap.get(genericFieldName);
@@ -141,19 +166,28 @@ public class FieldMap {
             return fieldType;
 
         // Guess field type from value
-        final FieldTypeInterface smartFieldType = smartDynamicTypes.getTypeFromValue(fieldsContext.primaryKey, concreteFieldName, contentValue);
-        if (smartFieldType != null) {
-            if (analyzerContext != null && smartFieldType.findFirstOf(FieldTypeInterface.FieldType.textField) != null) {
-                final String resolvedField = smartFieldType.resolveFieldName(concreteFieldName, FieldTypeInterface.FieldType.textField, FieldTypeInterface.ValueType.textType);
-                analyzerContext.resolveIndexQueryAnalyzer(resolvedField, smartFieldType.getDefinition().resolvedIndexAnalyzer());
-            }
-            return smartFieldType;
+        final Resolution dynamic = resolve(new ResolutionKey(null, concreteFieldName, ValueKind.of(contentValue)),
+            key -> guessFieldType(concreteFieldName, contentValue));
+        if (dynamic.fieldType != null) {
+            if (analyzerContext != null && dynamic.resolvedTextField != null)
+                analyzerContext.resolveIndexQueryAnalyzer(dynamic.resolvedTextField,
+                    dynamic.fieldType.getDefinition().resolvedIndexAnalyzer());
+            return dynamic.fieldType;
         }
 
         throw new IllegalArgumentException(
             "The field has not been found: " + (genericFieldName == null ? concreteFieldName : genericFieldName));
     }
 
+    private Resolution guessFieldType(final String concreteFieldName, final Object contentValue) {
+        final FieldTypeInterface smartFieldType =
+            smartDynamicTypes.getTypeFromValue(fieldsContext.primaryKey, concreteFieldName, contentValue);
+        if (smartFieldType == null || smartFieldType.findFirstOf(FieldTypeInterface.FieldType.textField) == null)
+            return new Resolution(smartFieldType, null);
+        return new Resolution(smartFieldType, smartFieldType.resolveFieldName(concreteFieldName,
+            FieldTypeInterface.FieldType.textField, FieldTypeInterface.ValueType.textType));
+    }
+
     @NotNull
     final public FieldTypeInterface getFieldType(final String genericFieldName,
                                                  final String concreteFieldName) {
@@ -250,4 +284,71 @@ public class FieldMap {
         return nameDefMap.keySet();
     }
 
+    /**
+     * The kind of value used to guess the type of a dynamic field
+     */
+    private enum ValueKind {
+
+        NONE, NULL, NUMBER, STRING, BOOLEAN, OTHER;
+
+        private static ValueKind of(final Object value) {
+            if (value == null)
+                return NULL;
+            if (value instanceof Number)
+                return NUMBER;
+            if (value instanceof String)
+                return STRING;
+            if (value instanceof Boolean)
+                return BOOLEAN;
+            return OTHER;
+        }
+    }
+
+    private static final class ResolutionKey {
+
+        private final String genericFieldName;
+        private final String concreteFieldName;
+        private final ValueKind valueKind;
+        private final int hashCode;
+
+        private ResolutionKey(final String genericFieldName,
+                              final String concreteFieldName,
+                              final ValueKind valueKind) {
+            this.genericFieldName = genericFieldName;
+            this.concreteFieldName = concreteFieldName;
+            this.valueKind = valueKind;
+            this.hashCode = Objects.hash(genericFieldName, concreteFieldName, valueKind);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof ResolutionKey))
+                return false;
+            final ResolutionKey key = (ResolutionKey) o;
+            return hashCode == key.hashCode && valueKind == key.valueKind
+                && Objects.equals(concreteFieldName, key.concreteFieldName)
+                && Objects.equals(genericFieldName, key.genericFieldName);
+        }
+    }
+
+    /**
+     * A resolved field type (null if not found) and the resolved name of its full text field, if any
+     */
+    private static final class Resolution {
+
+        private final FieldTypeInterface fieldType;
+        private final String resolvedTextField;
+
+        private Resolution(final FieldTypeInterface fieldType, final String resolvedTextField) {
+            this.fieldType = fieldType;
+            this.resolvedTextField = resolvedTextField;
+        }
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.concurrent.ExecutorUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the durable commits requested by concurrent writers.
+ * <p>
+ * Each write is made visible right away through a NRT refresh (or by the background refresher if the index has one)
+ * and receives a commit sequence number.
+ * The durable commit (flush, commit, fsync) is done once for every write received since the previous one,
+ * either when the max latency expires or when the max number of pending documents is reached.
+ * When group commit is not enabled, every write is committed synchronously as before.
+ */
+final class GroupCommit implements Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(GroupCommit.class);
+
+    private final WriterAndSearcher writerAndSearcher;
+    private final Executor executor;
+    private final Executor delayedExecutor;
+    private final int maxDocs;
+    private final boolean enabled;
+    private final Runnable commitListener;
+
+    private final ReentrantLock commitLock;
+    private final Object commitMonitor;
+    private final AtomicLong requestedSequence;
+    private final AtomicInteger pendingDocs;
+    private final AtomicBoolean scheduled;
+    private volatile long committedSequence;
+    private volatile boolean closed;
+
+    GroupCommit(final WriterAndSearcher writerAndSearcher,
+                final ExecutorService executorService,
+                final IndexSettingsDefinition settings,
+                final Runnable commitListener) {
+        this.writerAndSearcher = writerAndSearcher;
+        this.commitListener = commitListener;
+        this.executor = executorService == null ? ForkJoinPool.commonPool() : executorService;
+        final Long maxLatencyMs = settings == null ? null : settings.groupCommitMaxLatencyMs;
+        final Integer maxDocs = settings == null ? null : settings.groupCommitMaxDocs;
+        this.maxDocs = maxDocs == null || maxDocs <= 0 ? 0 : maxDocs;
+        final long latency = maxLatencyMs == null || maxLatencyMs <= 0 ?
+            IndexSettingsDefinition.DEFAULT_GROUP_COMMIT_MAX_LATENCY_MS : maxLatencyMs;
+        this.enabled = (maxLatencyMs != null && maxLatencyMs > 0) || this.maxDocs > 0;
+        this.delayedExecutor = enabled ?
+            CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS, this::executeDelayed) : null;
+        this.commitLock = new ReentrantLock(true);
+        this.commitMonitor = new Object();
+        this.requestedSequence = new AtomicLong();
+        this.pendingDocs = new AtomicInteger();
+        this.scheduled = new AtomicBoolean(false);
+        this.committedSequence = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Register a write which has already been applied to the IndexWriter.
+     *
+     * @param docs the number of documents written
+     * @return the commit sequence number which will make this write durable
+     * @throws IOException if the refresh or the synchronous commit failed
+     */
+    long submit(final int docs) throws IOException {
+        if (!enabled) {
+            requestedSequence.incrementAndGet();
+            return commit();
+        }
+        writerAndSearcher.refreshOnWrite();
+        final long sequence = requestedSequence.incrementAndGet();
+        if (maxDocs > 0 && pendingDocs.addAndGet(docs) >= maxDocs)
+            // If the ingest pool is saturated, the writing thread commits
+            ExecutorUtils.callerRunsOnRejection(executor).execute(this::commitQuietly);
+        else if (scheduled.compareAndSet(false, true))
+            delayedExecutor.execute(this::commitQuietly);
+        return sequence;
+    }
+
+    /**
+     * Durably commit every write submitted so far.
+     *
+     * @return the last durable commit sequence number
+     * @throws IOException if the commit failed
+     */
+    long commit() throws IOException {
+        commitLock.lock();
+        try {
+            final long target = requestedSequence.get();
+            // Reset before the commit: a write submitted meanwhile schedules its own commit
+            final int docs = pendingDocs.getAndSet(0);
+            scheduled.set(false);
+            try {
+                writerAndSearcher.commit();
+            } catch (IOException | RuntimeException e) {
+                // The acknowledged writes are still not durable: they are committed by a later attempt
+                pendingDocs.addAndGet(docs);
+                scheduleRetry();
+                throw e;
+            }
+            synchronized (commitMonitor) {
+                if (target > committedSequence)
+                    committedSequence = target;
+                commitMonitor.notifyAll();
+            }
+            if (commitListener != null)
+                commitListener.run();
+            return committedSequence;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void scheduleRetry() {
+        if (enabled && !closed && scheduled.compareAndSet(false, true))
+            delayedExecutor.execute(this::commitQuietly);
+    }
+
+    private void executeDelayed(final Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            // The ingest pool is saturated: the commit is delayed again rather than lost
+            LOGGER.warning(() -> "Group commit rejected: " + e.getMessage());
+            scheduled.set(false);
+            scheduleRetry();
+        }
+    }
+
+    private void commitQuietly() {
+        if (closed || requestedSequence.get() <= committedSequence)
+            return;
+        try {
+            commit();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Group commit failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until the given commit sequence number is durable.
+     *
+     * @param sequence  the commit sequence number returned by a write
+     * @param timeoutMs the maximum time to wait in milliseconds
+     * @return the last durable commit sequence number
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    long await(final long sequence, final long timeoutMs) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (commitMonitor) {
+            while (committedSequence < sequence && !closed) {
+                final long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0)
+                    break;
+                commitMonitor.wait(wait);
+            }
+            return committedSequence;
+        }
+    }
+
+    long getRequestedSequence() {
+        return requestedSequence.get();
+    }
+
+    long getCommittedSequence() {
+        return committedSequence;
+    }
+
+    @Override
+    public void close() {
+        if (enabled && requestedSequence.get() > committedSequence) {
+            try {
+                commit();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, e, () -> "Final group commit failed: " + e.getMessage());
+            }
+        }
+        closed = true;
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+    }
+}
@@ -109,6 +109,18 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
     @JsonProperty("break_iterator")
     final public BreakIteratorDefinition breakIterator;
 
+    /**
+     * Where the offsets of the matching terms are taken from.
+     * By default, the offsets indexed in the postings or the term vectors are used when available,
+     * otherwise the text is analyzed again.
+     */
+    public enum OffsetSource {
+        POSTINGS, TERM_VECTORS, POSTINGS_WITH_TERM_VECTORS, ANALYSIS
+    }
+
+    @JsonProperty("offset_source")
+    final public OffsetSource offsetSource;
+
     @JsonCreator
     HighlighterDefinition(@JsonProperty("field") final String field,
                           @JsonProperty("stored_field") final String storedField,
@@ -122,7 +134,8 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
                           @JsonProperty("ellipsis") final String ellipsis,
                           @JsonProperty("escape") final Boolean escape,
                           @JsonProperty("break_iterator") final BreakIteratorDefinition breakIterator,
-                          @JsonProperty("default_analyzer") final String defaultAnalyzer) {
+                          @JsonProperty("default_analyzer") final String defaultAnalyzer,
+                          @JsonProperty("offset_source") final OffsetSource offsetSource) {
         super(HighlighterDefinition.class);
         this.field = field;
         this.storedField = storedField;
@@ -137,6 +150,7 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
         this.escape = escape;
         this.breakIterator = breakIterator;
         this.defaultAnalyzer = defaultAnalyzer;
+        this.offsetSource = offsetSource;
     }
 
     @Override
@@ -154,7 +168,8 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
             Objects.equals(multivaluedSeparator, h.multivaluedSeparator) && Objects.equals(preTag, h.preTag) &&
             Objects.equals(postTag, h.postTag) && Objects.equals(ellipsis, h.ellipsis) &&
             Objects.equals(escape, h.escape) && Objects.equals(breakIterator, h.breakIterator) &&
-            Objects.equals(defaultAnalyzer, h.defaultAnalyzer);
+            Objects.equals(defaultAnalyzer, h.defaultAnalyzer) &&
+            Objects.equals(offsetSource, h.offsetSource);
     }
 
     private HighlighterDefinition(final Builder builder) {
@@ -172,6 +187,7 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
         this.escape = builder.escape;
         this.breakIterator = builder.breakIterator;
         this.defaultAnalyzer = builder.defaultAnalyzer;
+        this.offsetSource = builder.offsetSource;
     }
 
     public static Builder of() {
@@ -210,6 +226,8 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
 
         private String defaultAnalyzer;
 
+        private OffsetSource offsetSource;
+
         public HighlighterDefinition build() {
             return new HighlighterDefinition(this);
         }
@@ -332,5 +350,14 @@ public class HighlighterDefinition extends Equalizer.Immutable<HighlighterDefini
             this.defaultAnalyzer = defaultAnalyzer;
             return this;
         }
+
+        /**
+         * @param offsetSource where the offsets are taken from, null to detect it from the index
+         * @return the current builder
+         */
+        public Builder withOffsetSource(OffsetSource offsetSource) {
+            this.offsetSource = offsetSource;
+            return this;
+        }
     }
 }
@@ -19,19 +19,27 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.qwazr.search.query.FieldResolver;
 import com.qwazr.utils.ObjectMappers;
 import com.qwazr.utils.StringUtils;
+import com.qwazr.utils.concurrent.ExecutorUtils;
 import java.io.IOException;
 import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
 import org.apache.lucene.search.uhighlight.PassageFormatter;
@@ -43,23 +51,26 @@ interface Highlighters {
     LinkedHashMap<String, String[]> highlights(final Query query, final TopDocs topDocs);
 
     static Highlighters of(final LinkedHashMap<String, HighlighterDefinition> definitions,
-                           final QueryContextImpl queryContext) {
+                           final QueryContextImpl queryContext,
+                           final QueryDeadline deadline) {
         if (queryContext.fieldMap.fieldsContext.recordField != null
             && !queryContext.fieldMap.fieldsContext.recordField.isEmpty())
-            return new WithRecord(definitions, queryContext);
+            return new WithRecord(definitions, queryContext, deadline);
         else
-            return new WithStore(definitions, queryContext);
+            return new WithStore(definitions, queryContext, deadline);
     }
 
     abstract class Base implements Highlighters {
 
         private final LinkedHashMap<String, PerFieldBase> perFieldHighlighterMap;
         protected final QueryContextImpl queryContext;
-
+        private final QueryDeadline deadline;
 
         private Base(final LinkedHashMap<String, HighlighterDefinition> definitions,
-                     final QueryContextImpl queryContext) {
+                     final QueryContextImpl queryContext,
+                     final QueryDeadline deadline) {
             this.queryContext = queryContext;
+            this.deadline = deadline;
             this.perFieldHighlighterMap = new LinkedHashMap<>();
             definitions.forEach((name, definition) -> perFieldHighlighterMap.put(name, newPerField(name, definition)));
         }
@@ -67,15 +78,64 @@ interface Highlighters {
         protected abstract PerFieldBase newPerField(final String highlightName,
                                                     final HighlighterDefinition definition);
 
+        /**
+         * Called once before the highlighters run, to load what they share
+         *
+         * @param topDocs the documents to highlight
+         */
+        protected void prepare(final TopDocs topDocs) {
+        }
+
+        /**
+         * A highlighter which starts after the deadline is skipped, its snippets are missing from the result
+         */
+        private String[] highlight(final PerFieldBase perField, final Query query, final TopDocs topDocs) {
+            return deadline.isExpired() ? null : perField.highlight(query, topDocs);
+        }
+
         @Override
         public final LinkedHashMap<String, String[]> highlights(final Query query, final TopDocs topDocs) {
             final LinkedHashMap<String, String[]> result = new LinkedHashMap<>();
-            perFieldHighlighterMap.forEach((name, perField) -> {
-                result.put(name, perField.highlight(query, topDocs));
-            });
+            if (deadline.isExpired())
+                return result;
+            prepare(topDocs);
+            final ExecutorService executorService = queryContext.executorService;
+            if (executorService == null || perFieldHighlighterMap.size() < 2) {
+                perFieldHighlighterMap.forEach((name, perField) -> putIfPresent(result, name,
+                    highlight(perField, query, topDocs)));
+                return result;
+            }
+            // The highlighters run concurrently, the calling thread runs the first one,
+            // and the ones rejected by a saturated executor
+            final Executor executor = ExecutorUtils.callerRunsOnRejection(executorService);
+            final LinkedHashMap<String, CompletableFuture<String[]>> futures = new LinkedHashMap<>();
+            PerFieldBase first = null;
+            for (final Map.Entry<String, PerFieldBase> entry : perFieldHighlighterMap.entrySet()) {
+                final PerFieldBase perField = entry.getValue();
+                if (first == null)
+                    first = perField;
+                else
+                    futures.put(entry.getKey(),
+                        CompletableFuture.supplyAsync(() -> highlight(perField, query, topDocs), executor));
+            }
+            putIfPresent(result, first.highlightName, highlight(first, query, topDocs));
+            try {
+                futures.forEach((name, future) -> putIfPresent(result, name, future.join()));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
             return result;
         }
 
+        private static void putIfPresent(final LinkedHashMap<String, String[]> result,
+                                         final String name,
+                                         final String[] highlights) {
+            if (highlights != null)
+                result.put(name, highlights);
+        }
+
         protected abstract class PerFieldBase extends UnifiedHighlighter {
 
             private final HighlighterDefinition definition;
@@ -164,6 +224,12 @@ interface Highlighters {
                 return breakIterator;
             }
 
+            @Override
+            protected OffsetSource getOffsetSource(final String field) {
+                return definition.offsetSource == null ?
+                    super.getOffsetSource(field) : OffsetSource.valueOf(definition.offsetSource.name());
+            }
+
             private String[] highlight(final Query query, final TopDocs topDocs) {
                 final String[] highlights;
                 try {
@@ -184,8 +250,10 @@ interface Highlighters {
 
     class WithStore extends Base {
 
-        private WithStore(final LinkedHashMap<String, HighlighterDefinition> definitions, final QueryContextImpl queryContext) {
-            super(definitions, queryContext);
+        private WithStore(final LinkedHashMap<String, HighlighterDefinition> definitions,
+                          final QueryContextImpl queryContext,
+                          final QueryDeadline deadline) {
+            super(definitions, queryContext, deadline);
         }
 
         @Override
@@ -218,11 +286,49 @@ interface Highlighters {
         private final ConcurrentHashMap<Integer, JsonNode> recordCache = new ConcurrentHashMap<>();
         private final String recordField;
 
-        private WithRecord(LinkedHashMap<String, HighlighterDefinition> definition, QueryContextImpl queryContext) {
-            super(definition, queryContext);
+        private WithRecord(LinkedHashMap<String, HighlighterDefinition> definition, QueryContextImpl queryContext,
+                           QueryDeadline deadline) {
+            super(definition, queryContext, deadline);
             recordField = queryContext.fieldMap.fieldsContext.recordField;
         }
 
+        /**
+         * Each record is parsed once, in doc ID order, and shared by all the highlighters
+         */
+        @Override
+        protected void prepare(final TopDocs topDocs) {
+            if (topDocs.scoreDocs.length == 0)
+                return;
+            final int[] docIds = new int[topDocs.scoreDocs.length];
+            int i = 0;
+            for (final ScoreDoc scoreDoc : topDocs.scoreDocs)
+                docIds[i++] = scoreDoc.doc;
+            Arrays.sort(docIds);
+            for (final int docId : docIds)
+                loadRecord(docId);
+        }
+
+        private JsonNode loadRecord(final int docId) {
+            return recordCache.computeIfAbsent(docId, doc -> {
+                final AtomicReference<JsonNode> result = new AtomicReference<>();
+                try {
+                    queryContext.indexSearcher.doc(doc, new StoredFieldVisitor() {
+                        @Override
+                        public Status needsField(final FieldInfo fieldInfo) {
+                            return recordField.equals(fieldInfo.name) ? Status.YES : Status.NO;
+                        }
+
+                        public void binaryField(final FieldInfo fieldInfo, final byte[] value) throws IOException {
+                            result.set(ObjectMappers.SMILE.readTree(value));
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException("Doc not found: " + docId);
+                }
+                return result.get();
+            });
+        }
+
         @Override
         protected PerFieldBase newPerField(final String highlightName,
                                            final HighlighterDefinition definition) {
@@ -241,27 +347,6 @@ interface Highlighters {
                 jsonFieldPath = StringUtils.split(field, '.');
             }
 
-            private JsonNode loadRecord(int docId) {
-                return recordCache.computeIfAbsent(docId, doc -> {
-                    final AtomicReference<JsonNode> result = new AtomicReference<>();
-                    try {
-                        searcher.doc(doc, new StoredFieldVisitor() {
-                            @Override
-                            public Status needsField(final FieldInfo fieldInfo) {
-                                return recordField.equals(fieldInfo.name) ? Status.YES : Status.NO;
-                            }
-
-                            public void binaryField(final FieldInfo fieldInfo, final byte[] value) throws IOException {
-                                result.set(ObjectMappers.SMILE.readTree(value));
-                            }
-                        });
-                    } catch (IOException e) {
-                        throw new RuntimeException("Doc not found: " + docId);
-                    }
-                    return result.get();
-                });
-            }
-
             @Override
             protected List<CharSequence[]> loadFieldValues(final DocIdSetIterator docIter,
                                                            final int cacheCharsThreshold) throws IOException {
@@ -272,15 +357,16 @@ interface Highlighters {
                     if (doc == DocIdSetIterator.NO_MORE_DOCS)
                         break;
                     JsonNode jsonNode = loadRecord(doc);
-                    if (jsonNode == null)
-                        break;
                     for (final String jsonField : jsonFieldPath) {
-                        jsonNode = jsonNode.get(jsonField);
                         if (jsonNode == null)
                             break;
+                        jsonNode = jsonNode.get(jsonField);
+                    }
+                    // One entry per document, even without any text, to stay aligned with the doc iterator
+                    if (jsonNode == null || !jsonNode.isTextual()) {
+                        docListOfFields.add(new CharSequence[]{null});
+                        continue;
                     }
-                    if (jsonNode == null || !jsonNode.isTextual())
-                        break;
                     final String fieldValue = jsonNode.asText();
                     docListOfFields.add(new CharSequence[]{fieldValue});
                     sumChars.addAndGet(fieldValue.length());
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The executors used by the indexes, one per kind of work, so that a burst of one kind does not starve the others.
+ * <ul>
+ * <li>search-slice: the segments searched concurrently by one query</li>
+ * <li>fetch: the stored fields of a result page, the highlighters and the drill sideways queries</li>
+ * <li>ingest: the bulk indexing, the group commits and the reindexing</li>
+ * <li>replication: the file transfers of the replication and of the backups</li>
+ * </ul>
+ * A null executor means the work is done by the calling thread.
+ * <p>
+ * A task of the search-slice executor never waits for another task: the drill sideways queries, which wait for their
+ * segments, do not use it. Otherwise a bounded executor full of waiting tasks could deadlock.
+ */
+public final class IndexExecutors {
+
+    public final static String SEARCH_SLICE = "search-slice";
+    public final static String FETCH = "fetch";
+    public final static String INGEST = "ingest";
+    public final static String REPLICATION = "replication";
+
+    private final static int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * When the queue is full, the tasks run in the calling thread: the search threads, the indexing threads and the
+     * replication processes wait for their sub-tasks anyway.
+     */
+    public final static ServerConfiguration.ExecutorSettings SEARCH_SLICE_DEFAULTS =
+        new ServerConfiguration.ExecutorSettings(PROCESSORS, 1000,
+            ServerConfiguration.ExecutorSettings.Rejection.caller_runs);
+
+    public final static ServerConfiguration.ExecutorSettings FETCH_DEFAULTS =
+        new ServerConfiguration.ExecutorSettings(PROCESSORS, 1000,
+            ServerConfiguration.ExecutorSettings.Rejection.caller_runs);
+
+    public final static ServerConfiguration.ExecutorSettings INGEST_DEFAULTS =
+        new ServerConfiguration.ExecutorSettings(PROCESSORS, 1000,
+            ServerConfiguration.ExecutorSettings.Rejection.caller_runs);
+
+    public final static ServerConfiguration.ExecutorSettings REPLICATION_DEFAULTS =
+        new ServerConfiguration.ExecutorSettings(Math.max(4, PROCESSORS), 1000,
+            ServerConfiguration.ExecutorSettings.Rejection.caller_runs);
+
+    final ExecutorService searchSlice;
+    final ExecutorService fetch;
+    final ExecutorService ingest;
+    final ExecutorService replication;
+
+    public IndexExecutors(final ExecutorService searchSlice,
+                          final ExecutorService fetch,
+                          final ExecutorService ingest,
+                          final ExecutorService replication) {
+        this.searchSlice = searchSlice;
+        this.fetch = fetch;
+        this.ingest = ingest;
+        this.replication = replication;
+    }
+
+    /**
+     * @param executorService the executor used for every kind of work, may be null
+     * @return a new instance sharing the same executor
+     */
+    public static IndexExecutors of(final ExecutorService executorService) {
+        return new IndexExecutors(executorService, executorService, executorService, executorService);
+    }
+}
@@ -15,13 +15,17 @@
  */
 package com.qwazr.search.index;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
 import com.qwazr.binder.FieldMapWrapper;
 import com.qwazr.search.analysis.AnalyzerContext;
 import com.qwazr.search.analysis.AnalyzerDefinition;
 import com.qwazr.search.analysis.AnalyzerFactory;
 import com.qwazr.search.analysis.CustomAnalyzer;
+import com.qwazr.search.analysis.SmartAnalyzers;
 import com.qwazr.search.analysis.UpdatableAnalyzers;
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.search.field.FieldTypeInterface;
@@ -37,13 +41,14 @@ import com.qwazr.utils.Equalizer;
 import com.qwazr.utils.FileUtils;
 import com.qwazr.utils.IOUtils;
 import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
 import com.qwazr.utils.StringUtils;
 import com.qwazr.utils.concurrent.AutoLockSemaphore;
 import com.qwazr.utils.concurrent.FunctionEx;
 import com.qwazr.utils.reflection.ConstructorParametersImpl;
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
@@ -61,8 +66,8 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
@@ -92,6 +97,11 @@ final public class IndexInstance implements Closeable {
 
     private final static Logger LOGGER = LoggerUtils.getLogger(IndexInstance.class);
 
+    private final static long DEFAULT_COMMIT_TIMEOUT_MS = 30000;
+    private final static long DEFAULT_REPLICATION_POLL_MS = 30000;
+    private final static long MAX_REPLICATION_POLL_MS = 60000;
+    private final static int DEFAULT_JSON_STREAM_CHUNK_SIZE = 5000;
+
     @FunctionalInterface
     public interface Provider {
         IndexInstance get(String name);
@@ -107,14 +117,15 @@ final public class IndexInstance implements Closeable {
     private final Directory taxonomyDirectory;
     private final WriterAndSearcher writerAndSearcher;
 
-    private final ExecutorService executorService;
+    private final IndexExecutors executors;
     private final IndexSettingsDefinition settings;
     private final ConstructorParametersImpl instanceFactory;
     private final FileResourceLoader fileResourceLoader;
     private final Provider indexProvider;
 
     private final ReentrantLock replicationLock;
-    private final ReentrantLock commitLock;
+    private final GroupCommit groupCommit;
+    private final QueryResultCache resultCache;
     private final ReentrantLock backupLock;
 
     private final UpdatableAnalyzers updatableIndexAnalyzers;
@@ -131,7 +142,9 @@ final public class IndexInstance implements Closeable {
     private final ReplicationSlave replicationSlave;
 
     private final Set<AnalyzerContext> activeAnalyzerContexts;
+    private final SmartAnalyzers smartAnalyzers;
     private final ReindexThread reindexThread;
+    private final ReplicationWatcher replicationWatcher;
 
     IndexInstance(final IndexInstanceBuilder builder) {
         this.writeSemaphore = builder.writeSemaphore;
@@ -150,19 +163,27 @@ final public class IndexInstance implements Closeable {
         this.writerAndSearcher = builder.writerAndSearcher;
         this.analyzerContext = builder.analyzerContext;
         this.settings = builder.settings;
-        this.executorService = builder.executorService;
+        this.executors = builder.executors;
         this.instanceFactory = builder.instanceFactory;
         this.fileResourceLoader = builder.fileResourceLoader;
         this.replicationLock = new ReentrantLock(true);
-        this.commitLock = new ReentrantLock(true);
+        this.groupCommit = new GroupCommit(writerAndSearcher, executors.ingest, settings,
+            builder.replicationMaster == null ? null : builder.replicationMaster::notifyChange);
+        this.resultCache = QueryResultCache.of(settings);
+        if (resultCache != null)
+            writerAndSearcher.addRefreshListener(resultCache);
         this.backupLock = new ReentrantLock(true);
         this.replicationMaster = builder.replicationMaster;
         this.replicationSlave = builder.replicationSlave;
         this.activeAnalyzerContexts = builder.activeAnalyzerContexts;
+        this.smartAnalyzers = builder.smartAnalyzers;
         this.updatableIndexAnalyzers = builder.updatableIndexAnalyzers;
         this.reindexThread =
             builder.replicationMaster != null && !StringUtils.isBlank(settings.recordField)
-                ? new ReindexThread(executorService, this) : null;
+                ? new ReindexThread(executors.ingest, this) : null;
+        this.replicationWatcher =
+            replicationSlave != null && settings.replicationLongPollMs != null && settings.replicationLongPollMs > 0
+                ? new ReplicationWatcher(indexName, this, replicationSlave, settings.replicationLongPollMs) : null;
     }
 
     public IndexSettingsDefinition getSettings() {
@@ -171,7 +192,9 @@ final public class IndexInstance implements Closeable {
 
     @Override
     public void close() {
-        IOUtils.closeQuietly(writerAndSearcher, replicationMaster, analyzerContext);
+        IOUtils.closeQuietly(replicationWatcher, groupCommit, writerAndSearcher, replicationMaster, analyzerContext);
+        AdmissionController.close(writeSemaphore);
+        AdmissionController.close(readSemaphore);
 
         if (taxonomyDirectory != null)
             IOUtils.closeQuietly(taxonomyDirectory);
@@ -184,7 +207,9 @@ final public class IndexInstance implements Closeable {
         return writerAndSearcher.search((indexSearcher, taxonomyReader) -> new IndexStatus(indexUuid,
             replicationSlave == null ? null : replicationSlave.getClientMasterUuid(), dataDirectory, indexSearcher,
             writerAndSearcher.getIndexWriter(), settings, localAnalyzerFactoryMap.keySet(),
-            fieldMap.getFields().keySet(), activeAnalyzerContexts.size()));
+            fieldMap.getFields().keySet(), activeAnalyzerContexts.size(),
+            groupCommit.getRequestedSequence(), groupCommit.getCommittedSequence(),
+            writerAndSearcher.getRefreshStatus(), resultCache == null ? null : resultCache.getStats()));
     }
 
     Map<String, FieldDefinition> getFields() {
@@ -225,6 +250,7 @@ final public class IndexInstance implements Closeable {
         analyzerContext = new AnalyzerContext(
             activeAnalyzerContexts,
             instanceFactory,
+            smartAnalyzers,
             fileResourceLoader,
             updatableIndexAnalyzers,
             fieldMap,
@@ -232,6 +258,10 @@ final public class IndexInstance implements Closeable {
             localAnalyzerFactoryMap,
             errors);
         oldAnalyzerContext.close();
+        if (resultCache != null)
+            resultCache.clear();
+        if (replicationMaster != null)
+            replicationMaster.notifyChange();
         return errors;
     }
 
@@ -358,11 +388,18 @@ final public class IndexInstance implements Closeable {
     }
 
     private void nrtCommit() throws IOException {
-        commitLock.lock();
+        groupCommit.commit();
+    }
+
+    final long commit(final Long sequence, final Long timeoutMs) throws IOException {
+        checkIsMaster();
+        if (sequence == null)
+            return groupCommit.commit();
         try {
-            writerAndSearcher.commit();
-        } finally {
-            commitLock.unlock();
+            return groupCommit.await(sequence, timeoutMs == null ? DEFAULT_COMMIT_TIMEOUT_MS : timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ServerException.of(e);
         }
     }
 
@@ -376,8 +413,10 @@ final public class IndexInstance implements Closeable {
                 throw new IOException(
                     "The backup path is not a directory: " + backupIndexDirectory.toAbsolutePath() + " " +
                         Thread.currentThread().getId());
-            try (final AutoLockSemaphore.Lock lock = readSemaphore.acquire()) {
-                return new ReplicationBackup(this, backupIndexDirectory, taxonomyDirectory != null).backup();
+            try (final AutoLockSemaphore.Lock lock = AdmissionController.acquire(readSemaphore,
+                AdmissionController.Lane.BATCH)) {
+                return new ReplicationBackup(this, backupIndexDirectory, taxonomyDirectory != null, executors.replication,
+                    IndexSettingsDefinition.getReplicationParallelism(settings)).backup();
             } catch (IOException e) {
                 // If any error occurred, we delete the backup directory
                 if (Files.exists(backupIndexDirectory)) {
@@ -409,7 +448,8 @@ final public class IndexInstance implements Closeable {
 
     final BackupStatus getBackup(final Path backupIndexDirectory, final boolean extractVersion) throws IOException {
         checkIsMaster();
-        try (final AutoLockSemaphore.Lock lock = readSemaphore.acquire()) {
+        try (final AutoLockSemaphore.Lock lock = AdmissionController.acquire(readSemaphore,
+            AdmissionController.Lane.BATCH)) {
             return BackupStatus.newBackupStatus(backupIndexDirectory, extractVersion);
         }
     }
@@ -424,9 +464,36 @@ final public class IndexInstance implements Closeable {
         return replicationMaster;
     }
 
-    ReplicationSession replicationUpdate(String currentVersion) throws IOException {
-        //TODO check current version to avoid non useful replication
+    /**
+     * Long polling used by the slaves to be notified of a new commit.
+     *
+     * @param generation the generation known by the slave
+     * @param timeoutMs  the maximum waiting time
+     * @return the current generation, it differs from the given one if there is something new to replicate
+     */
+    long replicationGeneration(final Long generation, final Long timeoutMs) {
+        final ReplicationMaster master = checkIsMaster();
+        final long timeout = timeoutMs == null ? DEFAULT_REPLICATION_POLL_MS :
+            Math.min(Math.max(0, timeoutMs), MAX_REPLICATION_POLL_MS);
+        try {
+            return master.awaitGeneration(generation, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException(Response.Status.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Open a replication session.
+     *
+     * @param currentVersion the generation of the master reached by the last replication of the slave, may be null
+     * @return the new session, or null if the generation of the master has not changed
+     * @throws IOException if the session cannot be created
+     */
+    ReplicationSession replicationUpdate(final String currentVersion) throws IOException {
         final ReplicationMaster master = checkIsMaster();
+        if (currentVersion != null && currentVersion.equals(Long.toString(master.getGeneration())))
+            return null;
         master.expireInactiveSessions(TimeUnit.MINUTES, 30);
         return master.newReplicationSession();
     }
@@ -437,9 +504,36 @@ final public class IndexInstance implements Closeable {
         master.expireInactiveSessions(TimeUnit.MINUTES, 30);
     }
 
-    InputStream replicationObtain(String sessionID, ReplicationProcess.Source source, String fileName)
-        throws FileNotFoundException {
-        return checkIsMaster().getItem(sessionID, source, fileName);
+    InputStream replicationObtain(final String sessionID, final ReplicationProcess.Source source,
+                                  final String fileName, final long offset) throws IOException {
+        final InputStream input = checkIsMaster().getItem(sessionID, source, fileName);
+        if (input == null || offset <= 0)
+            return input;
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                final long skipped = input.skip(remaining);
+                if (skipped <= 0) {
+                    if (input.read() == -1)
+                        throw new ServerException(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE,
+                            "The offset " + offset + " is beyond the end of " + fileName);
+                    remaining--;
+                } else
+                    remaining -= skipped;
+            }
+            return input;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(input);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the local path of the item, used by the local backups to link the files
+     */
+    Path replicationItemPath(final String sessionID, final ReplicationProcess.Source source,
+                             final String fileName) {
+        return checkIsMaster().getItemPath(sessionID, source, fileName);
     }
 
     ReplicationStatus replicationCheck() throws IOException {
@@ -484,7 +578,8 @@ final public class IndexInstance implements Closeable {
         checkIsMaster();
         try (final AutoLockSemaphore.Lock writeLock = writeSemaphore.acquire()) {
             writerAndSearcher.write((indexWriter, taxonomyWriter) -> {
-                try (final AutoLockSemaphore.Lock readLock = mergedIndex.readSemaphore.acquire()) {
+                try (final AutoLockSemaphore.Lock readLock = AdmissionController.acquire(mergedIndex.readSemaphore,
+                    AdmissionController.Lane.BATCH)) {
                     indexWriter.addIndexes(mergedIndex.dataDirectory);
                     if (commitUserData != null)
                         indexWriter.setLiveCommitData(commitUserData.entrySet());
@@ -497,7 +592,7 @@ final public class IndexInstance implements Closeable {
     }
 
     private WriteContextImpl buildWriteContext(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
-        return new WriteContextImpl(indexProvider, fileResourceLoader, executorService, analyzerContext,
+        return new WriteContextImpl(indexProvider, fileResourceLoader, executors.ingest, analyzerContext,
             fieldMap, indexWriter, taxonomyWriter);
     }
 
@@ -511,15 +606,12 @@ final public class IndexInstance implements Closeable {
         }
     }
 
-    private int checkCommit(final int results) throws IOException {
-        if (results > 0)
-            nrtCommit();
-        return results;
-    }
-
     private int checkCommit(final int results, final Map<String, String> commitUserData) throws IOException {
-        if (results > 0 || (commitUserData != null && !commitUserData.isEmpty()))
+        // The commit user data belongs to a commit point, the commit is done right away
+        if (commitUserData != null && !commitUserData.isEmpty())
             nrtCommit();
+        else if (results > 0)
+            groupCommit.submit(results);
         return results;
     }
 
@@ -552,17 +644,86 @@ final public class IndexInstance implements Closeable {
     }
 
     final IndexJsonResult postJsonNodes(final Collection<JsonNode> jsonNodes) throws IOException {
+        return postJsonNodes(jsonNodes, true);
+    }
+
+    private IndexJsonResult postJsonNodes(final Collection<JsonNode> jsonNodes,
+                                          final boolean withFieldTypes) throws IOException {
         checkIsMaster();
-        final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes = new TreeMap<>();
-        final Integer count = write(context -> checkCommit(context.postJsonNodes(jsonNodes, fieldTypes)));
-        return new IndexJsonResult(count, fieldTypes);
+        final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes = withFieldTypes ? new TreeMap<>() : null;
+        final Integer count = write(context -> context.postJsonNodes(jsonNodes, fieldTypes));
+        return new IndexJsonResult(count, fieldTypes, count > 0 ? groupCommit.submit(count) : null,
+            writerAndSearcher.getWriterGeneration());
     }
 
     final IndexJsonResult postJsonNode(final JsonNode jsonNode, final boolean withFieldTypes) throws IOException {
         checkIsMaster();
         final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes = withFieldTypes ? new TreeMap<>() : null;
-        final Integer count = write(context -> checkCommit(context.postJsonNode(jsonNode, fieldTypes)));
-        return new IndexJsonResult(count, fieldTypes);
+        final Integer count = write(context -> context.postJsonNode(jsonNode, fieldTypes));
+        return new IndexJsonResult(count, fieldTypes, count > 0 ? groupCommit.submit(count) : null,
+            writerAndSearcher.getWriterGeneration());
+    }
+
+    /**
+     * Index a stream of JSON or Smile documents, one chunk at a time.
+     * The documents can be either a sequence of root objects (NDJSON) or a single array.
+     * Only one chunk is kept in memory, each chunk is written and submitted for commit before the next one is parsed.
+     */
+    final IndexStreamResult postJsonStream(final InputStream inputStream,
+                                           final boolean withFieldTypes,
+                                           final Integer chunkSize) throws IOException {
+        checkIsMaster();
+        final int size = chunkSize == null || chunkSize <= 0 ? DEFAULT_JSON_STREAM_CHUNK_SIZE : chunkSize;
+        final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes = withFieldTypes ? new TreeMap<>() : null;
+        final List<IndexStreamResult.Chunk> chunks = new ArrayList<>();
+        final List<JsonNode> buffer = new ArrayList<>(Math.min(size, 10_000));
+        final InputStream input = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+        final ObjectMapper mapper = isSmile(input) ? ObjectMappers.SMILE : ObjectMappers.JSON;
+        long total = 0;
+        try (final JsonParser parser = mapper.getFactory().createParser(input)) {
+            JsonToken token = parser.nextToken();
+            final boolean isArray = token == JsonToken.START_ARRAY;
+            if (isArray)
+                token = parser.nextToken();
+            while (token != null && !(isArray && token == JsonToken.END_ARRAY)) {
+                if (token != JsonToken.START_OBJECT)
+                    throw new NotAcceptableException("This json type can't be indexed as a document: " + token);
+                buffer.add(mapper.readTree(parser));
+                if (buffer.size() >= size)
+                    total = postJsonChunk(buffer, fieldTypes, chunks, total);
+                token = parser.nextToken();
+            }
+        }
+        if (!buffer.isEmpty())
+            total = postJsonChunk(buffer, fieldTypes, chunks, total);
+        return new IndexStreamResult(total, fieldTypes, chunks);
+    }
+
+    private long postJsonChunk(final List<JsonNode> buffer,
+                               final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes,
+                               final List<IndexStreamResult.Chunk> chunks,
+                               final long total) throws IOException {
+        final long start = System.currentTimeMillis();
+        final IndexJsonResult result = postJsonNodes(buffer, fieldTypes != null);
+        buffer.clear();
+        if (fieldTypes != null && result.fieldTypes != null)
+            result.fieldTypes.forEach((field, types) -> fieldTypes.computeIfAbsent(field, f -> new TreeSet<>()).addAll(types));
+        final long newTotal = total + result.count;
+        chunks.add(new IndexStreamResult.Chunk(result.count, newTotal, result.commitSequence, result.generation,
+            System.currentTimeMillis() - start));
+        return newTotal;
+    }
+
+    /**
+     * A Smile stream starts with the ":)\n" header
+     */
+    private static boolean isSmile(final InputStream input) throws IOException {
+        input.mark(3);
+        try {
+            return input.read() == ':' && input.read() == ')' && input.read() == '\n';
+        } finally {
+            input.reset();
+        }
     }
 
     final <T> int updateDocValues(final Map<String, Field> fields, final T document,
@@ -629,12 +790,20 @@ final public class IndexInstance implements Closeable {
 
     private QueryContextImpl buildQueryContext(final IndexSearcher indexSearcher,
                                                final TaxonomyReader taxonomyReader) {
-        return new QueryContextImpl(indexProvider, fileResourceLoader, executorService, analyzerContext, fieldMap,
+        return new QueryContextImpl(indexProvider, fileResourceLoader, executors.fetch, analyzerContext, fieldMap,
             indexSearcher, taxonomyReader);
     }
 
     final <T> T query(final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
-        try (final AutoLockSemaphore.Lock lock = readSemaphore.acquire()) {
+        return query(AdmissionController.Lane.INTERACTIVE, queryActions);
+    }
+
+    /**
+     * Execute the query once admitted in the given lane, the batch lane waits for the interactive queries.
+     */
+    final <T> T query(final AdmissionController.Lane lane,
+                      final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
+        try (final AutoLockSemaphore.Lock lock = AdmissionController.acquire(readSemaphore, lane)) {
             return writerAndSearcher.search((indexSearcher, taxonomyReader) -> {
                 try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader)) {
                     return queryActions.apply(context);
@@ -643,6 +812,47 @@ final public class IndexInstance implements Closeable {
         }
     }
 
+    /**
+     * Execute the query once the searcher includes the writer generation requested by the query definition.
+     */
+    final <T> T query(final QueryDefinition queryDefinition,
+                      final IndexServiceInterface.QueryActions<T> queryActions) throws IOException {
+        waitForMinGeneration(queryDefinition);
+        return query(AdmissionController.laneOf(queryDefinition), queryActions);
+    }
+
+    /**
+     * Execute the query using the result cache if it is enabled.
+     */
+    final ResultDefinition.WithMap searchMap(final QueryDefinition queryDefinition) throws IOException {
+        if (resultCache == null || !QueryResultCache.isCacheable(queryDefinition))
+            return query(queryDefinition, context -> context.searchMap(queryDefinition));
+        waitForMinGeneration(queryDefinition);
+        try (final AutoLockSemaphore.Lock lock = AdmissionController.acquire(readSemaphore,
+            AdmissionController.laneOf(queryDefinition))) {
+            return writerAndSearcher.search((indexSearcher, taxonomyReader) ->
+                resultCache.get(indexSearcher.getIndexReader(), queryDefinition, () -> {
+                    try (final QueryContextImpl context = buildQueryContext(indexSearcher, taxonomyReader)) {
+                        return context.searchMap(queryDefinition);
+                    }
+                }));
+        }
+    }
+
+    private void waitForMinGeneration(final QueryDefinition queryDefinition) throws IOException {
+        final Long minGeneration = queryDefinition == null ? null : queryDefinition.getMinGeneration();
+        if (minGeneration != null) {
+            try {
+                if (!writerAndSearcher.waitForGeneration(minGeneration, DEFAULT_COMMIT_TIMEOUT_MS))
+                    throw new ServerException(Response.Status.SERVICE_UNAVAILABLE,
+                        "The generation " + minGeneration + " is not yet searchable");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServerException(Response.Status.SERVICE_UNAVAILABLE, e.getMessage(), e);
+            }
+        }
+    }
+
     private String checkPrimaryKey() {
         final String primaryKey = fieldMap.fieldsContext.primaryKey;
         if (StringUtils.isEmpty(primaryKey))
@@ -771,6 +981,8 @@ final public class IndexInstance implements Closeable {
             throw new ServerException(Response.Status.NOT_FOUND,
                 "Resource not found : " + resourceName + " - Index: " + indexName);
         Files.delete(resourceFile);
+        if (replicationMaster != null)
+            replicationMaster.notifyChange();
     }
 
     final FileResourceLoader newResourceLoader(final FileResourceLoader resourceLoader) {
@@ -18,6 +18,7 @@ package com.qwazr.search.index;
 import com.qwazr.search.analysis.AnalyzerContext;
 import com.qwazr.search.analysis.AnalyzerFactory;
 import com.qwazr.search.analysis.CustomAnalyzer;
+import com.qwazr.search.analysis.SmartAnalyzers;
 import com.qwazr.search.analysis.UpdatableAnalyzers;
 import com.qwazr.search.field.FieldDefinition;
 import com.qwazr.server.ServerException;
@@ -33,7 +34,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.codecs.simpletext.SimpleTextCodec;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
@@ -62,7 +62,7 @@ class IndexInstanceBuilder {
         {"", "com.qwazr.search.similarity.", "org.apache.lucene.search.similarities."};
 
     final IndexFileSet fileSet;
-    final ExecutorService executorService;
+    final IndexExecutors executors;
     final AutoLockSemaphore writeSemaphore;
     final AutoLockSemaphore readSemaphore;
     final IndexInstance.Provider indexProvider;
@@ -90,6 +90,7 @@ class IndexInstanceBuilder {
     FieldMap fieldMap = null;
 
     final Set<AnalyzerContext> activeAnalyzerContexts;
+    final SmartAnalyzers smartAnalyzers;
 
     final UpdatableAnalyzers updatableIndexAnalyzers;
     AnalyzerContext analyzerContext;
@@ -106,14 +107,14 @@ class IndexInstanceBuilder {
                          final Map<String, SimilarityFactory> similarityFactoryMap,
                          final Map<String, AnalyzerFactory> globalAnalyzerFactoryMap,
                          final Map<String, Sort> sortMap,
-                         final ExecutorService executorService,
+                         final IndexExecutors executors,
                          final IndexServiceInterface indexService,
                          final IndexFileSet fileSet,
                          final IndexSettingsDefinition settings,
                          final UUID indexUuid,
                          final String indexName) {
         this.fileSet = fileSet;
-        this.executorService = executorService;
+        this.executors = executors;
         this.indexProvider = indexManager;
         this.instanceFactory = indexManager;
         this.settings = settings;
@@ -125,9 +126,14 @@ class IndexInstanceBuilder {
         this.indexUuid = indexUuid;
         this.indexName = indexName;
         this.activeAnalyzerContexts = ConcurrentHashMap.newKeySet();
+        this.smartAnalyzers = indexManager.getSmartAnalyzers();
         this.updatableIndexAnalyzers = new UpdatableAnalyzers();
-        this.writeSemaphore = AutoLockSemaphore.of(settings == null ? -1 : settings.maxConcurrentWrite == null ? -1 : settings.maxConcurrentWrite);
-        this.readSemaphore = AutoLockSemaphore.of(settings == null ? -1 : settings.maxConcurrentRead == null ? -1 : settings.maxConcurrentRead);
+        this.writeSemaphore = settings == null ? AutoLockSemaphore.UNLIMITED :
+            AdmissionController.of(indexName, indexUuid, "write", settings.maxConcurrentWrite,
+                settings.maxQueuedWrite, settings.adaptiveConcurrency);
+        this.readSemaphore = settings == null ? AutoLockSemaphore.UNLIMITED :
+            AdmissionController.of(indexName, indexUuid, "read", settings.maxConcurrentRead,
+                settings.maxQueuedRead, settings.adaptiveConcurrency);
     }
 
     private void buildCommon() throws IOException, ReflectiveOperationException {
@@ -135,16 +141,16 @@ class IndexInstanceBuilder {
         similarity = findSimilarity(settings.similarity, settings.similarityClass, fileResourceLoader);
         sort = findSort(settings.sort, settings.sortClass);
 
-        searcherFactory = MultiThreadSearcherFactory.of(executorService,
+        searcherFactory = MultiThreadSearcherFactory.of(executors,
             settings.indexReaderWarmer == null ? true : settings.indexReaderWarmer, similarity,
-            settings.sortedSetFacetField);
+            settings.sortedSetFacetField, IndexQueryCache.of(settings));
 
         localAnalyzerFactoryMap = fileSet.loadAnalyzerDefinitionMap();
         final Map<String, FieldDefinition> fieldMapDefinition = fileSet.loadFieldMap();
 
         fieldMap = new FieldMap(new FieldsContext(settings, fieldMapDefinition));
 
-        analyzerContext = new AnalyzerContext(activeAnalyzerContexts, instanceFactory, fileResourceLoader,
+        analyzerContext = new AnalyzerContext(activeAnalyzerContexts, instanceFactory, smartAnalyzers, fileResourceLoader,
             updatableIndexAnalyzers, fieldMap, globalAnalyzerFactoryMap, localAnalyzerFactoryMap, new ArrayList<>());
 
         // Open and lock the index directories
@@ -288,13 +294,14 @@ class IndexInstanceBuilder {
         if (IndexSettingsDefinition.useTaxonomyIndex(settings)) {
             openOrCreateTaxonomyIndex(true);
             replicationSlave = ReplicationSlave.withIndexAndTaxo(fileSet, indexService, settings.master, dataDirectory,
-                taxonomyDirectory);
-            writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(null, null,
+                taxonomyDirectory, executors.replication, IndexSettingsDefinition.getReplicationParallelism(settings));
+            writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(null, null, settings,
                 () -> new SearcherTaxonomyManager(dataDirectory, taxonomyDirectory, searcherFactory));
         } else {
-            replicationSlave = ReplicationSlave.withIndex(fileSet, indexService, settings.master, dataDirectory);
+            replicationSlave = ReplicationSlave.withIndex(fileSet, indexService, settings.master, dataDirectory,
+                executors.replication, IndexSettingsDefinition.getReplicationParallelism(settings));
             writerAndSearcher =
-                new WriterAndSearcher.WithIndex(null, () -> new SearcherManager(dataDirectory, searcherFactory));
+                new WriterAndSearcher.WithIndex(null, settings, () -> new SearcherManager(dataDirectory, searcherFactory));
         }
 
     }
@@ -307,11 +314,11 @@ class IndexInstanceBuilder {
             openOrCreateTaxonomyIndex(false);
             replicationMaster = new ReplicationMaster.WithIndexAndTaxo(
                 indexUuid.toString(), fileSet, indexWriter, taxonomyWriter);
-            writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(indexWriter, taxonomyWriter,
+            writerAndSearcher = new WriterAndSearcher.WithIndexAndTaxo(indexWriter, taxonomyWriter, settings,
                 () -> new SearcherTaxonomyManager(indexWriter, true, searcherFactory, taxonomyWriter));
         } else {
             replicationMaster = new ReplicationMaster.WithIndex(indexUuid.toString(), fileSet, indexWriter);
-            writerAndSearcher = new WriterAndSearcher.WithIndex(indexWriter,
+            writerAndSearcher = new WriterAndSearcher.WithIndex(indexWriter, settings,
                 () -> new SearcherManager(indexWriter, searcherFactory));
         }
 
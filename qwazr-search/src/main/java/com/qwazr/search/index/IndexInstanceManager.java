@@ -28,7 +28,6 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
 import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
 import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.search.Sort;
@@ -39,7 +38,7 @@ class IndexInstanceManager implements Closeable {
     private final ReadWriteLock rwl;
 
     private final IndexManager indexManager;
-    private final ExecutorService executorService;
+    private final IndexExecutors executors;
     private final IndexServiceInterface indexServiceInterface;
     private final IndexFileSet fileSet;
     private final Map<String, SimilarityFactory> similarityFactoryMap;
@@ -55,13 +54,13 @@ class IndexInstanceManager implements Closeable {
                          final Map<String, SimilarityFactory> similarityFactoryMap,
                          final Map<String, AnalyzerFactory> analyzerFactoryMap,
                          final Map<String, Sort> sortMap,
-                         final ExecutorService executorService,
+                         final IndexExecutors executors,
                          final IndexServiceInterface indexServiceInterface,
                          final Path indexDirectory) {
         try {
             rwl = ReadWriteLock.stamped();
             this.indexManager = indexManager;
-            this.executorService = executorService;
+            this.executors = executors;
             this.indexServiceInterface = indexServiceInterface;
             this.fileSet = new IndexFileSet(indexDirectory);
             this.similarityFactoryMap = similarityFactoryMap;
@@ -79,7 +78,7 @@ class IndexInstanceManager implements Closeable {
         if (indexInstance == null)
             indexInstance =
                 new IndexInstanceBuilder(indexManager, similarityFactoryMap, analyzerFactoryMap,
-                    sortMap, executorService, indexServiceInterface, fileSet, settings,
+                    sortMap, executors, indexServiceInterface, fileSet, settings,
                     indexUuid, indexName).build();
         return indexInstance;
     }
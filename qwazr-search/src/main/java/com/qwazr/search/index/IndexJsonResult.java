@@ -40,23 +40,46 @@ public class IndexJsonResult extends Equalizer.Immutable<IndexJsonResult> {
     @JsonProperty("field_types")
     public SortedMap<String, SortedSet<JsonNodeType>> fieldTypes;
 
+    /**
+     * The sequence number of the commit which makes these documents durable
+     */
+    @JsonProperty("commit_sequence")
+    public Long commitSequence;
+
+    /**
+     * The writer generation to pass as min_generation to read these documents
+     */
+    @JsonProperty("generation")
+    public Long generation;
+
     @JsonCreator
     public IndexJsonResult(final @JsonProperty("count") Integer count,
-                           final @JsonProperty("field_types") SortedMap<String, SortedSet<JsonNodeType>> fieldTypes) {
+                           final @JsonProperty("field_types") SortedMap<String, SortedSet<JsonNodeType>> fieldTypes,
+                           final @JsonProperty("commit_sequence") Long commitSequence,
+                           final @JsonProperty("generation") Long generation) {
         super(IndexJsonResult.class);
         this.count = count;
         this.fieldTypes = fieldTypes;
+        this.commitSequence = commitSequence;
+        this.generation = generation;
+    }
+
+    public IndexJsonResult(final Integer count,
+                           final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes) {
+        this(count, fieldTypes, null, null);
     }
 
     @Override
     protected int computeHashCode() {
-        return Objects.hash(count, fieldTypes);
+        return Objects.hash(count, fieldTypes, commitSequence, generation);
     }
 
     @Override
     protected boolean isEqual(final IndexJsonResult o) {
         return Objects.equals(count, o.count)
-            && Objects.equals(fieldTypes, o.fieldTypes);
+            && Objects.equals(fieldTypes, o.fieldTypes)
+            && Objects.equals(commitSequence, o.commitSequence)
+            && Objects.equals(generation, o.generation);
     }
 
 }
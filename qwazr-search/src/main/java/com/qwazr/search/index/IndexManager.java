@@ -16,6 +16,7 @@
 package com.qwazr.search.index;
 
 import com.qwazr.search.analysis.AnalyzerFactory;
+import com.qwazr.search.analysis.SmartAnalyzers;
 import com.qwazr.search.annotations.AnnotatedIndexService;
 import com.qwazr.server.ServerException;
 import com.qwazr.utils.FileUtils;
@@ -66,16 +67,17 @@ public class IndexManager extends ConstructorParametersImpl implements IndexInst
     private final ConcurrentHashMap<String, SimilarityFactory> similarityFactoryMap;
     private final ConcurrentHashMap<String, Sort> sortMap;
     private final ConcurrentHashMap<String, AnalyzerFactory> analyzerFactoryMap;
+    private final SmartAnalyzers smartAnalyzers;
 
-    private final ExecutorService executorService;
+    private final IndexExecutors executors;
 
     public IndexManager(final Path indexesDirectory,
-                        final ExecutorService executorService,
+                        final IndexExecutors executors,
                         final ConstructorParameters constructorParameters,
                         final Path backupRootDirectory) {
         super(constructorParameters == null ? new ConcurrentHashMap<>() : constructorParameters.getMap());
         this.indexesDirectory = indexesDirectory;
-        this.executorService = executorService;
+        this.executors = executors == null ? IndexExecutors.of(null) : executors;
         this.backupRootDirectory = backupRootDirectory;
 
         service = new IndexServiceImpl(this);
@@ -83,18 +85,26 @@ public class IndexManager extends ConstructorParametersImpl implements IndexInst
         similarityFactoryMap = new ConcurrentHashMap<>();
         sortMap = new ConcurrentHashMap<>();
         analyzerFactoryMap = new ConcurrentHashMap<>();
+        smartAnalyzers = new SmartAnalyzers(this);
 
         try (final Stream<Path> stream = Files.list(indexesDirectory)) {
             stream.filter(path -> Files.isDirectory(path))
                 .forEach(indexPath -> indexMap.put(indexPath.toFile().getName(),
                     new IndexInstanceManager(this, similarityFactoryMap, analyzerFactoryMap,
-                        sortMap, executorService, service, indexPath)));
+                        sortMap, this.executors, service, indexPath)));
         } catch (IOException e) {
             throw new InternalServerErrorException("Issue while reading the index directory: " + indexesDirectory, e);
         }
         buildIndexNameMap();
     }
 
+    public IndexManager(final Path indexesDirectory,
+                        final ExecutorService executorService,
+                        final ConstructorParameters constructorParameters,
+                        final Path backupRootDirectory) {
+        this(indexesDirectory, IndexExecutors.of(executorService), constructorParameters, backupRootDirectory);
+    }
+
     public IndexManager(final Path indexesDirectory,
                         final ExecutorService executorService,
                         final Path backupDirectoryPath) {
@@ -131,6 +141,10 @@ public class IndexManager extends ConstructorParametersImpl implements IndexInst
         return this;
     }
 
+    final SmartAnalyzers getSmartAnalyzers() {
+        return smartAnalyzers;
+    }
+
     final public IndexServiceInterface getService() {
         return service;
     }
@@ -155,7 +169,7 @@ public class IndexManager extends ConstructorParametersImpl implements IndexInst
         Objects.requireNonNull(settings, "The settings cannot be null");
         final IndexInstanceManager indexInstanceManager = indexMap.computeIfAbsent(indexName,
             name -> new IndexInstanceManager(this, similarityFactoryMap, analyzerFactoryMap,
-                sortMap, executorService, service, indexesDirectory.resolve(name)));
+                sortMap, executors, service, indexesDirectory.resolve(name)));
         buildIndexNameMap();
         return indexInstanceManager.createUpdate(settings);
     }
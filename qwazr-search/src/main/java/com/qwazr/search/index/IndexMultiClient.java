@@ -0,0 +1,622 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.qwazr.search.analysis.AnalyzerDefinition;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.SortUtils;
+import com.qwazr.search.query.QueryInterface;
+import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.server.RemoteService;
+import com.qwazr.server.ServerException;
+import com.qwazr.server.client.MultiClient;
+import com.qwazr.server.client.MultiWebApplicationException;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.TimeTracker;
+import com.qwazr.utils.concurrent.FunctionEx;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+import javax.ws.rs.core.Response;
+import org.apache.commons.lang3.NotImplementedException;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * An index service spread over several nodes, each node holds one shard of the indexes.
+ * <p>
+ * The queries are sent in parallel to every node (scatter), the results are merged (gather): the hits by score or by
+ * sort values, the facet counts are summed, and the start and rows parameters are applied on the merged hits.
+ * The schema changes are sent to every node, the other read operations are served by a random node.
+ * The operations which are specific to one shard (posting documents, replication, backups) are not available.
+ */
+public class IndexMultiClient extends MultiClient<IndexSingleClient> implements IndexServiceInterface {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(IndexMultiClient.class);
+
+    public IndexMultiClient(final ExecutorService executorService, final RemoteService... remotes) {
+        super(buildClients(remotes), executorService);
+    }
+
+    private static IndexSingleClient[] buildClients(final RemoteService... remotes) {
+        final IndexSingleClient[] clients = new IndexSingleClient[remotes.length];
+        int i = 0;
+        for (final RemoteService remote : remotes)
+            clients[i++] = new IndexSingleClient(remote);
+        return clients;
+    }
+
+    private <R> R random(final FunctionEx<IndexSingleClient, R, Exception> action) {
+        return firstRandomSuccess(action, LOGGER);
+    }
+
+    private <R> R broadcast(final FunctionEx<IndexSingleClient, R, Exception> action) {
+        final List<R> results = forEachParallel(action, LOGGER);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private boolean broadcastAll(final FunctionEx<IndexSingleClient, Boolean, Exception> action) {
+        boolean all = true;
+        for (final Boolean result : forEachParallel(action, LOGGER))
+            all = all && Boolean.TRUE.equals(result);
+        return all;
+    }
+
+    private static NotImplementedException shardOperation() {
+        return new NotImplementedException("Method not available on several nodes");
+    }
+
+    @Override
+    public Map<String, UUID> getIndexes() {
+        return random(client -> client.getIndexes());
+    }
+
+    @Override
+    public IndexStatus createUpdateIndex(final String indexName) {
+        return broadcast(client -> client.createUpdateIndex(indexName));
+    }
+
+    @Override
+    public IndexStatus createUpdateIndex(final String indexName, final IndexSettingsDefinition settings) {
+        return broadcast(client -> client.createUpdateIndex(indexName, settings));
+    }
+
+    @Override
+    public Map<String, FieldDefinition> getFields(final String indexName) {
+        return random(client -> client.getFields(indexName));
+    }
+
+    @Override
+    public Map<String, FieldDefinition> setFields(final String indexName, final Map<String, FieldDefinition> fields) {
+        return broadcast(client -> client.setFields(indexName, fields));
+    }
+
+    @Override
+    public List<TermDefinition> doAnalyzeQuery(final String indexName, final String fieldName, final String text) {
+        return random(client -> client.doAnalyzeQuery(indexName, fieldName, text));
+    }
+
+    @Override
+    public List<TermDefinition> doAnalyzeIndex(final String indexName, final String fieldName, final String text) {
+        return random(client -> client.doAnalyzeIndex(indexName, fieldName, text));
+    }
+
+    @Override
+    public FieldStats getFieldStats(final String indexName, final String fieldName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public List<TermEnumDefinition> doExtractTerms(final String indexName, final String fieldName,
+                                                   final Integer start, final Integer rows) {
+        throw shardOperation();
+    }
+
+    @Override
+    public List<TermEnumDefinition> doExtractTerms(final String indexName, final String fieldName,
+                                                   final String prefix, final Integer start, final Integer rows) {
+        throw shardOperation();
+    }
+
+    @Override
+    public FieldDefinition getField(final String indexName, final String fieldName) {
+        return random(client -> client.getField(indexName, fieldName));
+    }
+
+    @Override
+    public FieldDefinition setField(final String indexName, final String fieldName, final FieldDefinition field) {
+        return broadcast(client -> client.setField(indexName, fieldName, field));
+    }
+
+    @Override
+    public boolean deleteField(final String indexName, final String fieldName) {
+        return broadcastAll(client -> client.deleteField(indexName, fieldName));
+    }
+
+    @Override
+    public Map<String, AnalyzerDefinition> getAnalyzers(final String indexName) {
+        return random(client -> client.getAnalyzers(indexName));
+    }
+
+    @Override
+    public AnalyzerDefinition getAnalyzer(final String indexName, final String analyzerName) {
+        return random(client -> client.getAnalyzer(indexName, analyzerName));
+    }
+
+    @Override
+    public AnalyzerDefinition setAnalyzer(final String indexName, final String analyzerName,
+                                          final AnalyzerDefinition analyzer) {
+        return broadcast(client -> client.setAnalyzer(indexName, analyzerName, analyzer));
+    }
+
+    @Override
+    public Map<String, AnalyzerDefinition> setAnalyzers(final String indexName,
+                                                        final Map<String, AnalyzerDefinition> analyzers) {
+        return broadcast(client -> client.setAnalyzers(indexName, analyzers));
+    }
+
+    @Override
+    public boolean deleteAnalyzer(final String indexName, final String analyzerName) {
+        return broadcastAll(client -> client.deleteAnalyzer(indexName, analyzerName));
+    }
+
+    @Override
+    public void refreshAnalyzers(final String indexName) {
+        forEachParallel(client -> {
+            client.refreshAnalyzers(indexName);
+            return true;
+        }, LOGGER);
+    }
+
+    @Override
+    public List<TermDefinition> testAnalyzer(final String indexName, final String analyzerName, final String text) {
+        return random(client -> client.testAnalyzer(indexName, analyzerName, text));
+    }
+
+    @Override
+    public String testAnalyzerDot(final String indexName, final String analyzerName, final String text) {
+        return random(client -> client.testAnalyzerDot(indexName, analyzerName, text));
+    }
+
+    @Override
+    public IndexStatus getIndex(final String indexName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public IndexSettingsDefinition getIndexSettings(final String indexName) {
+        return random(client -> client.getIndexSettings(indexName));
+    }
+
+    @Override
+    public IndexStatus mergeIndex(final String indexName, final String mergedIndex,
+                                  final Map<String, String> commitUserData) {
+        throw shardOperation();
+    }
+
+    @Override
+    public IndexCheckStatus checkIndex(final String indexName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public boolean deleteIndex(final String indexName) {
+        return broadcastAll(client -> client.deleteIndex(indexName));
+    }
+
+    @Override
+    public boolean deleteAll(final String indexName) {
+        return broadcastAll(client -> client.deleteAll(indexName));
+    }
+
+    @Override
+    public List<Map<String, Object>> getDocuments(final String indexName, final Integer start, final Integer rows) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Map<String, Object> getDocument(final String indexName, final String docId) {
+        // The document is expected on one node only, the others answer "not found"
+        final MultiWebApplicationException.Builder errors = MultiWebApplicationException.of(LOGGER);
+        final List<Map<String, Object>> documents = forEachParallel(client -> client.getDocument(indexName, docId),
+            e -> {
+                if (e.getResponse().getStatus() != Response.Status.NOT_FOUND.getStatusCode())
+                    errors.add(e);
+            });
+        if (!errors.isEmpty())
+            throw errors.build();
+        for (final Map<String, Object> document : documents)
+            if (document != null)
+                return document;
+        throw new ServerException(Response.Status.NOT_FOUND,
+            "Document not found: " + docId + " - Index: " + indexName);
+    }
+
+    @Override
+    public Integer postMappedDocument(final String indexName, final PostDefinition.Document document) {
+        throw shardOperation();
+    }
+
+    @Override
+    public IndexJsonResult postJson(final String indexName, final Boolean fieldTypes, final JsonNode jsonNode) {
+        throw shardOperation();
+    }
+
+    @Override
+    public IndexStreamResult postJsonStream(final String indexName, final Boolean fieldTypes,
+                                            final Integer chunkSize, final InputStream inputStream) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Long commit(final String indexName, final Long sequence, final Long timeoutMs) {
+        throw shardOperation();
+    }
+
+    @Override
+    public List<Map<String, Object>> getJsonSamples(final String indexName, final Integer count) {
+        return random(client -> client.getJsonSamples(indexName, count));
+    }
+
+    @Override
+    public Map<String, Object> getJsonSample(final String indexName) {
+        return random(client -> client.getJsonSample(indexName));
+    }
+
+    @Override
+    public Integer postMappedDocuments(final String indexName, final PostDefinition.Documents documents) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Integer updateMappedDocValues(final String indexName, final PostDefinition.Document document) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Integer updateMappedDocsValues(final String indexName, final PostDefinition.Documents documents) {
+        throw shardOperation();
+    }
+
+    @Override
+    public SortedMap<String, BackupStatus> doBackup(final String indexName, final String backupName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public ReindexDefinition getReindexStatus(final String indexName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public ReindexDefinition startReindex(final String indexName, final Integer bufferSize) {
+        throw shardOperation();
+    }
+
+    @Override
+    public ReindexDefinition stopReindex(final String indexName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public SortedMap<String, SortedMap<String, BackupStatus>> getBackups(final String indexName,
+                                                                         final String backupName,
+                                                                         final Boolean extractVersion) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Integer deleteBackups(final String indexName, final String backupName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public InputStream replicationObtain(final String indexName, final String sessionID, final String source,
+                                         final String fileName, final String range) {
+        throw shardOperation();
+    }
+
+    @Override
+    public boolean replicationRelease(final String indexName, final String sessionID) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Long replicationGeneration(final String indexName, final Long generation, final Long timeout) {
+        throw shardOperation();
+    }
+
+    @Override
+    public ReplicationSession replicationUpdate(final String indexName, final String currentVersion) {
+        throw shardOperation();
+    }
+
+    @Override
+    public ReplicationStatus replicationCheck(final String indexName) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Map<String, IndexInstance.ResourceInfo> getResources(final String indexName) {
+        return random(client -> client.getResources(indexName));
+    }
+
+    @Override
+    public InputStream getResource(final String indexName, final String resourceName) {
+        return random(client -> client.getResource(indexName, resourceName));
+    }
+
+    @Override
+    public boolean postResource(final String indexName, final String resourceName, final Long lastModified,
+                                final InputStream inputStream) {
+        throw shardOperation();
+    }
+
+    @Override
+    public boolean deleteResource(final String indexName, final String resourceName) {
+        return broadcastAll(client -> client.deleteResource(indexName, resourceName));
+    }
+
+    @Override
+    public ExplainDefinition explainQuery(final String indexName, final QueryDefinition query, final String docId) {
+        throw shardOperation();
+    }
+
+    @Override
+    public String explainQueryText(final String indexName, final QueryDefinition query, final String docId) {
+        throw shardOperation();
+    }
+
+    @Override
+    public String explainQueryDot(final String indexName, final QueryDefinition query, final String docId,
+                                  final Integer descriptionWrapSize) {
+        throw shardOperation();
+    }
+
+    @Override
+    public Map<String, URI> getQueryTypes(final String indexName, final String lookup) {
+        return random(client -> client.getQueryTypes(indexName, lookup));
+    }
+
+    @Override
+    public QueryInterface getQuerySample(final String indexName, final String queryType) {
+        return random(client -> client.getQuerySample(indexName, queryType));
+    }
+
+    /**
+     * The collectors are not merged, and the cursors (search_after) are not supported.
+     */
+    @Override
+    public ResultDefinition.WithMap searchQuery(final String indexName, final QueryDefinition query,
+                                               final Boolean delete) {
+        final TimeTracker timeTracker = TimeTracker.withDurations();
+        if (delete != null && delete) {
+            long totalHits = 0;
+            for (final ResultDefinition.WithMap result :
+                forEachParallel(client -> client.searchQuery(indexName, query, true), LOGGER))
+                totalHits += result.totalHits;
+            return new ResultDefinition.WithMap(null, totalHits, null, null, null);
+        }
+        if (query.getSearchAfter() != null)
+            throw new ServerException(Response.Status.NOT_ACCEPTABLE,
+                "search_after is not supported over several nodes - Index: " + indexName);
+        final QueryDefinition shardQuery = shardQuery(query);
+        final List<ResultDefinition.WithMap> results =
+            forEachParallel(client -> client.searchQuery(indexName, shardQuery, false), LOGGER);
+        timeTracker.next("scatter");
+        return merge(query, results, timeTracker);
+    }
+
+    /**
+     * Each node returns the first start + rows hits, with the cursor of each document which carries the sort values.
+     * The nodes return more facet values than requested, the summed counts of the top values are then more accurate.
+     */
+    static QueryDefinition shardQuery(final QueryDefinition query) {
+        final QueryBuilder builder = query.of()
+            .start(0)
+            .rows(query.getEndValue())
+            .cursors(true);
+        final LinkedHashMap<String, FacetDefinition> facets = query.getFacets();
+        if (facets != null) {
+            final LinkedHashMap<String, FacetDefinition> shardFacets = new LinkedHashMap<>();
+            facets.forEach((name, facet) -> shardFacets.put(name, shardFacet(facet)));
+            builder.facets(shardFacets);
+        }
+        return builder.build();
+    }
+
+    private static FacetDefinition shardFacet(final FacetDefinition facet) {
+        if (facet == null || isExhaustive(facet))
+            return facet;
+        final int top = facet.getTop() == null ? FacetDefinition.DEFAULT_TOP : facet.getTop();
+        return FacetDefinition.of(top + top / 2 + 10)
+            .prefix(facet.getPrefix())
+            .sort(facet.getSort())
+            .genericFieldName(facet.getGenericFieldName())
+            .build();
+    }
+
+    /**
+     * @return true if the facet returns a fixed set of values (queries or specific values), which are not truncated
+     */
+    private static boolean isExhaustive(final FacetDefinition facet) {
+        return (facet.getQueries() != null && !facet.getQueries().isEmpty())
+            || (facet.getSpecificValues() != null && !facet.getSpecificValues().isEmpty());
+    }
+
+    static ResultDefinition.WithMap merge(final QueryDefinition query,
+                                          final List<ResultDefinition.WithMap> results,
+                                          final TimeTracker timeTracker) {
+        final int shards = results.size();
+        final Map<ScoreDoc, ResultDocumentMap> documentsByScoreDoc = new IdentityHashMap<>();
+        final ScoreDoc[][] shardScoreDocs = new ScoreDoc[shards][];
+        final long[] shardTotalHits = new long[shards];
+        long totalHits = 0;
+        boolean partial = false;
+        for (int i = 0; i < shards; i++) {
+            final ResultDefinition.WithMap result = results.get(i);
+            shardTotalHits[i] = result.totalHits;
+            totalHits += result.totalHits;
+            partial = partial || result.isPartial();
+            final List<ResultDocumentMap> documents = result.getDocuments();
+            final ScoreDoc[] scoreDocs = new ScoreDoc[documents.size()];
+            int j = 0;
+            for (final ResultDocumentMap document : documents) {
+                final ScoreDoc scoreDoc = document.cursor == null ?
+                    new ScoreDoc(document.pos, document.score) : SearchCursor.decode(document.cursor);
+                documentsByScoreDoc.put(scoreDoc, document);
+                scoreDocs[j++] = scoreDoc;
+            }
+            shardScoreDocs[i] = scoreDocs;
+        }
+
+        final int start = query.getStartValue();
+        final int rows = query.getRowsValue();
+        final LinkedHashMap<String, QueryDefinition.SortEnum> sorts = query.getSorts();
+        final TopDocs topDocs;
+        if (sorts == null || sorts.isEmpty()) {
+            final TopDocs[] shardHits = new TopDocs[shards];
+            for (int i = 0; i < shards; i++)
+                shardHits[i] = new TopDocs(new TotalHits(shardTotalHits[i], TotalHits.Relation.EQUAL_TO),
+                    shardScoreDocs[i]);
+            topDocs = TopDocs.merge(start, rows, shardHits, true);
+        } else {
+            final Sort sort = buildMergeSort(sorts, shardScoreDocs);
+            final TopFieldDocs[] shardHits = new TopFieldDocs[shards];
+            for (int i = 0; i < shards; i++)
+                shardHits[i] = new TopFieldDocs(new TotalHits(shardTotalHits[i], TotalHits.Relation.EQUAL_TO),
+                    shardScoreDocs[i], sort.getSort());
+            topDocs = TopDocs.merge(sort, start, rows, shardHits, true);
+        }
+
+        final List<ResultDocumentMap> documents = new ArrayList<>(topDocs.scoreDocs.length);
+        int pos = start;
+        for (final ScoreDoc scoreDoc : topDocs.scoreDocs)
+            documents.add(new ResultDocumentMap(documentsByScoreDoc.get(scoreDoc), pos++));
+
+        final Map<String, Map<String, Number>> facets = mergeFacets(query.getFacets(), results);
+        if (timeTracker != null)
+            timeTracker.next("merge");
+        return new ResultDefinition.WithMap(timeTracker, totalHits, documents, facets, partial ? Boolean.TRUE : null);
+    }
+
+    private static Sort buildMergeSort(final LinkedHashMap<String, QueryDefinition.SortEnum> sorts,
+                                       final ScoreDoc[][] shardScoreDocs) {
+        final SortField[] sortFields = new SortField[sorts.size()];
+        int i = 0;
+        for (final Map.Entry<String, QueryDefinition.SortEnum> entry : sorts.entrySet()) {
+            sortFields[i] = SortUtils.buildMergeSortField(entry.getKey(), entry.getValue(),
+                valueType(shardScoreDocs, i));
+            i++;
+        }
+        return new Sort(sortFields);
+    }
+
+    /**
+     * @return the type of the first non null sort value at the given position
+     */
+    private static SortField.Type valueType(final ScoreDoc[][] shardScoreDocs, final int position) {
+        for (final ScoreDoc[] scoreDocs : shardScoreDocs) {
+            for (final ScoreDoc scoreDoc : scoreDocs) {
+                if (!(scoreDoc instanceof FieldDoc))
+                    throw new ServerException("The sort values are missing");
+                final Object[] values = ((FieldDoc) scoreDoc).fields;
+                if (values == null || position >= values.length)
+                    throw new ServerException("The sort values are missing");
+                final Object value = values[position];
+                if (value == null)
+                    continue;
+                if (value instanceof Integer)
+                    return SortField.Type.INT;
+                if (value instanceof Long)
+                    return SortField.Type.LONG;
+                if (value instanceof Float)
+                    return SortField.Type.FLOAT;
+                if (value instanceof Double)
+                    return SortField.Type.DOUBLE;
+                if (value instanceof BytesRef)
+                    return SortField.Type.STRING;
+                if (value instanceof String)
+                    return SortField.Type.STRING_VAL;
+                throw new ServerException("Unsupported sort value: " + value.getClass());
+            }
+        }
+        return SortField.Type.STRING;
+    }
+
+    private static Number sum(final Number a, final Number b) {
+        if (a == null)
+            return b;
+        if (a instanceof Float || a instanceof Double || b instanceof Float || b instanceof Double)
+            return a.doubleValue() + b.doubleValue();
+        return a.longValue() + b.longValue();
+    }
+
+    private final static Comparator<LabelAndValue> TOP_VALUES =
+        Comparator.<LabelAndValue>comparingDouble(o -> o.value.doubleValue()).reversed()
+            .thenComparing(o -> o.label);
+
+    static Map<String, Map<String, Number>> mergeFacets(final Map<String, FacetDefinition> facetDefinitions,
+                                                        final List<ResultDefinition.WithMap> results) {
+        if (facetDefinitions == null || facetDefinitions.isEmpty())
+            return null;
+        final Map<String, Map<String, Number>> facets = new LinkedHashMap<>();
+        facetDefinitions.forEach((name, facetDefinition) -> {
+            final Map<String, Number> counts = new LinkedHashMap<>();
+            boolean found = false;
+            for (final ResultDefinition.WithMap result : results) {
+                final Map<String, Number> facet = result.facets == null ? null : result.facets.get(name);
+                if (facet == null)
+                    continue;
+                found = true;
+                facet.forEach((label, value) -> counts.put(label, sum(counts.get(label), value)));
+            }
+            if (!found)
+                return;
+            final FacetDefinition definition = facetDefinition == null ? FacetDefinition.EMPTY : facetDefinition;
+            if (isExhaustive(definition)) {
+                facets.put(name, Collections.unmodifiableMap(counts));
+                return;
+            }
+            final List<LabelAndValue> labelAndValues = new ArrayList<>(counts.size());
+            counts.forEach((label, value) -> labelAndValues.add(new LabelAndValue(label, value)));
+            labelAndValues.sort(TOP_VALUES);
+            final int top = definition.getTop() == null ? FacetDefinition.DEFAULT_TOP : definition.getTop();
+            final FacetBuilder facetBuilder = new FacetBuilder(definition);
+            labelAndValues.stream().limit(top).forEach(facetBuilder::put);
+            facets.put(name, facetBuilder.build());
+        });
+        return facets;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.io.IOException;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * The query cache and the caching policy of one index.
+ * <p>
+ * When none of the query_cache settings is set, the searchers keep using the JVM-wide Lucene query cache.
+ */
+final class IndexQueryCache {
+
+    final static int DEFAULT_MAX_ENTRIES = 1000;
+    final static double DEFAULT_MAX_RAM_MB = 32;
+    final static int DEFAULT_MIN_SEGMENT_DOCS = 10000;
+    final static float SKIP_CACHE_FACTOR = 10f;
+
+    private final QueryCache queryCache;
+    private final QueryCachingPolicy queryCachingPolicy;
+
+    private IndexQueryCache(final QueryCache queryCache, final QueryCachingPolicy queryCachingPolicy) {
+        this.queryCache = queryCache;
+        this.queryCachingPolicy = queryCachingPolicy;
+    }
+
+    private static boolean isSet(final Number value) {
+        return value != null && value.doubleValue() > 0;
+    }
+
+    static IndexQueryCache of(final IndexSettingsDefinition settings) {
+        if (settings == null)
+            return null;
+        final IndexSettingsDefinition.QueryCachePolicy policy = settings.queryCachePolicy == null ?
+            IndexSettingsDefinition.QueryCachePolicy.DEFAULT : settings.queryCachePolicy;
+        if (policy == IndexSettingsDefinition.QueryCachePolicy.NONE)
+            return new IndexQueryCache(null, null);
+        final boolean dedicated = isSet(settings.queryCacheMaxEntries) || isSet(settings.queryCacheMaxRamMb) ||
+            isSet(settings.queryCacheMinSegmentDocs);
+        if (!dedicated && policy == IndexSettingsDefinition.QueryCachePolicy.DEFAULT)
+            return null;
+        final QueryCache queryCache;
+        if (dedicated) {
+            final int maxEntries = isSet(settings.queryCacheMaxEntries) ?
+                settings.queryCacheMaxEntries : DEFAULT_MAX_ENTRIES;
+            final long maxRamBytes = (long) ((isSet(settings.queryCacheMaxRamMb) ?
+                settings.queryCacheMaxRamMb : DEFAULT_MAX_RAM_MB) * 1024 * 1024);
+            final int minSegmentDocs = isSet(settings.queryCacheMinSegmentDocs) ?
+                settings.queryCacheMinSegmentDocs : DEFAULT_MIN_SEGMENT_DOCS;
+            queryCache = new LRUQueryCache(maxEntries, maxRamBytes,
+                context -> context.reader().maxDoc() >= minSegmentDocs, SKIP_CACHE_FACTOR);
+        } else
+            queryCache = IndexSearcher.getDefaultQueryCache();
+        return new IndexQueryCache(queryCache, policy == IndexSettingsDefinition.QueryCachePolicy.FILTERS ?
+            new FiltersCachingPolicy() : new UsageTrackingQueryCachingPolicy());
+    }
+
+    void apply(final IndexSearcher indexSearcher) {
+        indexSearcher.setQueryCache(queryCache);
+        if (queryCachingPolicy != null)
+            indexSearcher.setQueryCachingPolicy(queryCachingPolicy);
+    }
+
+    /**
+     * Always caches the filters built by the DrillDown and the TermsQuery queries.
+     * The other queries follow the usage tracking policy.
+     */
+    static final class FiltersCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+        @Override
+        public boolean shouldCache(final Query query) throws IOException {
+            return isFilter(query) || super.shouldCache(query);
+        }
+
+        /**
+         * A drill-down dimension is a disjunction of the drill-down terms.
+         * Any other disjunction of term queries (a small TermInSetQuery once rewritten included)
+         * may be a scoring query: it follows the usage tracking policy.
+         */
+        static boolean isFilter(final Query query) {
+            if (query instanceof TermInSetQuery)
+                return true;
+            if (query instanceof TermQuery)
+                return isDrillDownTerm(((TermQuery) query).getTerm().bytes());
+            if (query instanceof BooleanQuery) {
+                final BooleanQuery booleanQuery = (BooleanQuery) query;
+                if (booleanQuery.clauses().isEmpty() || booleanQuery.getMinimumNumberShouldMatch() > 1)
+                    return false;
+                for (final BooleanClause clause : booleanQuery.clauses())
+                    if (clause.getOccur() != BooleanClause.Occur.SHOULD || !(clause.getQuery() instanceof TermQuery) ||
+                        !isDrillDownTerm(((TermQuery) clause.getQuery()).getTerm().bytes()))
+                        return false;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * A drill-down term is the dimension and the path joined by the facet delimiter
+         */
+        private static boolean isDrillDownTerm(final BytesRef bytesRef) {
+            final int end = bytesRef.offset + bytesRef.length;
+            for (int i = bytesRef.offset; i < end; i++)
+                if (bytesRef.bytes[i] == FacetsConfig.DELIM_CHAR)
+                    return true;
+            return false;
+        }
+    }
+}
@@ -18,16 +18,35 @@ package com.qwazr.search.index;
 import com.qwazr.cluster.ClusterManager;
 import com.qwazr.cluster.ServiceBuilderAbstract;
 import com.qwazr.server.RemoteService;
+import java.util.concurrent.ExecutorService;
 
 public class IndexServiceBuilder extends ServiceBuilderAbstract<IndexServiceInterface> {
 
-    public IndexServiceBuilder(final ClusterManager clusterManager, final IndexManager indexManager) {
+	private final ExecutorService executorService;
+
+	public IndexServiceBuilder(final ClusterManager clusterManager, final IndexManager indexManager,
+			final ExecutorService executorService) {
 		super(clusterManager, IndexServiceInterface.SERVICE_NAME,
 				indexManager == null ? null : indexManager.getService());
+		this.executorService = executorService;
+	}
+
+	public IndexServiceBuilder(final ClusterManager clusterManager, final IndexManager indexManager) {
+		this(clusterManager, indexManager, null);
 	}
 
 	@Override
 	public IndexServiceInterface remote(RemoteService remote) {
 		return new IndexSingleClient(remote);
 	}
+
+	/**
+	 * The multi-node service requires an executor to query the nodes in parallel.
+	 */
+	@Override
+	public IndexServiceInterface remotes(RemoteService... remotes) {
+		if (executorService == null)
+			return super.remotes(remotes);
+		return new IndexMultiClient(executorService, remotes);
+	}
 }
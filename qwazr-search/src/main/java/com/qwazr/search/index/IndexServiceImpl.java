@@ -427,6 +427,31 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
         }
     }
 
+    @Override
+    public IndexStreamResult postJsonStream(final String indexName,
+                                            final Boolean fieldTypes,
+                                            final Integer chunkSize,
+                                            final InputStream inputStream) {
+        try {
+            checkRight();
+            return indexManager.get(indexName).postJsonStream(inputStream, Boolean.TRUE.equals(fieldTypes), chunkSize);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
+    @Override
+    public Long commit(final String indexName,
+                       final Long sequence,
+                       final Long timeoutMs) {
+        try {
+            checkRight();
+            return indexManager.get(indexName).commit(sequence, timeoutMs);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
     @Override
     public List<Map<String, Object>> getJsonSamples(final String indexName,
                                                     final Integer count) {
@@ -602,16 +627,36 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
         }
     }
 
+    /**
+     * Parse a "bytes=offset-" range header. Only an open-ended range is supported.
+     */
+    static long getRangeOffset(final String range) {
+        if (StringUtils.isBlank(range))
+            return 0;
+        final String value = range.trim();
+        if (!value.startsWith("bytes=") || !value.endsWith("-"))
+            throw new ServerException(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE,
+                "Unsupported range: " + range);
+        try {
+            return Long.parseLong(value.substring(6, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ServerException(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE,
+                "Unsupported range: " + range, e);
+        }
+    }
+
     @Override
     final public InputStream replicationObtain(final String indexName,
                                                final String sessionID,
                                                final String source,
-                                               final String fileName) {
+                                               final String fileName,
+                                               final String range) {
         try {
             checkRight();
             final InputStream input = indexManager
                 .get(indexName)
-                .replicationObtain(sessionID, ReplicationProcess.Source.valueOf(source), fileName);
+                .replicationObtain(sessionID, ReplicationProcess.Source.valueOf(source), fileName,
+                    getRangeOffset(range));
             if (input == null)
                 throw new ServerException(Response.Status.NOT_FOUND,
                     "File not found: " + fileName + " - Index: " + indexName);
@@ -633,6 +678,18 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
         }
     }
 
+    @Override
+    final public Long replicationGeneration(final String indexName,
+                                            final Long generation,
+                                            final Long timeout) {
+        try {
+            checkRight();
+            return indexManager.get(indexName).replicationGeneration(generation, timeout);
+        } catch (Exception e) {
+            throw ServerException.getJsonException(LOGGER, e);
+        }
+    }
+
     @Override
     final public ReplicationSession replicationUpdate(final String indexName,
                                                       final String currentVersion) {
@@ -727,14 +784,14 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
     private ResultDefinition.WithMap doSearchMap(final String indexName, final QueryDefinition query)
         throws IOException {
         checkRight();
-        return indexManager.get(indexName).query(context -> context.searchMap(query));
+        return indexManager.get(indexName).searchMap(query);
     }
 
     private <T> ResultDefinition.WithObject<T> doSearchObject(final String indexName,
                                                               final QueryDefinition query,
                                                               final FieldMapWrapper<T> wrapper) throws IOException {
         checkRight();
-        return indexManager.get(indexName).query(context -> context.searchObject(query, wrapper));
+        return indexManager.get(indexName).query(query, context -> context.searchObject(query, wrapper));
     }
 
     @Override
@@ -830,7 +887,7 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
             if (delete != null && delete)
                 return index.deleteByQuery(query);
             else
-                return index.query(context -> context.searchMap(query));
+                return index.searchMap(query);
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -842,7 +899,7 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                                                 final FieldMapWrapper<T> wrapper) {
         try {
             checkRight();
-            return indexManager.get(indexName).query(context -> context.searchObject(query, wrapper));
+            return indexManager.get(indexName).query(query, context -> context.searchObject(query, wrapper));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -854,7 +911,7 @@ final class IndexServiceImpl extends AbstractServiceImpl implements IndexService
                                               final ResultDocumentsInterface resultDocuments) {
         try {
             checkRight();
-            return indexManager.get(indexName).query(context -> context.searchInterface(query, resultDocuments));
+            return indexManager.get(indexName).query(query, context -> context.searchInterface(query, resultDocuments));
         } catch (Exception e) {
             throw ServerException.getJsonException(LOGGER, e);
         }
@@ -37,6 +37,7 @@ import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -254,6 +255,29 @@ public interface IndexServiceInterface extends ServiceInterface {
                              @QueryParam("fieldTypes") Boolean fieldTypes,
                              JsonNode jsonNode);
 
+    String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Index a stream of JSON documents (NDJSON or a single array) or Smile documents.
+     * The stream is parsed one document at a time and indexed by chunks.
+     */
+    @POST
+    @Path("/{index_name}/json/stream")
+    @Consumes({APPLICATION_NDJSON, ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE,
+        MediaType.APPLICATION_OCTET_STREAM})
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    IndexStreamResult postJsonStream(@PathParam("index_name") String indexName,
+                                     @QueryParam("fieldTypes") Boolean fieldTypes,
+                                     @QueryParam("chunk_size") Integer chunkSize,
+                                     InputStream inputStream);
+
+    @POST
+    @Path("/{index_name}/commit")
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    Long commit(@PathParam("index_name") String indexName,
+                @QueryParam("sequence") Long sequence,
+                @QueryParam("timeout") Long timeoutMs);
+
     @GET
     @Path("/{index_name}/json/samples")
     @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
@@ -329,7 +353,8 @@ public interface IndexServiceInterface extends ServiceInterface {
     InputStream replicationObtain(@PathParam("index_name") String indexName,
                                   @PathParam("session_id") String sessionID,
                                   @PathParam("source") String source,
-                                  @PathParam("filename") String fileName);
+                                  @PathParam("filename") String fileName,
+                                  @HeaderParam("Range") String range);
 
     @DELETE
     @Path("/{index_name}/replication/{session_id}")
@@ -337,6 +362,13 @@ public interface IndexServiceInterface extends ServiceInterface {
     boolean replicationRelease(@PathParam("index_name") String indexName,
                                @PathParam("session_id") String sessionID);
 
+    @GET
+    @Path("/{index_name}/replication/generation")
+    @Produces({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
+    Long replicationGeneration(@PathParam("index_name") String indexName,
+                               @QueryParam("generation") Long generation,
+                               @QueryParam("timeout") Long timeout);
+
     @POST
     @Path("/{index_name}/replication")
     @Consumes({ServiceInterface.APPLICATION_JSON_UTF8, SmileMediaTypes.APPLICATION_JACKSON_SMILE})
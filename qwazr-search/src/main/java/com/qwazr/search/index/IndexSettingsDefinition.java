@@ -49,11 +49,28 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         NO, CONCURRENT, SERIAL
     }
 
+    public enum QueryCachePolicy {
+        /**
+         * Lucene's usage tracking policy
+         */
+        DEFAULT,
+        /**
+         * Always cache the drill-down and the terms filters, use the usage tracking policy for the other queries
+         */
+        FILTERS,
+        /**
+         * Never cache any query
+         */
+        NONE
+    }
+
     public static final int DEFAULT_MAX_MERGE_AT_ONCE = 10;
     public static final int DEFAULT_SEGMENTS_PER_TIER = 10;
     public static final double DEFAULT_MAX_MERGED_SEGMENT_MB = 5 * 1024 * 1024;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MERGE_SIZE_MB = 5;
     public static final double DEFAULT_NRT_CACHING_DIRECTORY_MAX_CACHED_MB = 60;
+    public static final long DEFAULT_GROUP_COMMIT_MAX_LATENCY_MS = 1000;
+    public static final int DEFAULT_REPLICATION_PARALLELISM = 4;
 
     @JsonProperty("primary_key")
     @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -125,6 +142,48 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
     @JsonProperty("max_concurrent_read")
     final public Integer maxConcurrentRead;
 
+    @JsonProperty("group_commit_max_latency_ms")
+    final public Long groupCommitMaxLatencyMs;
+
+    @JsonProperty("group_commit_max_docs")
+    final public Integer groupCommitMaxDocs;
+
+    @JsonProperty("refresh_min_staleness_ms")
+    final public Long refreshMinStalenessMs;
+
+    @JsonProperty("refresh_max_staleness_ms")
+    final public Long refreshMaxStalenessMs;
+
+    @JsonProperty("result_cache_max_entries")
+    final public Integer resultCacheMaxEntries;
+
+    @JsonProperty("query_cache_max_ram_mb")
+    final public Double queryCacheMaxRamMb;
+
+    @JsonProperty("query_cache_max_entries")
+    final public Integer queryCacheMaxEntries;
+
+    @JsonProperty("query_cache_min_segment_docs")
+    final public Integer queryCacheMinSegmentDocs;
+
+    @JsonProperty("query_cache_policy")
+    final public QueryCachePolicy queryCachePolicy;
+
+    @JsonProperty("replication_parallelism")
+    final public Integer replicationParallelism;
+
+    @JsonProperty("replication_long_poll_ms")
+    final public Long replicationLongPollMs;
+
+    @JsonProperty("max_queued_write")
+    final public Integer maxQueuedWrite;
+
+    @JsonProperty("max_queued_read")
+    final public Integer maxQueuedRead;
+
+    @JsonProperty("adaptive_concurrency")
+    final public Boolean adaptiveConcurrency;
+
     @JsonCreator
     private IndexSettingsDefinition(
         @JsonProperty("primary_key") final String primaryKey,
@@ -149,7 +208,21 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         @JsonProperty("nrt_caching_directory_max_merge_size_mb") final Double nrtCachingDirectoryMaxMergeSizeMB,
         @JsonProperty("nrt_caching_directory_max_cached_mb") final Double nrtCachingDirectoryMaxCachedMB,
         @JsonProperty("max_concurrent_write") final Integer maxConcurrentWrite,
-        @JsonProperty("max_concurrent_read") final Integer maxConcurrentRead) {
+        @JsonProperty("max_concurrent_read") final Integer maxConcurrentRead,
+        @JsonProperty("group_commit_max_latency_ms") final Long groupCommitMaxLatencyMs,
+        @JsonProperty("group_commit_max_docs") final Integer groupCommitMaxDocs,
+        @JsonProperty("refresh_min_staleness_ms") final Long refreshMinStalenessMs,
+        @JsonProperty("refresh_max_staleness_ms") final Long refreshMaxStalenessMs,
+        @JsonProperty("result_cache_max_entries") final Integer resultCacheMaxEntries,
+        @JsonProperty("query_cache_max_ram_mb") final Double queryCacheMaxRamMb,
+        @JsonProperty("query_cache_max_entries") final Integer queryCacheMaxEntries,
+        @JsonProperty("query_cache_min_segment_docs") final Integer queryCacheMinSegmentDocs,
+        @JsonProperty("query_cache_policy") final QueryCachePolicy queryCachePolicy,
+        @JsonProperty("replication_parallelism") final Integer replicationParallelism,
+        @JsonProperty("replication_long_poll_ms") final Long replicationLongPollMs,
+        @JsonProperty("max_queued_write") final Integer maxQueuedWrite,
+        @JsonProperty("max_queued_read") final Integer maxQueuedRead,
+        @JsonProperty("adaptive_concurrency") final Boolean adaptiveConcurrency) {
         super(IndexSettingsDefinition.class);
         this.primaryKey = primaryKey;
         this.directoryType = directoryType;
@@ -174,6 +247,20 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         this.nrtCachingDirectoryMaxCachedMB = nrtCachingDirectoryMaxCachedMB;
         this.maxConcurrentWrite = maxConcurrentWrite;
         this.maxConcurrentRead = maxConcurrentRead;
+        this.groupCommitMaxLatencyMs = groupCommitMaxLatencyMs;
+        this.groupCommitMaxDocs = groupCommitMaxDocs;
+        this.refreshMinStalenessMs = refreshMinStalenessMs;
+        this.refreshMaxStalenessMs = refreshMaxStalenessMs;
+        this.resultCacheMaxEntries = resultCacheMaxEntries;
+        this.queryCacheMaxRamMb = queryCacheMaxRamMb;
+        this.queryCacheMaxEntries = queryCacheMaxEntries;
+        this.queryCacheMinSegmentDocs = queryCacheMinSegmentDocs;
+        this.queryCachePolicy = queryCachePolicy;
+        this.replicationParallelism = replicationParallelism;
+        this.replicationLongPollMs = replicationLongPollMs;
+        this.maxQueuedWrite = maxQueuedWrite;
+        this.maxQueuedRead = maxQueuedRead;
+        this.adaptiveConcurrency = adaptiveConcurrency;
     }
 
     private IndexSettingsDefinition(final Builder builder) {
@@ -201,6 +288,20 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         this.nrtCachingDirectoryMaxCachedMB = builder.nrtCachingDirectoryMaxCachedMB;
         this.maxConcurrentWrite = builder.maxConcurrentWrite;
         this.maxConcurrentRead = builder.maxConcurrentRead;
+        this.groupCommitMaxLatencyMs = builder.groupCommitMaxLatencyMs;
+        this.groupCommitMaxDocs = builder.groupCommitMaxDocs;
+        this.refreshMinStalenessMs = builder.refreshMinStalenessMs;
+        this.refreshMaxStalenessMs = builder.refreshMaxStalenessMs;
+        this.resultCacheMaxEntries = builder.resultCacheMaxEntries;
+        this.queryCacheMaxRamMb = builder.queryCacheMaxRamMb;
+        this.queryCacheMaxEntries = builder.queryCacheMaxEntries;
+        this.queryCacheMinSegmentDocs = builder.queryCacheMinSegmentDocs;
+        this.queryCachePolicy = builder.queryCachePolicy;
+        this.replicationParallelism = builder.replicationParallelism;
+        this.replicationLongPollMs = builder.replicationLongPollMs;
+        this.maxQueuedWrite = builder.maxQueuedWrite;
+        this.maxQueuedRead = builder.maxQueuedRead;
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
     }
 
     final static IndexSettingsDefinition EMPTY = new IndexSettingsDefinition(new Builder());
@@ -215,6 +316,11 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         return settings != null && (settings.enableTaxonomyIndex == null ? false : settings.enableTaxonomyIndex);
     }
 
+    public static int getReplicationParallelism(final IndexSettingsDefinition settings) {
+        return settings == null || settings.replicationParallelism == null || settings.replicationParallelism < 1 ?
+            DEFAULT_REPLICATION_PARALLELISM : settings.replicationParallelism;
+    }
+
     @Override
     protected int computeHashCode() {
         return Objects.hash(primaryKey, directoryType, ramBufferSize,
@@ -265,6 +371,34 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
             return false;
         if (!Objects.equals(nrtCachingDirectoryMaxCachedMB, s.nrtCachingDirectoryMaxCachedMB))
             return false;
+        if (!Objects.equals(groupCommitMaxLatencyMs, s.groupCommitMaxLatencyMs))
+            return false;
+        if (!Objects.equals(groupCommitMaxDocs, s.groupCommitMaxDocs))
+            return false;
+        if (!Objects.equals(refreshMinStalenessMs, s.refreshMinStalenessMs))
+            return false;
+        if (!Objects.equals(refreshMaxStalenessMs, s.refreshMaxStalenessMs))
+            return false;
+        if (!Objects.equals(resultCacheMaxEntries, s.resultCacheMaxEntries))
+            return false;
+        if (!Objects.equals(queryCacheMaxRamMb, s.queryCacheMaxRamMb))
+            return false;
+        if (!Objects.equals(queryCacheMaxEntries, s.queryCacheMaxEntries))
+            return false;
+        if (!Objects.equals(queryCacheMinSegmentDocs, s.queryCacheMinSegmentDocs))
+            return false;
+        if (!Objects.equals(queryCachePolicy, s.queryCachePolicy))
+            return false;
+        if (!Objects.equals(replicationParallelism, s.replicationParallelism))
+            return false;
+        if (!Objects.equals(replicationLongPollMs, s.replicationLongPollMs))
+            return false;
+        if (!Objects.equals(maxQueuedWrite, s.maxQueuedWrite))
+            return false;
+        if (!Objects.equals(maxQueuedRead, s.maxQueuedRead))
+            return false;
+        if (!Objects.equals(adaptiveConcurrency, s.adaptiveConcurrency))
+            return false;
         return true;
     }
 
@@ -305,6 +439,20 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
         private Double nrtCachingDirectoryMaxCachedMB;
         private Integer maxConcurrentWrite;
         private Integer maxConcurrentRead;
+        private Long groupCommitMaxLatencyMs;
+        private Integer groupCommitMaxDocs;
+        private Long refreshMinStalenessMs;
+        private Long refreshMaxStalenessMs;
+        private Integer resultCacheMaxEntries;
+        private Double queryCacheMaxRamMb;
+        private Integer queryCacheMaxEntries;
+        private Integer queryCacheMinSegmentDocs;
+        private QueryCachePolicy queryCachePolicy;
+        private Integer replicationParallelism;
+        private Long replicationLongPollMs;
+        private Integer maxQueuedWrite;
+        private Integer maxQueuedRead;
+        private Boolean adaptiveConcurrency;
 
         private Builder() {
         }
@@ -332,6 +480,20 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
             nrtCachingDirectoryMaxCachedMB(annotatedIndex.nrtCachingDirectoryMaxCachedMB());
             maxConcurrentWrite(annotatedIndex.maxConcurrentWrite());
             maxConcurrentRead(annotatedIndex.maxConcurrentRead());
+            groupCommitMaxLatencyMs(annotatedIndex.groupCommitMaxLatencyMs());
+            groupCommitMaxDocs(annotatedIndex.groupCommitMaxDocs());
+            refreshMinStalenessMs(annotatedIndex.refreshMinStalenessMs());
+            refreshMaxStalenessMs(annotatedIndex.refreshMaxStalenessMs());
+            resultCacheMaxEntries(annotatedIndex.resultCacheMaxEntries());
+            queryCacheMaxRamMb(annotatedIndex.queryCacheMaxRamMb());
+            queryCacheMaxEntries(annotatedIndex.queryCacheMaxEntries());
+            queryCacheMinSegmentDocs(annotatedIndex.queryCacheMinSegmentDocs());
+            queryCachePolicy(annotatedIndex.queryCachePolicy());
+            replicationParallelism(annotatedIndex.replicationParallelism());
+            replicationLongPollMs(annotatedIndex.replicationLongPollMs());
+            maxQueuedWrite(annotatedIndex.maxQueuedWrite());
+            maxQueuedRead(annotatedIndex.maxQueuedRead());
+            adaptiveConcurrency(annotatedIndex.adaptiveConcurrency());
         }
 
         private Builder(final IndexSettingsDefinition settings) {
@@ -358,6 +520,20 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
             this.nrtCachingDirectoryMaxCachedMB = settings.nrtCachingDirectoryMaxCachedMB;
             this.maxConcurrentWrite = settings.maxConcurrentWrite;
             this.maxConcurrentRead = settings.maxConcurrentRead;
+            this.groupCommitMaxLatencyMs = settings.groupCommitMaxLatencyMs;
+            this.groupCommitMaxDocs = settings.groupCommitMaxDocs;
+            this.refreshMinStalenessMs = settings.refreshMinStalenessMs;
+            this.refreshMaxStalenessMs = settings.refreshMaxStalenessMs;
+            this.resultCacheMaxEntries = settings.resultCacheMaxEntries;
+            this.queryCacheMaxRamMb = settings.queryCacheMaxRamMb;
+            this.queryCacheMaxEntries = settings.queryCacheMaxEntries;
+            this.queryCacheMinSegmentDocs = settings.queryCacheMinSegmentDocs;
+            this.queryCachePolicy = settings.queryCachePolicy;
+            this.replicationParallelism = settings.replicationParallelism;
+            this.replicationLongPollMs = settings.replicationLongPollMs;
+            this.maxQueuedWrite = settings.maxQueuedWrite;
+            this.maxQueuedRead = settings.maxQueuedRead;
+            this.adaptiveConcurrency = settings.adaptiveConcurrency;
         }
 
         public Builder primaryKey(final String primaryKey) {
@@ -483,6 +659,76 @@ public class IndexSettingsDefinition extends Equalizer.Immutable<IndexSettingsDe
             return this;
         }
 
+        public Builder groupCommitMaxLatencyMs(final Long groupCommitMaxLatencyMs) {
+            this.groupCommitMaxLatencyMs = groupCommitMaxLatencyMs;
+            return this;
+        }
+
+        public Builder groupCommitMaxDocs(final Integer groupCommitMaxDocs) {
+            this.groupCommitMaxDocs = groupCommitMaxDocs;
+            return this;
+        }
+
+        public Builder refreshMinStalenessMs(final Long refreshMinStalenessMs) {
+            this.refreshMinStalenessMs = refreshMinStalenessMs;
+            return this;
+        }
+
+        public Builder refreshMaxStalenessMs(final Long refreshMaxStalenessMs) {
+            this.refreshMaxStalenessMs = refreshMaxStalenessMs;
+            return this;
+        }
+
+        public Builder resultCacheMaxEntries(final Integer resultCacheMaxEntries) {
+            this.resultCacheMaxEntries = resultCacheMaxEntries;
+            return this;
+        }
+
+        public Builder queryCacheMaxRamMb(final Double queryCacheMaxRamMb) {
+            this.queryCacheMaxRamMb = queryCacheMaxRamMb;
+            return this;
+        }
+
+        public Builder queryCacheMaxEntries(final Integer queryCacheMaxEntries) {
+            this.queryCacheMaxEntries = queryCacheMaxEntries;
+            return this;
+        }
+
+        public Builder queryCacheMinSegmentDocs(final Integer queryCacheMinSegmentDocs) {
+            this.queryCacheMinSegmentDocs = queryCacheMinSegmentDocs;
+            return this;
+        }
+
+        public Builder queryCachePolicy(final QueryCachePolicy queryCachePolicy) {
+            this.queryCachePolicy = queryCachePolicy;
+            return this;
+        }
+
+        public Builder replicationParallelism(final Integer replicationParallelism) {
+            this.replicationParallelism = replicationParallelism;
+            return this;
+        }
+
+        public Builder replicationLongPollMs(final Long replicationLongPollMs) {
+            this.replicationLongPollMs = replicationLongPollMs;
+            return this;
+        }
+
+        public Builder maxQueuedWrite(final Integer maxQueuedWrite) {
+            this.maxQueuedWrite = maxQueuedWrite;
+            return this;
+        }
+
+        public Builder maxQueuedRead(final Integer maxQueuedRead) {
+            this.maxQueuedRead = maxQueuedRead;
+            return this;
+        }
+
+        public Builder adaptiveConcurrency(final Boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
         public IndexSettingsDefinition build() {
             return new IndexSettingsDefinition(this);
         }
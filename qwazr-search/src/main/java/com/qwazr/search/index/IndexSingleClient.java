@@ -34,14 +34,18 @@ import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.client.ClientProperties;
 
 public class IndexSingleClient extends JsonClient implements IndexServiceInterface {
 
+    private final static long LONG_POLL_READ_MARGIN_MS = 10000;
+
     private final String preferedSerializedMediaType;
     private final WebTarget indexTarget;
 
@@ -509,7 +513,8 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
     public InputStream replicationObtain(final String indexName,
                                          final String sessionID,
                                          final String source,
-                                         final String fileName) {
+                                         final String fileName,
+                                         final String range) {
         try {
             return new AutoCloseInputStream(indexTarget
                 .path(indexName)
@@ -518,6 +523,7 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
                 .path(source)
                 .path(fileName)
                 .request(MediaType.APPLICATION_OCTET_STREAM)
+                .header("Range", range)
                 .get(InputStream.class));
         } catch (WebApplicationException e) {
             throw ServerException.from(e);
@@ -539,6 +545,27 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public Long replicationGeneration(final String indexName,
+                                      final Long generation,
+                                      final Long timeout) {
+        try {
+            final Invocation.Builder builder = indexTarget
+                .path(indexName)
+                .path("replication")
+                .path("generation")
+                .queryParam("generation", generation)
+                .queryParam("timeout", timeout)
+                .request(preferedSerializedMediaType);
+            // The master may hold the request up to the timeout
+            if (timeout != null && timeout > 0)
+                builder.property(ClientProperties.READ_TIMEOUT, (int) (timeout + LONG_POLL_READ_MARGIN_MS));
+            return builder.get(Long.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
     @Override
     public ReplicationSession replicationUpdate(final String indexName,
                                                 final String currentVersion) {
@@ -659,6 +686,42 @@ public class IndexSingleClient extends JsonClient implements IndexServiceInterfa
         }
     }
 
+    @Override
+    public IndexStreamResult postJsonStream(final String indexName,
+                                            final Boolean fieldTypes,
+                                            final Integer chunkSize,
+                                            final InputStream inputStream) {
+        try {
+            return indexTarget
+                .path(indexName)
+                .path("json")
+                .path("stream")
+                .queryParam("fieldTypes", fieldTypes)
+                .queryParam("chunk_size", chunkSize)
+                .request(preferedSerializedMediaType)
+                .post(Entity.entity(inputStream, MediaType.APPLICATION_OCTET_STREAM), IndexStreamResult.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
+    @Override
+    public Long commit(final String indexName,
+                       final Long sequence,
+                       final Long timeoutMs) {
+        try {
+            return indexTarget
+                .path(indexName)
+                .path("commit")
+                .queryParam("sequence", sequence)
+                .queryParam("timeout", timeoutMs)
+                .request(preferedSerializedMediaType)
+                .post(null, Long.class);
+        } catch (WebApplicationException e) {
+            throw ServerException.from(e);
+        }
+    }
+
     @Override
     public List<Map<String, Object>> getJsonSamples(final String indexName,
                                                     final Integer count) {
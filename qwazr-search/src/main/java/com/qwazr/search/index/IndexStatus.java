@@ -138,6 +138,18 @@ public class IndexStatus {
     @JsonProperty("index_sort_fields")
     final public Set<String> indexSortFields;
 
+    @JsonProperty("commit_sequence")
+    final public Long commitSequence;
+
+    @JsonProperty("durable_commit_sequence")
+    final public Long durableCommitSequence;
+
+    @JsonProperty("refresh")
+    final public RefreshStatus refresh;
+
+    @JsonProperty("result_cache")
+    final public ResultCacheStats resultCache;
+
     @JsonCreator
     IndexStatus(@JsonProperty("num_docs") Long numDocs, @JsonProperty("num_deleted_docs") Long numDeletedDocs,
                 @JsonProperty("has_pending_merges") Boolean hasPendingMerges,
@@ -160,7 +172,11 @@ public class IndexStatus {
                 @JsonProperty("directory_cached_files") String[] directoryCachedFiles,
                 @JsonProperty("directory_cached_ram_used") String directoryCachedRamUsed,
                 @JsonProperty("active_analyzers") Integer activeAnalyzers,
-                @JsonProperty("index_sort_fields") Set<String> indexSortFields) {
+                @JsonProperty("index_sort_fields") Set<String> indexSortFields,
+                @JsonProperty("commit_sequence") Long commitSequence,
+                @JsonProperty("durable_commit_sequence") Long durableCommitSequence,
+                @JsonProperty("refresh") RefreshStatus refresh,
+                @JsonProperty("result_cache") ResultCacheStats resultCache) {
         this.numDocs = numDocs;
         this.numDeletedDocs = numDeletedDocs;
         this.mergePolicy = mergePolicy;
@@ -187,12 +203,18 @@ public class IndexStatus {
         this.directoryCachedRamUsed = directoryCachedRamUsed;
         this.activeAnalyzers = activeAnalyzers;
         this.indexSortFields = indexSortFields;
+        this.commitSequence = commitSequence;
+        this.durableCommitSequence = durableCommitSequence;
+        this.refresh = refresh;
+        this.resultCache = resultCache;
     }
 
     public IndexStatus(final UUID indexUuid, final UUID masterUuid, final Directory directory,
                        final IndexSearcher indexSearcher, final IndexWriter indexWriter, final IndexSettingsDefinition settings,
                        final Set<String> analyzers, final Set<String> fields,
-                       final int activeAnalyzers) throws IOException {
+                       final int activeAnalyzers, final Long commitSequence,
+                       final Long durableCommitSequence, final RefreshStatus refresh,
+                       final ResultCacheStats resultCache) throws IOException {
         final IndexReader indexReader = indexSearcher.getIndexReader();
         this.numDocs = (long) indexReader.numDocs();
         this.numDeletedDocs = (long) indexReader.numDeletedDocs();
@@ -265,6 +287,10 @@ public class IndexStatus {
         this.analyzers = analyzers;
         this.activeAnalyzers = activeAnalyzers;
         this.fields = fields;
+        this.commitSequence = commitSequence;
+        this.durableCommitSequence = durableCommitSequence;
+        this.refresh = refresh;
+        this.resultCache = resultCache;
 
         final QueryCache queryCache = indexSearcher.getQueryCache();
         this.queryCache = queryCache instanceof LRUQueryCache ? new QueryCacheStats((LRUQueryCache) queryCache) : null;
@@ -540,13 +566,23 @@ public class IndexStatus {
         @JsonProperty("miss_rate")
         public final Float missRate;
 
+        /**
+         * The RAM used by the cache. It is the JVM-wide usage when the cache is not dedicated to the index.
+         */
+        @JsonProperty("ram_bytes_used")
+        public final Long ramBytesUsed;
+
+        @JsonProperty("dedicated")
+        public final Boolean dedicated;
+
         private final int hashCode;
 
         @JsonCreator
         QueryCacheStats(@JsonProperty("cache_count") Long cacheCount, @JsonProperty("cache_size") Long cacheSize,
                         @JsonProperty("eviction_count") Long evictionCount, @JsonProperty("hit_count") Long hitCount,
                         @JsonProperty("miss_count") Long missCount, @JsonProperty("total_count") Long totalCount,
-                        @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate) {
+                        @JsonProperty("hit_rate") Float hitRate, @JsonProperty("miss_rate") Float missRate,
+                        @JsonProperty("ram_bytes_used") Long ramBytesUsed, @JsonProperty("dedicated") Boolean dedicated) {
             this.cacheCount = cacheCount;
             this.cacheSize = cacheSize;
             this.evictionCount = evictionCount;
@@ -555,15 +591,18 @@ public class IndexStatus {
             this.totalCount = totalCount;
             this.hitRate = hitRate;
             this.missRate = missRate;
+            this.ramBytesUsed = ramBytesUsed;
+            this.dedicated = dedicated;
             this.hashCode = Objects.hash(cacheCount, cacheSize, evictionCount, hitCount, missCount, totalCount, hitRate,
-                missRate);
+                missRate, ramBytesUsed, dedicated);
         }
 
         private QueryCacheStats(final LRUQueryCache queryCache) {
             this(queryCache.getCacheCount(), queryCache.getCacheSize(), queryCache.getEvictionCount(),
                 queryCache.getHitCount(), queryCache.getMissCount(), queryCache.getTotalCount(),
                 (float) (queryCache.getHitCount() * 100) / queryCache.getTotalCount(),
-                (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount());
+                (float) (queryCache.getMissCount() * 100) / queryCache.getTotalCount(),
+                queryCache.ramBytesUsed(), queryCache != IndexSearcher.getDefaultQueryCache());
         }
 
         @Override
@@ -592,7 +631,158 @@ public class IndexStatus {
                 return false;
             if (!Objects.equals(missRate, cache.missRate))
                 return false;
+            if (!Objects.equals(ramBytesUsed, cache.ramBytesUsed))
+                return false;
+            if (!Objects.equals(dedicated, cache.dedicated))
+                return false;
             return true;
         }
     }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonAutoDetect(setterVisibility = JsonAutoDetect.Visibility.NONE,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+        creatorVisibility = JsonAutoDetect.Visibility.NONE,
+        fieldVisibility = JsonAutoDetect.Visibility.PUBLIC_ONLY)
+    public static class RefreshStatus {
+
+        @JsonProperty("min_staleness_ms")
+        public final Long minStalenessMs;
+
+        @JsonProperty("max_staleness_ms")
+        public final Long maxStalenessMs;
+
+        @JsonProperty("refresh_count")
+        public final Long refreshCount;
+
+        @JsonProperty("reopen_count")
+        public final Long reopenCount;
+
+        @JsonProperty("avg_reopen_ms")
+        public final Float avgReopenMs;
+
+        @JsonProperty("max_reopen_ms")
+        public final Float maxReopenMs;
+
+        @JsonProperty("last_reopen_ms")
+        public final Float lastReopenMs;
+
+        @JsonProperty("last_reopen_time")
+        public final Long lastReopenTime;
+
+        @JsonProperty("writer_generation")
+        public final Long writerGeneration;
+
+        @JsonProperty("searcher_generation")
+        public final Long searcherGeneration;
+
+        private final int hashCode;
+
+        @JsonCreator
+        RefreshStatus(@JsonProperty("min_staleness_ms") Long minStalenessMs,
+                      @JsonProperty("max_staleness_ms") Long maxStalenessMs,
+                      @JsonProperty("refresh_count") Long refreshCount,
+                      @JsonProperty("reopen_count") Long reopenCount,
+                      @JsonProperty("avg_reopen_ms") Float avgReopenMs,
+                      @JsonProperty("max_reopen_ms") Float maxReopenMs,
+                      @JsonProperty("last_reopen_ms") Float lastReopenMs,
+                      @JsonProperty("last_reopen_time") Long lastReopenTime,
+                      @JsonProperty("writer_generation") Long writerGeneration,
+                      @JsonProperty("searcher_generation") Long searcherGeneration) {
+            this.minStalenessMs = minStalenessMs;
+            this.maxStalenessMs = maxStalenessMs;
+            this.refreshCount = refreshCount;
+            this.reopenCount = reopenCount;
+            this.avgReopenMs = avgReopenMs;
+            this.maxReopenMs = maxReopenMs;
+            this.lastReopenMs = lastReopenMs;
+            this.lastReopenTime = lastReopenTime;
+            this.writerGeneration = writerGeneration;
+            this.searcherGeneration = searcherGeneration;
+            this.hashCode = Objects.hash(refreshCount, reopenCount, writerGeneration, searcherGeneration);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof RefreshStatus))
+                return false;
+            final RefreshStatus refresh = (RefreshStatus) o;
+            return Objects.equals(minStalenessMs, refresh.minStalenessMs)
+                && Objects.equals(maxStalenessMs, refresh.maxStalenessMs)
+                && Objects.equals(refreshCount, refresh.refreshCount)
+                && Objects.equals(reopenCount, refresh.reopenCount)
+                && Objects.equals(avgReopenMs, refresh.avgReopenMs)
+                && Objects.equals(maxReopenMs, refresh.maxReopenMs)
+                && Objects.equals(lastReopenMs, refresh.lastReopenMs)
+                && Objects.equals(lastReopenTime, refresh.lastReopenTime)
+                && Objects.equals(writerGeneration, refresh.writerGeneration)
+                && Objects.equals(searcherGeneration, refresh.searcherGeneration);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonAutoDetect(setterVisibility = JsonAutoDetect.Visibility.NONE,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+        creatorVisibility = JsonAutoDetect.Visibility.NONE,
+        fieldVisibility = JsonAutoDetect.Visibility.PUBLIC_ONLY)
+    public static class ResultCacheStats {
+
+        @JsonProperty("max_entries")
+        public final Integer maxEntries;
+
+        @JsonProperty("size")
+        public final Integer size;
+
+        @JsonProperty("hit_count")
+        public final Long hitCount;
+
+        @JsonProperty("miss_count")
+        public final Long missCount;
+
+        @JsonProperty("eviction_count")
+        public final Long evictionCount;
+
+        @JsonProperty("hit_rate")
+        public final Float hitRate;
+
+        private final int hashCode;
+
+        @JsonCreator
+        ResultCacheStats(@JsonProperty("max_entries") Integer maxEntries, @JsonProperty("size") Integer size,
+                         @JsonProperty("hit_count") Long hitCount, @JsonProperty("miss_count") Long missCount,
+                         @JsonProperty("eviction_count") Long evictionCount) {
+            this.maxEntries = maxEntries;
+            this.size = size;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            final long total = (hitCount == null ? 0 : hitCount) + (missCount == null ? 0 : missCount);
+            this.hitRate = total == 0 ? null : (float) (hitCount * 100) / total;
+            this.hashCode = Objects.hash(maxEntries, size, hitCount, missCount, evictionCount);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof ResultCacheStats))
+                return false;
+            final ResultCacheStats cache = (ResultCacheStats) o;
+            return Objects.equals(maxEntries, cache.maxEntries)
+                && Objects.equals(size, cache.size)
+                && Objects.equals(hitCount, cache.hitCount)
+                && Objects.equals(missCount, cache.missCount)
+                && Objects.equals(evictionCount, cache.evictionCount);
+        }
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.qwazr.utils.Equalizer;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * The result of a streamed JSON or Smile ingestion, with the progress of every chunk.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonAutoDetect(
+    creatorVisibility = JsonAutoDetect.Visibility.NONE,
+    getterVisibility = JsonAutoDetect.Visibility.NONE,
+    setterVisibility = JsonAutoDetect.Visibility.NONE,
+    isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+    fieldVisibility = JsonAutoDetect.Visibility.NONE)
+public class IndexStreamResult extends Equalizer.Immutable<IndexStreamResult> {
+
+    /**
+     * The total number of documents indexed, a stream can exceed the range of an integer
+     */
+    @JsonProperty("count")
+    public final Long count;
+
+    @JsonProperty("field_types")
+    public final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes;
+
+    @JsonProperty("chunks")
+    public final List<Chunk> chunks;
+
+    @JsonCreator
+    public IndexStreamResult(final @JsonProperty("count") Long count,
+                             final @JsonProperty("field_types") SortedMap<String, SortedSet<JsonNodeType>> fieldTypes,
+                             final @JsonProperty("chunks") List<Chunk> chunks) {
+        super(IndexStreamResult.class);
+        this.count = count;
+        this.fieldTypes = fieldTypes;
+        this.chunks = chunks;
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(count, fieldTypes, chunks);
+    }
+
+    @Override
+    protected boolean isEqual(final IndexStreamResult o) {
+        return Objects.equals(count, o.count)
+            && Objects.equals(fieldTypes, o.fieldTypes)
+            && Objects.equals(chunks, o.chunks);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonAutoDetect(
+        creatorVisibility = JsonAutoDetect.Visibility.NONE,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        setterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+        fieldVisibility = JsonAutoDetect.Visibility.NONE)
+    public static class Chunk extends Equalizer.Immutable<Chunk> {
+
+        /**
+         * The number of documents indexed in this chunk
+         */
+        @JsonProperty("count")
+        public final Integer count;
+
+        /**
+         * The total number of documents indexed so far
+         */
+        @JsonProperty("total")
+        public final Long total;
+
+        @JsonProperty("commit_sequence")
+        public final Long commitSequence;
+
+        @JsonProperty("generation")
+        public final Long generation;
+
+        @JsonProperty("time_ms")
+        public final Long timeMs;
+
+        @JsonCreator
+        public Chunk(final @JsonProperty("count") Integer count,
+                     final @JsonProperty("total") Long total,
+                     final @JsonProperty("commit_sequence") Long commitSequence,
+                     final @JsonProperty("generation") Long generation,
+                     final @JsonProperty("time_ms") Long timeMs) {
+            super(Chunk.class);
+            this.count = count;
+            this.total = total;
+            this.commitSequence = commitSequence;
+            this.generation = generation;
+            this.timeMs = timeMs;
+        }
+
+        @Override
+        protected int computeHashCode() {
+            return Objects.hash(count, total, commitSequence, generation);
+        }
+
+        @Override
+        protected boolean isEqual(final Chunk o) {
+            return Objects.equals(count, o.count)
+                && Objects.equals(total, o.total)
+                && Objects.equals(commitSequence, o.commitSequence)
+                && Objects.equals(generation, o.generation)
+                && Objects.equals(timeMs, o.timeMs);
+        }
+    }
+}
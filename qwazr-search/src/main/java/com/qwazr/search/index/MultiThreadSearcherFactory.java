@@ -26,7 +26,7 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 
 class MultiThreadSearcherFactory extends SearcherFactory {
 
@@ -35,22 +35,28 @@ class MultiThreadSearcherFactory extends SearcherFactory {
 
     private final static ConsumerEx<IndexReader, IOException> WITH_WARM = MultiThreadSearcherFactory::warmReader;
 
-    static MultiThreadSearcherFactory of(final ExecutorService executorService, final boolean useWarmer,
-                                         final Similarity similarity, final String stateFacetField) {
+    static MultiThreadSearcherFactory of(final IndexExecutors executors, final boolean useWarmer,
+                                         final Similarity similarity, final String stateFacetField,
+                                         final IndexQueryCache queryCache) {
         return similarity == null ?
-                new MultiThreadSearcherFactory(executorService, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM) :
-                new WithSimilarity(executorService, similarity, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM);
+                new MultiThreadSearcherFactory(executors, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM,
+                        queryCache) :
+                new WithSimilarity(executors, similarity, stateFacetField, useWarmer ? WITH_WARM : WITHOUT_WARM,
+                        queryCache);
     }
 
-    protected final ExecutorService executorService;
+    protected final IndexExecutors executors;
     private final String stateFacetField;
     private final ConsumerEx<IndexReader, IOException> readerWarmer;
+    private final IndexQueryCache queryCache;
 
-    private MultiThreadSearcherFactory(final ExecutorService executorService, final String stateFacetField,
-                                       final ConsumerEx<IndexReader, IOException> readerWarmer) {
-        this.executorService = executorService;
+    private MultiThreadSearcherFactory(final IndexExecutors executors, final String stateFacetField,
+                                       final ConsumerEx<IndexReader, IOException> readerWarmer,
+                                       final IndexQueryCache queryCache) {
+        this.executors = executors;
         this.stateFacetField = stateFacetField;
         this.readerWarmer = readerWarmer;
+        this.queryCache = queryCache;
     }
 
     final protected StateIndexSearcher warm(final IndexReader indexReader, final StateIndexSearcher indexSearcher)
@@ -68,9 +74,10 @@ class MultiThreadSearcherFactory extends SearcherFactory {
 
         private final Similarity similarity;
 
-        private WithSimilarity(final ExecutorService executorService, final Similarity similarity,
-                               final String stateFacetField, final ConsumerEx<IndexReader, IOException> readerWarmer) {
-            super(executorService, stateFacetField, readerWarmer);
+        private WithSimilarity(final IndexExecutors executors, final Similarity similarity,
+                               final String stateFacetField, final ConsumerEx<IndexReader, IOException> readerWarmer,
+                               final IndexQueryCache queryCache) {
+            super(executors, stateFacetField, readerWarmer, queryCache);
             this.similarity = similarity;
         }
 
@@ -87,10 +94,19 @@ class MultiThreadSearcherFactory extends SearcherFactory {
         final SortedSetDocValuesReaderState state;
 
         StateIndexSearcher(IndexReader reader) throws IOException {
-            super(reader, executorService);
+            super(reader, executors.searchSlice);
+            if (queryCache != null)
+                queryCache.apply(this);
             state = IndexUtils.getNewFacetsState(reader, stateFacetField);
         }
 
+        /**
+         * @return the executor which reads the stored fields of a result page
+         */
+        Executor getFetchExecutor() {
+            return executors.fetch;
+        }
+
     }
 
     private static final SimpleMergedSegmentWarmer WARMER = new SimpleMergedSegmentWarmer(InfoStream.getDefault());
@@ -28,6 +28,7 @@ public class QueryBuilder {
 
     Integer start;
     Integer rows;
+    String searchAfter;
     Boolean queryDebug;
     LinkedHashSet<String> returnedFields;
     LinkedHashMap<String, FacetDefinition> facets;
@@ -37,6 +38,10 @@ public class QueryBuilder {
     QueryInterface query;
     Query luceneQuery;
     LinkedHashMap<String, String> commitUserData;
+    Long minGeneration;
+    Long timeoutMs;
+    Boolean batch;
+    Boolean cursors;
 
     public QueryBuilder() {
     }
@@ -78,6 +83,11 @@ public class QueryBuilder {
         return this;
     }
 
+    public QueryBuilder searchAfter(final String searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
     public QueryBuilder returnedFields(final Collection<String> returnedFields) {
         if (returnedFields == null || returnedFields.isEmpty())
             return this;
@@ -219,6 +229,26 @@ public class QueryBuilder {
         return this;
     }
 
+    public QueryBuilder minGeneration(final Long minGeneration) {
+        this.minGeneration = minGeneration;
+        return this;
+    }
+
+    public QueryBuilder timeoutMs(final Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    public QueryBuilder batch(final Boolean batch) {
+        this.batch = batch;
+        return this;
+    }
+
+    public QueryBuilder cursors(final Boolean cursors) {
+        this.cursors = cursors;
+        return this;
+    }
+
     public QueryDefinition build() {
         return new BaseQueryDefinition(this);
     }
@@ -61,25 +61,28 @@ class QueryCollectorManager extends QueryCollectors implements CollectorManager<
                     (org.apache.lucene.facet.DrillDownQuery) queryExecution.query, this);
             facetsBuilder = new FacetsBuilder.WithSideways(queryExecution.queryContext, queryExecution.facetsConfig,
                 queryExecution.queryDef.getFacets(), queryExecution.query, queryExecution.timeTracker,
-                drillSidewaysResult).build();
+                queryExecution.deadline, drillSidewaysResult).build();
 
         } else {
 
             try {
-                queryExecution.queryContext.indexSearcher.search(queryExecution.query, this);
+                queryExecution.queryContext.indexSearcher.search(
+                    queryExecution.deadline.wrap(queryExecution.query), this);
             } catch (RuntimeException e) {
-                if (ExceptionUtils.getRootCause(e) instanceof TimeLimitingCollector.TimeExceededException)
+                if (ExceptionUtils.getRootCause(e) instanceof TimeLimitingCollector.TimeExceededException) {
                     LOGGER.log(Level.WARNING, e, e::getMessage);
-                else
+                    queryExecution.deadline.setPartial();
+                } else
                     throw e;
             }
 
             facetsCollector = getFacetsCollector();
-            facetsBuilder = facetsCollector == null ?
+            // The facets are counted when the builder is created
+            facetsBuilder = facetsCollector == null || queryExecution.deadline.isExpired() ?
                 null :
                 new FacetsBuilder.WithCollectors(queryExecution.queryContext, queryExecution.facetsConfig,
                     queryExecution.queryDef.getFacets(), queryExecution.query, queryExecution.timeTracker,
-                    facetsCollector).build();
+                    queryExecution.deadline, facetsCollector).build();
         }
 
         return facetsBuilder;
@@ -18,12 +18,13 @@ package com.qwazr.search.index;
 
 import com.qwazr.search.collector.ClassicCollector;
 import com.qwazr.search.collector.ParallelCollector;
-import com.qwazr.search.query.QueryInterface;
 import com.qwazr.utils.LoggerUtils;
 import org.apache.lucene.facet.DrillSideways;
 import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
@@ -62,7 +63,7 @@ class QueryCollectorsClassic extends QueryCollectors {
         collectors = new ArrayList<>();
         facetsCollector = queryExecution.useDrillSideways ? null : buildFacetsCollector(queryExecution.queryDef.getFacets());
         totalHitCountCollector = buildTotalHitsCollector(queryExecution.end);
-        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.end);
+        topDocsCollector = buildTopDocCollector(queryExecution.sort, queryExecution.after, queryExecution.end);
         if (queryExecution.collectorConstructors != null) {
             userCollectors = new LinkedHashMap<>();
             for (final Map.Entry<String, QueryExecution.CollectorConstructor> entry : queryExecution.collectorConstructors.entrySet()) {
@@ -89,25 +90,24 @@ class QueryCollectorsClassic extends QueryCollectors {
         }
     }
 
+    /**
+     * The matching documents are also collected for the query facets, they are counted without running the main
+     * query again.
+     */
     private FacetsCollector buildFacetsCollector(final LinkedHashMap<String, FacetDefinition> facets) {
         if (facets == null || facets.isEmpty())
             return null;
-        for (final FacetDefinition facet : facets.values()) {
-            final Map<String, QueryInterface> queries = facet.getQueries();
-            if (queries.isEmpty())
-                return add(new FacetsCollector());
-        }
-        return null;
+        return add(new FacetsCollector());
     }
 
-    private TopDocsCollector<?> buildTopDocCollector(final Sort sort, final int numHits) {
+    private TopDocsCollector<?> buildTopDocCollector(final Sort sort, final ScoreDoc after, final int numHits) {
         if (numHits == 0)
             return null;
         final TopDocsCollector<?> topDocsCollector;
         if (sort != null)
-            topDocsCollector = TopFieldCollector.create(sort, numHits, Integer.MAX_VALUE);
+            topDocsCollector = TopFieldCollector.create(sort, numHits, (FieldDoc) after, Integer.MAX_VALUE);
         else
-            topDocsCollector = TopScoreDocCollector.create(numHits, Integer.MAX_VALUE);
+            topDocsCollector = TopScoreDocCollector.create(numHits, after, Integer.MAX_VALUE);
         return add(topDocsCollector);
     }
 
@@ -130,21 +130,24 @@ class QueryCollectorsClassic extends QueryCollectors {
                     .search((org.apache.lucene.facet.DrillDownQuery) queryExecution.query, finalCollector);
             facetsBuilder = new FacetsBuilder.WithSideways(queryExecution.queryContext, queryExecution.facetsConfig,
                 queryExecution.queryDef.getFacets(), queryExecution.query, queryExecution.timeTracker,
-                drillSidewaysResult).build();
+                queryExecution.deadline, drillSidewaysResult).build();
 
         } else {
 
             try {
-                queryExecution.queryContext.indexSearcher.search(queryExecution.query, finalCollector);
+                queryExecution.queryContext.indexSearcher.search(queryExecution.deadline.wrap(queryExecution.query),
+                    finalCollector);
             } catch (TimeLimitingCollector.TimeExceededException e) {
                 LOGGER.log(Level.WARNING, e, e::getMessage);
+                queryExecution.deadline.setPartial();
             }
 
-            facetsBuilder = facetsCollector == null ?
+            // The facets are counted when the builder is created
+            facetsBuilder = facetsCollector == null || queryExecution.deadline.isExpired() ?
                 null :
                 new FacetsBuilder.WithCollectors(queryExecution.queryContext, queryExecution.facetsConfig,
                     queryExecution.queryDef.getFacets(), queryExecution.query, queryExecution.timeTracker,
-                    facetsCollector).build();
+                    queryExecution.deadline, facetsCollector).build();
 
         }
 
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilterWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+/**
+ * The time allowed to a query execution, shared by all the phases of the search.
+ * <p>
+ * The phases check the deadline cooperatively: the collection stops scoring the segments, the remaining facets and
+ * highlighters are skipped. A phase which skips some work flags the result as partial.
+ */
+final class QueryDeadline {
+
+    // The number of documents scored between two checks of the deadline, it grows up to MAX_INTERVAL
+    private final static int MIN_INTERVAL = 128;
+    private final static int MAX_INTERVAL = 1 << 16;
+
+    private final long deadlineNanos;
+    private final boolean enabled;
+    private volatile boolean partial;
+
+    private QueryDeadline(final Long timeoutMs) {
+        this.enabled = timeoutMs != null && timeoutMs > 0;
+        this.deadlineNanos = enabled ? System.nanoTime() + timeoutMs * 1_000_000L : 0L;
+    }
+
+    /**
+     * @param timeoutMs the time allowed to the query, in milliseconds, null or zero for no time limit
+     * @return a new deadline, specific to one execution (it also holds the partial flag)
+     */
+    static QueryDeadline of(final Long timeoutMs) {
+        return new QueryDeadline(timeoutMs);
+    }
+
+    /**
+     * The caller is expected to skip its work when the deadline is expired, the result is then flagged as partial.
+     *
+     * @return true if the time allowed to the query is over
+     */
+    boolean isExpired() {
+        if (!enabled || System.nanoTime() - deadlineNanos < 0)
+            return false;
+        partial = true;
+        return true;
+    }
+
+    /**
+     * Flags the result as partial, when a time limit has been reached by other means (i.e. TimeLimitingCollector).
+     */
+    void setPartial() {
+        partial = true;
+    }
+
+    boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @param query the query to execute
+     * @return the query which stops scoring the documents when the deadline is expired
+     */
+    Query wrap(final Query query) {
+        return enabled ? new TimeLimitedQuery(query, this) : query;
+    }
+
+    private static final class TimeLimitedQuery extends Query {
+
+        private final Query query;
+        private final QueryDeadline deadline;
+
+        private TimeLimitedQuery(final Query query, final QueryDeadline deadline) {
+            this.query = query;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Query rewrite(final IndexReader reader) throws IOException {
+            final Query rewritten = query.rewrite(reader);
+            return rewritten == query ? this : new TimeLimitedQuery(rewritten, deadline);
+        }
+
+        @Override
+        public Weight createWeight(final IndexSearcher searcher, final ScoreMode scoreMode, final float boost)
+            throws IOException {
+            return new TimeLimitedWeight(this, searcher.createWeight(query, scoreMode, boost), deadline);
+        }
+
+        @Override
+        public void visit(final QueryVisitor visitor) {
+            query.visit(visitor);
+        }
+
+        @Override
+        public String toString(final String field) {
+            return query.toString(field);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return sameClassAs(other)
+                && deadline == ((TimeLimitedQuery) other).deadline
+                && Objects.equals(query, ((TimeLimitedQuery) other).query);
+        }
+
+        @Override
+        public int hashCode() {
+            return classHash() * 31 + query.hashCode();
+        }
+    }
+
+    private static final class TimeLimitedWeight extends FilterWeight {
+
+        private final QueryDeadline deadline;
+
+        private TimeLimitedWeight(final Query query, final Weight weight, final QueryDeadline deadline) {
+            super(query, weight);
+            this.deadline = deadline;
+        }
+
+        /**
+         * The deadline is specific to one execution, the inner weight is cached instead.
+         */
+        @Override
+        public boolean isCacheable(final LeafReaderContext context) {
+            return false;
+        }
+
+        @Override
+        public BulkScorer bulkScorer(final LeafReaderContext context) throws IOException {
+            if (deadline.isExpired())
+                return null;
+            final BulkScorer bulkScorer = in.bulkScorer(context);
+            return bulkScorer == null ? null : new TimeLimitedBulkScorer(bulkScorer, deadline);
+        }
+    }
+
+    /**
+     * Scores the documents by windows, the deadline is checked between two windows.
+     */
+    private static final class TimeLimitedBulkScorer extends BulkScorer {
+
+        private final BulkScorer bulkScorer;
+        private final QueryDeadline deadline;
+        private int interval;
+
+        private TimeLimitedBulkScorer(final BulkScorer bulkScorer, final QueryDeadline deadline) {
+            this.bulkScorer = bulkScorer;
+            this.deadline = deadline;
+            this.interval = MIN_INTERVAL;
+        }
+
+        @Override
+        public int score(final LeafCollector collector, final Bits acceptDocs, int min, final int max)
+            throws IOException {
+            while (min < max) {
+                if (deadline.isExpired())
+                    return DocIdSetIterator.NO_MORE_DOCS;
+                final int windowMax = (int) Math.min((long) min + interval, max);
+                min = bulkScorer.score(collector, acceptDocs, min, windowMax);
+                interval = Math.min(interval * 2, MAX_INTERVAL);
+            }
+            return min;
+        }
+
+        @Override
+        public long cost() {
+            return bulkScorer.cost();
+        }
+    }
+}
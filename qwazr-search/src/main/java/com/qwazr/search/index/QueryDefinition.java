@@ -49,6 +49,12 @@ public interface QueryDefinition {
     @JsonProperty("rows")
     Integer getRows();
 
+    /**
+     * @return the cursor returned by the previous page (next_cursor), the results start after this position
+     */
+    @JsonProperty("search_after")
+    String getSearchAfter();
+
     int DEFAULT_START = 0;
 
     @JsonIgnore
@@ -110,6 +116,31 @@ public interface QueryDefinition {
     @JsonProperty("commit_user_data")
     Map<String, String> getCommitUserData();
 
+    /**
+     * @return the writer generation which must be visible to the searcher before the query is executed
+     */
+    @JsonProperty("min_generation")
+    Long getMinGeneration();
+
+    /**
+     * @return the time allowed to the query, in milliseconds. When the time is over, the search stops and returns a
+     * partial result.
+     */
+    @JsonProperty("timeout_ms")
+    Long getTimeoutMs();
+
+    /**
+     * @return true if the query is not interactive, it waits until no interactive query is waiting
+     */
+    @JsonProperty("batch")
+    Boolean getBatch();
+
+    /**
+     * @return true if each returned document carries its cursor, the position of the document usable as search_after
+     */
+    @JsonProperty("cursors")
+    Boolean getCursors();
+
     @JsonIgnore
     Query getLuceneQuery();
 
@@ -50,11 +50,15 @@ public class QueryDocumentsIterator<T> implements Iterator<T> {
     }
 
     private synchronized boolean nextExecution() {
+        if (pos > 0 && queryBuilder.searchAfter == null)
+            return false;
         final ResultDefinition.WithObject<T> result = service.searchQuery(queryBuilder.build(), recordClass);
-        count = result.totalHits;
+        if (pos == 0)
+            count = result.totalHits;
         currentPos = 0;
         currentDocuments = result.documents;
-        queryBuilder.start(queryBuilder.start + queryBuilder.rows);
+        // The next page starts after the last document of this one
+        queryBuilder.searchAfter(result.nextCursor);
         return currentDocuments != null && !currentDocuments.isEmpty();
     }
 
@@ -34,6 +34,7 @@ import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 
@@ -41,6 +42,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
 
     final QueryContextImpl queryContext;
     final QueryDefinition queryDef;
+    final QueryDeadline deadline;
     final TimeTracker timeTracker;
     final Map<String, String> dimensions;
     final FacetsConfig facetsConfig;
@@ -48,6 +50,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
     final int rows;
     final int end;
     final Sort sort;
+    final ScoreDoc after;
     final boolean useDrillSideways;
     final Query query;
     final Map<String, CollectorConstructor> collectorConstructors;
@@ -57,6 +60,9 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
     QueryExecution(final QueryContextImpl queryContext, final QueryDefinition queryDefinition)
         throws QueryNodeException, ReflectiveOperationException, ParseException, IOException {
 
+        // The time spent building the query (i.e. Join, MoreLikeThis) is part of the time allowed
+        this.deadline = QueryDeadline.of(queryDefinition.getTimeoutMs());
+
         this.timeTracker = Boolean.TRUE.equals(queryDefinition.getQueryDebug())
             ? TimeTracker.withDurations() : TimeTracker.noDurations();
 
@@ -70,6 +76,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
 
         final LinkedHashMap<String, QueryDefinition.SortEnum> sorts = queryDef.getSorts();
         this.sort = sorts == null ? null : SortUtils.buildSort(queryContext.fieldMap, sorts);
+        this.after = SearchCursor.decode(queryDef.getSearchAfter(), sort);
 
         final LinkedHashMap<String, FacetDefinition> facets = queryDef.getFacets();
         this.dimensions = facets == null ? null : FacetsBuilder.getFields(facets);
@@ -179,7 +186,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         final Highlighters highlighters;
         final LinkedHashMap<String, HighlighterDefinition> queryHighlighters = queryDef.getHighlighters();
         if (queryHighlighters != null && !queryHighlighters.isEmpty() && topDocs != null) {
-            highlighters = Highlighters.of(queryHighlighters, queryContext);
+            highlighters = Highlighters.of(queryHighlighters, queryContext, deadline);
         } else
             highlighters = null;
 
@@ -188,7 +195,7 @@ final class QueryExecution<T extends ResultDocumentAbstract> {
         final ResultDocumentsBuilder resultBuilder =
             new ResultDocumentsBuilder(queryDef, topDocs, queryContext.indexSearcher, query, highlighters,
                 queryCollectors.getExternalResults(), timeTracker, facetsBuilder,
-                totalHits == null ? 0 : totalHits, resultDocumentsInterface);
+                totalHits == null ? 0 : totalHits, deadline, resultDocumentsInterface);
 
         return resultDocuments.apply(resultBuilder);
     }
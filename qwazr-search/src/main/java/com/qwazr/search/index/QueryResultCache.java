@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.concurrent.SupplierEx;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ReferenceManager;
+
+/**
+ * A size bounded LRU cache of the search results.
+ * <p>
+ * The key is the query definition (BaseQueryDefinition implements equals/hashCode)
+ * and the version of the index reader which computed the result.
+ * The cache is emptied every time the searcher is refreshed, and when the fields or the analyzers change.
+ */
+final class QueryResultCache implements ReferenceManager.RefreshListener {
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, ResultDefinition.WithMap> cache;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    private QueryResultCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, ResultDefinition.WithMap> eldest) {
+                if (size() <= QueryResultCache.this.maxEntries)
+                    return false;
+                evictionCount.increment();
+                return true;
+            }
+        };
+    }
+
+    static QueryResultCache of(final IndexSettingsDefinition settings) {
+        return settings == null || settings.resultCacheMaxEntries == null || settings.resultCacheMaxEntries <= 0 ?
+            null : new QueryResultCache(settings.resultCacheMaxEntries);
+    }
+
+    /**
+     * Only the immutable query definitions without any custom Lucene query or custom collector are cached.
+     * A debug query is never cached, the timer would be wrong.
+     */
+    static boolean isCacheable(final QueryDefinition queryDefinition) {
+        return queryDefinition instanceof BaseQueryDefinition
+            && queryDefinition.getLuceneQuery() == null
+            && queryDefinition.getCollectors() == null
+            && !Boolean.TRUE.equals(queryDefinition.getQueryDebug());
+    }
+
+    ResultDefinition.WithMap get(final IndexReader indexReader,
+                                 final QueryDefinition queryDefinition,
+                                 final SupplierEx<ResultDefinition.WithMap, IOException> supplier) throws IOException {
+        if (!(indexReader instanceof DirectoryReader))
+            return supplier.get();
+        final Key key = new Key(((DirectoryReader) indexReader).getVersion(), queryDefinition);
+        synchronized (cache) {
+            final ResultDefinition.WithMap result = cache.get(key);
+            if (result != null) {
+                hitCount.increment();
+                return result;
+            }
+        }
+        missCount.increment();
+        final ResultDefinition.WithMap result = supplier.get();
+        // A partial result would be served after the load which made it partial is gone
+        if (result != null && !result.isPartial()) {
+            synchronized (cache) {
+                cache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void beforeRefresh() {
+    }
+
+    @Override
+    public void afterRefresh(final boolean didRefresh) {
+        if (didRefresh)
+            clear();
+    }
+
+    IndexStatus.ResultCacheStats getStats() {
+        final int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new IndexStatus.ResultCacheStats(maxEntries, size, hitCount.sum(), missCount.sum(),
+            evictionCount.sum());
+    }
+
+    private static final class Key {
+
+        private final long version;
+        private final QueryDefinition queryDefinition;
+        private final int hashCode;
+
+        private Key(final long version, final QueryDefinition queryDefinition) {
+            this.version = version;
+            this.queryDefinition = queryDefinition;
+            this.hashCode = Objects.hash(version, queryDefinition);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key))
+                return false;
+            final Key key = (Key) o;
+            return version == key.version && Objects.equals(queryDefinition, key.queryDefinition);
+        }
+    }
+}
@@ -36,6 +36,11 @@ interface RecordsPoster {
 
     int getCount();
 
+    interface Of<DOC> extends RecordsPoster {
+
+        void accept(DOC document) throws IOException;
+    }
+
     abstract class CommonPoster<DOC, RECORDBUILDER extends RecordBuilder<DOC>, DOCUMENTBUILDER extends DocumentBuilder<DOC>>
         implements RecordsPoster {
 
@@ -115,9 +120,7 @@ interface RecordsPoster {
         }
     }
 
-    interface MapDocument extends RecordsPoster {
-
-        void accept(final Map<String, ?> document) throws IOException;
+    interface MapDocument extends Of<Map<String, ?>> {
 
         static MapDocument of(final FieldMap fieldMap,
                               final AnalyzerContext analyzerContext,
@@ -175,9 +178,7 @@ interface RecordsPoster {
     }
 
 
-    interface ObjectDocument extends RecordsPoster {
-
-        void accept(Object object) throws IOException;
+    interface ObjectDocument extends Of<Object> {
 
         static ObjectDocument of(final Map<String, Field> fields,
                                  final FieldMap fieldMap,
@@ -246,9 +247,7 @@ interface RecordsPoster {
         }
     }
 
-    interface JsonNodeDocument extends RecordsPoster {
-
-        void accept(final ObjectNode objectNode) throws IOException;
+    interface JsonNodeDocument extends Of<ObjectNode> {
 
         static JsonNodeDocument of(final FieldMap fieldMap,
                                    final AnalyzerContext analyzerContext,
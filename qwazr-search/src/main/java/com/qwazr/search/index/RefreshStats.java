@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.search.ReferenceManager;
+
+/**
+ * Collects the refresh count, the reopen count and the refresh latency of a searcher manager.
+ */
+final class RefreshStats implements ReferenceManager.RefreshListener {
+
+    private final ThreadLocal<Long> startTime;
+    private final LongAdder refreshCount;
+    private final LongAdder reopenCount;
+    private final LongAdder totalReopenNanos;
+    private final LongAccumulator maxReopenNanos;
+    private final AtomicLong lastReopenNanos;
+    private final AtomicLong lastReopenTime;
+
+    RefreshStats() {
+        startTime = new ThreadLocal<>();
+        refreshCount = new LongAdder();
+        reopenCount = new LongAdder();
+        totalReopenNanos = new LongAdder();
+        maxReopenNanos = new LongAccumulator(Long::max, 0);
+        lastReopenNanos = new AtomicLong();
+        lastReopenTime = new AtomicLong();
+    }
+
+    @Override
+    public void beforeRefresh() {
+        startTime.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterRefresh(final boolean didRefresh) {
+        final Long start = startTime.get();
+        startTime.remove();
+        refreshCount.increment();
+        if (!didRefresh || start == null)
+            return;
+        final long nanos = System.nanoTime() - start;
+        reopenCount.increment();
+        totalReopenNanos.add(nanos);
+        maxReopenNanos.accumulate(nanos);
+        lastReopenNanos.set(nanos);
+        lastReopenTime.set(System.currentTimeMillis());
+    }
+
+    IndexStatus.RefreshStatus getStatus(final Long minStalenessMs, final Long maxStalenessMs,
+                                        final Long writerGeneration, final Long searcherGeneration) {
+        final long reopens = reopenCount.sum();
+        return new IndexStatus.RefreshStatus(minStalenessMs, maxStalenessMs, refreshCount.sum(), reopens,
+            reopens == 0 ? null : (float) totalReopenNanos.sum() / reopens / 1_000_000,
+            reopens == 0 ? null : (float) maxReopenNanos.get() / 1_000_000,
+            reopens == 0 ? null : (float) lastReopenNanos.get() / 1_000_000,
+            reopens == 0 ? null : lastReopenTime.get(),
+            writerGeneration, searcherGeneration);
+    }
+}
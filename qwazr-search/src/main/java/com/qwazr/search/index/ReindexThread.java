@@ -175,7 +175,7 @@ class ReindexThread {
                         .collector("records", ReindexCollector.class, recordField, this)
                         .build();
                 status = ReindexDefinition.Status.running;
-                indexInstance.query(queryContext -> {
+                indexInstance.query(AdmissionController.Lane.BATCH, queryContext -> {
                     queryContext.searchInterface(recordsQuery, ResultDocumentsInterface.NOPE);
                     return null;
                 });
@@ -19,28 +19,76 @@ package com.qwazr.search.index;
 import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
 import com.qwazr.search.replication.SlaveNode;
+import com.qwazr.utils.IOUtils;
+import com.qwazr.utils.LoggerUtils;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Local backup of an index.
+ * <p>
+ * A backup is incremental against the previous backup stored in the same directory: only the new files are obtained,
+ * and the files which are no longer part of the index are removed. The Lucene index files are never modified once
+ * written, they are hard-linked when the backup directory is on the same file system than the index.
+ */
 class ReplicationBackup extends ReplicationClient {
 
+	private final static Logger LOGGER = LoggerUtils.getLogger(ReplicationBackup.class);
+
 	private final IndexInstance indexInstance;
 	private final Path backupIndexDirectory;
+	private final Path masterUuidFile;
+	private volatile boolean linkSupported;
 
-	ReplicationBackup(final IndexInstance indexInstance, final Path backupIndexDirectory, final boolean withTaxonomy)
-			throws IOException {
-		super(getSlaveNode(backupIndexDirectory, withTaxonomy));
+	ReplicationBackup(final IndexInstance indexInstance, final Path backupIndexDirectory, final boolean withTaxonomy,
+			final ExecutorService executorService, final int parallelism) throws IOException {
+		super(getSlaveNode(backupIndexDirectory, withTaxonomy), executorService, parallelism);
 		this.indexInstance = indexInstance;
 		this.backupIndexDirectory = backupIndexDirectory;
+		this.masterUuidFile = backupIndexDirectory.resolve(IndexFileSet.UUID_MASTER_FILE);
+		this.linkSupported = true;
+	}
+
+	@Override
+	InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName,
+			final long offset) throws IOException {
+		return indexInstance.replicationObtain(sessionUuid, source, itemName, offset);
 	}
 
 	@Override
-	InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName)
-			throws FileNotFoundException {
-		return indexInstance.replicationObtain(sessionUuid, source, itemName);
+	boolean linkItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName,
+			final Path target) {
+		if (!linkSupported)
+			return false;
+		final Path itemPath = indexInstance.replicationItemPath(sessionUuid, source, itemName);
+		if (itemPath == null)
+			return false;
+		try {
+			Files.createLink(target, itemPath);
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			// Typically another file system, the next files will be copied
+			linkSupported = false;
+			LOGGER.log(Level.INFO, e, () -> "The backup files cannot be linked, they will be copied: " + target);
+			return false;
+		}
+	}
+
+	/**
+	 * @return the UUID of the index stored by the previous backup, or null
+	 * @throws IOException if any I/O error occured
+	 */
+	private UUID getPreviousMasterUuid() throws IOException {
+		if (!Files.exists(masterUuidFile) || Files.size(masterUuidFile) == 0)
+			return null;
+		return UUID.fromString(IOUtils.readFileAsString(masterUuidFile.toFile()).trim());
 	}
 
 	/**
@@ -52,9 +100,13 @@ class ReplicationBackup extends ReplicationClient {
 	BackupStatus backup() throws IOException {
 		final ReplicationSession session = indexInstance.replicationUpdate(null);
 		try {
-			replicate(session, null, (strategy, remoteMasterUuid) -> {
+			// If the same index has already been backed up, the backup is incremental
+			final UUID previousMasterUuid = getPreviousMasterUuid();
+			final ReplicationStatus status = replicate(session, previousMasterUuid, (strategy, remoteMasterUuid) -> {
+				if (!remoteMasterUuid.equals(previousMasterUuid))
+					IOUtils.writeStringToFile(remoteMasterUuid.toString(), masterUuidFile.toFile());
 			});
-			return BackupStatus.newBackupStatus(backupIndexDirectory, false);
+			return BackupStatus.newBackupStatus(backupIndexDirectory, false, status);
 		} finally {
 			indexInstance.replicationRelease(session.sessionUuid);
 		}
@@ -65,16 +117,27 @@ class ReplicationBackup extends ReplicationClient {
 		final Path dataIndexPath = backupIndexDirectory.resolve(IndexFileSet.INDEX_DATA);
 		final Path replWorkDirectory = backupIndexDirectory.resolve(IndexFileSet.REPL_WORK);
 
+		// The UUID_MASTER_FILE is managed by the backup itself, the small metadata files are always replaced
 		if (!withTaxonomy)
 			return new SlaveNode.WithIndex(resourcesPath, null, dataIndexPath, replWorkDirectory, backupIndexDirectory,
 					IndexFileSet.FIELDS_FILE, IndexFileSet.ANALYZERS_FILE, IndexFileSet.SETTINGS_FILE,
-					IndexFileSet.UUID_FILE, IndexFileSet.UUID_MASTER_FILE);
+					IndexFileSet.UUID_FILE) {
+				@Override
+				protected ReplicationProcess metadata(final ReplicationProcess.Builder builder) throws IOException {
+					return fullMetadata(builder);
+				}
+			};
 
 		final Path taxoIndexPath = backupIndexDirectory.resolve(IndexFileSet.INDEX_TAXONOMY);
 
 		return new SlaveNode.WithIndexAndTaxo(resourcesPath, null, dataIndexPath, null, taxoIndexPath,
 				replWorkDirectory, backupIndexDirectory, IndexFileSet.FIELDS_FILE, IndexFileSet.ANALYZERS_FILE,
-				IndexFileSet.SETTINGS_FILE, IndexFileSet.UUID_FILE, IndexFileSet.UUID_MASTER_FILE);
+				IndexFileSet.SETTINGS_FILE, IndexFileSet.UUID_FILE) {
+			@Override
+			protected ReplicationProcess metadata(final ReplicationProcess.Builder builder) throws IOException {
+				return fullMetadata(builder);
+			}
+		};
 	}
 
 }
@@ -20,10 +20,11 @@ import com.qwazr.search.replication.ReplicationProcess;
 import com.qwazr.search.replication.ReplicationSession;
 import com.qwazr.search.replication.SlaveNode;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Base replication class shared by the ReplicationBackup and ReplicationSlave
@@ -31,18 +32,53 @@ import java.util.UUID;
 abstract class ReplicationClient {
 
 	final private SlaveNode slaveNode;
+	final private ExecutorService executorService;
+	final private int parallelism;
 	volatile private ReplicationStatus lastStatus;
 
-	protected ReplicationClient(final SlaveNode slaveNode) {
+	protected ReplicationClient(final SlaveNode slaveNode, final ExecutorService executorService,
+			final int parallelism) {
 		this.slaveNode = slaveNode;
+		this.executorService = executorService;
+		this.parallelism = parallelism;
 	}
 
 	ReplicationStatus getLastStatus() {
 		return lastStatus;
 	}
 
+	/**
+	 * @return the status of a replication which had nothing to transfer
+	 */
+	final ReplicationStatus upToDate() {
+		return lastStatus = ReplicationStatus.of(ReplicationStatus.Strategy.incremental).build();
+	}
+
+	/**
+	 * @param sessionUuid the replication session
+	 * @param source      the source of the item
+	 * @param itemName    the name of the item
+	 * @param offset      the position of the first byte to read
+	 * @return the content of the item starting at the given offset
+	 * @throws IOException if any I/O error occured
+	 */
 	abstract InputStream getItem(final String sessionUuid, final ReplicationProcess.Source source,
-			final String itemName) throws FileNotFoundException;
+			final String itemName, final long offset) throws IOException;
+
+	/**
+	 * Create the target as a link to the item, when the item is on the same file system.
+	 *
+	 * @param sessionUuid the replication session
+	 * @param source      the source of the item
+	 * @param itemName    the name of the item
+	 * @param target      the path of the link to create
+	 * @return true if the link has been created, false if the item must be transferred
+	 * @throws IOException if any I/O error occured
+	 */
+	boolean linkItem(final String sessionUuid, final ReplicationProcess.Source source, final String itemName,
+			final Path target) throws IOException {
+		return false;
+	}
 
 	final ReplicationStatus replicate(final ReplicationSession session, final UUID clientMasterUuid,
 			final Switcher switcher) throws IOException {
@@ -55,12 +91,27 @@ abstract class ReplicationClient {
 
 		final ReplicationStatus.Builder currentStatus = ReplicationStatus.of(strategy).session(session);
 
+		final ReplicationProcess.SourceFileProvider sourceFileProvider = new ReplicationProcess.SourceFileProvider() {
+
+			@Override
+			public InputStream obtain(final ReplicationProcess.Source source, final String file, final long offset)
+					throws IOException {
+				lastStatus = currentStatus.countSize(source, file, offset);
+				return getItem(session.sessionUuid, source, file, offset);
+			}
+
+			@Override
+			public boolean link(final ReplicationProcess.Source source, final String file, final Path target)
+					throws IOException {
+				if (!linkItem(session.sessionUuid, source, file, target))
+					return false;
+				lastStatus = currentStatus.countLinked(source, file);
+				return true;
+			}
+		};
+
 		try (final ReplicationProcess replicationProcess = slaveNode.newReplicationProcess(strategy, session,
-				(source, file) -> {
-					currentStatus.countSize(source, file);
-					lastStatus = currentStatus.build();
-					return getItem(session.sessionUuid, source, file);
-				})) {
+				sourceFileProvider, executorService, parallelism)) {
 			replicationProcess.obtainNewFiles();
 			replicationProcess.moveInPlaceNewFiles();
 
@@ -26,6 +26,7 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,10 +41,33 @@ interface ReplicationMaster extends Closeable {
     InputStream getItem(final String sessionId, final ReplicationProcess.Source source, final String itemName)
         throws FileNotFoundException;
 
+    Path getItemPath(final String sessionId, final ReplicationProcess.Source source, final String itemName);
+
     void releaseSession(String sessionId) throws IOException;
 
     void expireInactiveSessions(TimeUnit unit, long time);
 
+    /**
+     * @return the current generation, it changes every time something to replicate has changed
+     */
+    long getGeneration();
+
+    /**
+     * Signal a new commit, or a change of the fields, the analyzers or the resources.
+     * The slaves waiting in awaitGeneration are released.
+     */
+    void notifyChange();
+
+    /**
+     * Wait until the generation is different from the given one.
+     *
+     * @param generation the generation known by the slave, may be null
+     * @param timeoutMs  the maximum time to wait in milliseconds
+     * @return the current generation
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    long awaitGeneration(Long generation, long timeoutMs) throws InterruptedException;
+
     abstract class Base implements ReplicationMaster {
 
         private final static Logger LOGGER = LoggerUtils.getLogger(Base.class);
@@ -55,11 +79,49 @@ interface ReplicationMaster extends Closeable {
 
         private final ThreadLocal<List<String>> expiredSessions;
 
+        private final Object generationMonitor;
+        private volatile long generation;
+        private volatile boolean closed;
+
         private Base(final MasterNode masterNode) {
             this.masterNode = masterNode;
             sessions = new ConcurrentHashMap<>();
             sessionsLastActive = new ConcurrentHashMap<>();
             expiredSessions = ThreadLocal.withInitial(ArrayList::new);
+            generationMonitor = new Object();
+            // Starting from the clock, a restarted master never reuses a generation already known by a slave
+            generation = System.currentTimeMillis();
+            closed = false;
+        }
+
+        @Override
+        final public long getGeneration() {
+            return generation;
+        }
+
+        @Override
+        final public void notifyChange() {
+            synchronized (generationMonitor) {
+                generation++;
+                generationMonitor.notifyAll();
+            }
+        }
+
+        @Override
+        final public long awaitGeneration(final Long knownGeneration, final long timeoutMs)
+            throws InterruptedException {
+            if (knownGeneration == null || knownGeneration != generation || timeoutMs <= 0)
+                return generation;
+            final long deadline = System.currentTimeMillis() + timeoutMs;
+            synchronized (generationMonitor) {
+                while (knownGeneration == generation && !closed) {
+                    final long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0)
+                        break;
+                    generationMonitor.wait(wait);
+                }
+                return generation;
+            }
         }
 
         @Override
@@ -77,6 +139,13 @@ interface ReplicationMaster extends Closeable {
             return masterNode.getItem(sessionId, source, fileName);
         }
 
+        @Override
+        final public Path getItemPath(final String sessionId, final ReplicationProcess.Source source,
+                                      final String fileName) {
+            sessionsLastActive.put(sessionId, System.currentTimeMillis());
+            return masterNode.getItemPath(sessionId, source, fileName);
+        }
+
         @Override
         final public void expireInactiveSessions(final TimeUnit unit, final long duration) {
             final long expirationTime = System.currentTimeMillis() - unit.toMillis(duration);
@@ -108,6 +177,10 @@ interface ReplicationMaster extends Closeable {
 
         @Override
         final public void close() throws IOException {
+            closed = true;
+            synchronized (generationMonitor) {
+                generationMonitor.notifyAll();
+            }
             synchronized (this) {
                 for (final ReplicationSession session : sessions.values())
                     releaseSession(session.sessionUuid);
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 class ReplicationSlave extends ReplicationClient {
 
@@ -35,10 +36,12 @@ class ReplicationSlave extends ReplicationClient {
     private volatile UUID clientMasterUuid;
     private final IndexServiceInterface indexService;
     private final RemoteIndex master;
+    private volatile Long replicatedGeneration;
 
     ReplicationSlave(final File masterUuidFile, final IndexServiceInterface localService, final RemoteIndex master,
-                     final SlaveNode slaveNode) throws IOException {
-        super(slaveNode);
+                     final SlaveNode slaveNode, final ExecutorService executorService,
+                     final int parallelism) throws IOException {
+        super(slaveNode, executorService, parallelism);
         this.masterUuidFile = masterUuidFile;
         this.master = master;
         this.indexService = master == null ? null : master.host == null ? localService : new IndexSingleClient(master);
@@ -67,32 +70,54 @@ class ReplicationSlave extends ReplicationClient {
     }
 
     @Override
-    public InputStream getItem(final String sessionId, final ReplicationProcess.Source source, final String file) {
-        return checkService().replicationObtain(master.index, sessionId, source.name(), file);
+    public InputStream getItem(final String sessionId, final ReplicationProcess.Source source, final String file,
+                               final long offset) {
+        return checkService().replicationObtain(master.index, sessionId, source.name(), file,
+            offset > 0 ? "bytes=" + offset + "-" : null);
+    }
+
+    /**
+     * Wait until the generation of the master differs from the given one, or until the timeout expires.
+     *
+     * @return the current generation of the master
+     */
+    Long awaitMasterGeneration(final Long generation, final long timeoutMs) {
+        return checkService().replicationGeneration(master.index, generation, timeoutMs);
     }
 
     ReplicationStatus replicate(final Switcher switcher) throws IOException {
-        final ReplicationSession session = checkService().replicationUpdate(master.index, null);
+        // Read before opening the session: a change made meanwhile is replicated again by the next call
+        final Long masterGeneration = awaitMasterGeneration(null, 0);
+        final ReplicationSession session = checkService().replicationUpdate(master.index,
+            replicatedGeneration == null ? null : replicatedGeneration.toString());
+        if (session == null)
+            return upToDate();
         try {
-            return replicate(session, getClientMasterUuid(), switcher);
+            final ReplicationStatus status = replicate(session, getClientMasterUuid(), switcher);
+            replicatedGeneration = masterGeneration;
+            return status;
         } finally {
             checkService().replicationRelease(master.index, session.sessionUuid);
         }
     }
 
     static ReplicationSlave withIndexAndTaxo(final IndexFileSet fileSet, final IndexServiceInterface localService,
-                                             final RemoteIndex master, final Directory dataDirectory, final Directory taxonomyDirectory)
+                                             final RemoteIndex master, final Directory dataDirectory, final Directory taxonomyDirectory,
+                                             final ExecutorService executorService, final int parallelism)
         throws IOException {
         return new ReplicationSlave(fileSet.uuidMasterFile, localService, master,
             new SlaveNode.WithIndexAndTaxo(fileSet.resourcesDirectoryPath, dataDirectory, fileSet.dataDirectory,
-                taxonomyDirectory, fileSet.taxonomyDirectory, fileSet.replWorkPath, fileSet.mainDirectory));
+                taxonomyDirectory, fileSet.taxonomyDirectory, fileSet.replWorkPath, fileSet.mainDirectory),
+            executorService, parallelism);
     }
 
     static ReplicationSlave withIndex(final IndexFileSet fileSet, final IndexServiceInterface localService,
-                                      final RemoteIndex master, final Directory dataDirectory) throws IOException {
+                                      final RemoteIndex master, final Directory dataDirectory,
+                                      final ExecutorService executorService, final int parallelism)
+        throws IOException {
         return new ReplicationSlave(fileSet.uuidMasterFile, localService, master,
             new SlaveNode.WithIndex(fileSet.resourcesDirectoryPath, dataDirectory, fileSet.dataDirectory,
-                fileSet.replWorkPath, fileSet.mainDirectory));
+                fileSet.replWorkPath, fileSet.mainDirectory), executorService, parallelism);
     }
 
 }
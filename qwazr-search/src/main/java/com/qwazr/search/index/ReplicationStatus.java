@@ -42,6 +42,8 @@ public class ReplicationStatus {
     public final Date end;
     public final long time;
     public final long bytes;
+    @JsonProperty("bytes_linked")
+    public final long bytesLinked;
     public final String size;
     public final int ratio;
     public final Strategy strategy;
@@ -49,12 +51,14 @@ public class ReplicationStatus {
     @JsonCreator
     ReplicationStatus(@JsonProperty("start") final Date start, @JsonProperty("end") final Date end,
             @JsonProperty("time") final long time, @JsonProperty("bytes") final long bytes,
+            @JsonProperty("bytes_linked") final long bytesLinked,
             @JsonProperty("size") final String size, @JsonProperty("ratio") final int ratio,
             @JsonProperty("strategy") final Strategy strategy) {
         this.start = start;
         this.end = end;
         this.time = time;
         this.bytes = bytes;
+        this.bytesLinked = bytesLinked;
         this.size = size;
         this.ratio = ratio;
         this.strategy = strategy;
@@ -69,6 +73,7 @@ public class ReplicationStatus {
         final Strategy strategy;
         final Date start;
         long bytes;
+        long bytesLinked;
         ReplicationSession session;
 
         Builder(Strategy strategy) {
@@ -81,16 +86,25 @@ public class ReplicationStatus {
             return this;
         }
 
-        void countSize(ReplicationProcess.Source source, String fileName) {
+        synchronized ReplicationStatus countSize(final ReplicationProcess.Source source, final String fileName,
+                                                 final long offset) {
             final ReplicationSession.Item item = session.getItem(source, fileName);
             if (item != null && item.size != null)
-                bytes += item.size;
+                bytes += Math.max(0, item.size - offset);
+            return build();
         }
 
-        ReplicationStatus build() {
+        synchronized ReplicationStatus countLinked(final ReplicationProcess.Source source, final String fileName) {
+            final ReplicationSession.Item item = session.getItem(source, fileName);
+            if (item != null && item.size != null)
+                bytesLinked += item.size;
+            return build();
+        }
+
+        synchronized ReplicationStatus build() {
             final Date end = new Date();
             final int ratio = bytes == 0 || session.size == 0 ? 0 : (int) ((bytes * 100) / session.size);
-            return new ReplicationStatus(start, end, end.getTime() - start.getTime(), bytes,
+            return new ReplicationStatus(start, end, end.getTime() - start.getTime(), bytes, bytesLinked,
                     FileUtils.byteCountToDisplaySize(bytes), ratio, strategy);
         }
 
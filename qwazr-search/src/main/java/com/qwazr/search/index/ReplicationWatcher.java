@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.utils.LoggerUtils;
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a slave up to date by long polling the generation of its master.
+ * A replication is started as soon as the master reports a new generation.
+ * <p>
+ * The watcher never ends, it has its own thread rather than holding one of the bounded replication executor.
+ */
+class ReplicationWatcher implements Runnable, Closeable {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ReplicationWatcher.class);
+
+    final static long ERROR_BACKOFF_MS = 1000;
+
+    private final IndexInstance indexInstance;
+    private final ReplicationSlave replicationSlave;
+    private final long longPollMs;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile Long generation;
+
+    ReplicationWatcher(final String indexName,
+                       final IndexInstance indexInstance,
+                       final ReplicationSlave replicationSlave,
+                       final long longPollMs) {
+        this.indexInstance = indexInstance;
+        this.replicationSlave = replicationSlave;
+        this.longPollMs = longPollMs;
+        this.thread = new Thread(this, "qwazr-replication-watcher-" + indexName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return the generation of the master reached by the last replication
+     */
+    Long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                final Long masterGeneration = replicationSlave.awaitMasterGeneration(generation, longPollMs);
+                if (closed)
+                    return;
+                if (masterGeneration == null || Objects.equals(masterGeneration, generation))
+                    continue;
+                indexInstance.replicationCheck();
+                generation = masterGeneration;
+            } catch (Exception e) {
+                if (closed)
+                    return;
+                LOGGER.log(Level.WARNING, e, () -> "Replication watcher error: " + e.getMessage());
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
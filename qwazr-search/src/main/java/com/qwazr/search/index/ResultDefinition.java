@@ -37,6 +37,14 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
     final public Map<String, Map<String, Number>> facets;
     final public String query;
     final public Map<String, Object> collectors;
+    @JsonProperty("next_cursor")
+    final public String nextCursor;
+    /**
+     * True when the time allowed to the query was over, some hits, facets or highlights may be missing
+     */
+    @JsonProperty("partial")
+    @JsonInclude(Include.NON_NULL)
+    final public Boolean partial;
 
     public ResultDefinition() {
         this.timer = null;
@@ -45,6 +53,8 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         this.facets = null;
         this.collectors = null;
         this.query = null;
+        this.nextCursor = null;
+        this.partial = null;
     }
 
     protected ResultDefinition(final ResultDocumentsBuilder builder, @NotNull final List<T> documents) {
@@ -54,6 +64,8 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         this.documents = documents;
         this.facets = builder.facets;
         this.collectors = builder.collectors;
+        this.nextCursor = builder.nextCursor;
+        this.partial = builder.partial;
     }
 
     protected ResultDefinition(final ResultDefinition<?> src, @NotNull final List<T> documents) {
@@ -63,6 +75,8 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         this.documents = documents;
         this.facets = src.facets;
         this.collectors = src.collectors;
+        this.nextCursor = src.nextCursor;
+        this.partial = src.partial;
     }
 
     ResultDefinition(final TimeTracker timeTracker) {
@@ -71,6 +85,23 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         documents = Collections.emptyList();
         facets = null;
         collectors = null;
+        nextCursor = null;
+        partial = null;
+        this.timer = timeTracker != null ? timeTracker.getStatus() : null;
+    }
+
+    ResultDefinition(final TimeTracker timeTracker,
+                     final long totalHits,
+                     final List<T> documents,
+                     final Map<String, Map<String, Number>> facets,
+                     final Boolean partial) {
+        query = null;
+        this.totalHits = totalHits;
+        this.documents = documents;
+        this.facets = facets;
+        collectors = null;
+        nextCursor = null;
+        this.partial = partial;
         this.timer = timeTracker != null ? timeTracker.getStatus() : null;
     }
 
@@ -80,6 +111,8 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         documents = Collections.emptyList();
         facets = null;
         collectors = null;
+        nextCursor = null;
+        partial = null;
         this.timer = null;
     }
 
@@ -119,6 +152,16 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         return query;
     }
 
+    @JsonIgnore
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @JsonIgnore
+    public boolean isPartial() {
+        return Boolean.TRUE.equals(partial);
+    }
+
     public Object getCollector(final String name) {
         return getCollector(name, Object.class);
     }
@@ -147,6 +190,14 @@ public abstract class ResultDefinition<T extends ResultDocumentAbstract> {
         public WithMap(int docs) {
             super(docs);
         }
+
+        WithMap(final TimeTracker timeTracker,
+                final long totalHits,
+                final List<ResultDocumentMap> documents,
+                final Map<String, Map<String, Number>> facets,
+                final Boolean partial) {
+            super(timeTracker, totalHits, documents, facets, partial);
+        }
     }
 
     public static class WithObject<T> extends ResultDefinition<ResultDocumentObject<T>> {
@@ -17,6 +17,7 @@ package com.qwazr.search.index;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.lucene.search.ScoreDoc;
 
@@ -27,14 +28,21 @@ public abstract class ResultDocumentAbstract {
     final public float score;
     final public int pos;
     final public Map<String, String> highlights;
+    /**
+     * The position of the document usable as search_after, only when the query requires the cursors
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    final public String cursor;
 
     @JsonCreator
     ResultDocumentAbstract(@JsonProperty("score") Float score,
                            @JsonProperty("pos") Integer pos,
-                           @JsonProperty("highlights") Map<String, String> highlights) {
+                           @JsonProperty("highlights") Map<String, String> highlights,
+                           @JsonProperty("cursor") String cursor) {
         this.score = score == null ? 1.0F : score;
         this.pos = pos == null ? -1 : pos;
         this.highlights = highlights;
+        this.cursor = cursor;
     }
 
     protected ResultDocumentAbstract(final ResultDocumentBuilder<?> builder) {
@@ -42,10 +50,15 @@ public abstract class ResultDocumentAbstract {
         this.score = scoreDoc.score;
         this.pos = builder.pos();
         this.highlights = builder.highlights();
+        this.cursor = builder.cursor();
     }
 
     protected ResultDocumentAbstract(final ResultDocumentAbstract src) {
-        this(src.score, src.pos, src.highlights);
+        this(src.score, src.pos, src.highlights, src.cursor);
+    }
+
+    protected ResultDocumentAbstract(final ResultDocumentAbstract src, final int pos) {
+        this(src.score, pos, src.highlights, null);
     }
 
     final public float getScore() {
@@ -60,6 +73,10 @@ public abstract class ResultDocumentAbstract {
         return highlights;
     }
 
+    final public String getCursor() {
+        return cursor;
+    }
+
     @JsonIgnore
     final public Map<String, String> getSnippets() {
         return highlights;
@@ -30,6 +30,10 @@ interface ResultDocumentBuilder<T extends ResultDocumentAbstract> {
 
     Map<String, String> highlights();
 
+    String cursor();
+
+    void setCursor(final String cursor);
+
     default void setDocValuesField(final String fieldName, final ValueConverter<?> converter) {
     }
 
@@ -78,6 +82,7 @@ interface ResultDocumentBuilder<T extends ResultDocumentAbstract> {
         protected final int pos;
         protected final ScoreDoc scoreDoc;
         protected Map<String, String> highlights;
+        protected String cursor;
 
         Base(final int pos, final ScoreDoc scoreDoc) {
             this.pos = pos;
@@ -99,6 +104,16 @@ interface ResultDocumentBuilder<T extends ResultDocumentAbstract> {
             return highlights;
         }
 
+        @Override
+        public final String cursor() {
+            return cursor;
+        }
+
+        @Override
+        public final void setCursor(final String cursor) {
+            this.cursor = cursor;
+        }
+
         @Override
         public final void setHighlight(final String name, final String snippet) {
             if (name == null || snippet == null)
@@ -39,11 +39,30 @@ public class ResultDocumentMap extends ResultDocumentAbstract {
     public ResultDocumentMap(@JsonProperty("score") Float score,
                              @JsonProperty("pos") Integer pos,
                              @JsonProperty("highlights") Map<String, String> highlights,
+                             @JsonProperty("cursor") String cursor,
                              @JsonProperty("fields") Map<String, Object> fields) {
-        super(score, pos, highlights);
+        super(score, pos, highlights, cursor);
         this.fields = fields;
     }
 
+    public ResultDocumentMap(final Float score,
+                             final Integer pos,
+                             final Map<String, String> highlights,
+                             final Map<String, Object> fields) {
+        this(score, pos, highlights, null, fields);
+    }
+
+    /**
+     * Copy the document with a new position, the cursor is not copied
+     *
+     * @param src the document to copy
+     * @param pos the new position of the document
+     */
+    public ResultDocumentMap(final ResultDocumentMap src, final int pos) {
+        super(src, pos);
+        this.fields = src.fields;
+    }
+
     private ResultDocumentMap(final ResultDocumentBuilder.Base<ResultDocumentMap> builder,
                               final Map<String, Object> fields) {
         super(builder);
@@ -35,6 +35,8 @@ class ResultDocumentsBuilder {
     final String queryDebug;
     final TimeTracker.Status timeTrackerStatus;
     final long totalHits;
+    final String nextCursor;
+    final Boolean partial;
 
     ResultDocumentsBuilder(final QueryDefinition queryDefinition,
                            final TopDocs topDocs,
@@ -45,18 +47,21 @@ class ResultDocumentsBuilder {
                            final TimeTracker timeTracker,
                            final FacetsBuilder facetsBuilder,
                            final long totalHits,
+                           final QueryDeadline deadline,
                            @NotNull final ResultDocumentsInterface resultDocuments) throws IOException {
 
         this.collectors = externalCollectorsResults;
 
-        if (topDocs != null && topDocs.scoreDocs != null) {
+        // A full page may be followed by another one
+        final int rows = queryDefinition.getRowsValue();
+        this.nextCursor = topDocs != null && topDocs.scoreDocs != null && rows > 0 && topDocs.scoreDocs.length >= rows ?
+            SearchCursor.encode(topDocs.scoreDocs[topDocs.scoreDocs.length - 1]) : null;
 
-            int pos = 0;
+        if (topDocs != null && topDocs.scoreDocs != null) {
 
             checkSortField(queryDefinition.getSorts(), topDocs.scoreDocs);
 
-            for (final ScoreDoc scoreDoc : topDocs.scoreDocs)
-                resultDocuments.doc(indexSearcher, pos++, scoreDoc);
+            resultDocuments.docs(indexSearcher, topDocs.scoreDocs);
 
             if (timeTracker != null)
                 timeTracker.next("documents");
@@ -81,6 +86,7 @@ class ResultDocumentsBuilder {
             null;
 
         this.timeTrackerStatus = timeTracker == null ? null : timeTracker.getStatus();
+        this.partial = deadline.isPartial() ? Boolean.TRUE : null;
     }
 
     private void checkSortField(LinkedHashMap<String, QueryDefinition.SortEnum> sortFields, final ScoreDoc[] scoreDocs) {
@@ -32,6 +32,17 @@ public interface ResultDocumentsInterface {
     default void doc(IndexSearcher searcher, int pos, ScoreDoc scoreDoc) throws IOException {
     }
 
+    /**
+     * @param searcher  the IndexSearcher used for the query
+     * @param scoreDocs the documents of the page, in rank order
+     * @throws IOException if any I/O error occurs
+     */
+    default void docs(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        int pos = 0;
+        for (final ScoreDoc scoreDoc : scoreDocs)
+            doc(searcher, pos++, scoreDoc);
+    }
+
     /**
      * @param pos     the position of the document
      * @param name    the name of the snippet
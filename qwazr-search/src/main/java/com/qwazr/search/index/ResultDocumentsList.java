@@ -27,10 +27,12 @@ abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
 
     private final List<ResultDocumentBuilder<T>> documentsBuilder;
     private final ReturnedFieldStrategy returnedFieldStrategy;
+    private final boolean cursors;
     protected final int start;
 
-    ResultDocumentsList(final int start, final ReturnedFieldStrategy returnedFieldStrategy) {
-        this.start = start;
+    ResultDocumentsList(final QueryDefinition queryDefinition, final ReturnedFieldStrategy returnedFieldStrategy) {
+        this.start = queryDefinition.getStartValue();
+        this.cursors = Boolean.TRUE.equals(queryDefinition.getCursors());
         this.returnedFieldStrategy = returnedFieldStrategy;
         this.documentsBuilder = new ArrayList<>();
     }
@@ -46,10 +48,28 @@ abstract class ResultDocumentsList<T extends ResultDocumentAbstract>
         final ResultDocumentBuilder<T> builder = newResultDocumentBuilder(start + pos, scoreDoc);
         if (builder == null)
             return;
+        if (cursors)
+            builder.setCursor(SearchCursor.encode(scoreDoc));
         returnedFieldStrategy.extract(searcher, builder);
         documentsBuilder.add(builder);
     }
 
+    @Override
+    final public void docs(final IndexSearcher searcher, final ScoreDoc[] scoreDocs) throws IOException {
+        final List<ResultDocumentBuilder<T>> builders = new ArrayList<>(scoreDocs.length);
+        int pos = 0;
+        for (final ScoreDoc scoreDoc : scoreDocs) {
+            final ResultDocumentBuilder<T> builder = newResultDocumentBuilder(start + pos++, scoreDoc);
+            if (builder == null)
+                continue;
+            if (cursors)
+                builder.setCursor(SearchCursor.encode(scoreDoc));
+            builders.add(builder);
+        }
+        returnedFieldStrategy.extract(searcher, builders);
+        documentsBuilder.addAll(builders);
+    }
+
     @Override
     final public void highlight(int pos, String name, String snippet) {
         documentsBuilder.get(pos).setHighlight(name, snippet);
@@ -25,7 +25,7 @@ abstract class ResultDocumentsMap extends ResultDocumentsList<ResultDocumentMap>
 
     private ResultDocumentsMap(@NotNull final QueryDefinition queryDefinition,
                                @NotNull final ReturnedFieldStrategy returnedFieldStrategy) {
-        super(queryDefinition.getStartValue(), returnedFieldStrategy);
+        super(queryDefinition, returnedFieldStrategy);
     }
 
     static ResultDocumentsMap of(@NotNull final QueryDefinition queryDefinition,
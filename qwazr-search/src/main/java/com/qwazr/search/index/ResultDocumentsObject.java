@@ -26,7 +26,7 @@ abstract class ResultDocumentsObject<T> extends ResultDocumentsList<ResultDocume
 
     private ResultDocumentsObject(final QueryDefinition queryDefinition,
                                   final ReturnedFieldStrategy returnedFieldStrategy) {
-        super(queryDefinition.getStartValue(), returnedFieldStrategy);
+        super(queryDefinition, returnedFieldStrategy);
     }
 
     static <T> ResultDocumentsObject<T> of(@NotNull final QueryDefinition queryDefinition,
@@ -70,6 +70,19 @@ public interface ReturnedFieldStrategy {
 
     void extract(final IndexSearcher searcher, final ResultDocumentBuilder<?> builder) throws IOException;
 
+    /**
+     * Extract the returned fields of a whole result page.
+     *
+     * @param searcher the searcher used by the query
+     * @param builders the documents of the page, in rank order
+     * @throws IOException if any I/O error occurs
+     */
+    default void extract(final IndexSearcher searcher,
+                         final List<? extends ResultDocumentBuilder<?>> builders) throws IOException {
+        for (final ResultDocumentBuilder<?> builder : builders)
+            extract(searcher, builder);
+    }
+
     Type type();
 
     /**
@@ -89,6 +102,13 @@ public interface ReturnedFieldStrategy {
             searcher.doc(builder.scoreDoc().doc, new RecordVisitor(recordField, builder));
         }
 
+        @Override
+        public void extract(final IndexSearcher searcher,
+                            final List<? extends ResultDocumentBuilder<?>> builders) throws IOException {
+            StoredFieldsFetcher.fetch(searcher, builders,
+                (reader, leafDocId, builder) -> reader.document(leafDocId, new RecordVisitor(recordField, builder)));
+        }
+
         @Override
         public Type type() {
             return Type.RECORD;
@@ -161,9 +181,21 @@ public interface ReturnedFieldStrategy {
 
         @Override
         public void extract(final IndexSearcher searcher, final ResultDocumentBuilder<?> builder) throws IOException {
+            extract(searcher::doc, builder.scoreDoc().doc, builder);
+        }
+
+        @Override
+        public void extract(final IndexSearcher searcher,
+                            final List<? extends ResultDocumentBuilder<?>> builders) throws IOException {
+            StoredFieldsFetcher.fetch(searcher, builders, this::extract);
+        }
+
+        private void extract(final StoredFieldsFetcher.DocumentReader reader,
+                             final int docId,
+                             final ResultDocumentBuilder<?> builder) throws IOException {
             if (!storedFields.isEmpty()) {
                 final FieldVisitor fieldVisitor = new FieldVisitor(storedFields);
-                searcher.doc(builder.scoreDoc().doc, fieldVisitor);
+                reader.document(docId, fieldVisitor);
                 fieldVisitor.apply(builder);
             }
             if (!returnedFieldsConverter.isEmpty())
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.utils.ObjectMappers;
+import com.qwazr.utils.StringUtils;
+import java.io.IOException;
+import java.util.Base64;
+import javax.ws.rs.NotAcceptableException;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Encodes the last document of a page as an opaque cursor (searchAfter).
+ * The cursor contains the Lucene document id, the score and, for a sorted query, the sort values.
+ */
+final class SearchCursor {
+
+    private final static String DOC = "d";
+    private final static String SCORE = "s";
+    private final static String FIELDS = "f";
+
+    private SearchCursor() {
+    }
+
+    static String encode(final ScoreDoc scoreDoc) {
+        if (scoreDoc == null)
+            return null;
+        final ObjectNode node = ObjectMappers.JSON.createObjectNode();
+        node.put(DOC, scoreDoc.doc);
+        node.put(SCORE, scoreDoc.score);
+        if (scoreDoc instanceof FieldDoc) {
+            final Object[] values = ((FieldDoc) scoreDoc).fields;
+            if (values != null) {
+                final ArrayNode fields = node.putArray(FIELDS);
+                for (final Object value : values)
+                    encodeValue(fields.addArray(), value);
+            }
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(ObjectMappers.SMILE.writeValueAsBytes(node));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode the cursor", e);
+        }
+    }
+
+    private static void encodeValue(final ArrayNode array, final Object value) {
+        if (value == null)
+            array.add("n");
+        else if (value instanceof Integer)
+            array.add("i").add((Integer) value);
+        else if (value instanceof Long)
+            array.add("l").add((Long) value);
+        else if (value instanceof Float)
+            array.add("f").add((Float) value);
+        else if (value instanceof Double)
+            array.add("d").add((Double) value);
+        else if (value instanceof BytesRef)
+            array.add("b").add(BytesRef.deepCopyOf((BytesRef) value).bytes);
+        else if (value instanceof String)
+            array.add("s").add((String) value);
+        else
+            throw new NotAcceptableException("This sort value can't be used in a cursor: " + value.getClass());
+    }
+
+    private static Object decodeValue(final JsonNode array) throws IOException {
+        switch (array.get(0).asText()) {
+            case "n":
+                return null;
+            case "i":
+                return array.get(1).intValue();
+            case "l":
+                return array.get(1).longValue();
+            case "f":
+                return array.get(1).floatValue();
+            case "d":
+                return array.get(1).doubleValue();
+            case "b":
+                return new BytesRef(array.get(1).binaryValue());
+            case "s":
+                return array.get(1).textValue();
+            default:
+                throw new NotAcceptableException("Invalid cursor value type: " + array.get(0));
+        }
+    }
+
+    /**
+     * @param cursor the cursor returned with the previous page
+     * @param sort   the sort of the query, or null
+     * @return the ScoreDoc to pass to the collectors, or null if there is no cursor
+     */
+    static ScoreDoc decode(final String cursor, final Sort sort) {
+        final ScoreDoc scoreDoc = decode(cursor);
+        if (scoreDoc == null)
+            return null;
+        if (sort == null) {
+            if (scoreDoc instanceof FieldDoc)
+                throw new NotAcceptableException("The cursor belongs to a sorted query");
+            return scoreDoc;
+        }
+        if (!(scoreDoc instanceof FieldDoc) || ((FieldDoc) scoreDoc).fields.length != sort.getSort().length)
+            throw new NotAcceptableException("The cursor does not match the sort of the query");
+        return scoreDoc;
+    }
+
+    /**
+     * @param cursor the cursor of a document
+     * @return a FieldDoc if the cursor contains sort values, a ScoreDoc otherwise, or null if there is no cursor
+     */
+    static ScoreDoc decode(final String cursor) {
+        if (StringUtils.isEmpty(cursor))
+            return null;
+        try {
+            final JsonNode node = ObjectMappers.SMILE.readTree(Base64.getUrlDecoder().decode(cursor));
+            final int doc = node.get(DOC).intValue();
+            final float score = node.get(SCORE).floatValue();
+            final JsonNode fields = node.get(FIELDS);
+            if (fields == null)
+                return new ScoreDoc(doc, score);
+            final Object[] values = new Object[fields.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = decodeValue(fields.get(i));
+            return new FieldDoc(doc, score, values);
+        } catch (IOException | IllegalArgumentException | NullPointerException e) {
+            throw new NotAcceptableException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Fetch phase of a result page.
+ * <p>
+ * The documents are grouped by segment and read in doc ID order,
+ * using one sequential stored fields reader per segment:
+ * a compressed block shared by several documents of the page is decompressed only once.
+ * The segments are read in parallel when the searcher has an executor.
+ * The builders are filled in place, the rank order of the page is not changed.
+ */
+final class StoredFieldsFetcher {
+
+    /**
+     * Below this number of documents the page is read by the calling thread only
+     */
+    final static int PARALLEL_MIN_DOCS = 64;
+
+    @FunctionalInterface
+    interface DocumentReader {
+        void document(int leafDocId, StoredFieldVisitor visitor) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Extractor {
+        void extract(DocumentReader reader, int leafDocId, ResultDocumentBuilder<?> builder) throws IOException;
+    }
+
+    private StoredFieldsFetcher() {
+    }
+
+    static void fetch(final IndexSearcher searcher,
+                      final List<? extends ResultDocumentBuilder<?>> builders,
+                      final Extractor extractor) throws IOException {
+        if (builders.isEmpty())
+            return;
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final List<LeafBatch> batches = groupByLeaf(leaves, builders);
+        final Executor executor = searcher instanceof MultiThreadSearcherFactory.StateIndexSearcher ?
+            ((MultiThreadSearcherFactory.StateIndexSearcher) searcher).getFetchExecutor() : searcher.getExecutor();
+        if (executor == null || batches.size() < 2 || builders.size() < PARALLEL_MIN_DOCS) {
+            for (final LeafBatch batch : batches)
+                batch.fetch(extractor);
+            return;
+        }
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size() - 1);
+        for (int i = 1; i < batches.size(); i++) {
+            final LeafBatch batch = batches.get(i);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    batch.fetch(extractor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        batches.get(0).fetch(extractor);
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw e;
+        }
+    }
+
+    private static List<LeafBatch> groupByLeaf(final List<LeafReaderContext> leaves,
+                                               final List<? extends ResultDocumentBuilder<?>> builders) {
+        final LeafBatch[] batchByLeaf = new LeafBatch[leaves.size()];
+        final List<LeafBatch> batches = new ArrayList<>();
+        for (final ResultDocumentBuilder<?> builder : builders) {
+            final int leafIndex = ReaderUtil.subIndex(builder.scoreDoc().doc, leaves);
+            LeafBatch batch = batchByLeaf[leafIndex];
+            if (batch == null) {
+                batch = batchByLeaf[leafIndex] = new LeafBatch(leaves.get(leafIndex));
+                batches.add(batch);
+            }
+            batch.builders.add(builder);
+        }
+        // The biggest batches first, they are the longest to read
+        batches.sort(Comparator.comparingInt((LeafBatch batch) -> batch.builders.size()).reversed());
+        return batches;
+    }
+
+    private static final class LeafBatch {
+
+        private final LeafReaderContext context;
+        private final List<ResultDocumentBuilder<?>> builders;
+
+        private LeafBatch(final LeafReaderContext context) {
+            this.context = context;
+            this.builders = new ArrayList<>();
+        }
+
+        private DocumentReader getDocumentReader() {
+            final LeafReader leafReader = context.reader();
+            if (builders.size() > 1 && leafReader instanceof CodecReader) {
+                // The merge instance keeps the current decompressed block for sequential reads
+                final StoredFieldsReader fieldsReader = ((CodecReader) leafReader).getFieldsReader();
+                if (fieldsReader != null)
+                    return fieldsReader.getMergeInstance()::visitDocument;
+            }
+            return leafReader::document;
+        }
+
+        private void fetch(final Extractor extractor) throws IOException {
+            builders.sort(Comparator.comparingInt(builder -> builder.scoreDoc().doc));
+            final DocumentReader reader = getDocumentReader();
+            for (final ResultDocumentBuilder<?> builder : builders)
+                extractor.extract(reader, builder.scoreDoc().doc - context.docBase, builder);
+        }
+    }
+}
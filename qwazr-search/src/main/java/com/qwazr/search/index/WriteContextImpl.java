@@ -24,12 +24,17 @@ import com.qwazr.utils.HashUtils;
 import com.qwazr.utils.StringUtils;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import javax.ws.rs.NotAcceptableException;
 import org.apache.lucene.analysis.util.ResourceLoader;
@@ -41,7 +46,6 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
     private final IndexWriter indexWriter;
     private final TaxonomyWriter taxonomyWriter;
     private final String primaryKey;
-    private final Supplier<String> autoIdProvider;
 
     WriteContextImpl(final IndexInstance.Provider indexProvider,
                      final ResourceLoader resourceLoader,
@@ -54,10 +58,6 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
         this.indexWriter = indexWriter;
         this.taxonomyWriter = taxonomyWriter;
         this.primaryKey = fieldMap.fieldsContext.primaryKey;
-        if (StringUtils.isBlank(primaryKey))
-            autoIdProvider = null;
-        else
-            autoIdProvider = getAutoIdProvider();
     }
 
     @Override
@@ -79,14 +79,41 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
         return poster.getCount();
     }
 
-    private <T> int postObjectDocs(final RecordsPoster.ObjectDocument poster,
+    /**
+     * @return the primary key of an object, or null if the fields don't include the primary key
+     */
+    private Function<Object, String> getObjectKeyFunction(final Map<String, Field> fields) {
+        final Field keyField = StringUtils.isBlank(primaryKey) ? null : fields.get(primaryKey);
+        if (keyField == null)
+            return null;
+        return document -> {
+            try {
+                return Objects.toString(keyField.get(document), null);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private Function<Map<String, ?>, String> getMapKeyFunction() {
+        return StringUtils.isBlank(primaryKey) ? null : document -> Objects.toString(document.get(primaryKey), null);
+    }
+
+    private Function<JsonNode, String> getJsonKeyFunction() {
+        return StringUtils.isBlank(primaryKey) ? null : jsonNode -> {
+            final JsonNode key = jsonNode.get(primaryKey);
+            return key == null ? null : key.asText();
+        };
+    }
+
+    private <T> int postObjectDocs(final Map<String, Field> fields,
+                                   final Supplier<RecordsPoster.ObjectDocument> posterSupplier,
                                    final Collection<T> documents,
                                    final Map<String, String> commitUserData) throws IOException {
-        for (final Object document : documents)
-            poster.accept(document);
+        final int count = BulkPoster.post(executorService, documents, getObjectKeyFunction(fields), posterSupplier);
         if (commitUserData != null)
             setLiveCommitData(commitUserData, true);
-        return poster.getCount();
+        return count;
     }
 
     public final void setLiveCommitData(Map<String, String> commitUserData, boolean doIncrementVersion) {
@@ -111,9 +138,9 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
                                        final Map<String, String> commitUserData) throws IOException {
         if (documents == null || documents.isEmpty())
             return 0;
-        final RecordsPoster.ObjectDocument poster =
-            RecordsPoster.ObjectDocument.of(fields, fieldMap, analyzerContext, indexWriter, taxonomyWriter);
-        return postObjectDocs(poster, documents, commitUserData);
+        return postObjectDocs(fields,
+            () -> RecordsPoster.ObjectDocument.of(fields, fieldMap, analyzerContext, indexWriter, taxonomyWriter),
+            documents, commitUserData);
     }
 
     @Override
@@ -135,6 +162,14 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
         return poster.getCount();
     }
 
+    private int postMappedDocs(final Supplier<RecordsPoster.MapDocument> posterSupplier,
+                               final PostDefinition.Documents post) throws IOException {
+        final int count = BulkPoster.post(executorService, post.documents, getMapKeyFunction(), posterSupplier);
+        if (post.commitUserData != null)
+            setLiveCommitData(post.commitUserData, true);
+        return count;
+    }
+
     @Override
     public final int postMappedDocument(final PostDefinition.Document post) throws IOException {
         if (post == null || post.document == null || post.document.isEmpty())
@@ -148,21 +183,64 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
     public final int postMappedDocuments(final PostDefinition.Documents post) throws IOException {
         if (post == null || post.documents == null || post.documents.isEmpty())
             return 0;
-        final RecordsPoster.MapDocument poster =
-            RecordsPoster.MapDocument.of(fieldMap, analyzerContext, indexWriter, taxonomyWriter);
-        return postMappedDocs(poster, post);
+        return postMappedDocs(
+            () -> RecordsPoster.MapDocument.of(fieldMap, analyzerContext, indexWriter, taxonomyWriter), post);
+    }
+
+    /**
+     * Checks the type of the node and generates the missing primary key before indexing it.
+     * The auto id provider is not thread safe, each worker gets its own instance.
+     */
+    private final class JsonNodePoster implements RecordsPoster.Of<JsonNode> {
+
+        private final RecordsPoster.JsonNodeDocument poster;
+        private final Supplier<String> autoIdProvider;
+
+        private JsonNodePoster(final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes) {
+            poster = RecordsPoster.JsonNodeDocument.of(fieldMap, analyzerContext, fieldTypes, indexWriter, taxonomyWriter);
+            autoIdProvider = StringUtils.isBlank(primaryKey) ? null : getAutoIdProvider();
+        }
+
+        @Override
+        public void accept(final JsonNode jsonNode) throws IOException {
+            if (!jsonNode.isObject())
+                throw new NotAcceptableException("This json type can't be indexed as a document: " + jsonNode.getNodeType());
+            final ObjectNode objectNode = (ObjectNode) jsonNode;
+            if (autoIdProvider != null) {
+                if (!objectNode.has(primaryKey))
+                    objectNode.put(primaryKey, autoIdProvider.get());
+            }
+            poster.accept(objectNode);
+        }
+
+        @Override
+        public int getCount() {
+            return poster.getCount();
+        }
     }
 
-    private void postJsonNode(final RecordsPoster.JsonNodeDocument poster,
-                              final JsonNode jsonNode) throws IOException {
-        if (!jsonNode.isObject())
-            throw new NotAcceptableException("This json type can't be indexed as a document: " + jsonNode.getNodeType());
-        final ObjectNode objectNode = (ObjectNode) jsonNode;
-        if (autoIdProvider != null) {
-            if (!objectNode.has(primaryKey))
-                objectNode.put(primaryKey, autoIdProvider.get());
+    private int postJsonNodeCollection(final Collection<JsonNode> jsonNodes,
+                                       final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes)
+        throws IOException {
+        if (fieldTypes == null || BulkPoster.getParallelism(executorService, jsonNodes.size()) <= 1)
+            return BulkPoster.post(executorService, jsonNodes, getJsonKeyFunction(),
+                () -> new JsonNodePoster(fieldTypes));
+        // Each worker collects its own field types, they are merged once the batch is done
+        final List<SortedMap<String, SortedSet<JsonNodeType>>> workerFieldTypes = new ArrayList<>();
+        try {
+            return BulkPoster.post(executorService, jsonNodes, getJsonKeyFunction(), () -> {
+                final SortedMap<String, SortedSet<JsonNodeType>> types = new TreeMap<>();
+                synchronized (workerFieldTypes) {
+                    workerFieldTypes.add(types);
+                }
+                return new JsonNodePoster(types);
+            });
+        } finally {
+            synchronized (workerFieldTypes) {
+                workerFieldTypes.forEach(types -> types.forEach(
+                    (field, nodeTypes) -> fieldTypes.computeIfAbsent(field, f -> new TreeSet<>()).addAll(nodeTypes)));
+            }
         }
-        poster.accept((ObjectNode) jsonNode);
     }
 
     @Override
@@ -170,17 +248,17 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
                             final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes) throws IOException {
         if (jsonNode == null)
             return 0;
-        final RecordsPoster.JsonNodeDocument poster =
-            RecordsPoster.JsonNodeDocument.of(fieldMap, analyzerContext, fieldTypes, indexWriter, taxonomyWriter);
         if (jsonNode.isArray()) {
-            for (final JsonNode element : jsonNode) {
-                postJsonNode(poster, element);
-            }
-        } else if (jsonNode.isObject())
+            final List<JsonNode> elements = new ArrayList<>(jsonNode.size());
+            jsonNode.forEach(elements::add);
+            return postJsonNodeCollection(elements, fieldTypes);
+        } else if (jsonNode.isObject()) {
+            final RecordsPoster.JsonNodeDocument poster =
+                RecordsPoster.JsonNodeDocument.of(fieldMap, analyzerContext, fieldTypes, indexWriter, taxonomyWriter);
             poster.accept((ObjectNode) jsonNode);
-        else
+            return poster.getCount();
+        } else
             throw new ServerException("The json should be either an array or an object: " + jsonNode.getNodeType());
-        return poster.getCount();
     }
 
     @Override
@@ -188,11 +266,7 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
                              final SortedMap<String, SortedSet<JsonNodeType>> fieldTypes) throws IOException {
         if (jsonNodes == null)
             return 0;
-        final RecordsPoster.JsonNodeDocument poster =
-            RecordsPoster.JsonNodeDocument.of(fieldMap, analyzerContext, fieldTypes, indexWriter, taxonomyWriter);
-        for (final JsonNode jsonNode : jsonNodes)
-            postJsonNode(poster, jsonNode);
-        return poster.getCount();
+        return postJsonNodeCollection(jsonNodes, fieldTypes);
     }
 
     @Override
@@ -212,9 +286,9 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
                                           final Map<String, String> commitUserData) throws IOException {
         if (documents == null || documents.isEmpty())
             return 0;
-        final RecordsPoster.ObjectDocument poster =
-            RecordsPoster.ObjectDocument.forDocValueUpdate(fields, fieldMap, analyzerContext, indexWriter, taxonomyWriter);
-        return postObjectDocs(poster, documents, commitUserData);
+        return postObjectDocs(fields,
+            () -> RecordsPoster.ObjectDocument.forDocValueUpdate(fields, fieldMap, analyzerContext, indexWriter, taxonomyWriter),
+            documents, commitUserData);
     }
 
     @Override
@@ -230,9 +304,9 @@ final class WriteContextImpl extends IndexContextImpl implements WriteContext {
     public final int updateMappedDocsValues(final PostDefinition.Documents post) throws IOException, ServerException {
         if (post == null || post.documents == null || post.documents.isEmpty())
             return 0;
-        final RecordsPoster.MapDocument poster =
-            RecordsPoster.MapDocument.forDocValueUpdate(fieldMap, analyzerContext, indexWriter, taxonomyWriter);
-        return postMappedDocs(poster, post);
+        return postMappedDocs(
+            () -> RecordsPoster.MapDocument.forDocValueUpdate(fieldMap, analyzerContext, indexWriter, taxonomyWriter),
+            post);
     }
 
     static Supplier<String> getAutoIdProvider() {
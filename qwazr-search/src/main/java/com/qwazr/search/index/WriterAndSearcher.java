@@ -19,17 +19,28 @@ import com.qwazr.utils.IOUtils;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ReferenceManager;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 interface WriterAndSearcher extends Closeable {
 
 	void refresh() throws IOException;
 
+	/**
+	 * Make the last writes searchable, unless the background refresher is running:
+	 * the writes are then searchable within the staleness target, or on demand with waitForGeneration.
+	 *
+	 * @throws IOException if the refresh failed
+	 */
+	void refreshOnWrite() throws IOException;
+
 	void reload() throws IOException;
 
 	<T> T search(final SearchAction<T> action) throws IOException;
@@ -40,12 +51,48 @@ interface WriterAndSearcher extends Closeable {
 
 	IndexWriter getIndexWriter();
 
-	abstract class Common implements WriterAndSearcher {
+	/**
+	 * @return the sequence number of the last completed write operation, or -1 for a read only index
+	 */
+	long getWriterGeneration();
+
+	/**
+	 * Wait until a searcher which includes the given writer generation is available.
+	 *
+	 * @param generation the writer generation
+	 * @param timeoutMs  the maximum time to wait in milliseconds
+	 * @return true if the generation is searchable
+	 * @throws IOException          if the refresh failed
+	 * @throws InterruptedException if the thread has been interrupted while waiting
+	 */
+	boolean waitForGeneration(long generation, long timeoutMs) throws IOException, InterruptedException;
+
+	IndexStatus.RefreshStatus getRefreshStatus();
+
+	/**
+	 * Register a listener notified by the current and the future searcher managers
+	 *
+	 * @param listener the listener
+	 */
+	void addRefreshListener(ReferenceManager.RefreshListener listener);
+
+	abstract class Common<T> implements WriterAndSearcher {
 
 		final IndexWriter indexWriter;
+		private final Long minStalenessMs;
+		private final Long maxStalenessMs;
+		private final RefreshStats refreshStats;
+		private final List<ReferenceManager.RefreshListener> refreshListeners;
+		private volatile ControlledRealTimeReopenThread<T> reopenThread;
 
-		protected Common(final IndexWriter indexWriter) {
+		protected Common(final IndexWriter indexWriter, final IndexSettingsDefinition settings) {
 			this.indexWriter = indexWriter;
+			this.maxStalenessMs = indexWriter == null || settings == null || settings.refreshMaxStalenessMs == null ||
+					settings.refreshMaxStalenessMs <= 0 ? null : settings.refreshMaxStalenessMs;
+			this.minStalenessMs = maxStalenessMs == null ? null : settings.refreshMinStalenessMs == null ? 0 :
+					Math.max(0, Math.min(settings.refreshMinStalenessMs, maxStalenessMs));
+			this.refreshStats = new RefreshStats();
+			this.refreshListeners = new CopyOnWriteArrayList<>();
 		}
 
 		@Override
@@ -53,6 +100,76 @@ interface WriterAndSearcher extends Closeable {
 			return indexWriter;
 		}
 
+		final <M extends ReferenceManager<T>> M register(final M manager) {
+			manager.addListener(refreshStats);
+			refreshListeners.forEach(manager::addListener);
+			return manager;
+		}
+
+		@Override
+		final public synchronized void addRefreshListener(final ReferenceManager.RefreshListener listener) {
+			refreshListeners.add(listener);
+			final ReferenceManager<T> manager = getManager();
+			if (manager != null)
+				manager.addListener(listener);
+		}
+
+		/**
+		 * Start the background refresh thread if the index has a staleness target
+		 */
+		final synchronized void startRefresher(final ReferenceManager<T> manager) {
+			stopRefresher();
+			if (maxStalenessMs == null)
+				return;
+			reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, manager, maxStalenessMs / 1000d,
+					minStalenessMs / 1000d);
+			reopenThread.setName("NRT refresh " + indexWriter.getDirectory());
+			reopenThread.setDaemon(true);
+			reopenThread.start();
+		}
+
+		final synchronized void stopRefresher() {
+			if (reopenThread == null)
+				return;
+			reopenThread.close();
+			reopenThread = null;
+		}
+
+		abstract ReferenceManager<T> getManager();
+
+		@Override
+		final public void refreshOnWrite() throws IOException {
+			if (reopenThread == null)
+				refresh();
+		}
+
+		@Override
+		final public long getWriterGeneration() {
+			return indexWriter == null ? -1 : indexWriter.getMaxCompletedSequenceNumber();
+		}
+
+		@Override
+		final public boolean waitForGeneration(final long generation, final long timeoutMs)
+				throws IOException, InterruptedException {
+			if (indexWriter == null)
+				return true;
+			final ControlledRealTimeReopenThread<T> thread = reopenThread;
+			if (thread != null)
+				return thread.waitForGeneration(generation, (int) Math.min(Integer.MAX_VALUE, timeoutMs));
+			// No refresh scheduler, the refresh is done on demand
+			final long writerGeneration = indexWriter.getMaxCompletedSequenceNumber();
+			Objects.requireNonNull(getManager(), "No SearchManager available").maybeRefreshBlocking();
+			return writerGeneration >= generation;
+		}
+
+		@Override
+		final public IndexStatus.RefreshStatus getRefreshStatus() {
+			final ControlledRealTimeReopenThread<T> thread = reopenThread;
+			return refreshStats.getStatus(minStalenessMs, maxStalenessMs,
+					indexWriter == null ? null : indexWriter.getMaxCompletedSequenceNumber(),
+					thread == null ? null : thread.getSearchingGen());
+		}
+
 	}
 
 	@FunctionalInterface
@@ -60,17 +177,23 @@ interface WriterAndSearcher extends Closeable {
 		ReferenceManager<IndexSearcher> supply() throws IOException;
 	}
 
-	class WithIndex extends Common {
+	class WithIndex extends Common<IndexSearcher> {
 
 		private final SearcherManagerFactory searcherManagerFactory;
 		private volatile ReferenceManager<IndexSearcher> searcherManager;
 
-		WithIndex(final IndexWriter indexWriter, final SearcherManagerFactory searcherManagerFactory)
-				throws IOException {
-			super(indexWriter);
+		WithIndex(final IndexWriter indexWriter, final IndexSettingsDefinition settings,
+				final SearcherManagerFactory searcherManagerFactory) throws IOException {
+			super(indexWriter, settings);
 			this.searcherManagerFactory = searcherManagerFactory;
-			this.searcherManager = searcherManagerFactory.supply();
+			this.searcherManager = register(searcherManagerFactory.supply());
 			refresh();
+			startRefresher(searcherManager);
+		}
+
+		@Override
+		final ReferenceManager<IndexSearcher> getManager() {
+			return searcherManager;
 		}
 
 		@Override
@@ -80,9 +203,11 @@ interface WriterAndSearcher extends Closeable {
 
 		@Override
 		final synchronized public void reload() throws IOException {
+			stopRefresher();
 			final ReferenceManager<IndexSearcher> oldSearcherManager = searcherManager;
-			searcherManager = searcherManagerFactory.supply();
+			searcherManager = register(searcherManagerFactory.supply());
 			oldSearcherManager.close();
+			startRefresher(searcherManager);
 		}
 
 		@Override
@@ -106,11 +231,12 @@ interface WriterAndSearcher extends Closeable {
 		public void commit() throws IOException {
 			indexWriter.flush();
 			indexWriter.commit();
-			refresh();
+			refreshOnWrite();
 		}
 
 		@Override
 		public synchronized void close() {
+			stopRefresher();
 			if (searcherManager != null) {
 				IOUtils.closeQuietly(searcherManager);
 				searcherManager = null;
@@ -126,19 +252,26 @@ interface WriterAndSearcher extends Closeable {
 		SearcherTaxonomyManager supply() throws IOException;
 	}
 
-	class WithIndexAndTaxo extends Common {
+	class WithIndexAndTaxo extends Common<SearcherTaxonomyManager.SearcherAndTaxonomy> {
 
 		private final SearcherTaxonomyManagerFactory searcherTaxonomyManagerFactory;
 		private final SnapshotDirectoryTaxonomyWriter taxonomyWriter;
 		private volatile SearcherTaxonomyManager searcherTaxonomyManager;
 
 		WithIndexAndTaxo(final IndexWriter indexWriter, final SnapshotDirectoryTaxonomyWriter taxonomyWriter,
+				final IndexSettingsDefinition settings,
 				final SearcherTaxonomyManagerFactory searcherTaxonomyManagerFactory) throws IOException {
-			super(indexWriter);
+			super(indexWriter, settings);
 			this.taxonomyWriter = taxonomyWriter;
 			this.searcherTaxonomyManagerFactory = searcherTaxonomyManagerFactory;
-			this.searcherTaxonomyManager = searcherTaxonomyManagerFactory.supply();
+			this.searcherTaxonomyManager = register(searcherTaxonomyManagerFactory.supply());
 			refresh();
+			startRefresher(searcherTaxonomyManager);
+		}
+
+		@Override
+		final ReferenceManager<SearcherTaxonomyManager.SearcherAndTaxonomy> getManager() {
+			return searcherTaxonomyManager;
 		}
 
 		@Override
@@ -148,9 +281,11 @@ interface WriterAndSearcher extends Closeable {
 
 		@Override
 		final synchronized public void reload() throws IOException {
+			stopRefresher();
 			final SearcherTaxonomyManager oldSearcherManager = searcherTaxonomyManager;
-			searcherTaxonomyManager = searcherTaxonomyManagerFactory.supply();
+			searcherTaxonomyManager = register(searcherTaxonomyManagerFactory.supply());
 			oldSearcherManager.close();
+			startRefresher(searcherTaxonomyManager);
 		}
 
 		@Override
@@ -176,11 +311,12 @@ interface WriterAndSearcher extends Closeable {
 			taxonomyWriter.commit();
 			indexWriter.flush();
 			indexWriter.commit();
-			refresh();
+			refreshOnWrite();
 		}
 
 		@Override
 		public synchronized void close() {
+			stopRefresher();
 			if (searcherTaxonomyManager != null) {
 				IOUtils.closeQuietly(searcherTaxonomyManager);
 				searcherTaxonomyManager = null;
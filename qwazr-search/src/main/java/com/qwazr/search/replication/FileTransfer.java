@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.replication;
+
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.concurrent.ExecutorUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+
+/**
+ * Download the files of one source into the work directory.
+ * <p>
+ * The biggest files are fetched first, by up to "parallelism" concurrent workers.
+ * The calling thread is always one of the workers.
+ * A file already partially present in the work directory is resumed from its current size,
+ * an interrupted transfer is retried the same way.
+ * The Lucene index files are verified against the checksum stored in their codec footer,
+ * a corrupted file is downloaded again from the beginning.
+ * When the source is on the same file system, the Lucene index files are hard-linked instead of being copied.
+ */
+final class FileTransfer {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(FileTransfer.class);
+
+    /**
+     * The number of attempts for one file before giving up
+     */
+    final static int MAX_ATTEMPTS = 3;
+
+    private final ReplicationProcess.Source source;
+    private final ReplicationProcess.SourceFileProvider sourceFileProvider;
+    private final Path workDirectory;
+    private final Iterator<Map.Entry<String, ReplicationSession.Item>> iterator;
+    private volatile Exception error;
+
+    private FileTransfer(final ReplicationProcess.Source source,
+                         final ReplicationProcess.SourceFileProvider sourceFileProvider,
+                         final Path workDirectory,
+                         final Map<String, ReplicationSession.Item> filesToObtain) {
+        this.source = source;
+        this.sourceFileProvider = sourceFileProvider;
+        this.workDirectory = workDirectory;
+        final List<Map.Entry<String, ReplicationSession.Item>> files = new ArrayList<>(filesToObtain.entrySet());
+        files.sort(Comparator.comparing((Map.Entry<String, ReplicationSession.Item> e) ->
+            e.getValue().size == null ? 0 : e.getValue().size).reversed());
+        this.iterator = files.iterator();
+    }
+
+    static void obtain(final ReplicationProcess.Source source,
+                       final ReplicationProcess.SourceFileProvider sourceFileProvider,
+                       final Path workDirectory,
+                       final Map<String, ReplicationSession.Item> filesToObtain,
+                       final ExecutorService executorService,
+                       final int parallelism) throws IOException {
+        if (filesToObtain.isEmpty())
+            return;
+        final FileTransfer transfer = new FileTransfer(source, sourceFileProvider, workDirectory, filesToObtain);
+        final int workers = executorService == null ? 1 : Math.max(1, Math.min(parallelism, filesToObtain.size()));
+        try {
+            ExecutorUtils.invokeWithCaller(executorService, Collections.nCopies(workers, transfer::work));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            transfer.setError(new InterruptedIOException("Replication interrupted"));
+        } catch (ExecutionException e) {
+            transfer.setError(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+        if (transfer.error instanceof IOException)
+            throw (IOException) transfer.error;
+        if (transfer.error instanceof RuntimeException)
+            throw (RuntimeException) transfer.error;
+        if (transfer.error != null)
+            throw new IOException(transfer.error);
+    }
+
+    private synchronized Map.Entry<String, ReplicationSession.Item> next() {
+        return error != null || !iterator.hasNext() ? null : iterator.next();
+    }
+
+    private synchronized void setError(final Exception e) {
+        if (error == null)
+            error = e;
+        else if (error != e)
+            error.addSuppressed(e);
+    }
+
+    private void work() {
+        Map.Entry<String, ReplicationSession.Item> entry;
+        while ((entry = next()) != null) {
+            try {
+                obtainFile(entry.getKey(), entry.getValue());
+            } catch (IOException | RuntimeException e) {
+                setError(e);
+            }
+        }
+    }
+
+    private void obtainFile(final String name, final ReplicationSession.Item item) throws IOException {
+        final Path path = workDirectory.resolve(name);
+        if (source.codecFiles && Files.notExists(path) && sourceFileProvider.link(source, name, path))
+            return;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                final long offset = item.size == null || !Files.exists(path) ? 0 : Files.size(path);
+                if (item.size == null || offset < item.size)
+                    download(name, path, offset);
+                check(name, path, item);
+                Files.setLastModifiedTime(path, FileTime.fromMillis(item.version));
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS)
+                    throw e;
+                LOGGER.warning(() -> "Retry the transfer of " + source + "/" + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void download(final String name, final Path path, final long offset) throws IOException {
+        try (final InputStream input = sourceFileProvider.obtain(source, name, offset)) {
+            if (input == null)
+                throw new IOException("The item is not available: " + source + "/" + name);
+            try (final OutputStream output = offset == 0 ?
+                Files.newOutputStream(path) :
+                Files.newOutputStream(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                input.transferTo(output);
+            }
+        }
+    }
+
+    /**
+     * Check the size, and for the Lucene index files the checksum of the codec footer.
+     * An invalid file is deleted, the next attempt downloads it from scratch.
+     */
+    private void check(final String name, final Path path, final ReplicationSession.Item item) throws IOException {
+        final long itemSize = Files.size(path);
+        if (!Objects.equals(itemSize, item.size)) {
+            Files.deleteIfExists(path);
+            throw new IOException("Wrong file size for " + path + ". Expected: " + item.size + " - Got: " + itemSize);
+        }
+        if (!source.codecFiles)
+            return;
+        try (final Directory directory = FSDirectory.open(workDirectory);
+             final IndexInput input = directory.openInput(name, IOContext.READONCE)) {
+            CodecUtil.checksumEntireFile(input);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw new IOException("Checksum failed for " + path, e);
+        }
+    }
+}
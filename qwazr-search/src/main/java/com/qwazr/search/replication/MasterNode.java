@@ -36,6 +36,14 @@ public interface MasterNode extends Closeable {
     InputStream getItem(String sessionId, ReplicationProcess.Source source, String itemName)
         throws FileNotFoundException;
 
+    /**
+     * @param sessionId the replication session
+     * @param source    the source of the item
+     * @param itemName  the name of the item
+     * @return the local path of the item, or null if the item is not part of the session
+     */
+    Path getItemPath(String sessionId, ReplicationProcess.Source source, String itemName);
+
     void releaseSession(String sessionId) throws IOException;
 
     abstract class Base implements MasterNode {
@@ -55,6 +63,27 @@ public interface MasterNode extends Closeable {
             fillSession(sessionUuid, sessionMap);
             return new ReplicationSession(masterUuid, sessionUuid, sessionMap);
         }
+
+        /**
+         * @param sessionId the replication session
+         * @param source    the source of the item
+         * @return the view of the source taken by the session, or null if the session is unknown
+         */
+        protected abstract SourceView getSourceView(final String sessionId, final ReplicationProcess.Source source);
+
+        @Override
+        final public InputStream getItem(final String sessionId, final ReplicationProcess.Source source,
+                                         final String itemName) throws FileNotFoundException {
+            final SourceView sourceView = getSourceView(sessionId, source);
+            return sourceView == null ? null : sourceView.getItem(itemName);
+        }
+
+        @Override
+        final public Path getItemPath(final String sessionId, final ReplicationProcess.Source source,
+                                      final String itemName) {
+            final SourceView sourceView = getSourceView(sessionId, source);
+            return sourceView == null ? null : sourceView.getItemPath(itemName);
+        }
     }
 
     class WithMetadata extends Base {
@@ -82,15 +111,12 @@ public interface MasterNode extends Closeable {
         }
 
         @Override
-        public InputStream getItem(final String sessionId, ReplicationProcess.Source source, final String itemName)
-            throws FileNotFoundException {
+        protected SourceView getSourceView(final String sessionId, final ReplicationProcess.Source source) {
             if (source != null && source != ReplicationProcess.Source.metadata)
                 return null;
-            final SourceView.FromPathFiles sourceView;
             synchronized (metadataSessions) {
-                sourceView = metadataSessions.get(sessionId);
+                return metadataSessions.get(sessionId);
             }
-            return sourceView == null ? null : sourceView.getItem(itemName);
         }
 
         @Override
@@ -129,15 +155,12 @@ public interface MasterNode extends Closeable {
         }
 
         @Override
-        public InputStream getItem(final String sessionId, ReplicationProcess.Source source, final String itemName)
-            throws FileNotFoundException {
+        protected SourceView getSourceView(final String sessionId, final ReplicationProcess.Source source) {
             if (source != null && source != ReplicationProcess.Source.resources)
-                return super.getItem(sessionId, source, itemName);
-            final SourceView.FromPathDirectory sourceView;
+                return super.getSourceView(sessionId, source);
             synchronized (resourcesSessions) {
-                sourceView = resourcesSessions.get(sessionId);
+                return resourcesSessions.get(sessionId);
             }
-            return sourceView == null ? null : sourceView.getItem(itemName);
         }
 
         @Override
@@ -176,15 +199,12 @@ public interface MasterNode extends Closeable {
         }
 
         @Override
-        public InputStream getItem(final String sessionId, ReplicationProcess.Source source, final String itemName)
-            throws FileNotFoundException {
+        protected SourceView getSourceView(final String sessionId, final ReplicationProcess.Source source) {
             if (source != ReplicationProcess.Source.data)
-                return super.getItem(sessionId, source, itemName);
-            final SourceView.FromCommit sourceView;
+                return super.getSourceView(sessionId, source);
             synchronized (indexSessions) {
-                sourceView = indexSessions.get(sessionId);
+                return indexSessions.get(sessionId);
             }
-            return sourceView == null ? null : sourceView.getItem(itemName);
         }
 
         @Override
@@ -235,15 +255,12 @@ public interface MasterNode extends Closeable {
         }
 
         @Override
-        public InputStream getItem(final String sessionId, final ReplicationProcess.Source source,
-                                   final String itemName) throws FileNotFoundException {
+        protected SourceView getSourceView(final String sessionId, final ReplicationProcess.Source source) {
             if (source != ReplicationProcess.Source.taxonomy)
-                return super.getItem(sessionId, source, itemName);
-            final SourceView.FromCommit sourceView;
+                return super.getSourceView(sessionId, source);
             synchronized (taxoSessions) {
-                sourceView = taxoSessions.get(sessionId);
+                return taxoSessions.get(sessionId);
             }
-            return sourceView == null ? null : sourceView.getItem(itemName);
         }
 
         @Override
@@ -18,8 +18,6 @@ package com.qwazr.search.replication;
 
 import com.qwazr.search.index.ReplicationStatus;
 import com.qwazr.utils.FileUtils;
-import com.qwazr.utils.IOUtils;
-import com.qwazr.utils.concurrent.ConcurrentUtils;
 import org.apache.lucene.store.Directory;
 
 import java.io.Closeable;
@@ -31,23 +29,52 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileTime;
 import java.rmi.ServerException;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 public interface ReplicationProcess extends Closeable {
 
     enum Source {
-        data, taxonomy, resources, metadata
+
+        data(true), taxonomy(true), resources(false), metadata(false);
+
+        /**
+         * True if the files are Lucene index files ending with a codec footer
+         */
+        final boolean codecFiles;
+
+        Source(final boolean codecFiles) {
+            this.codecFiles = codecFiles;
+        }
     }
 
     @FunctionalInterface
     interface SourceFileProvider {
-        InputStream obtain(Source source, String fileName) throws IOException;
+        /**
+         * @param source   the source of the file
+         * @param fileName the name of the file
+         * @param offset   the position of the first byte to read, used to resume a transfer
+         * @return the content of the file starting at the given offset
+         * @throws IOException if any I/O error occurs
+         */
+        InputStream obtain(Source source, String fileName, long offset) throws IOException;
+
+        /**
+         * Only called for the Lucene index files, which are never modified once written.
+         *
+         * @param source   the source of the file
+         * @param fileName the name of the file
+         * @param target   the path of the file to create
+         * @return true if the target has been created as a link to the source file, false if it must be obtained
+         * @throws IOException if any I/O error occurs
+         */
+        default boolean link(Source source, String fileName, Path target) throws IOException {
+            return false;
+        }
     }
 
     void obtainNewFiles() throws IOException;
@@ -62,24 +89,30 @@ public interface ReplicationProcess extends Closeable {
         private final SourceFileProvider sourceFileProvider;
         private final ReplicationSession session;
         private final ReplicationStatus.Strategy strategy;
+        private final ExecutorService executorService;
+        private final int parallelism;
 
         public Builder(final Path workDirectory, final SourceFileProvider sourceFileProvider,
-                       final ReplicationStatus.Strategy strategy, final ReplicationSession session) {
+                       final ReplicationStatus.Strategy strategy, final ReplicationSession session,
+                       final ExecutorService executorService, final int parallelism) {
             this.workDirectory = workDirectory;
             this.sourceFileProvider = sourceFileProvider;
             this.strategy = strategy;
             this.session = session;
+            this.executorService = executorService;
+            this.parallelism = parallelism;
         }
 
         private ReplicationProcess full(final Path targetDirectoryPath, final Source source,
                                         final SourceView sourceView) throws IOException {
-            return new Full(workDirectory, targetDirectoryPath, source, sourceFileProvider, sourceView, session);
+            return new Full(workDirectory, targetDirectoryPath, source, sourceFileProvider, sourceView, session,
+                    executorService, parallelism);
         }
 
         private ReplicationProcess incremental(final Path targetDirectoryPath, final Source source,
                                                final SourceView sourceView) {
             return new Differential(workDirectory, targetDirectoryPath, source, sourceFileProvider, sourceView,
-                    session);
+                    session, executorService, parallelism);
         }
 
         public ReplicationProcess metadata(final Path metadataDirectoryPath, final String... metadataItems)
@@ -94,6 +127,15 @@ public interface ReplicationProcess extends Closeable {
             throw new ServerException("Unknown replication strategy: " + strategy);
         }
 
+        /**
+         * The metadata items are small, they are always entirely replaced.
+         */
+        public ReplicationProcess fullMetadata(final Path metadataDirectoryPath, final String... metadataItems)
+                throws IOException {
+            return full(metadataDirectoryPath, Source.metadata,
+                    new SourceView.FromPathFiles(metadataDirectoryPath, metadataItems));
+        }
+
         public ReplicationProcess resources(final Path resourcesPath) throws IOException {
             final SourceView sourceView = new SourceView.FromPathDirectory(resourcesPath);
             switch (strategy) {
@@ -147,36 +189,41 @@ public interface ReplicationProcess extends Closeable {
         protected final Path targetDirectoryPath;
         protected final Map<String, ReplicationSession.Item> filesToObtain;
         protected final Collection<String> filesToDelete;
+        private final ExecutorService executorService;
+        private final int parallelism;
+        private boolean obtained;
 
         protected Common(final Path workDirectory, final Path targetDirectoryPath, final Source source,
-                         final SourceFileProvider sourceFileProvider) {
+                         final SourceFileProvider sourceFileProvider, final ExecutorService executorService,
+                         final int parallelism) {
             this.source = source;
             this.sourceFileProvider = sourceFileProvider;
             this.sourceWorkDirectory = workDirectory.resolve(source.name());
             this.targetDirectoryPath = targetDirectoryPath;
             this.filesToObtain = new LinkedHashMap<>();
             this.filesToDelete = new LinkedHashSet<>();
+            this.executorService = executorService;
+            this.parallelism = parallelism;
+            this.obtained = false;
         }
 
         @Override
         final public void obtainNewFiles() throws IOException {
             if (!Files.exists(sourceWorkDirectory))
                 Files.createDirectory(sourceWorkDirectory);
-            ConcurrentUtils.forEachEx(filesToObtain, (name, item) -> {
-                final Path path = sourceWorkDirectory.resolve(name);
-                try (final InputStream input = sourceFileProvider.obtain(source, name)) {
-                    IOUtils.copy(input, path);
-                    Files.setLastModifiedTime(path, FileTime.fromMillis(item.version));
-                    final long itemSize = Files.size(path);
-                    if (!Objects.equals(itemSize, item.size))
-                        throw new IOException(
-                                "Wrong file size for " + path + ". Expected: " + item.size + " - Got: " + itemSize);
-                }
-            });
+            FileTransfer.obtain(source, sourceFileProvider, sourceWorkDirectory, filesToObtain, executorService,
+                    parallelism);
+            obtained = true;
         }
 
+        /**
+         * The partially transferred index files are kept, the next replication will resume them.
+         * Their checksum is verified once complete.
+         */
         @Override
         public void close() throws IOException {
+            if (!obtained && source.codecFiles)
+                return;
             if (Files.exists(sourceWorkDirectory))
                 FileUtils.deleteDirectory(sourceWorkDirectory);
         }
@@ -189,8 +236,9 @@ public interface ReplicationProcess extends Closeable {
 
         Differential(final Path workDirectory, final Path targetDirectoryPath, final Source source,
                      final SourceFileProvider sourceFileProvider, final SourceView sourceView,
-                     final ReplicationSession session) {
-            super(workDirectory, targetDirectoryPath, source, sourceFileProvider);
+                     final ReplicationSession session, final ExecutorService executorService,
+                     final int parallelism) {
+            super(workDirectory, targetDirectoryPath, source, sourceFileProvider, executorService, parallelism);
             sourceView.differential(session.getSourceFiles(source), filesToObtain, filesToDelete);
         }
 
@@ -230,8 +278,9 @@ public interface ReplicationProcess extends Closeable {
 
         protected Full(final Path workDirectory, final Path targetDirectoryPath, final Source source,
                        final SourceFileProvider sourceFileProvider, final SourceView sourceView,
-                       final ReplicationSession session) throws IOException {
-            super(workDirectory, targetDirectoryPath, source, sourceFileProvider);
+                       final ReplicationSession session, final ExecutorService executorService,
+                       final int parallelism) throws IOException {
+            super(workDirectory, targetDirectoryPath, source, sourceFileProvider, executorService, parallelism);
             this.sourceTrashPath = workDirectory.resolve("trash-" + source.name());
             if (!Files.exists(sourceTrashPath))
                 Files.createDirectory(sourceTrashPath);
@@ -22,12 +22,13 @@ import org.apache.lucene.store.Directory;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
 
 public interface SlaveNode {
 
 	ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-			final ReplicationSession masterFiles, final ReplicationProcess.SourceFileProvider sourceFileProvider)
-			throws IOException;
+			final ReplicationSession masterFiles, final ReplicationProcess.SourceFileProvider sourceFileProvider,
+			final ExecutorService executorService, final int parallelism) throws IOException;
 
 	class WithIndex implements SlaveNode {
 
@@ -51,15 +52,23 @@ public interface SlaveNode {
 				Files.createDirectory(workDirectory);
 		}
 
+		protected ReplicationProcess metadata(final ReplicationProcess.Builder builder) throws IOException {
+			return builder.metadata(metadataDirectoryPath, metadataItems);
+		}
+
+		protected ReplicationProcess fullMetadata(final ReplicationProcess.Builder builder) throws IOException {
+			return builder.fullMetadata(metadataDirectoryPath, metadataItems);
+		}
+
 		@Override
 		public ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider)
-				throws IOException {
-			final ReplicationProcess.Builder builder =
-					new ReplicationProcess.Builder(workDirectory, fileProvider, strategy, session);
+				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider,
+				final ExecutorService executorService, final int parallelism) throws IOException {
+			final ReplicationProcess.Builder builder = new ReplicationProcess.Builder(workDirectory, fileProvider,
+					strategy, session, executorService, parallelism);
 			return builder.build(builder.resources(resourcesPath),
 					builder.dataIndex(indexDirectoryPath, indexDirectory),
-					builder.metadata(metadataDirectoryPath, metadataItems));
+					metadata(builder));
 		}
 	}
 
@@ -79,14 +88,14 @@ public interface SlaveNode {
 
 		@Override
 		public ReplicationProcess newReplicationProcess(final ReplicationStatus.Strategy strategy,
-				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider)
-				throws IOException {
-			final ReplicationProcess.Builder builder =
-					new ReplicationProcess.Builder(workDirectory, fileProvider, strategy, session);
+				final ReplicationSession session, final ReplicationProcess.SourceFileProvider fileProvider,
+				final ExecutorService executorService, final int parallelism) throws IOException {
+			final ReplicationProcess.Builder builder = new ReplicationProcess.Builder(workDirectory, fileProvider,
+					strategy, session, executorService, parallelism);
 			return builder.build(builder.resources(resourcesPath),
 					builder.dataIndex(indexDirectoryPath, indexDirectory),
 					builder.taxoIndex(taxoDirectoryPath, taxoDirectory),
-					builder.metadata(metadataDirectoryPath, metadataItems));
+					metadata(builder));
 		}
 	}
 }
@@ -95,6 +95,14 @@ class SourceView {
         return new BufferedInputStream(new FileInputStream(directoryPath.resolve(itemName).toFile()));
     }
 
+    /**
+     * @param itemName the name of the item
+     * @return the local path of the item, or null if the item is not part of this view
+     */
+    final Path getItemPath(final String itemName) {
+        return items.containsKey(itemName) ? directoryPath.resolve(itemName) : null;
+    }
+
     static class FromCommit extends SourceView implements Closeable {
 
         private final SnapshotDeletionPolicy indexSnapshots;
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.backups;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.index.BackupStatus;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IncrementalBackupTest extends AbstractIndexTest {
+
+    private final static String INDEX = "incrementalIndex";
+    private final static String BACKUP = "nightly";
+
+    private static AnnotatedIndexService<IndexRecord.WithTaxonomy> index;
+
+    private static BackupStatus first;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        initIndexManager(true, Files.createTempDirectory("backups"));
+        index = new AnnotatedIndexService<>(indexManager.getService(), IndexRecord.WithTaxonomy.class, INDEX, null);
+        index.createUpdateIndex();
+        index.createUpdateFields();
+        post(0, 1000);
+    }
+
+    private static void post(final int start, final int count) throws IOException {
+        final Collection<IndexRecord.WithTaxonomy> records = new ArrayList<>();
+        for (int i = start; i < start + count; i++)
+            records.add(new IndexRecord.WithTaxonomy("id" + i).textField("text " + i).sortedDocValue("cat" + i % 10));
+        index.postDocuments(records);
+    }
+
+    private static BackupStatus doBackup() {
+        final BackupStatus status = index.doBackup(BACKUP).get(INDEX);
+        Assert.assertNotNull(status);
+        Assert.assertNotNull(status.bytesCopied);
+        Assert.assertNotNull(status.bytesLinked);
+        return status;
+    }
+
+    @Test
+    public void test100firstBackupLinksTheIndexFiles() {
+        first = doBackup();
+        assertThat(first.bytesLinked, greaterThan(0L));
+        assertThat(first.bytesCopied + first.bytesLinked, lessThan(first.bytesSize + 1));
+        // The status of the backups does not include the operation
+        final BackupStatus status = index.getBackups(BACKUP, false).get(BACKUP).get(INDEX);
+        Assert.assertEquals(first, status);
+        Assert.assertNull(status.bytesCopied);
+        Assert.assertNull(status.bytesLinked);
+    }
+
+    @Test
+    public void test200unchangedIndex() {
+        final BackupStatus status = doBackup();
+        // Only the small metadata files are copied again
+        Assert.assertEquals(0L, (long) status.bytesLinked);
+        assertThat(status.bytesCopied, lessThan(first.bytesCopied + 1));
+        Assert.assertEquals(first.bytesSize, status.bytesSize);
+        Assert.assertEquals(first.filesCount, status.filesCount);
+    }
+
+    @Test
+    public void test300onlyNewFiles() throws IOException {
+        post(1000, 10);
+        final BackupStatus status = doBackup();
+        assertThat(status.bytesLinked, greaterThan(0L));
+        assertThat(status.bytesLinked, lessThan(status.bytesSize));
+    }
+
+    @Test
+    public void test400anotherBackupIsFull() {
+        final BackupStatus status = index.doBackup("other").get(INDEX);
+        Assert.assertNotNull(status);
+        assertThat(status.bytesCopied + status.bytesLinked, greaterThan(first.bytesLinked));
+    }
+}
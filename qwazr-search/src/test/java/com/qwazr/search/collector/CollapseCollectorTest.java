@@ -26,10 +26,8 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
-import org.apache.lucene.util.BytesRef;
 import org.junit.Assert;
 import org.junit.BeforeClass;
-import org.junit.Ignore;
 import org.junit.Test;
 
 public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
@@ -59,7 +57,6 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
     }
 
     @Test
-    @Ignore //TODO flapy -> require investigations
     public void test() {
         final QueryDefinition queryDef1 = QueryDefinition.of(Bool.of()
             .addClause(Bool.Occur.should, new HasTerm("textField", "text1"))
@@ -90,9 +87,20 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
         //   Assert.assertNotEquals(-1, collapseQuery.getCollapsed(result.getDoc()));
     }
 
-    private void checkGroupLeader(final CollapseCollector.GroupQueue queue, String value, int doc, float score,
+    @Test
+    public void fieldWithoutValue() {
+        final QueryDefinition queryDef = QueryDefinition.of(new HasTerm("textField", "text1"))
+            .collector("collapse", CollapseCollector.class, "missingField", 5)
+            .build();
+        final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> results = indexService.searchQuery(queryDef);
+        final CollapseCollector.Query collapseQuery = results.getCollector("collapse", CollapseCollector.Query.class);
+        Assert.assertEquals(0, collapseQuery.getCollapsed());
+        Assert.assertEquals(0, indexService.searchQuery(QueryDefinition.of(collapseQuery).build()).totalHits);
+    }
+
+    private void checkGroupLeader(final CollapseCollector.GroupQueue queue, long globalOrd, int doc, float score,
                                   int collapsedCount) {
-        final CollapseCollector.GroupLeader leader = queue.getGroupLeaders().get(new BytesRef(value));
+        final CollapseCollector.GroupLeader leader = queue.getGroupLeaders().get(globalOrd);
         Assert.assertNotNull(leader);
         Assert.assertEquals(doc, leader.doc);
         Assert.assertEquals(score, leader.score, 0);
@@ -104,14 +112,14 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
         final CollapseCollector.GroupQueue queue = new CollapseCollector.GroupQueue(3);
         for (int i = 1; i < 10; i++) {
             final int doc = i;
-            queue.offer(new BytesRef("test" + i), i, i * 10,
-                (bytesRef, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, bytesRef, doc, score,
+            queue.offer(i, i, i * 10,
+                (globalOrd, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, globalOrd, doc, score,
                     collapsed));
         }
         Assert.assertEquals(3, queue.getGroupLeaders().size());
-        checkGroupLeader(queue, "test7", 7, 7f, 69);
-        checkGroupLeader(queue, "test8", 8, 8f, 79);
-        checkGroupLeader(queue, "test9", 9, 9f, 89);
+        checkGroupLeader(queue, 7, 7, 7f, 69);
+        checkGroupLeader(queue, 8, 8, 8f, 79);
+        checkGroupLeader(queue, 9, 9, 9f, 89);
     }
 
     @Test
@@ -119,12 +127,12 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
         final CollapseCollector.GroupQueue queue = new CollapseCollector.GroupQueue(3);
         for (int i = 1; i < 10; i++) {
             final int doc = i;
-            queue.offer(new BytesRef("test"), i, i * 10,
-                (bytesRef, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, bytesRef, doc, score,
+            queue.offer(0, i, i * 10,
+                (globalOrd, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, globalOrd, doc, score,
                     collapsed));
         }
         Assert.assertEquals(1, queue.getGroupLeaders().size());
-        checkGroupLeader(queue, "test", 9, 9f, 449);
+        checkGroupLeader(queue, 0, 9, 9f, 449);
     }
 
     @Test
@@ -132,13 +140,13 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
         final CollapseCollector.GroupQueue queue = new CollapseCollector.GroupQueue(3);
         for (int i = 1; i < 10; i++) {
             final int doc = i;
-            queue.offer(new BytesRef("test" + i % 2), i, i * 10,
-                (bytesRef, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, bytesRef, doc, score,
+            queue.offer(i % 2, i, i * 10,
+                (globalOrd, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, globalOrd, doc, score,
                     collapsed));
         }
         Assert.assertEquals(2, queue.getGroupLeaders().size());
-        checkGroupLeader(queue, "test0", 8, 8f, 199);
-        checkGroupLeader(queue, "test1", 9, 9f, 249);
+        checkGroupLeader(queue, 0, 8, 8f, 199);
+        checkGroupLeader(queue, 1, 9, 9f, 249);
     }
 
     @Test
@@ -146,12 +154,12 @@ public class CollapseCollectorTest extends AbstractIndexTest.WithIndexRecord.NoT
         final CollapseCollector.GroupQueue queue = new CollapseCollector.GroupQueue(3);
         for (int i = 9; i > 0; i--) {
             final int doc = i;
-            queue.offer(new BytesRef("test" + i % 2), i, i * 10,
-                (bytesRef, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, bytesRef, doc, score,
+            queue.offer(i % 2, i, i * 10,
+                (globalOrd, score, collapsed) -> new CollapseCollector.GroupLeader(0, 0, globalOrd, doc, score,
                     collapsed));
         }
         Assert.assertEquals(2, queue.getGroupLeaders().size());
-        checkGroupLeader(queue, "test0", 8, 8f, 199);
-        checkGroupLeader(queue, "test1", 9, 9f, 249);
+        checkGroupLeader(queue, 0, 8, 8f, 199);
+        checkGroupLeader(queue, 1, 9, 9f, 249);
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.collector;
+
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class QueryTimeoutTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+    private final static int DOCS = 1000;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        initIndexService(true);
+        final Collection<IndexRecord.NoTaxonomy> indexRecords = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++)
+            indexRecords.add(new IndexRecord.NoTaxonomy(Integer.toString(i)).intPoint(i));
+        indexService.postDocuments(indexRecords);
+    }
+
+    @Test
+    public void completeResult() {
+        final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> results = indexService.searchQuery(
+            QueryDefinition.of(MatchAllDocs.INSTANCE).timeoutMs(60_000L).build());
+        Assert.assertEquals(DOCS, results.totalHits);
+        Assert.assertFalse(results.isPartial());
+        Assert.assertNull(results.partial);
+    }
+
+    @Test
+    public void partialResult() {
+        final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> results = indexService.searchQuery(
+            QueryDefinition.of(MatchAllDocs.INSTANCE)
+                .collector("slowDown", SlowDownCollector.Concurrent.class, 1)
+                .timeoutMs(100L)
+                .build());
+        Assert.assertTrue(results.isPartial());
+        assertThat(results.totalHits, greaterThan(0L));
+        assertThat(results.totalHits, lessThan((long) DOCS));
+    }
+}
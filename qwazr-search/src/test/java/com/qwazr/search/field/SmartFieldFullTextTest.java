@@ -149,6 +149,22 @@ public class SmartFieldFullTextTest extends AbstractIndexTest {
 
     }
 
+    @Test
+    public void searchHighlightsWithIndexedOffsets() {
+        final ResultDefinition.WithObject<Record> result = indexService.searchQuery(
+            QueryDefinition.of(QueryParser.of("content").setQueryString("third").build())
+                .returnedField("*")
+                .highlighter("title", HighlighterDefinition.of("title").build())
+                .highlighter("content", HighlighterDefinition.of("content")
+                    .withOffsetSource(HighlighterDefinition.OffsetSource.POSTINGS)
+                    .build())
+                .build(), Record.class);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.totalHits, 1L);
+        Assert.assertEquals(result.getDocuments().get(0).highlights.get("title"), "Second article");
+        Assert.assertEquals(result.getDocuments().get(0).highlights.get("content"), "<b>Third</b> sentence");
+    }
+
     @Index(name = "SmartFieldSorted")
     static public class Record {
 
@@ -165,7 +181,8 @@ public class SmartFieldFullTextTest extends AbstractIndexTest {
         @SmartField(type = SmartFieldDefinition.Type.TEXT,
             index = true,
             analyzerClass = StandardAnalyzer.class,
-            stored = true)
+            stored = true,
+            offsets = true)
         @Copy(to = {@Copy.To(order = 2, field = "full")})
         final public String[] content;
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.field.converters;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MultiReaderTest {
+
+    private final static int DOCS = 100;
+
+    private static Directory directory;
+    private static DirectoryReader indexReader;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        try (final IndexWriter indexWriter = new IndexWriter(directory,
+            new IndexWriterConfig(new KeywordAnalyzer()).setMaxBufferedDocs(10))) {
+            for (int i = 0; i < DOCS; i++) {
+                final Document document = new Document();
+                // One document out of three has no value
+                if (i % 3 != 0) {
+                    document.add(new NumericDocValuesField("numeric", i));
+                    document.add(new SortedDocValuesField("sorted", new BytesRef("s" + i)));
+                    document.add(new SortedNumericDocValuesField("multi", i));
+                    document.add(new SortedNumericDocValuesField("multi", i + 1000));
+                    document.add(new SortedSetDocValuesField("set", new BytesRef("t" + i)));
+                    document.add(new BinaryDocValuesField("binary", new BytesRef("b" + i)));
+                }
+                indexWriter.addDocument(document);
+            }
+        }
+        indexReader = DirectoryReader.open(directory);
+        Assert.assertTrue(indexReader.leaves().size() > 1);
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    private static void check(final MultiReader multiReader, final int docId) throws IOException {
+        if (docId % 3 == 0) {
+            Assert.assertEquals(0, multiReader.getNumericDocValues(docId, "numeric"));
+            Assert.assertEquals(0, multiReader.getSortedDocValues(docId, "sorted").length);
+            Assert.assertEquals(0, multiReader.getSortedNumericDocValues(docId, "multi").length);
+            Assert.assertEquals(Collections.emptyList(), multiReader.getSortedSetDocValues(docId, "set"));
+            Assert.assertEquals(0, multiReader.getBinaryDocValues(docId, "binary").length);
+        } else {
+            Assert.assertEquals(docId, multiReader.getNumericDocValues(docId, "numeric"));
+            Assert.assertEquals("s" + docId, multiReader.getSortedDocValues(docId, "sorted").utf8ToString());
+            Assert.assertArrayEquals(new long[]{docId, docId + 1000},
+                multiReader.getSortedNumericDocValues(docId, "multi"));
+            Assert.assertEquals(List.of("t" + docId), multiReader.getSortedSetDocValues(docId, "set"));
+            Assert.assertEquals("b" + docId, multiReader.getBinaryDocValues(docId, "binary").utf8ToString());
+        }
+        Assert.assertEquals(0, multiReader.getNumericDocValues(docId, "unknown"));
+    }
+
+    @Test
+    public void ascendingOrder() throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        for (int docId = 0; docId < DOCS; docId++)
+            check(multiReader, docId);
+    }
+
+    @Test
+    public void descendingOrder() throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        for (int docId = DOCS - 1; docId >= 0; docId--)
+            check(multiReader, docId);
+    }
+
+    @Test
+    public void sameDocTwice() throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        check(multiReader, 42);
+        check(multiReader, 42);
+        check(multiReader, 7);
+    }
+
+    @Test
+    public void valuesAreCopied() throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        final BytesRef sorted = multiReader.getSortedDocValues(1, "sorted");
+        final BytesRef binary = multiReader.getBinaryDocValues(1, "binary");
+        // Reading the next document of the same leaf does not change the returned values
+        multiReader.getSortedDocValues(2, "sorted");
+        multiReader.getBinaryDocValues(2, "binary");
+        Assert.assertEquals("s1", sorted.utf8ToString());
+        Assert.assertEquals("b1", binary.utf8ToString());
+    }
+
+    @Test
+    public void outOfRange() throws IOException {
+        final MultiReader multiReader = new MultiReader(indexReader);
+        Assert.assertEquals(MultiReader.NOT_FOUND, multiReader.getLeafReader(-1));
+        Assert.assertEquals(MultiReader.NOT_FOUND, multiReader.getLeafReader(DOCS));
+        Assert.assertEquals(0, multiReader.getNumericDocValues(DOCS, "numeric"));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.server.ServerException;
+import com.qwazr.utils.concurrent.AutoLockSemaphore;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdmissionControllerTest {
+
+    private static AdmissionController controller(final int maxLimit, final int maxQueued, final boolean adaptive) {
+        final AutoLockSemaphore semaphore = AdmissionController.of("admission", UUID.randomUUID(), "read",
+            maxLimit, maxQueued, adaptive);
+        Assert.assertTrue(semaphore instanceof AdmissionController);
+        return (AdmissionController) semaphore;
+    }
+
+    private static void waitFor(final IntSupplier depth, final int expected) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 10_000;
+        while (depth.getAsInt() != expected) {
+            Assert.assertTrue("Timeout", System.currentTimeMillis() < timeout);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Thread waiter(final AdmissionController controller, final AdmissionController.Lane lane,
+                                 final List<AdmissionController.Lane> admitted) {
+        final Thread thread = new Thread(() -> {
+            try (final AutoLockSemaphore.Lock lock = controller.acquire(lane)) {
+                admitted.add(lane);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void noLimit() {
+        Assert.assertSame(AutoLockSemaphore.UNLIMITED,
+            AdmissionController.of("admission", UUID.randomUUID(), "read", null, 10, true));
+        Assert.assertSame(AutoLockSemaphore.UNLIMITED,
+            AdmissionController.of("admission", UUID.randomUUID(), "read", -1, 10, true));
+        Assert.assertSame(AutoLockSemaphore.REJECTED,
+            AdmissionController.of("admission", UUID.randomUUID(), "read", 0, 10, true));
+    }
+
+    @Test
+    public void rejectWhenQueueIsFull() throws InterruptedException {
+        try (final AdmissionController controller = controller(1, 1, false)) {
+            final List<AdmissionController.Lane> admitted = new CopyOnWriteArrayList<>();
+            final Thread thread;
+            try (final AutoLockSemaphore.Lock lock = controller.acquire()) {
+                thread = waiter(controller, AdmissionController.Lane.INTERACTIVE, admitted);
+                waitFor(controller::getInteractiveQueueDepth, 1);
+                try (final AutoLockSemaphore.Lock rejected = controller.acquire()) {
+                    Assert.fail("The request should have been rejected");
+                } catch (ServerException e) {
+                    Assert.assertEquals(Response.Status.TOO_MANY_REQUESTS.getStatusCode(), e.getStatusCode());
+                }
+                Assert.assertEquals(1, controller.getRejectedCount());
+            }
+            thread.join();
+            Assert.assertEquals(List.of(AdmissionController.Lane.INTERACTIVE), admitted);
+            Assert.assertEquals(2, controller.getAdmittedCount());
+            Assert.assertEquals(0, controller.getInFlight());
+        }
+    }
+
+    @Test
+    public void interactiveBeforeBatch() throws InterruptedException {
+        try (final AdmissionController controller = controller(1, -1, false)) {
+            final List<AdmissionController.Lane> admitted = new CopyOnWriteArrayList<>();
+            final Thread batch;
+            final Thread interactive;
+            try (final AutoLockSemaphore.Lock lock = controller.acquire()) {
+                batch = waiter(controller, AdmissionController.Lane.BATCH, admitted);
+                waitFor(controller::getBatchQueueDepth, 1);
+                interactive = waiter(controller, AdmissionController.Lane.INTERACTIVE, admitted);
+                waitFor(controller::getInteractiveQueueDepth, 1);
+            }
+            batch.join();
+            interactive.join();
+            Assert.assertEquals(List.of(AdmissionController.Lane.INTERACTIVE, AdmissionController.Lane.BATCH),
+                admitted);
+        }
+    }
+
+    @Test
+    public void adaptiveLimit() throws InterruptedException {
+        try (final AdmissionController controller = controller(10, -1, true)) {
+            for (int i = 0; i < 20; i++)
+                controller.acquire().close();
+            Assert.assertEquals(10, controller.getLimit());
+            // The latency grows: the limit decreases
+            for (int i = 0; i < 20; i++) {
+                try (final AutoLockSemaphore.Lock lock = controller.acquire()) {
+                    Thread.sleep(5);
+                }
+            }
+            assertThat(controller.getLimit(), lessThan(10));
+            Assert.assertTrue(controller.getLimit() >= 1);
+        }
+    }
+
+    @Test
+    public void fixedLimit() throws InterruptedException {
+        try (final AdmissionController controller = controller(10, -1, false)) {
+            for (int i = 0; i < 20; i++)
+                controller.acquire().close();
+            for (int i = 0; i < 20; i++) {
+                try (final AutoLockSemaphore.Lock lock = controller.acquire()) {
+                    Thread.sleep(5);
+                }
+            }
+            Assert.assertEquals(10, controller.getLimit());
+        }
+    }
+
+    @Test
+    public void jmx() throws JMException {
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        final UUID uuid = UUID.randomUUID();
+        final ObjectName query = new ObjectName("com.qwazr.search:type=admission,uuid=" + uuid + ",*");
+        final AdmissionController controller =
+            (AdmissionController) AdmissionController.of("jmx index", uuid, "write", 4, 2, false);
+        final Set<ObjectName> names = mbs.queryNames(query, null);
+        Assert.assertEquals(1, names.size());
+        final ObjectName name = names.iterator().next();
+        Assert.assertEquals("write", name.getKeyProperty("operation"));
+        Assert.assertEquals("jmx index", ObjectName.unquote(name.getKeyProperty("index")));
+        Assert.assertEquals(4, mbs.getAttribute(name, "MaxLimit"));
+        Assert.assertEquals(0L, mbs.getAttribute(name, "RejectedCount"));
+        controller.close();
+        Assert.assertTrue(mbs.queryNames(query, null).isEmpty());
+    }
+}
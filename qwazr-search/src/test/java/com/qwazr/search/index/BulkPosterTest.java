@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.server.ServerExecutor;
+import com.qwazr.server.configuration.ServerConfiguration;
+import com.qwazr.utils.ObjectMappers;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import javax.ws.rs.WebApplicationException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BulkPosterTest extends AbstractIndexTest {
+
+    private final static String INDEX = "bulkPosterIndex";
+
+    private final static int COUNT = BulkPoster.MIN_PARALLEL_DOCS * 4;
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of().primaryKey("id").build());
+    }
+
+    private static long countDocs() {
+        return service.searchQuery(INDEX, QueryDefinition.of(MatchAllDocs.INSTANCE).rows(0).build(), false)
+            .getTotalHits();
+    }
+
+    @Test
+    public void test100parallelJson() {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < COUNT; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", "json" + i);
+            if (i % 2 == 0)
+                doc.put("title", "Document " + i);
+            else
+                doc.put("price", i);
+        }
+        final IndexJsonResult result = service.postJson(INDEX, true, array);
+        Assert.assertEquals(COUNT, result.count.intValue());
+        Assert.assertEquals(COUNT, countDocs());
+        // The field types collected by every worker are merged
+        Assert.assertTrue(result.fieldTypes.get("title").contains(JsonNodeType.STRING));
+        Assert.assertTrue(result.fieldTypes.get("price").contains(JsonNodeType.NUMBER));
+    }
+
+    @Test
+    public void test200parallelMappedDocuments() {
+        final List<Map<String, Object>> documents = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            final Map<String, Object> doc = new LinkedHashMap<>();
+            doc.put("id", "map" + i);
+            doc.put("title", "Document " + i);
+            documents.add(doc);
+        }
+        Assert.assertEquals(COUNT, service.postMappedDocuments(INDEX, PostDefinition.Documents.of(documents, null))
+            .intValue());
+        Assert.assertEquals(COUNT * 2, countDocs());
+    }
+
+    @Test
+    public void test300errorsAreAggregated() {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < COUNT; i++) {
+            if (i % 1000 == 10)
+                array.add("not an object");
+            else
+                array.addObject().put("id", "error" + i);
+        }
+        try {
+            service.postJson(INDEX, false, array);
+            Assert.fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(406, e.getResponse().getStatus());
+        }
+        // Every valid document has been indexed
+        service.commit(INDEX, null, null);
+        final long errors = (COUNT + 989) / 1000;
+        Assert.assertEquals(COUNT * 3 - errors, countDocs());
+    }
+
+    private static class CountPoster implements RecordsPoster.Of<Integer> {
+
+        private int count;
+
+        @Override
+        public void accept(final Integer document) {
+            count++;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+    }
+
+    @Test
+    public void test400busyExecutor() throws Exception {
+        final ServerExecutor executor = new ServerExecutor("bulk-poster-test",
+            new ServerConfiguration.ExecutorSettings(4, 16, ServerConfiguration.ExecutorSettings.Rejection.caller_runs));
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 4; i++)
+                executor.execute(() -> {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            final List<Integer> documents = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i++)
+                documents.add(i);
+            // The workers are queued behind the busy threads: the calling thread indexes everything
+            Assert.assertEquals(COUNT, BulkPoster.post(executor, documents, null, CountPoster::new));
+            Assert.assertEquals(4, executor.getActiveCount());
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test500sameKeyInBatchOrder() throws Exception {
+        final ServerExecutor executor = new ServerExecutor("bulk-poster-test",
+            new ServerConfiguration.ExecutorSettings(4, 16, ServerConfiguration.ExecutorSettings.Rejection.caller_runs));
+        try {
+            final List<Integer> documents = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i++)
+                documents.add(i);
+            // Every key has versions in every slice of the batch
+            final Map<String, List<Integer>> versions = new ConcurrentHashMap<>();
+            Assert.assertEquals(COUNT, BulkPoster.post(executor, documents, pos -> "key" + pos % 10,
+                () -> new CountPoster() {
+                    @Override
+                    public void accept(final Integer document) {
+                        versions.computeIfAbsent("key" + document % 10, key -> new ArrayList<>()).add(document);
+                        super.accept(document);
+                    }
+                }));
+            Assert.assertEquals(10, versions.size());
+            Assert.assertEquals(COUNT, versions.values().stream().mapToInt(List::size).sum());
+            versions.forEach((key, positions) -> {
+                for (int i = 1; i < positions.size(); i++)
+                    Assert.assertTrue(key, positions.get(i - 1) < positions.get(i));
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test600smallBatchErrors() {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < 10; i++) {
+            if (i % 5 == 2)
+                array.add("not an object");
+            else
+                array.addObject().put("id", "small" + i);
+        }
+        final long before = countDocs();
+        try {
+            service.postJson(INDEX, false, array);
+            Assert.fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(406, e.getResponse().getStatus());
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("2 documents failed, 8 documents indexed"));
+        }
+        // Like a large batch, the invalid documents don't stop the batch
+        service.commit(INDEX, null, null);
+        Assert.assertEquals(before + 8, countDocs());
+    }
+}
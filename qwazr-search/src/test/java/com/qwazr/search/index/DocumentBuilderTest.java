@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import java.io.IOException;
+import java.util.Map;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DocumentBuilderTest {
+
+    private final static DocumentBuilder.FieldFactory<StoredField> STORED = name -> new StoredField(name, 0L);
+
+    private DocumentBuilder.ForLuceneDocument documentBuilder;
+
+    @Before
+    public void setup() {
+        documentBuilder = DocumentBuilder.of(
+            new FieldMap(new FieldsContext(IndexSettingsDefinition.of().build(), Map.of())), null);
+    }
+
+    private Field addValue(final String fieldName, final long value) {
+        final StoredField field = documentBuilder.getField(STORED, fieldName);
+        field.setLongValue(value);
+        documentBuilder.acceptField(field);
+        return field;
+    }
+
+    @Test
+    public void fieldsAreReusedByTheNextDocument() throws IOException {
+        final Field first = addValue("multi", 1);
+        final Field second = addValue("multi", 2);
+        final Field other = addValue("other", 3);
+        Assert.assertNotSame(first, second);
+        final Document document = documentBuilder.build();
+        Assert.assertArrayEquals(new Number[]{1L, 2L},
+            new Number[]{document.getFields("multi")[0].numericValue(),
+                document.getFields("multi")[1].numericValue()});
+
+        documentBuilder.reset();
+        Assert.assertSame(first, addValue("multi", 4));
+        Assert.assertSame(other, addValue("other", 5));
+        Assert.assertSame(second, addValue("multi", 6));
+        // A third value needs a new instance
+        final Field third = addValue("multi", 7);
+        Assert.assertNotSame(first, third);
+        Assert.assertNotSame(second, third);
+        Assert.assertEquals(4, documentBuilder.build().getFields().size());
+    }
+
+    @Test
+    public void documentWithoutFacetIsNotCopied() throws IOException {
+        addValue("field", 1);
+        final Document document = documentBuilder.build();
+        Assert.assertSame(document, documentBuilder.build());
+
+        documentBuilder.reset();
+        addValue("field", 1);
+        documentBuilder.acceptFacetField(new SortedSetDocValuesFacetField("dim", "value"), "dim",
+            (dimension, context, config) -> config.setIndexFieldName(dimension, context.sortedSetFacetField));
+        Assert.assertNotSame(document, documentBuilder.build());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.field.FieldTypeInterface;
+import com.qwazr.search.field.SmartFieldDefinition;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FieldMapTest {
+
+    private FieldMap fieldMap;
+    private FieldDefinition wildcardDefinition;
+    private FieldDefinition staticDefinition;
+
+    @Before
+    public void setup() {
+        wildcardDefinition = SmartFieldDefinition.of().type(SmartFieldDefinition.Type.TEXT).index(true).build();
+        staticDefinition = SmartFieldDefinition.of().type(SmartFieldDefinition.Type.LONG).sort(true).build();
+        fieldMap = new FieldMap(new FieldsContext(IndexSettingsDefinition.of().primaryKey("id").build(),
+            Map.of("tag_*", wildcardDefinition, "count", staticDefinition)));
+    }
+
+    @Test
+    public void staticAndWildcardFields() {
+        final FieldTypeInterface count = fieldMap.getFieldType(null, "count", 1);
+        Assert.assertEquals(staticDefinition, count.getDefinition());
+        Assert.assertSame(count, fieldMap.getFieldType(null, "count", "text"));
+        Assert.assertSame(count, fieldMap.getFieldType(null, "count"));
+
+        final FieldTypeInterface tag = fieldMap.getFieldType(null, "tag_one", "value");
+        Assert.assertEquals(wildcardDefinition, tag.getDefinition());
+        Assert.assertSame(tag, fieldMap.getFieldType(null, "tag_two", "value"));
+        Assert.assertSame(tag, fieldMap.getFieldType("tag_*", "tag_three"));
+    }
+
+    @Test
+    public void dynamicFieldsDependOnTheValue() {
+        final FieldTypeInterface text = fieldMap.getFieldType(null, "dynamic", "value");
+        final FieldTypeInterface number = fieldMap.getFieldType(null, "dynamic", 12);
+        Assert.assertNotSame(text, number);
+        Assert.assertEquals(SmartFieldDefinition.Type.TEXT, text.getDefinition().getType());
+        Assert.assertEquals(SmartFieldDefinition.Type.DOUBLE, number.getDefinition().getType());
+        // Resolved once, then served from the cache
+        Assert.assertSame(text, fieldMap.getFieldType(null, "dynamic", "other value"));
+        Assert.assertSame(number, fieldMap.getFieldType(null, "dynamic", 3.5d));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldWithoutValue() {
+        fieldMap.getFieldType(null, "unknown");
+    }
+}
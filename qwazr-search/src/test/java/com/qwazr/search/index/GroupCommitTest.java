@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.server.ServerExecutor;
+import com.qwazr.server.configuration.ServerConfiguration;
+import com.qwazr.utils.ObjectMappers;
+import com.qwazr.utils.concurrent.ExecutorUtils;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class GroupCommitTest extends AbstractIndexTest {
+
+    private final static String INDEX = "groupCommitIndex";
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .groupCommitMaxLatencyMs(60_000L)
+            .groupCommitMaxDocs(1_000_000)
+            .build());
+    }
+
+    private static ArrayNode docs(final int start, final int count) {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = start; i < start + count; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", Integer.toString(i));
+            doc.put("title", "Document " + i);
+        }
+        return array;
+    }
+
+    private static long countDocs() {
+        return service.searchQuery(INDEX, QueryDefinition.of(MatchAllDocs.INSTANCE).rows(0).build(), false)
+            .getTotalHits();
+    }
+
+    @Test
+    public void test100visibleBeforeDurable() {
+        final IndexJsonResult result1 = service.postJson(INDEX, false, docs(0, 10));
+        final IndexJsonResult result2 = service.postJson(INDEX, false, docs(10, 10));
+        Assert.assertNotNull(result1.commitSequence);
+        Assert.assertNotNull(result2.commitSequence);
+        Assert.assertTrue(result2.commitSequence > result1.commitSequence);
+
+        // The documents are searchable right away (NRT refresh)
+        Assert.assertEquals(20, countDocs());
+
+        // But not yet durable
+        final IndexStatus status = service.getIndex(INDEX);
+        Assert.assertEquals(result2.commitSequence, status.commitSequence);
+        Assert.assertTrue(status.durableCommitSequence < result2.commitSequence);
+        Assert.assertTrue(status.hasUncommittedChanges);
+
+        // A short wait does not force the commit
+        Assert.assertTrue(service.commit(INDEX, result2.commitSequence, 10L) < result2.commitSequence);
+
+        // An explicit commit makes both writes durable at once
+        Assert.assertEquals(result2.commitSequence, service.commit(INDEX, null, null));
+        Assert.assertEquals(result1.commitSequence.longValue(), result2.commitSequence - 1);
+        Assert.assertFalse(service.getIndex(INDEX).hasUncommittedChanges);
+    }
+
+    @Test
+    public void test200maxDocsTriggersCommit() {
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .groupCommitMaxLatencyMs(60_000L)
+            .groupCommitMaxDocs(5)
+            .build());
+        final IndexJsonResult result = service.postJson(INDEX, false, docs(20, 10));
+        Assert.assertTrue(service.commit(INDEX, result.commitSequence, 10_000L) >= result.commitSequence);
+        Assert.assertEquals(30, countDocs());
+    }
+
+    @Test
+    public void test300maxLatencyTriggersCommit() {
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .groupCommitMaxLatencyMs(50L)
+            .build());
+        final IndexJsonResult result = service.postJson(INDEX, false, docs(30, 1));
+        Assert.assertTrue(service.commit(INDEX, result.commitSequence, 10_000L) >= result.commitSequence);
+        Assert.assertEquals(31, countDocs());
+    }
+
+    @Test
+    public void test400failedCommitIsRetried() throws IOException, InterruptedException {
+        final AtomicInteger commits = new AtomicInteger();
+        // The first commit fails, the next ones succeed
+        final WriterAndSearcher writerAndSearcher = (WriterAndSearcher) Proxy.newProxyInstance(
+            WriterAndSearcher.class.getClassLoader(), new Class<?>[]{WriterAndSearcher.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("commit") && commits.incrementAndGet() == 1)
+                    throw new IOException("Disk full");
+                return null;
+            });
+        final GroupCommit groupCommit = new GroupCommit(writerAndSearcher, null,
+            IndexSettingsDefinition.of().groupCommitMaxLatencyMs(50L).build(), null);
+        try {
+            final long sequence = groupCommit.submit(1);
+            Assert.assertEquals(sequence, groupCommit.await(sequence, 10_000));
+            Assert.assertEquals(2, commits.get());
+        } finally {
+            groupCommit.close();
+        }
+    }
+
+    private static WriterAndSearcher countingCommits(final AtomicInteger commits) {
+        return (WriterAndSearcher) Proxy.newProxyInstance(
+            WriterAndSearcher.class.getClassLoader(), new Class<?>[]{WriterAndSearcher.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("commit"))
+                    commits.incrementAndGet();
+                return null;
+            });
+    }
+
+    private static ExecutorService saturatedExecutor(final CountDownLatch latch) {
+        final ExecutorService executorService = new ServerExecutor("groupCommitTest",
+            new ServerConfiguration.ExecutorSettings(1, 1, ServerConfiguration.ExecutorSettings.Rejection.abort));
+        // One busy thread and a full queue: every new task is rejected
+        for (int i = 0; i < 2; i++)
+            executorService.submit(() -> {
+                latch.await();
+                return null;
+            });
+        return executorService;
+    }
+
+    @Test
+    public void test500rejectedCommitRunsOnCaller() throws IOException, InterruptedException {
+        final AtomicInteger commits = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ExecutorService executorService = saturatedExecutor(latch);
+        final GroupCommit groupCommit = new GroupCommit(countingCommits(commits), executorService,
+            IndexSettingsDefinition.of().groupCommitMaxLatencyMs(60_000L).groupCommitMaxDocs(1).build(), null);
+        try {
+            final long sequence = groupCommit.submit(1);
+            // Committed by the writing thread
+            Assert.assertEquals(sequence, groupCommit.getCommittedSequence());
+            Assert.assertEquals(1, commits.get());
+        } finally {
+            groupCommit.close();
+            latch.countDown();
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void test600rejectedDelayedCommitIsRetried() throws IOException, InterruptedException {
+        final AtomicInteger commits = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ExecutorService executorService = saturatedExecutor(latch);
+        final GroupCommit groupCommit = new GroupCommit(countingCommits(commits), executorService,
+            IndexSettingsDefinition.of().groupCommitMaxLatencyMs(50L).build(), null);
+        try {
+            final long sequence = groupCommit.submit(1);
+            // The delayed commit is rejected while the pool is saturated
+            Assert.assertTrue(groupCommit.await(sequence, 200) < sequence);
+            Assert.assertEquals(0, commits.get());
+            // Rescheduled, it is done once the pool is released
+            latch.countDown();
+            Assert.assertEquals(sequence, groupCommit.await(sequence, 10_000));
+            Assert.assertEquals(1, commits.get());
+        } finally {
+            groupCommit.close();
+            latch.countDown();
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -122,5 +122,34 @@ public class HighlightingTest extends AbstractIndexTest.WithIndexRecord.NoTaxono
         }
     }
 
+    @Test
+    public void highlightingSeveralHighlighters() {
+        final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result = indexService.searchQuery(
+            QueryDefinition.of(
+                    SimpleQueryParser.of().addField("textField").setQueryString("opensearchserver").build())
+                .highlighter("first", HighlighterDefinition.of()
+                    .withField("textField")
+                    .withStoredField("storedField")
+                    .withDefaultAnalyzer("standard")
+                    .build())
+                .highlighter("second", HighlighterDefinition.of()
+                    .withField("textField")
+                    .withStoredField("storedField")
+                    .withDefaultAnalyzer("standard")
+                    .withOffsetSource(HighlighterDefinition.OffsetSource.ANALYSIS)
+                    .withMaxPassages(5)
+                    .build())
+                .build());
 
+        Assert.assertNotNull(result);
+        Assert.assertEquals(2, result.totalHits);
+        final int[] expectedCounts = {4, 3};
+        for (int i = 0; i < expectedCounts.length; i++) {
+            final ResultDocumentObject<IndexRecord.NoTaxonomy> document = result.getDocuments().get(i);
+            Assert.assertNotNull(document.getHighlights().get("first"));
+            final String second = document.getHighlights().get("second");
+            Assert.assertNotNull(second);
+            Assert.assertEquals(expectedCounts[i], StringUtils.countMatches(second, "<b>OpenSearchServer</b>"));
+        }
+    }
 }
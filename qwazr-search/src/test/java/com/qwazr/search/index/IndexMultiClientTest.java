@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.annotations.AnnotatedIndexService;
+import com.qwazr.search.field.FieldDefinition;
+import com.qwazr.search.query.HasTerm;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.search.test.units.IndexRecord;
+import com.qwazr.utils.StringUtils;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Three local indexes play the role of the shards, their merged results are compared with a single index which
+ * contains all the documents.
+ */
+public class IndexMultiClientTest extends AbstractIndexTest {
+
+    private final static String[] SHARDS = {"shard0", "shard1", "shard2"};
+    private final static String ALL = "all";
+
+    private static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        initIndexManager();
+        service = indexManager.getService();
+        final List<AnnotatedIndexService<IndexRecord.NoTaxonomy>> shards = new ArrayList<>();
+        for (final String shard : SHARDS)
+            shards.add(createIndex(shard));
+        final AnnotatedIndexService<IndexRecord.NoTaxonomy> all = createIndex(ALL);
+        final List<IndexRecord.NoTaxonomy> allRecords = new ArrayList<>();
+        final List<List<IndexRecord.NoTaxonomy>> shardRecords = new ArrayList<>();
+        for (int i = 0; i < SHARDS.length; i++)
+            shardRecords.add(new ArrayList<>());
+        for (int i = 0; i < 90; i++) {
+            final IndexRecord.NoTaxonomy record = new IndexRecord.NoTaxonomy("id" + i)
+                .textField("alpha" + StringUtils.repeat(" beta", i % 7))
+                .sortedLongDocValue((i * 37) % 90)
+                .sortedDocValue("value" + StringUtils.leftPad(Integer.toString((i * 11) % 90), 2, '0'))
+                .sortedSetDocValuesFacetField(category(i));
+            allRecords.add(record);
+            shardRecords.get(i % SHARDS.length).add(record);
+        }
+        all.postDocuments(allRecords);
+        for (int i = 0; i < SHARDS.length; i++)
+            shards.get(i).postDocuments(shardRecords.get(i));
+    }
+
+    private static AnnotatedIndexService<IndexRecord.NoTaxonomy> createIndex(final String name)
+        throws URISyntaxException {
+        final AnnotatedIndexService<IndexRecord.NoTaxonomy> index =
+            new AnnotatedIndexService<>(service, IndexRecord.NoTaxonomy.class, name, null);
+        index.createUpdateIndex();
+        index.createUpdateFields();
+        return index;
+    }
+
+    /**
+     * The categories have distinct counts: 30, 24, 18, 12 and 6 documents
+     */
+    private static String category(final int i) {
+        final int m = i % 15;
+        return "cat" + (m < 5 ? 0 : m < 9 ? 1 : m < 12 ? 2 : m < 14 ? 3 : 4);
+    }
+
+    private static ResultDefinition.WithMap searchShards(final QueryDefinition query) {
+        final QueryDefinition shardQuery = IndexMultiClient.shardQuery(query);
+        final List<ResultDefinition.WithMap> results = new ArrayList<>();
+        for (final String shard : SHARDS)
+            results.add(service.searchQuery(shard, shardQuery, false));
+        return IndexMultiClient.merge(query, results, null);
+    }
+
+    private static List<Object> ids(final ResultDefinition.WithMap result) {
+        final List<Object> ids = new ArrayList<>();
+        result.getDocuments().forEach(doc -> ids.add(doc.getFields().get(FieldDefinition.ID_FIELD)));
+        return ids;
+    }
+
+    private static void checkPositions(final ResultDefinition.WithMap result, final int start) {
+        int pos = start;
+        for (final ResultDocumentMap document : result.getDocuments()) {
+            Assert.assertEquals(pos++, document.getPos());
+            Assert.assertNull(document.getCursor());
+        }
+    }
+
+    private static void checkSameAsSingleIndex(final QueryDefinition query) {
+        final ResultDefinition.WithMap expected = service.searchQuery(ALL, query, false);
+        final ResultDefinition.WithMap merged = searchShards(query);
+        Assert.assertEquals(expected.totalHits, merged.totalHits);
+        Assert.assertEquals(ids(expected), ids(merged));
+        checkPositions(merged, query.getStartValue());
+    }
+
+    @Test
+    public void sortByLong() {
+        checkSameAsSingleIndex(QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .returnedField(FieldDefinition.ID_FIELD)
+            .sort("sortedLongDocValue", QueryDefinition.SortEnum.descending)
+            .start(5)
+            .rows(20)
+            .build());
+    }
+
+    @Test
+    public void sortByString() {
+        checkSameAsSingleIndex(QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .returnedField(FieldDefinition.ID_FIELD)
+            .sort(IndexRecord.SORTED_DOC_VALUE_FIELD_NAME, QueryDefinition.SortEnum.ascending)
+            .start(30)
+            .rows(15)
+            .build());
+    }
+
+    @Test
+    public void sortByScoreThenLong() {
+        checkSameAsSingleIndex(QueryDefinition.of(new HasTerm(IndexRecord.TEXT_FIELD_NAME, "alpha"))
+            .returnedField(FieldDefinition.ID_FIELD)
+            .sort("sortedLongDocValue", QueryDefinition.SortEnum.ascending)
+            .sort(FieldDefinition.SCORE_FIELD, QueryDefinition.SortEnum.descending)
+            .rows(12)
+            .build());
+    }
+
+    @Test
+    public void mergeByScore() {
+        final QueryDefinition query = QueryDefinition.of(new HasTerm(IndexRecord.TEXT_FIELD_NAME, "beta"))
+            .returnedField(FieldDefinition.ID_FIELD)
+            .start(3)
+            .rows(10)
+            .build();
+        final ResultDefinition.WithMap merged = searchShards(query);
+        Assert.assertEquals(service.searchQuery(ALL, query, false).totalHits, merged.totalHits);
+        Assert.assertEquals(10, merged.getDocuments().size());
+        checkPositions(merged, 3);
+        float previous = Float.MAX_VALUE;
+        for (final ResultDocumentMap document : merged.getDocuments()) {
+            Assert.assertTrue(document.getScore() <= previous);
+            previous = document.getScore();
+        }
+    }
+
+    @Test
+    public void startAfterTheLastHit() {
+        final QueryDefinition query = QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .sort("sortedLongDocValue", QueryDefinition.SortEnum.ascending)
+            .start(100)
+            .rows(10)
+            .build();
+        final ResultDefinition.WithMap merged = searchShards(query);
+        Assert.assertEquals(90, merged.totalHits);
+        Assert.assertTrue(merged.getDocuments().isEmpty());
+    }
+
+    private static Map<String, Long> facet(final ResultDefinition.WithMap result) {
+        final Map<String, Long> facet = new LinkedHashMap<>();
+        result.getFacet("sortedSetDocValuesFacetField").forEach((label, value) -> facet.put(label, value.longValue()));
+        return facet;
+    }
+
+    @Test
+    public void facetCountsAreSummed() {
+        final QueryDefinition query = QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .facet("sortedSetDocValuesFacetField", FacetDefinition.of(3).build())
+            .rows(0)
+            .build();
+        final Map<String, Long> merged = facet(searchShards(query));
+        Assert.assertEquals(facet(service.searchQuery(ALL, query, false)), merged);
+        Assert.assertEquals(List.of("cat0", "cat1", "cat2"), new ArrayList<>(merged.keySet()));
+        Assert.assertEquals(List.of(30L, 24L, 18L), new ArrayList<>(merged.values()));
+    }
+
+    @Test
+    public void facetSortAndSpecificValues() {
+        final QueryDefinition sorted = QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .facet("sortedSetDocValuesFacetField",
+                FacetDefinition.of(2).sort(FacetDefinition.Sort.label_descending).build())
+            .rows(0)
+            .build();
+        Assert.assertEquals(facet(service.searchQuery(ALL, sorted, false)), facet(searchShards(sorted)));
+        final QueryDefinition specific = QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .facet("sortedSetDocValuesFacetField", FacetDefinition.of().specificValues("cat4").build())
+            .rows(0)
+            .build();
+        Assert.assertEquals(Map.of("cat4", 6L), facet(searchShards(specific)));
+    }
+
+    @Test
+    public void cursors() {
+        final QueryDefinition query = QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .sort("sortedLongDocValue", QueryDefinition.SortEnum.ascending)
+            .rows(3)
+            .cursors(true)
+            .build();
+        final ResultDefinition.WithMap result = service.searchQuery(ALL, query, false);
+        Assert.assertEquals(3, result.getDocuments().size());
+        // The cursor of a document is usable as search_after
+        final ResultDefinition.WithMap next = service.searchQuery(ALL, query.of()
+            .cursors(null)
+            .searchAfter(result.getDocuments().get(0).getCursor())
+            .build(), false);
+        Assert.assertEquals(result.getDocuments().get(1).getFields(), next.getDocuments().get(0).getFields());
+        Assert.assertNull(next.getDocuments().get(0).getCursor());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.query.Bool;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.query.TermsQuery;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IndexQueryCacheTest extends AbstractIndexTest {
+
+    private final static String INDEX = "indexQueryCacheIndex";
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .queryCacheMaxEntries(100)
+            .queryCacheMaxRamMb(1D)
+            .queryCacheMinSegmentDocs(1)
+            .queryCachePolicy(IndexSettingsDefinition.QueryCachePolicy.FILTERS)
+            .build());
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = 0; i < 100; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", Integer.toString(i));
+        }
+        service.postJson(INDEX, false, array);
+    }
+
+    @Test
+    public void test100termsFilterIsCachedOnReuse() {
+        final QueryDefinition query = QueryDefinition.of(Bool.of()
+            .addClause(Bool.Occur.must, MatchAllDocs.INSTANCE)
+            .addClause(Bool.Occur.filter, TermsQuery.of("id").add("1", "2", "3").build())
+            .build()).rows(10).build();
+        Assert.assertEquals(3, service.searchQuery(INDEX, query, false).getTotalHits());
+
+        // Rewritten as a disjunction of plain terms, the filter follows the usage tracking policy
+        final IndexStatus.QueryCacheStats stats = service.getIndex(INDEX).queryCache;
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(Boolean.TRUE, stats.dedicated);
+        Assert.assertEquals(Long.valueOf(0), stats.cacheCount);
+
+        for (int i = 0; i < 10; i++)
+            Assert.assertEquals(3, service.searchQuery(INDEX, query, false).getTotalHits());
+        Assert.assertEquals(Long.valueOf(1), service.getIndex(INDEX).queryCache.cacheCount);
+        Assert.assertTrue(service.getIndex(INDEX).queryCache.ramBytesUsed > 0);
+
+        Assert.assertEquals(3, service.searchQuery(INDEX, query, false).getTotalHits());
+        Assert.assertTrue(service.getIndex(INDEX).queryCache.hitCount >= 1);
+    }
+
+    @Test
+    public void test200filtersPolicy() {
+        Assert.assertTrue(IndexQueryCache.FiltersCachingPolicy.isFilter(
+            new TermQuery(new Term("$facets", "dim\u001fpath"))));
+        Assert.assertFalse(IndexQueryCache.FiltersCachingPolicy.isFilter(new TermQuery(new Term("id", "1"))));
+        Assert.assertTrue(IndexQueryCache.FiltersCachingPolicy.isFilter(new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("$facets", "dim\u001fpath1")), BooleanClause.Occur.SHOULD)
+            .add(new TermQuery(new Term("$facets", "dim\u001fpath2")), BooleanClause.Occur.SHOULD)
+            .build()));
+        // A disjunction of plain terms may be a scoring query
+        Assert.assertFalse(IndexQueryCache.FiltersCachingPolicy.isFilter(new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("title", "hello")), BooleanClause.Occur.SHOULD)
+            .add(new TermQuery(new Term("title", "world")), BooleanClause.Occur.SHOULD)
+            .build()));
+    }
+
+    @Test
+    public void test300sharedCacheByDefault() {
+        Assert.assertNull(IndexQueryCache.of(IndexSettingsDefinition.of().build()));
+        Assert.assertNotNull(IndexQueryCache.of(IndexSettingsDefinition.of()
+            .queryCachePolicy(IndexSettingsDefinition.QueryCachePolicy.NONE)
+            .build()));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.ws.rs.WebApplicationException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class JsonStreamTest extends AbstractIndexTest {
+
+    private final static String INDEX = "jsonStreamIndex";
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of().primaryKey("id").build());
+    }
+
+    private static long countDocs() {
+        return service.searchQuery(INDEX, QueryDefinition.of(MatchAllDocs.INSTANCE).rows(0).build(), false)
+            .getTotalHits();
+    }
+
+    private static void checkChunks(final IndexStreamResult result, final int count, final int... chunkCounts) {
+        Assert.assertEquals(count, result.count.longValue());
+        Assert.assertEquals(chunkCounts.length, result.chunks.size());
+        long total = 0;
+        for (int i = 0; i < chunkCounts.length; i++) {
+            final IndexStreamResult.Chunk chunk = result.chunks.get(i);
+            total += chunkCounts[i];
+            Assert.assertEquals(chunkCounts[i], chunk.count.intValue());
+            Assert.assertEquals(total, chunk.total.longValue());
+            Assert.assertNotNull(chunk.commitSequence);
+            Assert.assertNotNull(chunk.generation);
+        }
+    }
+
+    @Test
+    public void test100ndjson() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 250; i++)
+            sb.append("{\"id\":\"nd").append(i).append("\",\"title\":\"Document ").append(i).append("\"}\n");
+        final IndexStreamResult result = service.postJsonStream(INDEX, true, 100,
+            new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        checkChunks(result, 250, 100, 100, 50);
+        Assert.assertTrue(result.fieldTypes.get("title").contains(JsonNodeType.STRING));
+        Assert.assertEquals(250, countDocs());
+    }
+
+    @Test
+    public void test200jsonArray() {
+        final IndexStreamResult result = service.postJsonStream(INDEX, false, null, new ByteArrayInputStream(
+            "[{\"id\":\"array1\"},{\"id\":\"array2\"}]".getBytes(StandardCharsets.UTF_8)));
+        checkChunks(result, 2, 2);
+        Assert.assertNull(result.fieldTypes);
+        Assert.assertEquals(252, countDocs());
+    }
+
+    @Test
+    public void test300smile() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (final JsonGenerator generator = ObjectMappers.SMILE.getFactory().createGenerator(output)) {
+            for (int i = 0; i < 10; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("id", "smile" + i);
+                generator.writeNumberField("price", i);
+                generator.writeEndObject();
+            }
+        }
+        final IndexStreamResult result =
+            service.postJsonStream(INDEX, true, 4, new ByteArrayInputStream(output.toByteArray()));
+        checkChunks(result, 10, 4, 4, 2);
+        Assert.assertTrue(result.fieldTypes.get("price").contains(JsonNodeType.NUMBER));
+        Assert.assertEquals(262, countDocs());
+    }
+
+    @Test
+    public void test400notAnObject() {
+        try {
+            service.postJsonStream(INDEX, false, null,
+                new ByteArrayInputStream("{\"id\":\"ok\"}\n\"not an object\"".getBytes(StandardCharsets.UTF_8)));
+            Assert.fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(406, e.getResponse().getStatus());
+        }
+    }
+}
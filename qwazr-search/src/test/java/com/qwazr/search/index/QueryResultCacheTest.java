@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class QueryResultCacheTest extends AbstractIndexTest {
+
+    private final static String INDEX = "queryResultCacheIndex";
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .resultCacheMaxEntries(2)
+            .build());
+        post(0, 10);
+    }
+
+    private static void post(final int start, final int count) {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = start; i < start + count; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", Integer.toString(i));
+        }
+        service.postJson(INDEX, false, array);
+    }
+
+    private static long search(final int rows) {
+        return service.searchQuery(INDEX, QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .rows(rows)
+            .build(), false).getTotalHits();
+    }
+
+    private static IndexStatus.ResultCacheStats stats() {
+        final IndexStatus.ResultCacheStats stats = service.getIndex(INDEX).resultCache;
+        Assert.assertNotNull(stats);
+        return stats;
+    }
+
+    @Test
+    public void test100hit() {
+        Assert.assertEquals(10, search(1));
+        Assert.assertEquals(10, search(1));
+        final IndexStatus.ResultCacheStats stats = stats();
+        Assert.assertEquals(Integer.valueOf(2), stats.maxEntries);
+        Assert.assertEquals(Integer.valueOf(1), stats.size);
+        Assert.assertEquals(Long.valueOf(1), stats.hitCount);
+        Assert.assertEquals(Long.valueOf(1), stats.missCount);
+    }
+
+    @Test
+    public void test200invalidation() {
+        post(10, 5);
+        Assert.assertEquals(15, search(1));
+        final IndexStatus.ResultCacheStats stats = stats();
+        Assert.assertEquals(Integer.valueOf(1), stats.size);
+        Assert.assertEquals(Long.valueOf(1), stats.hitCount);
+        Assert.assertEquals(Long.valueOf(2), stats.missCount);
+    }
+
+    @Test
+    public void test300eviction() {
+        Assert.assertEquals(15, search(2));
+        Assert.assertEquals(15, search(3));
+        final IndexStatus.ResultCacheStats stats = stats();
+        Assert.assertEquals(Integer.valueOf(2), stats.size);
+        Assert.assertEquals(Long.valueOf(1), stats.evictionCount);
+    }
+}
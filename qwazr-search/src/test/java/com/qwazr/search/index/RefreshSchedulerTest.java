@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.query.MatchAllDocs;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RefreshSchedulerTest extends AbstractIndexTest {
+
+    private final static String INDEX = "refreshSchedulerIndex";
+
+    static IndexServiceInterface service;
+    static long lastGeneration;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(INDEX, IndexSettingsDefinition.of()
+            .primaryKey("id")
+            .groupCommitMaxLatencyMs(60_000L)
+            .refreshMinStalenessMs(10L)
+            .refreshMaxStalenessMs(60_000L)
+            .build());
+    }
+
+    private static ArrayNode docs(final int start, final int count) {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = start; i < start + count; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", Integer.toString(i));
+        }
+        return array;
+    }
+
+    private static long countDocs(final Long minGeneration) {
+        return service.searchQuery(INDEX, QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .minGeneration(minGeneration)
+            .rows(0)
+            .build(), false).getTotalHits();
+    }
+
+    @Test
+    public void test100readYourWrites() {
+        for (int i = 0; i < 5; i++) {
+            final IndexJsonResult result = service.postJson(INDEX, false, docs(i * 10, 10));
+            Assert.assertNotNull(result.generation);
+            // The write does not reopen the searcher: without min_generation the search is stale
+            Assert.assertEquals(i * 10, countDocs(null));
+            // With min_generation the search waits for the refresher
+            Assert.assertEquals((i + 1) * 10, countDocs(result.generation));
+            lastGeneration = result.generation;
+        }
+    }
+
+    @Test
+    public void test200refreshStatus() {
+        final IndexStatus.RefreshStatus refresh = service.getIndex(INDEX).refresh;
+        Assert.assertNotNull(refresh);
+        Assert.assertEquals(Long.valueOf(10L), refresh.minStalenessMs);
+        Assert.assertEquals(Long.valueOf(60_000L), refresh.maxStalenessMs);
+        Assert.assertTrue(refresh.reopenCount >= 5);
+        Assert.assertTrue(refresh.refreshCount >= refresh.reopenCount);
+        Assert.assertNotNull(refresh.avgReopenMs);
+        Assert.assertNotNull(refresh.lastReopenTime);
+        // The searcher includes the last write (the reopen itself moves the writer generation forward)
+        Assert.assertTrue(refresh.searcherGeneration >= lastGeneration);
+    }
+}
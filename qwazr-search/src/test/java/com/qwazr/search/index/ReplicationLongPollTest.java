@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwazr.search.replication.ReplicationSession;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import com.qwazr.utils.ObjectMappers;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.WebApplicationException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ReplicationLongPollTest extends AbstractIndexTest {
+
+    private final static String MASTER = "longPollMaster";
+    private final static String SLAVE = "longPollSlave";
+
+    static IndexServiceInterface service;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        service.createUpdateIndex(MASTER, IndexSettingsDefinition.of().primaryKey("id").build());
+        post(0, 10);
+    }
+
+    private static void post(final int start, final int count) {
+        final ArrayNode array = ObjectMappers.JSON.createArrayNode();
+        for (int i = start; i < start + count; i++) {
+            final ObjectNode doc = array.addObject();
+            doc.put("id", Integer.toString(i));
+        }
+        service.postJson(MASTER, false, array);
+    }
+
+    @Test
+    public void test100unchangedMasterWaitsForTheTimeout() {
+        final Long generation = service.replicationGeneration(MASTER, null, 0L);
+        Assert.assertNotNull(generation);
+        final long start = System.currentTimeMillis();
+        Assert.assertEquals(generation, service.replicationGeneration(MASTER, generation, 250L));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    @Test
+    public void test200commitReleasesTheWaiter() throws Exception {
+        final Long generation = service.replicationGeneration(MASTER, null, 0L);
+        final CompletableFuture<Long> waiter =
+            CompletableFuture.supplyAsync(() -> service.replicationGeneration(MASTER, generation, 30000L));
+        post(10, 5);
+        final Long newGeneration = waiter.get(10, TimeUnit.SECONDS);
+        Assert.assertNotEquals(generation, newGeneration);
+    }
+
+    @Test
+    public void test300slaveReplicatesOnChange() throws Exception {
+        service.createUpdateIndex(SLAVE, IndexSettingsDefinition.of()
+            .master(MASTER)
+            .replicationLongPollMs(1000L)
+            .build());
+        waitForSlaveNumDocs(15);
+        post(15, 5);
+        waitForSlaveNumDocs(20);
+    }
+
+    private static void waitForSlaveNumDocs(final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            if (Long.valueOf(expected).equals(service.getIndex(SLAVE).numDocs))
+                return;
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(Long.valueOf(expected), service.getIndex(SLAVE).numDocs);
+    }
+
+    @Test
+    public void test400slaveCannotBePolled() {
+        try {
+            service.replicationGeneration(SLAVE, null, 0L);
+            Assert.fail("A slave is not a replication master");
+        } catch (WebApplicationException e) {
+            Assert.assertTrue(e.getResponse().getStatus() >= 400);
+        }
+    }
+
+    @Test
+    public void test500unchangedMasterOpensNoSession() {
+        final Long generation = service.replicationGeneration(MASTER, null, 0L);
+        Assert.assertNull(service.replicationUpdate(MASTER, generation.toString()));
+        final ReplicationSession session = service.replicationUpdate(MASTER, Long.toString(generation - 1));
+        Assert.assertNotNull(session);
+        service.replicationRelease(MASTER, session.sessionUuid);
+        // The slave is up to date: nothing is transferred
+        final ReplicationStatus status = service.replicationCheck(SLAVE);
+        Assert.assertNotNull(status);
+        Assert.assertEquals(0, status.bytes);
+    }
+}
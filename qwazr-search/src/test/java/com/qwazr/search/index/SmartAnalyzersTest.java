@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.index;
+
+import com.qwazr.search.analysis.SmartAnalyzerSet;
+import com.qwazr.search.analysis.SmartAnalyzers;
+import com.qwazr.search.field.SmartFieldDefinition;
+import com.qwazr.search.query.QueryParser;
+import com.qwazr.search.test.units.AbstractIndexTest;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SmartAnalyzersTest extends AbstractIndexTest {
+
+    private static IndexServiceInterface service;
+    private static SmartAnalyzers smartAnalyzers;
+
+    @BeforeClass
+    public static void setup() {
+        service = initIndexManager(true).getService();
+        smartAnalyzers = indexManager.getSmartAnalyzers();
+    }
+
+    private static void createIndex(final String indexName) {
+        service.createUpdateIndex(indexName);
+        service.setFields(indexName, Map.of("title", SmartFieldDefinition.of()
+            .type(SmartFieldDefinition.Type.TEXT)
+            .index(true)
+            .analyzer(SmartAnalyzerSet.english.name())
+            .build()));
+    }
+
+    @Test
+    public void sharedAcrossIndexes() {
+        Assert.assertEquals(0, smartAnalyzers.size());
+
+        // Only the english index and query analyzers are created
+        createIndex("first");
+        Assert.assertEquals(2, smartAnalyzers.size());
+
+        // The second index uses the same instances
+        createIndex("second");
+        Assert.assertEquals(2, smartAnalyzers.size());
+
+        // A query analyzer resolved by name is created on first use
+        service.searchQuery("second", QueryDefinition.of(
+            QueryParser.of("title").setAnalyzer(SmartAnalyzerSet.french.name()).setQueryString("test").build())
+            .build(), false);
+        Assert.assertEquals(3, smartAnalyzers.size());
+
+        // The analyzers are released with the last index using them
+        service.deleteIndex("first");
+        Assert.assertEquals(3, smartAnalyzers.size());
+        service.deleteIndex("second");
+        Assert.assertEquals(0, smartAnalyzers.size());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.replication;
+
+import com.qwazr.utils.FileUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FileTransferTest {
+
+    private static ExecutorService executorService;
+    private static Path sourcePath;
+    private static Map<String, ReplicationSession.Item> items;
+
+    private Path workPath;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        executorService = Executors.newCachedThreadPool();
+        sourcePath = Files.createTempDirectory("file-transfer-source");
+        try (final Directory directory = FSDirectory.open(sourcePath);
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                 new IndexWriterConfig(new StandardAnalyzer()).setUseCompoundFile(false))) {
+            for (int i = 0; i < 100; i++) {
+                final Document document = new Document();
+                document.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                indexWriter.addDocument(document);
+            }
+            indexWriter.commit();
+            items = new LinkedHashMap<>();
+            for (final String fileName : SegmentInfos.readLatestCommit(directory).files(true))
+                items.put(fileName, new ReplicationSession.Item(sourcePath.resolve(fileName)));
+        }
+        Assert.assertTrue(items.size() > 1);
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        executorService.shutdown();
+        FileUtils.deleteDirectory(sourcePath);
+    }
+
+    @Before
+    public void before() throws IOException {
+        workPath = Files.createTempDirectory("file-transfer-work");
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtils.deleteDirectory(workPath);
+    }
+
+    private static InputStream read(final String fileName, final long offset) throws IOException {
+        final byte[] bytes = Files.readAllBytes(sourcePath.resolve(fileName));
+        return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+    }
+
+    private void checkWorkFiles() throws IOException {
+        for (final Map.Entry<String, ReplicationSession.Item> entry : items.entrySet()) {
+            final Path path = workPath.resolve(entry.getKey());
+            Assert.assertEquals(entry.getValue(), new ReplicationSession.Item(path));
+            Assert.assertArrayEquals(Files.readAllBytes(sourcePath.resolve(entry.getKey())), Files.readAllBytes(path));
+        }
+    }
+
+    @Test
+    public void parallelTransfer() throws IOException {
+        final Map<String, Long> offsets = new ConcurrentHashMap<>();
+        FileTransfer.obtain(ReplicationProcess.Source.data, (source, fileName, offset) -> {
+            Assert.assertNull(offsets.put(fileName, offset));
+            return read(fileName, offset);
+        }, workPath, items, executorService, 4);
+        Assert.assertEquals(items.keySet(), offsets.keySet());
+        offsets.values().forEach(offset -> Assert.assertEquals(Long.valueOf(0), offset));
+        checkWorkFiles();
+    }
+
+    @Test
+    public void resumePartialFile() throws IOException {
+        final String fileName = items.keySet().iterator().next();
+        final byte[] bytes = Files.readAllBytes(sourcePath.resolve(fileName));
+        Files.write(workPath.resolve(fileName), Arrays.copyOf(bytes, bytes.length / 2));
+        final Map<String, Long> offsets = new ConcurrentHashMap<>();
+        FileTransfer.obtain(ReplicationProcess.Source.data, (source, name, offset) -> {
+            offsets.put(name, offset);
+            return read(name, offset);
+        }, workPath, items, executorService, 2);
+        Assert.assertEquals(Long.valueOf(bytes.length / 2), offsets.get(fileName));
+        checkWorkFiles();
+    }
+
+    @Test
+    public void retryInterruptedTransfer() throws IOException {
+        final AtomicInteger failures = new AtomicInteger();
+        FileTransfer.obtain(ReplicationProcess.Source.data, (source, fileName, offset) -> {
+            final InputStream input = read(fileName, offset);
+            if (offset > 0 || failures.get() > 0)
+                return input;
+            failures.incrementAndGet();
+            // Deliver half of the file, then fail
+            return new InputStream() {
+
+                int remaining = input.available() / 2;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining-- <= 0)
+                        throw new IOException("Connection reset");
+                    return input.read();
+                }
+            };
+        }, workPath, items, null, 1);
+        Assert.assertEquals(1, failures.get());
+        checkWorkFiles();
+    }
+
+    @Test
+    public void corruptedFileIsDownloadedAgain() throws IOException {
+        final String fileName = items.keySet().iterator().next();
+        final byte[] bytes = Files.readAllBytes(sourcePath.resolve(fileName));
+        final byte[] corrupted = bytes.clone();
+        corrupted[corrupted.length / 2] ^= 0xFF;
+        Files.write(workPath.resolve(fileName), corrupted);
+        final AtomicInteger calls = new AtomicInteger();
+        FileTransfer.obtain(ReplicationProcess.Source.data, (source, name, offset) -> {
+            if (name.equals(fileName))
+                calls.incrementAndGet();
+            return read(name, offset);
+        }, workPath, items, executorService, 4);
+        Assert.assertEquals(1, calls.get());
+        checkWorkFiles();
+    }
+
+    @Test
+    public void persistentCorruptionFails() {
+        final String fileName = items.keySet().iterator().next();
+        try {
+            FileTransfer.obtain(ReplicationProcess.Source.data, (source, name, offset) -> {
+                if (!name.equals(fileName))
+                    return read(name, offset);
+                final byte[] bytes = Files.readAllBytes(sourcePath.resolve(name));
+                bytes[bytes.length / 2] ^= 0xFF;
+                return new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+            }, workPath, items, executorService, 4);
+            Assert.fail("The checksum error should be thrown");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Checksum failed"));
+        }
+        Assert.assertFalse(Files.exists(workPath.resolve(fileName)));
+    }
+}
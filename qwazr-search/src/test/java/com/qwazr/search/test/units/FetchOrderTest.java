@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryBuilder;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.index.ResultDocumentMap;
+import com.qwazr.search.index.ResultDocumentObject;
+import com.qwazr.search.query.MatchAllDocs;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The stored fields are fetched in doc ID order, the page must keep the rank order.
+ */
+public class FetchOrderTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+    private final static int COUNT = 150;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        initIndexService();
+        // Several posts, several segments
+        for (int batch = 0; batch < 3; batch++) {
+            final List<IndexRecord.NoTaxonomy> records = new ArrayList<>();
+            for (int i = batch; i < COUNT; i += 3)
+                records.add(new IndexRecord.NoTaxonomy(id(i)).storedField("stored" + id(i))
+                    .sortedDocValue(id(i)));
+            indexService.postDocuments(records);
+        }
+    }
+
+    private static String id(final int i) {
+        return String.format("%04d", i);
+    }
+
+    private QueryBuilder builder(final QueryDefinition.SortEnum sort) {
+        return QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .sort("sortedDocValue", sort)
+            .returnedField("storedField", "sortedDocValue")
+            .rows(COUNT);
+    }
+
+    private void check(final QueryDefinition.SortEnum sort, final int first, final int step) {
+        final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> resultObject =
+            indexService.searchQuery(builder(sort).build());
+        final List<ResultDocumentObject<IndexRecord.NoTaxonomy>> objectDocs = resultObject.getDocuments();
+        Assert.assertEquals(COUNT, objectDocs.size());
+        int expected = first;
+        for (final ResultDocumentObject<IndexRecord.NoTaxonomy> doc : objectDocs) {
+            Assert.assertEquals(id(expected), doc.record.sortedDocValue);
+            Assert.assertEquals("stored" + id(expected), doc.record.storedField);
+            expected += step;
+        }
+
+        final ResultDefinition.WithMap resultMap = indexService.searchQueryWithMap(builder(sort).build());
+        final List<ResultDocumentMap> mapDocs = resultMap.getDocuments();
+        Assert.assertEquals(COUNT, mapDocs.size());
+        expected = first;
+        for (final ResultDocumentMap doc : mapDocs) {
+            Assert.assertEquals(id(expected), doc.fields.get("sortedDocValue"));
+            Assert.assertEquals("stored" + id(expected), doc.fields.get("storedField"));
+            expected += step;
+        }
+    }
+
+    @Test
+    public void ascendingPage() {
+        check(QueryDefinition.SortEnum.ascending, 0, 1);
+    }
+
+    @Test
+    public void descendingPage() {
+        check(QueryDefinition.SortEnum.descending, COUNT - 1, -1);
+    }
+}
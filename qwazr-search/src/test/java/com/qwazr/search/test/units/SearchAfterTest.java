@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.search.test.units;
+
+import com.qwazr.search.index.QueryBuilder;
+import com.qwazr.search.index.QueryDefinition;
+import com.qwazr.search.index.ResultDefinition;
+import com.qwazr.search.index.ResultDocumentObject;
+import com.qwazr.search.query.MatchAllDocs;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.WebApplicationException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static com.qwazr.search.test.units.IndexRecord.SORTED_DOC_VALUE_FIELD_NAME;
+
+public class SearchAfterTest extends AbstractIndexTest.WithIndexRecord.NoTaxonomy {
+
+    private final static int COUNT = 103;
+
+    @BeforeClass
+    public static void setup() throws IOException, URISyntaxException {
+        initIndexService();
+        final List<IndexRecord.NoTaxonomy> documents = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++)
+            documents.add(new IndexRecord.NoTaxonomy(Integer.toString(i))
+                .sortedDocValue(String.format("%04d", COUNT - i))
+                .longDocValue(i % 10));
+        indexService.postDocuments(documents);
+    }
+
+    private List<String> paginate(final QueryBuilder builder) {
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            final ResultDefinition.WithObject<IndexRecord.NoTaxonomy> result =
+                indexService.searchQuery(builder.searchAfter(cursor).build());
+            Assert.assertEquals(COUNT, result.totalHits);
+            for (final ResultDocumentObject<IndexRecord.NoTaxonomy> doc : result.getDocuments())
+                ids.add(doc.record.id);
+            cursor = result.getNextCursor();
+            if (cursor != null)
+                Assert.assertEquals(10, result.getDocuments().size());
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    public void unsortedPagination() {
+        final List<String> ids = paginate(QueryDefinition.of(MatchAllDocs.INSTANCE).returnedField("*").rows(10));
+        final List<String> expected = new ArrayList<>();
+        indexService.searchQuery(QueryDefinition.of(MatchAllDocs.INSTANCE).returnedField("*").rows(COUNT).build())
+            .getDocuments().forEach(doc -> expected.add(doc.record.id));
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test
+    public void sortedPagination() {
+        final List<String> ids = paginate(QueryDefinition.of(MatchAllDocs.INSTANCE)
+            .returnedField("*")
+            .sort("longDocValue", QueryDefinition.SortEnum.ascending)
+            .sort(SORTED_DOC_VALUE_FIELD_NAME, QueryDefinition.SortEnum.descending)
+            .rows(10));
+        Assert.assertEquals(COUNT, ids.size());
+        final List<String> expected = new ArrayList<>();
+        for (int mod = 0; mod < 10; mod++)
+            for (int i = 0; i < COUNT; i++)
+                if (i % 10 == mod)
+                    expected.add(Integer.toString(i));
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test
+    public void cursorDoesNotMatchTheSort() {
+        final String cursor = indexService.searchQuery(QueryDefinition.of(MatchAllDocs.INSTANCE).rows(10).build())
+            .getNextCursor();
+        Assert.assertNotNull(cursor);
+        try {
+            indexService.searchQuery(QueryDefinition.of(MatchAllDocs.INSTANCE)
+                .sort(SORTED_DOC_VALUE_FIELD_NAME, QueryDefinition.SortEnum.ascending)
+                .searchAfter(cursor)
+                .build());
+            Assert.fail("WebApplicationException expected");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(406, e.getResponse().getStatus());
+        }
+    }
+}
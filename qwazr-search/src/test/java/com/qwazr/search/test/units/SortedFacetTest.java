@@ -199,4 +199,25 @@ public class SortedFacetTest extends AbstractIndexTest.WithIndexRecord.NoTaxonom
         Assert.assertEquals(1, facetResult.size());
         Assert.assertEquals(expected, facetResult.get(facetName).intValue());
     }
+
+    @Test
+    public void queryCountRestrictedByMainQuery() {
+        final String facetTerm = getRandomFacetValue();
+        final FacetDefinitionBuilder facetBuilder = FacetDefinition.of();
+        for (final String facetValue : facetValues)
+            facetBuilder.query(facetValue, FacetPath.of("sortedSetDocValuesFacetField").path(facetValue).build());
+        final ResultDefinition<?> result = indexService.searchQuery(
+            QueryDefinition.of(FacetPath.of("sortedSetDocValuesFacetField").path(facetTerm).build())
+                .rows(0)
+                .facet("sortedSetDocValuesFacetField", facetBuilder.build())
+                .build());
+        Assert.assertNotNull(result);
+        Assert.assertEquals(facetTerms.get(facetTerm).get(), result.totalHits);
+        final Map<String, Number> facetResult = result.getFacet("sortedSetDocValuesFacetField");
+        Assert.assertNotNull(facetResult);
+        Assert.assertEquals(facetValues.size(), facetResult.size());
+        for (final String facetValue : facetValues)
+            Assert.assertEquals(facetValue.equals(facetTerm) ? facetTerms.get(facetTerm).get() : 0,
+                facetResult.get(facetValue).intValue());
+    }
 }
@@ -66,6 +66,7 @@ import java.util.logging.Logger;
 public class GenericServer implements AutoCloseable {
 
     final private ExecutorService executorService;
+    final private Collection<ServerExecutor> executors;
     final private ServletContainer servletContainer;
     final private ServletContextBuilder webAppContext;
     final private ServletContextBuilder webServiceContext;
@@ -117,6 +118,7 @@ public class GenericServer implements AutoCloseable {
         this.udpServer = buildUdpServer(builder, configuration);
         this.startedListeners = CollectionsUtils.copyIfNotEmpty(builder.startedListeners, ArrayList::new);
         this.shutdownListeners = CollectionsUtils.copyIfNotEmpty(builder.shutdownListeners, ArrayList::new);
+        this.executors = CollectionsUtils.copyIfNotEmpty(builder.executors, ArrayList::new);
         this.connectorsStatistics = new ArrayList<>();
         this.registeredObjectNames = new LinkedHashSet<>();
     }
@@ -218,15 +220,11 @@ public class GenericServer implements AutoCloseable {
             }
         }
 
-        if (!executorService.isTerminated()) {
-            if (!executorService.isShutdown())
-                executorService.shutdown();
-            try {
-                executorService.awaitTermination(2, TimeUnit.MINUTES);
-            } catch (InterruptedException e) {
-                LOGGER.log(Level.WARNING, e, () -> "Executor shutdown failed: " + e.getMessage());
-            }
-        }
+        if (executors != null)
+            executors.forEach(ExecutorService::shutdown);
+        if (executors != null)
+            executors.forEach(this::awaitTermination);
+        awaitTermination(executorService);
 
         // Unregister MBeans
         if (registeredObjectNames != null && !registeredObjectNames.isEmpty()) {
@@ -244,6 +242,32 @@ public class GenericServer implements AutoCloseable {
         LOGGER.info("The server is stopped.");
     }
 
+    private void awaitTermination(final ExecutorService executorService) {
+        if (executorService.isTerminated())
+            return;
+        if (!executorService.isShutdown())
+            executorService.shutdown();
+        try {
+            executorService.awaitTermination(2, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Executor shutdown failed: " + e.getMessage());
+        }
+    }
+
+    private void registerExecutors() throws JMException {
+        if (executors == null)
+            return;
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        for (final ServerExecutor executor : executors) {
+            final Hashtable<String, String> props = new Hashtable<>();
+            props.put("type", "executor");
+            props.put("name", executor.getName());
+            final ObjectName name = new ObjectName("com.qwazr.server." + serverCounter.incrementAndGet(), props);
+            mbs.registerMBean(executor, name);
+            registeredObjectNames.add(name);
+        }
+    }
+
     private void applyIdentityManager(final ServerConfiguration.WebConnector connector,
                                       final DeploymentInfo deploymentInfo) {
         if (identityManagerProvider == null)
@@ -328,6 +352,8 @@ public class GenericServer implements AutoCloseable {
         if (udpServer != null)
             udpServer.checkStarted();
 
+        registerExecutors();
+
         // Launch the applications/connector
         startHttpServer(configuration.webAppConnector, webAppContext, webAppAccessLogger);
         startHttpServer(configuration.webServiceConnector, webServiceContext, webServiceAccessLogger);
@@ -344,6 +370,10 @@ public class GenericServer implements AutoCloseable {
         return connectorsStatistics;
     }
 
+    public Collection<ServerExecutorMXBean> getExecutorsStatistics() {
+        return executors == null ? Collections.emptyList() : Collections.unmodifiableCollection(executors);
+    }
+
     @FunctionalInterface
     public interface Listener {
         void accept(GenericServer server);
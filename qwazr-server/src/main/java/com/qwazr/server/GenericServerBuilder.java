@@ -41,6 +41,8 @@ public class GenericServerBuilder {
     Collection<GenericServer.Listener> startedListeners;
     Collection<GenericServer.Listener> shutdownListeners;
 
+    Collection<ServerExecutor> executors;
+
     GenericServerBuilder(final ServerConfiguration configuration, final ExecutorService executorService,
                          final ClassLoader classLoader, final ConstructorParameters constructorParameters) {
         this.configuration = configuration;
@@ -109,6 +111,21 @@ public class GenericServerBuilder {
         return this;
     }
 
+    /**
+     * Register a named executor. It is exposed over JMX while the server is running, and shut down when the server
+     * stops, after the shutdown listeners.
+     *
+     * @param executor the executor to register
+     * @return the current builder
+     */
+    public GenericServerBuilder executor(final ServerExecutor executor) {
+        Objects.requireNonNull(executor, "The executor is null");
+        if (executors == null)
+            executors = new LinkedHashSet<>();
+        executors.add(executor);
+        return this;
+    }
+
     public GenericServerBuilder sessionPersistenceManager(final SessionPersistenceManager manager) {
         webAppContext.setSessionPersistenceManager(manager);
         return this;
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.server;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named thread pool with a bounded number of threads and a bounded queue.
+ * The idle threads are released after one minute.
+ * <p>
+ * When the queue is full, the task is rejected with a RejectedExecutionException (abort) or run by the submitting
+ * thread (caller_runs), which slows down the producer.
+ */
+public class ServerExecutor extends ThreadPoolExecutor implements ServerExecutorMXBean {
+
+    private final static long KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final ServerConfiguration.ExecutorSettings settings;
+    private final LongAdder rejectedCount;
+
+    private ServerExecutor(final String name, final ServerConfiguration.ExecutorSettings settings,
+                           final RejectionHandler rejectionHandler) {
+        super(settings.threads, settings.threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, newQueue(settings.queue),
+                new NamedThreadFactory(name), rejectionHandler);
+        allowCoreThreadTimeOut(true);
+        this.name = name;
+        this.settings = settings;
+        this.rejectedCount = rejectionHandler.rejectedCount;
+    }
+
+    public ServerExecutor(final String name, final ServerConfiguration.ExecutorSettings settings) {
+        this(name, settings, new RejectionHandler(settings.rejection));
+    }
+
+    /**
+     * Build an executor using the settings of the configuration
+     *
+     * @param configuration the configuration of the server
+     * @param name          the name of the executor
+     * @param defaults      the settings used when the configuration does not set them
+     * @return a new executor
+     */
+    public static ServerExecutor of(final ServerConfiguration configuration, final String name,
+                                    final ServerConfiguration.ExecutorSettings defaults) {
+        return new ServerExecutor(name, configuration.getExecutorSettings(name, defaults));
+    }
+
+    private static BlockingQueue<Runnable> newQueue(final int capacity) {
+        return capacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getRejectionPolicy() {
+        return settings.rejection.name();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return settings.queue;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + " - active: " + getActiveCount() + "/" + getMaximumPoolSize() + " - queued: " + getQueueSize() +
+                "/" + getQueueCapacity() + " - completed: " + getCompletedTaskCount() + " - rejected: " +
+                getRejectedCount();
+    }
+
+    private static class RejectionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler policy;
+        private final LongAdder rejectedCount;
+
+        private RejectionHandler(final ServerConfiguration.ExecutorSettings.Rejection rejection) {
+            switch (rejection) {
+                case caller_runs:
+                    policy = new CallerRunsPolicy();
+                    break;
+                case abort:
+                default:
+                    policy = new AbortPolicy();
+                    break;
+            }
+            rejectedCount = new LongAdder();
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            rejectedCount.increment();
+            policy.rejectedExecution(runnable, executor);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter;
+
+        private NamedThreadFactory(final String name) {
+            this.prefix = "qwazr-" + name + '-';
+            this.counter = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+}
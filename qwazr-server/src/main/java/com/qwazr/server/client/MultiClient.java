@@ -16,6 +16,7 @@
 package com.qwazr.server.client;
 
 import com.qwazr.utils.RandomArrayIterator;
+import com.qwazr.utils.concurrent.ExecutorUtils;
 import com.qwazr.utils.concurrent.FunctionEx;
 
 import javax.ws.rs.WebApplicationException;
@@ -24,8 +25,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
@@ -91,10 +94,14 @@ public class MultiClient<T> implements Iterable<T> {
         if (clients == null || clients.length == 0)
             return Collections.emptyList();
 
-        // Start the parallel threads
+        // Start the parallel threads, the calling thread runs the actions rejected by a saturated executor
+        final Executor executor = ExecutorUtils.callerRunsOnRejection(executorService);
         final List<Future<R>> futures = new ArrayList<>(clients.length);
-        for (final T client : this)
-            futures.add(executorService.submit(() -> action.apply(client)));
+        for (final T client : this) {
+            final FutureTask<R> future = new FutureTask<>(() -> action.apply(client));
+            executor.execute(future);
+            futures.add(future);
+        }
 
         // Get the results
         final List<R> results = new ArrayList<>(clients.length);
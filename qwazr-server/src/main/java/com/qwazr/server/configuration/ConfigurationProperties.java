@@ -65,6 +65,45 @@ public interface ConfigurationProperties {
 
 	String QWAZR_GROUPS = "QWAZR_GROUPS";
 
+	/**
+	 * The cluster membership protocol. The value "gossip" enables the SWIM based gossip protocol.
+	 * By default, the nodes use the multicast protocol if MULTICAST_ADDR is set, the datagram protocol otherwise.
+	 */
+	String CLUSTER_PROTOCOL = "CLUSTER_PROTOCOL";
+
+	/**
+	 * The period of the gossip protocol in milliseconds. The default value is 1000.
+	 */
+	String CLUSTER_GOSSIP_PERIOD_MS = "CLUSTER_GOSSIP_PERIOD_MS";
+
+	/**
+	 * The timeout of a direct probe of the gossip protocol in milliseconds. The default value is 300.
+	 */
+	String CLUSTER_GOSSIP_ACK_TIMEOUT_MS = "CLUSTER_GOSSIP_ACK_TIMEOUT_MS";
+
+	/**
+	 * The settings of a named executor are the prefix, the name of the executor in upper case (e.g. SEARCH_SLICE,
+	 * FETCH, INGEST, REPLICATION, CLUSTER) and one of the suffixes below.
+	 * E.g.: EXECUTOR_SEARCH_SLICE_THREADS=8
+	 */
+	String EXECUTOR_PREFIX = "EXECUTOR_";
+
+	/**
+	 * The maximum number of threads of the executor
+	 */
+	String EXECUTOR_THREADS_SUFFIX = "_THREADS";
+
+	/**
+	 * The maximum number of pending tasks of the executor. Zero means no queue.
+	 */
+	String EXECUTOR_QUEUE_SUFFIX = "_QUEUE";
+
+	/**
+	 * What happens to a task when the queue is full: "abort" throws a RejectedExecutionException, "caller_runs" runs
+	 * the task in the submitting thread.
+	 */
+	String EXECUTOR_REJECTION_SUFFIX = "_REJECTION";
+
 }
 
 
@@ -36,7 +36,9 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -126,6 +128,20 @@ public class ServerConfiguration implements ConfigurationProperties {
         return Integer.parseInt(value);
     }
 
+    /**
+     * @param name     the name of the executor
+     * @param defaults the settings used when the properties are not set
+     * @return the settings of the named executor
+     */
+    public ExecutorSettings getExecutorSettings(final String name, final ExecutorSettings defaults) {
+        final String prefix = ExecutorSettings.getPropertyPrefix(name);
+        final String rejection = getStringProperty(prefix + EXECUTOR_REJECTION_SUFFIX, null);
+        return new ExecutorSettings(
+                getIntegerProperty(prefix + EXECUTOR_THREADS_SUFFIX, defaults.threads),
+                getIntegerProperty(prefix + EXECUTOR_QUEUE_SUFFIX, defaults.queue),
+                rejection == null ? defaults.rejection : ExecutorSettings.Rejection.of(rejection));
+    }
+
     protected static void fillStringListProperty(final String value, final String separatorChars, final boolean trim,
                                                  final Consumer<String> consumer) {
         if (value == null)
@@ -192,6 +208,40 @@ public class ServerConfiguration implements ConfigurationProperties {
 
     }
 
+    public static class ExecutorSettings {
+
+        public enum Rejection {
+
+            abort, caller_runs;
+
+            static Rejection of(final String value) {
+                try {
+                    return valueOf(value.trim().toLowerCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown executor rejection policy: " + value, e);
+                }
+            }
+        }
+
+        public final int threads;
+        public final int queue;
+        public final Rejection rejection;
+
+        public ExecutorSettings(final int threads, final int queue, final Rejection rejection) {
+            if (threads < 1)
+                throw new IllegalArgumentException("The number of threads must be greater than zero: " + threads);
+            if (queue < 0)
+                throw new IllegalArgumentException("The size of the queue must not be negative: " + queue);
+            this.threads = threads;
+            this.queue = queue;
+            this.rejection = Objects.requireNonNull(rejection, "The rejection policy is missing");
+        }
+
+        static String getPropertyPrefix(final String name) {
+            return EXECUTOR_PREFIX + name.toUpperCase(Locale.ROOT).replace('-', '_');
+        }
+    }
+
     /**
      * Manage that kind of pattern:
      * 192.168.0.0/16,172.168.0.0/16
@@ -449,6 +499,36 @@ public class ServerConfiguration implements ConfigurationProperties {
             return this;
         }
 
+        public Builder clusterProtocol(String clusterProtocol) {
+            if (clusterProtocol != null)
+                map.put(CLUSTER_PROTOCOL, clusterProtocol);
+            return this;
+        }
+
+        public Builder clusterGossipPeriodMs(Integer periodMs) {
+            if (periodMs != null)
+                map.put(CLUSTER_GOSSIP_PERIOD_MS, periodMs.toString());
+            return this;
+        }
+
+        public Builder clusterGossipAckTimeoutMs(Integer ackTimeoutMs) {
+            if (ackTimeoutMs != null)
+                map.put(CLUSTER_GOSSIP_ACK_TIMEOUT_MS, ackTimeoutMs.toString());
+            return this;
+        }
+
+        public Builder executor(final String name, final Integer threads, final Integer queue,
+                                final ExecutorSettings.Rejection rejection) {
+            final String prefix = ExecutorSettings.getPropertyPrefix(name);
+            if (threads != null)
+                map.put(prefix + EXECUTOR_THREADS_SUFFIX, threads.toString());
+            if (queue != null)
+                map.put(prefix + EXECUTOR_QUEUE_SUFFIX, queue.toString());
+            if (rejection != null)
+                map.put(prefix + EXECUTOR_REJECTION_SUFFIX, rejection.name());
+            return this;
+        }
+
         private Map<String, String> finalizeMap() {
             if (!masters.isEmpty())
                 map.put(QWAZR_MASTERS, StringUtils.join(masters, ','));
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.server;
+
+import com.qwazr.server.configuration.ServerConfiguration;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServerExecutorTest {
+
+    private static ServerConfiguration.ExecutorSettings settings(final ServerConfiguration.ExecutorSettings.Rejection rejection) {
+        return new ServerConfiguration.ExecutorSettings(1, 1, rejection);
+    }
+
+    /**
+     * Occupy the only thread and fill the queue
+     */
+    private static CountDownLatch saturate(final ServerExecutor executor) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+        });
+        try {
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return latch;
+    }
+
+    @Test
+    public void abort() throws InterruptedException {
+        final ServerExecutor executor =
+                new ServerExecutor("test-abort", settings(ServerConfiguration.ExecutorSettings.Rejection.abort));
+        try {
+            final CountDownLatch latch = saturate(executor);
+            Assert.assertEquals(1, executor.getActiveCount());
+            Assert.assertEquals(1, executor.getQueueSize());
+            Assert.assertEquals(1, executor.getQueueCapacity());
+            try {
+                executor.submit(() -> {
+                });
+                Assert.fail("RejectedExecutionException not thrown");
+            } catch (RejectedExecutionException e) {
+                Assert.assertEquals(1, executor.getRejectedCount());
+            }
+            latch.countDown();
+        } finally {
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(2, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void callerRuns() throws Exception {
+        final ServerExecutor executor = new ServerExecutor("test-caller-runs",
+                settings(ServerConfiguration.ExecutorSettings.Rejection.caller_runs));
+        try {
+            final CountDownLatch latch = saturate(executor);
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            final Future<?> future = executor.submit(() -> thread.set(Thread.currentThread()));
+            Assert.assertTrue(future.isDone());
+            Assert.assertSame(Thread.currentThread(), thread.get());
+            Assert.assertEquals(1, executor.getRejectedCount());
+            latch.countDown();
+            while (executor.getCompletedTaskCount() < 2)
+                Thread.sleep(10);
+            executor.submit(() -> thread.set(Thread.currentThread())).get();
+            Assert.assertEquals("qwazr-test-caller-runs-1", thread.get().getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void configuration() throws IOException {
+        final ServerConfiguration configuration = ServerConfiguration.of()
+                .data(Files.createTempDirectory("executor"))
+                .executor("search-slice", 3, 0, ServerConfiguration.ExecutorSettings.Rejection.caller_runs)
+                .build();
+        final ServerExecutor executor = ServerExecutor.of(configuration, "search-slice",
+                new ServerConfiguration.ExecutorSettings(8, 100, ServerConfiguration.ExecutorSettings.Rejection.abort));
+        try {
+            Assert.assertEquals(3, executor.getMaximumPoolSize());
+            Assert.assertEquals(0, executor.getQueueCapacity());
+            Assert.assertEquals("caller_runs", executor.getRejectionPolicy());
+        } finally {
+            executor.shutdown();
+        }
+        final ServerConfiguration.ExecutorSettings defaults = configuration.getExecutorSettings("ingest",
+                new ServerConfiguration.ExecutorSettings(2, 10, ServerConfiguration.ExecutorSettings.Rejection.abort));
+        Assert.assertEquals(2, defaults.threads);
+        Assert.assertEquals(10, defaults.queue);
+        Assert.assertEquals(ServerConfiguration.ExecutorSettings.Rejection.abort, defaults.rejection);
+    }
+
+    @Test
+    public void jmx() throws IOException, ServletException, JMException {
+        final ServerExecutor executor = new ServerExecutor("test-jmx",
+                settings(ServerConfiguration.ExecutorSettings.Rejection.abort));
+        final GenericServer server =
+                GenericServer.of(ServerConfiguration.of().data(Files.createTempDirectory("executor")).build(), null)
+                        .executor(executor)
+                        .build();
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName query = new ObjectName("com.qwazr.server.*:type=executor,name=test-jmx");
+        server.start(false);
+        try {
+            final Set<ObjectName> names = mbs.queryNames(query, null);
+            Assert.assertEquals(1, names.size());
+            Assert.assertEquals(1, mbs.getAttribute(names.iterator().next(), "MaximumPoolSize"));
+            Assert.assertEquals(1, server.getExecutorsStatistics().size());
+        } finally {
+            server.close();
+        }
+        Assert.assertTrue(mbs.queryNames(query, null).isEmpty());
+        Assert.assertTrue(executor.isTerminated());
+    }
+}
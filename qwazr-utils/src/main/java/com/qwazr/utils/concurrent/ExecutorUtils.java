@@ -15,8 +15,15 @@
  */
 package com.qwazr.utils.concurrent;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ExecutorUtils {
 
@@ -30,4 +37,78 @@ public class ExecutorUtils {
             executorService.shutdown();
         executorService.awaitTermination(timeOut, timeUnit);
     }
+
+    /**
+     * Wrap the executor so that a task it rejects (bounded queue with the abort policy)
+     * is run by the calling thread instead of failing.
+     *
+     * @param executor the executor to wrap
+     * @return an executor which never throws a {@link RejectedExecutionException}
+     */
+    public static Executor callerRunsOnRejection(final Executor executor) {
+        return command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        };
+    }
+
+    /**
+     * Run the tasks on the executor, the calling thread being one of the workers.
+     * <p>
+     * The calling thread runs the first task, then every task the executor has not started yet:
+     * a task queued behind busy threads is run by the calling thread instead of being awaited,
+     * so the tasks progress even if the executor is busy. A task rejected by a saturated executor
+     * is run by the calling thread too. The tasks already started are awaited.
+     * Each task is run exactly once.
+     *
+     * @param executorService the executor, if null every task is run by the calling thread
+     * @param tasks           the tasks to run
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a task
+     * @throws ExecutionException   if a task run by the executor failed, once every task is done
+     */
+    public static void invokeWithCaller(final ExecutorService executorService, final List<? extends Runnable> tasks)
+            throws InterruptedException, ExecutionException {
+        if (executorService == null || tasks.size() <= 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        final List<AtomicBoolean> started = new ArrayList<>(tasks.size() - 1);
+        final List<Future<?>> futures = new ArrayList<>(tasks.size() - 1);
+        for (final Runnable task : tasks.subList(1, tasks.size())) {
+            final AtomicBoolean taskStarted = new AtomicBoolean();
+            started.add(taskStarted);
+            Future<?> future;
+            try {
+                future = executorService.submit(() -> {
+                    if (taskStarted.compareAndSet(false, true))
+                        task.run();
+                });
+            } catch (RejectedExecutionException e) {
+                // Not started: the calling thread will run it
+                future = null;
+            }
+            futures.add(future);
+        }
+        tasks.get(0).run();
+        ExecutionException error = null;
+        for (int i = 0; i < futures.size(); i++) {
+            if (started.get(i).compareAndSet(false, true)) {
+                tasks.get(i + 1).run();
+                continue;
+            }
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                if (error == null)
+                    error = e;
+                else
+                    error.addSuppressed(e.getCause());
+            }
+        }
+        if (error != null)
+            throw error;
+    }
 }
@@ -18,12 +18,13 @@ package com.qwazr.utils.concurrent;
 import com.qwazr.utils.LoggerUtils;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public abstract class PeriodicThread implements ThreadUtils.ExtendedRunnable {
 
-	private final int monitoringPeriod;
+	private final long monitoringPeriod;
 
 	private volatile Long lastExecutionTime = null;
 
@@ -32,7 +33,11 @@ public abstract class PeriodicThread implements ThreadUtils.ExtendedRunnable {
 	private static final Logger LOGGER = LoggerUtils.getLogger(PeriodicThread.class);
 
 	protected PeriodicThread(final int monitoringPeriodSeconds) {
-		this.monitoringPeriod = monitoringPeriodSeconds * 1000;
+		this(monitoringPeriodSeconds, TimeUnit.SECONDS);
+	}
+
+	protected PeriodicThread(final long monitoringPeriod, final TimeUnit timeUnit) {
+		this.monitoringPeriod = timeUnit.toMillis(monitoringPeriod);
 		this.shutdown = false;
 	}
 
@@ -17,13 +17,22 @@ package com.qwazr.utils.concurrent;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ExecutorUtilsTest {
 
@@ -38,4 +47,103 @@ public class ExecutorUtilsTest {
         assertTrue(executorService.isShutdown());
         assertTrue(executorService.isTerminated());
     }
+
+    private static List<Runnable> countingTasks(final int count, final List<Thread> threads) {
+        final List<Runnable> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            tasks.add(() -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+            });
+        return tasks;
+    }
+
+    @Test
+    public void invokeWithCallerBusyExecutor() throws InterruptedException, ExecutionException {
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            executorService.submit(() -> {
+                latch.await();
+                return null;
+            });
+            final List<Thread> threads = new ArrayList<>();
+            // The tasks are queued behind the busy thread: the calling thread runs them all
+            ExecutorUtils.invokeWithCaller(executorService, countingTasks(4, threads));
+            assertEquals(4, threads.size());
+            threads.forEach(thread -> assertEquals(Thread.currentThread(), thread));
+        } finally {
+            latch.countDown();
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void invokeWithCallerRejected() throws InterruptedException, ExecutionException {
+        final ExecutorService executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            // One busy thread and a full queue: the executor rejects every new task
+            for (int i = 0; i < 2; i++)
+                executorService.submit(() -> {
+                    latch.await();
+                    return null;
+                });
+            final List<Thread> threads = new ArrayList<>();
+            ExecutorUtils.invokeWithCaller(executorService, countingTasks(4, threads));
+            assertEquals(4, threads.size());
+            threads.forEach(thread -> assertEquals(Thread.currentThread(), thread));
+            // The wrapped executor runs the rejected task on the calling thread
+            final List<Thread> rejected = new ArrayList<>();
+            ExecutorUtils.callerRunsOnRejection(executorService).execute(countingTasks(1, rejected).get(0));
+            assertEquals(List.of(Thread.currentThread()), rejected);
+        } finally {
+            latch.countDown();
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void invokeWithCallerOnce() throws InterruptedException, ExecutionException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            final List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                tasks.add(counter::incrementAndGet);
+            ExecutorUtils.invokeWithCaller(executorService, tasks);
+            assertEquals(100, counter.get());
+            ExecutorUtils.invokeWithCaller(null, tasks);
+            assertEquals(200, counter.get());
+        } finally {
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void invokeWithCallerError() throws InterruptedException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        try {
+            final List<Runnable> tasks = List.of(() -> {
+                try {
+                    // Let the executor start the failing task
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, () -> {
+                started.countDown();
+                throw new IllegalStateException("failed");
+            });
+            ExecutorUtils.invokeWithCaller(executorService, tasks);
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            ExecutorUtils.close(executorService, 10, TimeUnit.SECONDS);
+        }
+    }
 }